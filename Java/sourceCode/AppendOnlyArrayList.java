@@ -0,0 +1,188 @@
+package java.util;  
+  
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;  
+import java.util.function.Consumer;  
+  
+/*  
+    1.AppendOnlyArrayList是一个线程写、多个线程读的只追加list：只有add、addAll，没有set、remove、clear  
+    2.读（get、size、isEmpty、迭代、subList）不加锁也不做CAS，和ArrayList.get一样只是几次内存读  
+    3.写线程按这个顺序发布：  
+        a.把元素写进elementData[size]（普通写）  
+        b.容量不够时先复制出新数组，再把新数组写到volatile的elementData  
+        c.最后用lazySet（release写）把size加1  
+      读线程先读size（volatile读），再读elementData；读到size == n时，前n个元素和至少n长的数组都已经可见  
+    4.只能有一个写线程，这一点不做检查；需要多个写线程时用ConcurrentVector  
+    5.元素写入后不会再被修改，所以前size个元素一旦可见就一直不变，  
+      spliterator、forEach、toArray遍历调用时的前size个元素，是一致的快照  
+    6.iterator()、subList()来自AbstractList，modCount始终为0，不会抛ConcurrentModificationException；  
+      iterator每次hasNext都重新读size，能看到遍历期间追加的元素  
+*/  
+public class AppendOnlyArrayList<E> extends AbstractList<E>  
+        implements RandomAccess  
+{  
+    private static final int DEFAULT_CAPACITY = 10;  
+  
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;  
+  
+    @SuppressWarnings("rawtypes")  
+    private static final AtomicIntegerFieldUpdater<AppendOnlyArrayList> SIZE =  
+        AtomicIntegerFieldUpdater.newUpdater(AppendOnlyArrayList.class, "size");  
+  
+    //只在扩容时整体替换  
+    private volatile Object[] elementData;  
+  
+    //已经发布的元素数目，写线程用lazySet更新  
+    private volatile int size;  
+  
+    public AppendOnlyArrayList(int initialCapacity) {  
+        super();  
+        if (initialCapacity < 0)  
+            throw new IllegalArgumentException("Illegal Capacity: "+  
+                                               initialCapacity);  
+        this.elementData = new Object[initialCapacity];  
+    }  
+  
+    public AppendOnlyArrayList() {  
+        this(DEFAULT_CAPACITY);  
+    }  
+  
+    public AppendOnlyArrayList(Collection<? extends E> c) {  
+        Object[] a = c.toArray();  
+        if (a.getClass() != Object[].class)  
+            a = Arrays.copyOf(a, a.length, Object[].class);  
+        elementData = a;  
+        size = a.length;  
+    }  
+  
+    //------------------------ 读 ------------------------  
+  
+    public int size() {  
+        return size;  
+    }  
+  
+    public boolean isEmpty() {  
+        return size == 0;  
+    }  
+  
+    //先读size再读elementData，顺序不能反  
+    @SuppressWarnings("unchecked")  
+    public E get(int index) {  
+        int n = size;  
+        if (index < 0 || index >= n)  
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+n);  
+        return (E) elementData[index];  
+    }  
+  
+    public int indexOf(Object o) {  
+        int n = size;  
+        Object[] a = elementData;  
+        if (o == null) {  
+            for (int i = 0; i < n; i++)  
+                if (a[i] == null)  
+                    return i;  
+        } else {  
+            for (int i = 0; i < n; i++)  
+                if (o.equals(a[i]))  
+                    return i;  
+        }  
+        return -1;  
+    }  
+  
+    public int lastIndexOf(Object o) {  
+        int n = size;  
+        Object[] a = elementData;  
+        if (o == null) {  
+            for (int i = n - 1; i >= 0; i--)  
+                if (a[i] == null)  
+                    return i;  
+        } else {  
+            for (int i = n - 1; i >= 0; i--)  
+                if (o.equals(a[i]))  
+                    return i;  
+        }  
+        return -1;  
+    }  
+  
+    public boolean contains(Object o) {  
+        return indexOf(o) >= 0;  
+    }  
+  
+    public Object[] toArray() {  
+        int n = size;  
+        return Arrays.copyOf(elementData, n);  
+    }  
+  
+    @SuppressWarnings("unchecked")  
+    public <T> T[] toArray(T[] a) {  
+        int n = size;  
+        Object[] elementData = this.elementData;  
+        if (a.length < n)  
+            return (T[]) Arrays.copyOf(elementData, n, a.getClass());  
+        System.arraycopy(elementData, 0, a, 0, n);  
+        if (a.length > n)  
+            a[n] = null;  
+        return a;  
+    }  
+  
+    //遍历调用时的前size个元素，期间追加的看不到  
+    @SuppressWarnings("unchecked")  
+    public void forEach(Consumer<? super E> action) {  
+        Objects.requireNonNull(action);  
+        int n = size;  
+        Object[] a = elementData;  
+        for (int i = 0; i < n; i++)  
+            action.accept((E) a[i]);  
+    }  
+  
+    //同样是调用时的快照；前size个元素不会再变，所以是IMMUTABLE的  
+    public Spliterator<E> spliterator() {  
+        int n = size;  
+        return Spliterators.spliterator(elementData, 0, n,  
+                                        Spliterator.ORDERED | Spliterator.IMMUTABLE);  
+    }  
+  
+    //------------------------ 写（只能在写线程调用） ------------------------  
+  
+    public boolean add(E e) {  
+        int n = size;  
+        Object[] a = elementData;  
+        if (n == a.length)  
+            a = grow(n + 1);  
+        a[n] = e;  
+        SIZE.lazySet(this, n + 1);  
+        return true;  
+    }  
+  
+    //所有元素写完之后只发布一次size，读线程要么看不到这一批，要么看到全部  
+    public boolean addAll(Collection<? extends E> c) {  
+        Object[] src = c.toArray();  
+        int numNew = src.length;  
+        if (numNew == 0)  
+            return false;  
+        int n = size;  
+        if (numNew > MAX_ARRAY_SIZE - n)  
+            throw new OutOfMemoryError();  
+        Object[] a = elementData;  
+        if (n + numNew > a.length)  
+            a = grow(n + numNew);  
+        System.arraycopy(src, 0, a, n, numNew);  
+        SIZE.lazySet(this, n + numNew);  
+        return true;  
+    }  
+  
+    //扩容为1.5倍，新数组先写完再发布；旧数组还在被读的线程用，不清空  
+    private Object[] grow(int minCapacity) {  
+        if (minCapacity < 0) // overflow  
+            throw new OutOfMemoryError();  
+        Object[] old = elementData;  
+        int oldCapacity = old.length;  
+        int newCapacity = oldCapacity + (oldCapacity >> 1);  
+        if (newCapacity - minCapacity < 0)  
+            newCapacity = Math.max(minCapacity, DEFAULT_CAPACITY);  
+        if (newCapacity - MAX_ARRAY_SIZE > 0)  
+            newCapacity = (minCapacity > MAX_ARRAY_SIZE) ? Integer.MAX_VALUE : MAX_ARRAY_SIZE;  
+        Object[] a = Arrays.copyOf(old, newCapacity);  
+        elementData = a;  
+        return a;  
+    }  
+}  
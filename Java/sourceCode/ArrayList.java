@@ -1,4 +1,11 @@
 package java.util;  
+  
+import java.util.concurrent.ForkJoinPool;  
+import java.util.concurrent.RecursiveAction;  
+import java.util.function.Consumer;  
+import java.util.function.Predicate;  
+import java.util.function.UnaryOperator;  
+  
 /* 
     1.ArrayList实现了List接口，允许包含null 
     2.ArrayList和Vector基本一致，除了ArrayList是非同步的（unsynchronized） 
@@ -26,6 +33,15 @@ public class ArrayList<E> extends AbstractList<E>
       
     //包含元素的数目  
     private int size;  
+  
+    /*  
+        1.elementData可能和clone()、snapshot()出来的list共用，这时不能直接写  
+        2.每个会写elementData的方法先调用unshare()，第一次写时才复制一份（copy-on-write）  
+    */  
+    private transient boolean shared;  
+  
+    //扩容策略，null表示默认的1.5倍；删除之后是否缩小也由它决定（shrinkCapacity）  
+    private transient GrowthPolicy growthPolicy;  
       
     //初始化大小为initialCapacity的ArrayList  
     public ArrayList(int initialCapacity) {  
@@ -36,6 +52,12 @@ public class ArrayList<E> extends AbstractList<E>
         this.elementData = new Object[initialCapacity];  
     }  
       
+    //使用指定的扩容策略  
+    public ArrayList(int initialCapacity, GrowthPolicy growthPolicy) {  
+        this(initialCapacity);  
+        this.growthPolicy = Objects.requireNonNull(growthPolicy);  
+    }  
+      
     //无参构造函数  
     public ArrayList() {  
         super();  
@@ -60,7 +82,38 @@ public class ArrayList<E> extends AbstractList<E>
     public void trimToSize() {  
         modCount++;  
         if (size < elementData.length) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.shrink(elementData.length, size, size);  
             elementData = Arrays.copyOf(elementData, size);  
+            shared = false;  
+        }  
+    }  
+  
+    //elementData和别的list共用时先复制一份，之后就可以直接写了  
+    private void unshare() {  
+        if (shared) {  
+            elementData = Arrays.copyOf(elementData, elementData.length);  
+            shared = false;  
+        }  
+    }  
+  
+    //删除之后剩newSize个元素时扩容策略要求的新长度，不需要缩小时返回-1  
+    private int shrinkTarget(int newSize) {  
+        if (growthPolicy == null)  
+            return -1;  
+        int capacity = elementData.length;  
+        int newCapacity = growthPolicy.shrinkCapacity(capacity, newSize);  
+        return (newCapacity < capacity && newCapacity >= newSize) ? newCapacity : -1;  
+    }  
+  
+    //删除之后按扩容策略缩小elementData；复制出来的新数组只属于自己  
+    private void shrinkIfSparse() {  
+        int newCapacity = shrinkTarget(size);  
+        if (newCapacity >= 0) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.shrink(elementData.length, newCapacity, size);  
+            elementData = Arrays.copyOf(elementData, newCapacity);  
+            shared = false;  
         }  
     }  
       
@@ -81,9 +134,16 @@ public class ArrayList<E> extends AbstractList<E>
             : DEFAULT_CAPACITY;  
   
         if (minCapacity > minExpand) {  
+            recordBulk(minCapacity);  
             ensureExplicitCapacity(minCapacity);  
         }  
     }  
+  
+    //ensureCapacity、addAll一次要很多空间，告诉扩容策略  
+    private void recordBulk(int minCapacity) {  
+        if (growthPolicy != null)  
+            growthPolicy.recordBulk(elementData.length, minCapacity);  
+    }  
       
     //内部函数，功能和vector类相似  
     private void ensureCapacityInternal(int minCapacity) {  
@@ -100,6 +160,8 @@ public class ArrayList<E> extends AbstractList<E>
         // overflow-conscious code  
         if (minCapacity - elementData.length > 0)  
             grow(minCapacity);  
+        else  
+            unshare();  
     }  
       
     /* 
@@ -114,15 +176,24 @@ public class ArrayList<E> extends AbstractList<E>
         // overflow-conscious code  
         int oldCapacity = elementData.length;  
           
-        //默认是增加原来oldcapacity的一半（重点）       
-        int newCapacity = oldCapacity + (oldCapacity >> 1);  
+        //默认是增加原来oldcapacity的一半（重点）；指定了扩容策略时由它决定  
+        int newCapacity = (growthPolicy == null)  
+            ? oldCapacity + (oldCapacity >> 1)  
+            : growthPolicy.newCapacity(oldCapacity, minCapacity);  
           
         if (newCapacity - minCapacity < 0)  
             newCapacity = minCapacity;  
-        if (newCapacity - MAX_ARRAY_SIZE > 0)  
+        if (newCapacity - MAX_ARRAY_SIZE > 0) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.hugeCapacity(minCapacity);  
             newCapacity = hugeCapacity(minCapacity);  
+        }  
+        if (ListMetrics.ENABLED)  
+            ListMetrics.grow(oldCapacity, newCapacity, minCapacity);  
         // minCapacity is usually close to size, so this is a win:  
         elementData = Arrays.copyOf(elementData, newCapacity);  
+        //复制出来的新数组只属于自己  
+        shared = false;  
     }  
       
     private static int hugeCapacity(int minCapacity) {  
@@ -176,11 +247,18 @@ public class ArrayList<E> extends AbstractList<E>
         return -1;  
     }  
       
+    /*  
+        1.和原来一样复制elementData，不修改这个list的任何状态，几个线程同时clone一个不再修改的list也是安全的  
+        2.elementData已经因为snapshot()被共用（shared）时不用再复制，新的list也共用它并标记为shared，O(1)  
+    */  
     public Object clone() {  
         try {  
             @SuppressWarnings("unchecked")  
                 ArrayList<E> v = (ArrayList<E>) super.clone();  
-            v.elementData = Arrays.copyOf(elementData, size);  
+            if (shared)  
+                v.elementData = elementData;  
+            else  
+                v.elementData = Arrays.copyOf(elementData, size);  
             v.modCount = 0;  
             return v;  
         } catch (CloneNotSupportedException e) {  
@@ -189,6 +267,16 @@ public class ArrayList<E> extends AbstractList<E>
         }  
     }  
       
+    /*  
+        1.返回当前内容的只读快照，O(1)：把elementData标记为shared，快照和这个list共用它  
+        2.这个list之后的修改会先复制数组（copy-on-write），不影响快照；快照可以交给其他线程去读  
+    */  
+    @SuppressWarnings("unchecked")  
+    public List<E> snapshot() {  
+        shared = true;  
+        return Collections.unmodifiableList((List<E>) clone());  
+    }  
+  
     public Object[] toArray() {  
         return Arrays.copyOf(elementData, size);  
     }  
@@ -225,6 +313,7 @@ public class ArrayList<E> extends AbstractList<E>
         rangeCheck(index);  
   
         E oldValue = elementData(index);  
+        unshare();  
         elementData[index] = element;  
         return oldValue;  
     }  
@@ -239,6 +328,8 @@ public class ArrayList<E> extends AbstractList<E>
         rangeCheckForAdd(index);  
   
         ensureCapacityInternal(size + 1);  // Increments modCount!!  
+        if (ListMetrics.ENABLED)  
+            ListMetrics.shift(1, size - index);  
         System.arraycopy(elementData, index, elementData, index + 1,  
                          size - index);  
         elementData[index] = element;  
@@ -249,13 +340,17 @@ public class ArrayList<E> extends AbstractList<E>
         rangeCheck(index);  
   
         modCount++;  
+        unshare();  
         E oldValue = elementData(index);  
   
         int numMoved = size - index - 1;  
+        if (ListMetrics.ENABLED)  
+            ListMetrics.shift(1, numMoved);  
         if (numMoved > 0)  
             System.arraycopy(elementData, index+1, elementData, index,  
                              numMoved);  
         elementData[--size] = null; // clear to let GC do its work  
+        shrinkIfSparse();  
   
         return oldValue;  
     }  
@@ -283,16 +378,36 @@ public class ArrayList<E> extends AbstractList<E>
      */  
     private void fastRemove(int index) {  
         modCount++;  
+        unshare();  
         int numMoved = size - index - 1;  
+        if (ListMetrics.ENABLED)  
+            ListMetrics.shift(1, numMoved);  
         if (numMoved > 0)  
             System.arraycopy(elementData, index+1, elementData, index,  
                              numMoved);  
         elementData[--size] = null; // clear to let GC do its work  
+        shrinkIfSparse();  
     }  
       
     public void clear() {  
         modCount++;  
   
+        //要缩小时直接换一个小数组，不用逐个置null  
+        int newCapacity = shrinkTarget(0);  
+        if (newCapacity >= 0) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.shrink(elementData.length, newCapacity, 0);  
+            elementData = new Object[newCapacity];  
+            shared = false;  
+            size = 0;  
+            return;  
+        }  
+        //共用的数组不能清空，直接换一个同样大的新数组，不用复制  
+        if (shared) {  
+            if (elementData != EMPTY_ELEMENTDATA)  
+                elementData = new Object[elementData.length];  
+            shared = false;  
+        }  
         // clear to let GC do its work  
         for (int i = 0; i < size; i++)  
             elementData[i] = null;  
@@ -300,23 +415,76 @@ public class ArrayList<E> extends AbstractList<E>
         size = 0;  
     }  
       
+    /*  
+        1.一次扩到最终需要的长度，不会一个一个地grow  
+        2.c正好是ArrayList、Vector时直接从它的elementData复制，只有一次arraycopy；  
+          其他集合先toArray，要复制两次  
+    */  
     public boolean addAll(Collection<? extends E> c) {  
+        Class<?> k = c.getClass();  
+        if (k == ArrayList.class) {  
+            ArrayList<?> src = (ArrayList<?>) c;  
+            return appendFrom(src.elementData, 0, src.size);  
+        }  
+        if (k == Vector.class) {  
+            Vector<?> src = (Vector<?>) c;  
+            synchronized (src) {  
+                return appendFrom(src.elementData, 0, src.elementCount);  
+            }  
+        }  
         Object[] a = c.toArray();  
-        int numNew = a.length;  
+        return appendFrom(a, 0, a.length);  
+    }  
+  
+    //把src[off, off+len)接到末尾，src可以是任何类型的数组  
+    public boolean addAll(E[] src, int off, int len) {  
+        arrayRangeCheck(src.length, off, len);  
+        return appendFrom(src, off, len);  
+    }  
+  
+    /*  
+        1.把a[off, off+numNew)接到末尾  
+        2.addAll(this)时a就是elementData：扩容、unshare换掉的是this.elementData，  
+          a还是原来的数组，里面的元素没有变  
+    */  
+    private boolean appendFrom(Object[] a, int off, int numNew) {  
+        recordBulk(size + numNew);  
         ensureCapacityInternal(size + numNew);  // Increments modCount  
-        System.arraycopy(a, 0, elementData, size, numNew);  
+        System.arraycopy(a, off, elementData, size, numNew);  
         size += numNew;  
         return numNew != 0;  
     }  
+  
+    //把[from, from+len)的元素复制到dst[off, off+len)，不用toArray或者逐个get  
+    public void getRange(int from, E[] dst, int off, int len) {  
+        arrayRangeCheck(size, from, len);  
+        arrayRangeCheck(dst.length, off, len);  
+        copyTo(from, dst, off, len);  
+    }  
+  
+    //Vector.addAll用它直接从elementData复制，调用方保证范围合法  
+    void copyTo(int from, Object[] dst, int off, int len) {  
+        System.arraycopy(elementData, from, dst, off, len);  
+    }  
+  
+    //[off, off+len)在长度为length的范围内，Vector也用它  
+    static void arrayRangeCheck(int length, int off, int len) {  
+        if (off < 0 || len < 0 || off > length - len)  
+            throw new IndexOutOfBoundsException("off: "+off+", len: "+len+  
+                                                ", length: "+length);  
+    }  
       
     public boolean addAll(int index, Collection<? extends E> c) {  
         rangeCheckForAdd(index);  
   
         Object[] a = c.toArray();  
         int numNew = a.length;  
+        recordBulk(size + numNew);  
         ensureCapacityInternal(size + numNew);  // Increments modCount  
   
         int numMoved = size - index;  
+        if (ListMetrics.ENABLED)  
+            ListMetrics.shift(numNew, numMoved);  
         if (numMoved > 0)  
             System.arraycopy(elementData, index, elementData, index + numNew,  
                              numMoved);  
@@ -328,12 +496,28 @@ public class ArrayList<E> extends AbstractList<E>
       
     protected void removeRange(int fromIndex, int toIndex) {  
         modCount++;  
+        int newSize = size - (toIndex-fromIndex);  
+        //要缩小时把两段直接复制到小数组里，不用先移动再逐个置null  
+        int newCapacity = shrinkTarget(newSize);  
+        if (newCapacity >= 0) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.shrink(elementData.length, newCapacity, newSize);  
+            Object[] a = new Object[newCapacity];  
+            System.arraycopy(elementData, 0, a, 0, fromIndex);  
+            System.arraycopy(elementData, toIndex, a, fromIndex, size - toIndex);  
+            elementData = a;  
+            shared = false;  
+            size = newSize;  
+            return;  
+        }  
+        unshare();  
         int numMoved = size - toIndex;  
+        if (ListMetrics.ENABLED)  
+            ListMetrics.shift(toIndex - fromIndex, numMoved);  
         System.arraycopy(elementData, toIndex, elementData, fromIndex,  
                          numMoved);  
   
         // clear to let GC do its work  
-        int newSize = size - (toIndex-fromIndex);  
         for (int i = newSize; i < size; i++) {  
             elementData[i] = null;  
         }  
@@ -359,43 +543,296 @@ public class ArrayList<E> extends AbstractList<E>
     public boolean removeAll(Collection<?> c) {  
         return batchRemove(c, false);  
     }  
-      
+    
     public boolean retainAll(Collection<?> c) {  
         return batchRemove(c, true);  
     }  
-      
+    
+    //删除所有满足filter的元素，和removeAll、retainAll共用同一个压缩循环  
+    public boolean removeIf(Predicate<? super E> filter) {  
+        Objects.requireNonNull(filter);  
+        return compact(0, size, filter) != 0;  
+    }  
+    
+    /*  
+        1.内部迭代：直接在elementData上循环，不创建Itr，每个元素也不调用checkForComodification  
+        2.elementData、size先读到局部变量里，循环里不访问字段，JIT可以消除边界检查  
+        3.只在循环结束后检查一次modCount，action里修改了list会在最后抛ConcurrentModificationException  
+    */  
+    @SuppressWarnings("unchecked")  
+    public void forEach(Consumer<? super E> action) {  
+        Objects.requireNonNull(action);  
+        final int expectedModCount = modCount;  
+        final Object[] elementData = this.elementData;  
+        final int size = this.size;  
+        for (int i = 0; i < size; i++)  
+            action.accept((E) elementData[i]);  
+        if (modCount != expectedModCount) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.comodified();  
+            throw new ConcurrentModificationException();  
+        }  
+    }  
+    
+    @SuppressWarnings("unchecked")  
+    public void replaceAll(UnaryOperator<E> operator) {  
+        Objects.requireNonNull(operator);  
+        final int expectedModCount = modCount;  
+        unshare();  
+        final Object[] elementData = this.elementData;  
+        final int size = this.size;  
+        for (int i = 0; i < size; i++)  
+            elementData[i] = operator.apply((E) elementData[i]);  
+        if (modCount != expectedModCount) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.comodified();  
+            throw new ConcurrentModificationException();  
+        }  
+        modCount++;  
+    }  
+    
+    //直接对elementData的[0, size)排序，不像List.sort那样先toArray再用ListIterator逐个写回  
+    @SuppressWarnings("unchecked")  
+    public void sort(Comparator<? super E> c) {  
+        final int expectedModCount = modCount;  
+        unshare();  
+        Arrays.sort((E[]) elementData, 0, size, c);  
+        if (modCount != expectedModCount) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.comodified();  
+            throw new ConcurrentModificationException();  
+        }  
+        modCount++;  
+    }  
+    
+    //元素个数少于这个值时，fork-join的拆分和调度开销比收益大，直接走顺序版本  
+    private static final int PARALLEL_THRESHOLD = 1 << 13;  
+    
+    /*  
+        1.直接用Arrays.parallelSort对elementData的[0, size)排序，在common pool里并行归并，  
+          不经过toArray和ListIterator.set  
+        2.Arrays.parallelSort自己也有阈值，数组小时退化成顺序排序  
+    */  
+    @SuppressWarnings("unchecked")  
+    public void parallelSort(Comparator<? super E> c) {  
+        final int expectedModCount = modCount;  
+        unshare();  
+        Arrays.parallelSort((E[]) elementData, 0, size, c);  
+        if (modCount != expectedModCount) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.comodified();  
+            throw new ConcurrentModificationException();  
+        }  
+        modCount++;  
+    }  
+    
+    //把[0, size)切成若干段，每段在common pool里由一个任务原地替换；operator会被多个线程同时调用  
+    public void parallelReplaceAll(UnaryOperator<E> operator) {  
+        Objects.requireNonNull(operator);  
+        final int size = this.size;  
+        if (size < PARALLEL_THRESHOLD) {  
+            replaceAll(operator);  
+            return;  
+        }  
+        final int expectedModCount = modCount;  
+        unshare();  
+        ForkJoinPool.commonPool().invoke(  
+            new ReplaceTask<>(elementData, operator, 0, size, grain(size)));  
+        if (modCount != expectedModCount) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.comodified();  
+            throw new ConcurrentModificationException();  
+        }  
+        modCount++;  
+    }  
+    
+    /*  
+        1.分两步：先并行地对每个元素调用filter，把要删除的位置记在位图marks里；  
+          再顺序地按marks压缩elementData  
+        2.每个任务负责的区间以64对齐，各自只写自己的long，不需要同步  
+        3.filter抛异常时还没有修改过elementData，list保持不变  
+        4.一个都不删除时不会写elementData，共用的数组也不用复制  
+    */  
+    public boolean parallelRemoveIf(Predicate<? super E> filter) {  
+        Objects.requireNonNull(filter);  
+        final int size = this.size;  
+        if (size < PARALLEL_THRESHOLD)  
+            return removeIf(filter);  
+        final int expectedModCount = modCount;  
+        final long[] marks = new long[((size - 1) >>> 6) + 1];  
+        ForkJoinPool.commonPool().invoke(  
+            new MarkTask<>(this.elementData, filter, marks, 0, size, grain(size)));  
+        if (modCount != expectedModCount) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.comodified();  
+            throw new ConcurrentModificationException();  
+        }  
+        //第一个要删除的位置，之前的元素不用动  
+        int first = 0;  
+        while (first < marks.length && marks[first] == 0)  
+            first++;  
+        if (first == marks.length)  
+            return false;  
+        first = (first << 6) + Long.numberOfTrailingZeros(marks[first]);  
+        unshare();  
+        final Object[] elementData = this.elementData;  
+        int w = first;  
+        for (int r = first + 1; r < size; r++)  
+            if ((marks[r >>> 6] & (1L << r)) == 0)  
+                elementData[w++] = elementData[r];  
+        // clear to let GC do its work  
+        for (int i = w; i < size; i++)  
+            elementData[i] = null;  
+        modCount += size - w;  
+        this.size = w;  
+        shrinkIfSparse();  
+        return true;  
+    }  
+    
+    //每个叶子任务处理的元素个数：大约把数组分成parallelism的4倍份，并且不小于1024  
+    private static int grain(int size) {  
+        int p = ForkJoinPool.getCommonPoolParallelism();  
+        return Math.max(size / (p << 2), 1 << 10);  
+    }  
+    
+    //ReplaceTask、MarkTask拆分时中点都向下对齐到64，MarkTask的两个子任务不会写同一个long  
+    static final class ReplaceTask<E> extends RecursiveAction {  
+        private static final long serialVersionUID = 3468374591082234021L;  
+        final Object[] a;  
+        final UnaryOperator<E> operator;  
+        final int lo, hi, grain;  
+        
+        ReplaceTask(Object[] a, UnaryOperator<E> operator, int lo, int hi, int grain) {  
+            this.a = a; this.operator = operator;  
+            this.lo = lo; this.hi = hi; this.grain = grain;  
+        }  
+        
+        @SuppressWarnings("unchecked")  
+        protected void compute() {  
+            if (hi - lo <= grain) {  
+                final Object[] a = this.a;  
+                for (int i = lo; i < hi; i++)  
+                    a[i] = operator.apply((E) a[i]);  
+            } else {  
+                int mid = ((lo + hi) >>> 1) & ~63;  
+                invokeAll(new ReplaceTask<>(a, operator, lo, mid, grain),  
+                          new ReplaceTask<>(a, operator, mid, hi, grain));  
+            }  
+        }  
+    }  
+    
+    static final class MarkTask<E> extends RecursiveAction {  
+        private static final long serialVersionUID = -1295071735530183964L;  
+        final Object[] a;  
+        final Predicate<? super E> filter;  
+        final long[] marks;  
+        final int lo, hi, grain;  
+        
+        MarkTask(Object[] a, Predicate<? super E> filter, long[] marks,  
+                 int lo, int hi, int grain) {  
+            this.a = a; this.filter = filter; this.marks = marks;  
+            this.lo = lo; this.hi = hi; this.grain = grain;  
+        }  
+        
+        @SuppressWarnings("unchecked")  
+        protected void compute() {  
+            if (hi - lo <= grain) {  
+                final Object[] a = this.a;  
+                final long[] marks = this.marks;  
+                for (int i = lo; i < hi; i++)  
+                    if (filter.test((E) a[i]))  
+                        marks[i >>> 6] |= 1L << i;  
+            } else {  
+                int mid = ((lo + hi) >>> 1) & ~63;  
+                invokeAll(new MarkTask<>(a, filter, marks, lo, mid, grain),  
+                          new MarkTask<>(a, filter, marks, mid, hi, grain));  
+            }  
+        }  
+    }  
+    
+    //c的元素个数超过这个值，并且contains是线性扫描时，先复制到HashSet里再查  
+    private static final int HASH_LOOKUP_THRESHOLD = 16;  
+    
+    /*  
+        1.ArrayList、Vector、LinkedList的contains都是线性扫描，batchRemove对每个元素调用一次，  
+          整体是O(n*m)；Vector的contains还要每次进出synchronized  
+        2.c比较大时先花O(m)复制到HashSet，之后每次contains期望O(1)，整体O(n+m)  
+        3.只处理这几个确切的类：子类可能重写了contains（比如IndexedArrayList已经是hash查找），  
+          其他集合的contains语义也不一定是equals  
+        4.元素的hashCode必须和equals一致，这和把它们放进HashSet的要求相同  
+    */  
+    private static Collection<?> lookupFor(Collection<?> c, int size) {  
+        Class<?> k = c.getClass();  
+        if ((k == ArrayList.class || k == Vector.class || k == LinkedList.class)  
+                && size > HASH_LOOKUP_THRESHOLD && c.size() > HASH_LOOKUP_THRESHOLD)  
+            return new HashSet<>(c);  
+        return c;  
+    }  
+    
     //通过控制complement,来表示是删除还是保留  
     private boolean batchRemove(Collection<?> c, boolean complement) {  
-        final Object[] elementData = this.elementData;  
-        int r = 0, w = 0;  
-        boolean modified = false;  
-        try {  
-            for (; r < size; r++)  
-            //通过控制complement,来表示是删除还是保留，具体实现  
-                if (c.contains(elementData[r]) == complement)  
-                    elementData[w++] = elementData[r];  
-        } finally {  
-            // Preserve behavioral compatibility with AbstractCollection,  
-            // even if c.contains() throws.  
-            if (r != size) {  
-                System.arraycopy(elementData, r,  
-                                 elementData, w,  
-                                 size - r);  
-                w += size - r;  
+        final Collection<?> lookup = lookupFor(Objects.requireNonNull(c), size);  
+        //complement为true时保留c中的元素，即删除c.contains为false的元素  
+        return compact(0, size, e -> lookup.contains(e) != complement) != 0;  
+    }  
+    
+    /*  
+        1.分两步：先对[from, to)的每个元素调用filter，把要删除的位置记在位图deathRow里；  
+          全部调用成功之后，才按位图把保留的元素依次往前移，to后面的元素整体接上  
+        2.filter（或者batchRemove里的c.contains）抛异常时还没有写过elementData，list保持不变  
+        3.filter里修改了list时，在写elementData之前抛ConcurrentModificationException  
+        4.找到第一个要删除的元素之前只读不写，一个都不删除时不分配位图，共用的数组也不用复制  
+        5.返回删除的元素个数，SubList.removeIf也用它  
+    */  
+    @SuppressWarnings("unchecked")  
+    private int compact(int from, int to, Predicate<? super E> filter) {  
+        final int expectedModCount = modCount;  
+        final Object[] es = this.elementData;  
+        int i = from;  
+        while (i < to && !filter.test((E) es[i]))  
+            i++;  
+        if (i == to) {  
+            if (modCount != expectedModCount) {  
+                if (ListMetrics.ENABLED)  
+                    ListMetrics.comodified();  
+                throw new ConcurrentModificationException();  
             }  
-            if (w != size) {  
-                // clear to let GC do its work  
-                for (int i = w; i < size; i++)  
-                    elementData[i] = null;  
-                modCount += size - w;  
-                size = w;  
-                modified = true;  
+            return 0;  
+        }  
+        //位图的第0位对应第一个要删除的位置beg  
+        final int beg = i;  
+        final long[] deathRow = new long[((to - beg - 1) >>> 6) + 1];  
+        deathRow[0] = 1L;  
+        int removed = 1;  
+        for (i = beg + 1; i < to; i++) {  
+            if (filter.test((E) es[i])) {  
+                deathRow[(i - beg) >>> 6] |= 1L << (i - beg);  
+                removed++;  
             }  
         }  
-        return modified;  
+        if (modCount != expectedModCount) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.comodified();  
+            throw new ConcurrentModificationException();  
+        }  
+        unshare();  
+        final Object[] elementData = this.elementData;  
+        int w = beg;  
+        for (i = beg + 1; i < to; i++)  
+            if ((deathRow[(i - beg) >>> 6] & (1L << (i - beg))) == 0)  
+                elementData[w++] = elementData[i];  
+        System.arraycopy(elementData, to, elementData, w, size - to);  
+        int newSize = size - removed;  
+        // clear to let GC do its work  
+        for (i = newSize; i < size; i++)  
+            elementData[i] = null;  
+        modCount += removed;  
+        size = newSize;  
+        shrinkIfSparse();  
+        return removed;  
     }  
-      
-      
+    
+    
     private void writeObject(java.io.ObjectOutputStream s)  
         throws java.io.IOException{  
         // Write out element count, and any hidden stuff  
@@ -411,6 +848,8 @@ public class ArrayList<E> extends AbstractList<E>
         }  
   
         if (modCount != expectedModCount) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.comodified();  
             throw new ConcurrentModificationException();  
         }  
     }  
@@ -479,8 +918,11 @@ public class ArrayList<E> extends AbstractList<E>
             if (i >= size)  
                 throw new NoSuchElementException();  
             Object[] elementData = ArrayList.this.elementData;  
-            if (i >= elementData.length)  
+            if (i >= elementData.length) {  
+                if (ListMetrics.ENABLED)  
+                    ListMetrics.comodified();  
                 throw new ConcurrentModificationException();  
+            }  
             cursor = i + 1;  
             return (E) elementData[lastRet = i];  
         }  
@@ -496,14 +938,19 @@ public class ArrayList<E> extends AbstractList<E>
                 lastRet = -1;  
                 expectedModCount = modCount;  
             } catch (IndexOutOfBoundsException ex) {  
+                if (ListMetrics.ENABLED)  
+                    ListMetrics.comodified();  
                 throw new ConcurrentModificationException();  
             }  
         }  
   
         //线程安全检查  
         final void checkForComodification() {  
-            if (modCount != expectedModCount)  
+            if (modCount != expectedModCount) {  
+                if (ListMetrics.ENABLED)  
+                    ListMetrics.comodified();  
                 throw new ConcurrentModificationException();  
+            }  
         }  
     }  
   
@@ -533,8 +980,11 @@ public class ArrayList<E> extends AbstractList<E>
             if (i < 0)  
                 throw new NoSuchElementException();  
             Object[] elementData = ArrayList.this.elementData;  
-            if (i >= elementData.length)  
+            if (i >= elementData.length) {  
+                if (ListMetrics.ENABLED)  
+                    ListMetrics.comodified();  
                 throw new ConcurrentModificationException();  
+            }  
             cursor = i;  
             return (E) elementData[lastRet = i];  
         }  
@@ -547,6 +997,8 @@ public class ArrayList<E> extends AbstractList<E>
             try {  
                 ArrayList.this.set(lastRet, e);  
             } catch (IndexOutOfBoundsException ex) {  
+                if (ListMetrics.ENABLED)  
+                    ListMetrics.comodified();  
                 throw new ConcurrentModificationException();  
             }  
         }  
@@ -561,6 +1013,127 @@ public class ArrayList<E> extends AbstractList<E>
                 lastRet = -1;  
                 expectedModCount = modCount;  
             } catch (IndexOutOfBoundsException ex) {  
+                if (ListMetrics.ENABLED)  
+                    ListMetrics.comodified();  
+                throw new ConcurrentModificationException();  
+            }  
+        }  
+    }  
+  
+    /*  
+        1.Cursor是可以重复使用的迭代器：调用方自己持有一个Cursor，每次遍历前reset(list)，  
+          遍历本身不分配任何对象；iterator()每次都new一个Itr，逃逸分析失败时就是实实在在的垃圾  
+        2.用法：  
+            ArrayList.Cursor<E> c = new ArrayList.Cursor<>();   // 或者new ArrayList.Cursor<>(list)、list.cursor()  
+            c.reset(list);  
+            while (c.advance())  
+                use(c.current());  
+        3.和Itr一样是fail-fast的：reset时记下modCount，advance时检查，只有Cursor自己的remove()不算修改  
+        4.遍历完之后Cursor还引用着list，放进线程池、ThreadLocal之类地方长期持有时先release()  
+        5.不是线程安全的，一个Cursor同一时间只能给一个线程用  
+    */  
+    public Cursor<E> cursor() {  
+        return new Cursor<E>(this);  
+    }  
+  
+    public static final class Cursor<E> {  
+        private ArrayList<E> list;  
+        private int cursor;       // index of next element to return  
+        private int lastRet = -1; // index of last element returned; -1 if no such  
+        private int expectedModCount;  
+  
+        //还没有绑定list，先reset(list)才能使用  
+        public Cursor() {  
+        }  
+  
+        //绑定list，从头开始遍历，和new Cursor<>().reset(list)一样  
+        public Cursor(ArrayList<E> list) {  
+            reset(list);  
+        }  
+  
+        //从头开始遍历list  
+        public Cursor<E> reset(ArrayList<E> list) {  
+            this.list = Objects.requireNonNull(list);  
+            cursor = 0;  
+            lastRet = -1;  
+            expectedModCount = list.modCount;  
+            return this;  
+        }  
+  
+        //从头开始再遍历一次同一个list  
+        public Cursor<E> reset() {  
+            return reset(list);  
+        }  
+  
+        //不再引用list，之后要先reset(list)才能使用  
+        public void release() {  
+            list = null;  
+            lastRet = -1;  
+        }  
+  
+        //移到下一个元素，没有了返回false  
+        public boolean advance() {  
+            final ArrayList<E> list = this.list;  
+            if (list.modCount != expectedModCount) {  
+                if (ListMetrics.ENABLED)  
+                    ListMetrics.comodified();  
+                throw new ConcurrentModificationException();  
+            }  
+            int i = cursor;  
+            if (i >= list.size) {  
+                lastRet = -1;  
+                return false;  
+            }  
+            if (i >= list.elementData.length) {  
+                if (ListMetrics.ENABLED)  
+                    ListMetrics.comodified();  
+                throw new ConcurrentModificationException();  
+            }  
+            cursor = i + 1;  
+            lastRet = i;  
+            return true;  
+        }  
+  
+        //advance()返回true之后的当前元素  
+        @SuppressWarnings("unchecked")  
+        public E current() {  
+            if (lastRet < 0)  
+                throw new NoSuchElementException();  
+            final ArrayList<E> list = this.list;  
+            if (list.modCount != expectedModCount) {  
+                if (ListMetrics.ENABLED)  
+                    ListMetrics.comodified();  
+                throw new ConcurrentModificationException();  
+            }  
+            return (E) list.elementData[lastRet];  
+        }  
+  
+        //当前元素的下标  
+        public int index() {  
+            if (lastRet < 0)  
+                throw new NoSuchElementException();  
+            return lastRet;  
+        }  
+  
+        //删除当前元素，和Itr.remove一样，之后要再advance()  
+        public void remove() {  
+            if (lastRet < 0)  
+                throw new IllegalStateException();  
+            final ArrayList<E> list = this.list;  
+            if (list.modCount != expectedModCount) {  
+                if (ListMetrics.ENABLED)  
+                    ListMetrics.comodified();  
+                throw new ConcurrentModificationException();  
+            }  
+  
+            try {  
+                list.remove(lastRet);  
+                cursor = lastRet;  
+                lastRet = -1;  
+                expectedModCount = list.modCount;  
+            } catch (IndexOutOfBoundsException ex) {  
+                if (ListMetrics.ENABLED)  
+                    ListMetrics.comodified();  
                 throw new ConcurrentModificationException();  
             }  
         }  
@@ -602,6 +1175,7 @@ public class ArrayList<E> extends AbstractList<E>
             rangeCheck(index);  
             checkForComodification();  
             E oldValue = ArrayList.this.elementData(offset + index);  
+            ArrayList.this.unshare();  
             ArrayList.this.elementData[offset + index] = e;  
             return oldValue;  
         }  
@@ -684,8 +1258,11 @@ public class ArrayList<E> extends AbstractList<E>
                     if (i >= SubList.this.size)  
                         throw new NoSuchElementException();  
                     Object[] elementData = ArrayList.this.elementData;  
-                    if (offset + i >= elementData.length)  
+                    if (offset + i >= elementData.length) {  
+                        if (ListMetrics.ENABLED)  
+                            ListMetrics.comodified();  
                         throw new ConcurrentModificationException();  
+                    }  
                     cursor = i + 1;  
                     return (E) elementData[offset + (lastRet = i)];  
                 }  
@@ -701,8 +1278,11 @@ public class ArrayList<E> extends AbstractList<E>
                     if (i < 0)  
                         throw new NoSuchElementException();  
                     Object[] elementData = ArrayList.this.elementData;  
-                    if (offset + i >= elementData.length)  
+                    if (offset + i >= elementData.length) {  
+                        if (ListMetrics.ENABLED)  
+                            ListMetrics.comodified();  
                         throw new ConcurrentModificationException();  
+                    }  
                     cursor = i;  
                     return (E) elementData[offset + (lastRet = i)];  
                 }  
@@ -726,6 +1306,8 @@ public class ArrayList<E> extends AbstractList<E>
                         lastRet = -1;  
                         expectedModCount = ArrayList.this.modCount;  
                     } catch (IndexOutOfBoundsException ex) {  
+                        if (ListMetrics.ENABLED)  
+                            ListMetrics.comodified();  
                         throw new ConcurrentModificationException();  
                     }  
                 }  
@@ -738,6 +1320,8 @@ public class ArrayList<E> extends AbstractList<E>
                     try {  
                         ArrayList.this.set(offset + lastRet, e);  
                     } catch (IndexOutOfBoundsException ex) {  
+                        if (ListMetrics.ENABLED)  
+                            ListMetrics.comodified();  
                         throw new ConcurrentModificationException();  
                     }  
                 }  
@@ -752,17 +1336,84 @@ public class ArrayList<E> extends AbstractList<E>
                         lastRet = -1;  
                         expectedModCount = ArrayList.this.modCount;  
                     } catch (IndexOutOfBoundsException ex) {  
+                        if (ListMetrics.ENABLED)  
+                            ListMetrics.comodified();  
                         throw new ConcurrentModificationException();  
                     }  
                 }  
   
                 final void checkForComodification() {  
-                    if (expectedModCount != ArrayList.this.modCount)  
+                    if (expectedModCount != ArrayList.this.modCount) {  
+                        if (ListMetrics.ENABLED)  
+                            ListMetrics.comodified();  
                         throw new ConcurrentModificationException();  
+                    }  
                 }  
             };  
         }  
   
+        //下面几个批量方法直接操作ArrayList.this.elementData的[offset, offset + size)  
+        @SuppressWarnings("unchecked")  
+        public void forEach(Consumer<? super E> action) {  
+            Objects.requireNonNull(action);  
+            checkForComodification();  
+            final Object[] elementData = ArrayList.this.elementData;  
+            final int from = offset, to = offset + this.size;  
+            for (int i = from; i < to; i++)  
+                action.accept((E) elementData[i]);  
+            checkForComodification();  
+        }  
+  
+        //和set一样不是结构性修改，不改变modCount  
+        @SuppressWarnings("unchecked")  
+        public void replaceAll(UnaryOperator<E> operator) {  
+            Objects.requireNonNull(operator);  
+            checkForComodification();  
+            ArrayList.this.unshare();  
+            final Object[] elementData = ArrayList.this.elementData;  
+            final int from = offset, to = offset + this.size;  
+            for (int i = from; i < to; i++)  
+                elementData[i] = operator.apply((E) elementData[i]);  
+            checkForComodification();  
+        }  
+  
+        @SuppressWarnings("unchecked")  
+        public void sort(Comparator<? super E> c) {  
+            checkForComodification();  
+            ArrayList.this.unshare();  
+            Arrays.sort((E[]) ArrayList.this.elementData, offset, offset + this.size, c);  
+            checkForComodification();  
+        }  
+  
+        public boolean removeIf(Predicate<? super E> filter) {  
+            Objects.requireNonNull(filter);  
+            checkForComodification();  
+            int removed = ArrayList.this.compact(offset, offset + this.size, filter);  
+            if (removed == 0)  
+                return false;  
+            updateSizeAndModCount(-removed);  
+            return true;  
+        }  
+  
+        //直接改了ArrayList，外层的每一个SubList的size和modCount都要跟着更新  
+        private void updateSizeAndModCount(int sizeChange) {  
+            SubList slist = this;  
+            for (;;) {  
+                slist.size += sizeChange;  
+                slist.modCount = ArrayList.this.modCount;  
+                if (!(slist.parent instanceof ArrayList.SubList))  
+                    break;  
+                slist = (SubList) slist.parent;  
+            }  
+        }  
+  
+        //子列表的范围在创建时就确定了，直接给出fence，不需要late-binding  
+        public Spliterator<E> spliterator() {  
+            checkForComodification();  
+            return new ArrayListSpliterator<E>(ArrayList.this, offset,  
+                                               offset + this.size, this.modCount);  
+        }  
+  
         public List<E> subList(int fromIndex, int toIndex) {  
             subListRangeCheck(fromIndex, toIndex, size);  
             return new SubList(this, offset, fromIndex, toIndex);  
@@ -783,8 +1434,113 @@ public class ArrayList<E> extends AbstractList<E>
         }  
   
         private void checkForComodification() {  
-            if (ArrayList.this.modCount != this.modCount)  
+            if (ArrayList.this.modCount != this.modCount) {  
+                if (ListMetrics.ENABLED)  
+                    ListMetrics.comodified();  
                 throw new ConcurrentModificationException();  
+            }  
+        }  
+    }  
+  
+    /*  
+        1.late-binding：创建时不读size，第一次遍历、拆分或估计大小时才确定fence，  
+          所以在spliterator创建之后、开始遍历之前往list里加元素是可以的  
+        2.拆分时对半分，两边共享同一个elementData，都是SIZED、SUBSIZED，并行流能均匀分配  
+        3.forEachRemaining遍历完才检查一次modCount，tryAdvance每个元素都检查  
+    */  
+    public Spliterator<E> spliterator() {  
+        return new ArrayListSpliterator<>(this, 0, -1, 0);  
+    }  
+  
+    static final class ArrayListSpliterator<E> implements Spliterator<E> {  
+  
+        private final ArrayList<E> list;  
+        private int index; // current index, modified on advance/split  
+        private int fence; // -1 until used; then one past last index  
+        private int expectedModCount; // initialized when fence set  
+  
+        ArrayListSpliterator(ArrayList<E> list, int origin, int fence,  
+                             int expectedModCount) {  
+            this.list = list; // OK if null unless traversed  
+            this.index = origin;  
+            this.fence = fence;  
+            this.expectedModCount = expectedModCount;  
+        }  
+  
+        //第一次使用时才把fence设为size  
+        private int getFence() {  
+            int hi;  
+            ArrayList<E> lst;  
+            if ((hi = fence) < 0) {  
+                if ((lst = list) == null)  
+                    hi = fence = 0;  
+                else {  
+                    expectedModCount = lst.modCount;  
+                    hi = fence = lst.size;  
+                }  
+            }  
+            return hi;  
+        }  
+  
+        //前一半交给新的spliterator，自己保留后一半；剩下不到两个元素时不再拆分  
+        public ArrayListSpliterator<E> trySplit() {  
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;  
+            return (lo >= mid) ? null :  
+                new ArrayListSpliterator<E>(list, lo, index = mid,  
+                                            expectedModCount);  
+        }  
+  
+        public boolean tryAdvance(Consumer<? super E> action) {  
+            if (action == null)  
+                throw new NullPointerException();  
+            int hi = getFence(), i = index;  
+            if (i < hi) {  
+                index = i + 1;  
+                @SuppressWarnings("unchecked") E e = (E)list.elementData[i];  
+                action.accept(e);  
+                if (list.modCount != expectedModCount) {  
+                    if (ListMetrics.ENABLED)  
+                        ListMetrics.comodified();  
+                    throw new ConcurrentModificationException();  
+                }  
+                return true;  
+            }  
+            return false;  
+        }  
+  
+        //把elementData、fence读到局部变量里再循环，循环里不访问list的字段  
+        public void forEachRemaining(Consumer<? super E> action) {  
+            int i, hi, mc; // hoist accesses and checks from loop  
+            ArrayList<E> lst; Object[] a;  
+            if (action == null)  
+                throw new NullPointerException();  
+            if ((lst = list) != null && (a = lst.elementData) != null) {  
+                if ((hi = fence) < 0) {  
+                    mc = lst.modCount;  
+                    hi = lst.size;  
+                }  
+                else  
+                    mc = expectedModCount;  
+                if ((i = index) >= 0 && (index = hi) <= a.length) {  
+                    for (; i < hi; ++i) {  
+                        @SuppressWarnings("unchecked") E e = (E) a[i];  
+                        action.accept(e);  
+                    }  
+                    if (lst.modCount == mc)  
+                        return;  
+                }  
+            }  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.comodified();  
+            throw new ConcurrentModificationException();  
+        }  
+  
+        public long estimateSize() {  
+            return (long) (getFence() - index);  
+        }  
+  
+        public int characteristics() {  
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;  
         }  
     }  
 }  
@@ -0,0 +1,153 @@
+package java.util;  
+  
+import java.util.concurrent.ConcurrentHashMap;  
+  
+/*  
+    1.BatchedAppender是多个生产者线程往同一个Vector（或ArrayList）追加元素的前端：  
+      append先放进当前线程自己的缓冲区，缓冲区满了才一次性追加到目标list，  
+      每一批只进一次目标的锁，只做一次ensureCapacity + System.arraycopy（addAll(E[], off, len)）  
+    2.每个线程第一次append时通过ThreadLocal创建自己的缓冲区，并登记到buffers里给flushAll、pending遍历；  
+      缓冲区的锁平时只有它自己的线程在拿，没有争用，只有flushAll、pending时别的线程才会来拿  
+    3.可见性约定：  
+        a.append返回时元素不一定已经在目标list里  
+        b.flush()返回后，当前线程之前append的所有元素都已经在目标list里  
+        c.flushAll()返回后，在它开始之前完成的所有append的元素都已经在目标list里  
+        d.目标list的读线程和平时一样通过它的锁读（Vector的synchronized方法，  
+          ArrayList要synchronized(list)），和drain之间有happens-before  
+    4.顺序：同一个线程append的元素按append的顺序进入目标list；每一批都只有一个线程的元素，  
+      不同线程的元素以批为单位交错  
+    5.线程结束时缓冲区里剩下的元素不会自动追加：线程结束前flush()，或者之后调用flushAll()；  
+      flushAll同时把已经结束的线程的缓冲区从buffers里去掉，在那之前它们一直被这个BatchedAppender引用着  
+    6.目标是ArrayList时drain在synchronized(list)里做，其他线程读写这个ArrayList也要同步在它上面  
+*/  
+public class BatchedAppender<E> {  
+  
+    //默认每批256个元素  
+    private static final int DEFAULT_BATCH_SIZE = 1 << 8;  
+  
+    //一个线程的缓冲区，用它自己做锁  
+    private static final class Buffer {  
+        final Thread owner;  
+        final Object[] elements;  
+        int count;  
+  
+        Buffer(int batchSize) {  
+            owner = Thread.currentThread();  
+            elements = new Object[batchSize];  
+        }  
+    }  
+  
+    //二者只有一个不为null  
+    private final Vector<E> vector;  
+    private final ArrayList<E> list;  
+  
+    private final int batchSize;  
+  
+    //当前线程的缓冲区，第一次get时创建并登记到buffers  
+    private final ThreadLocal<Buffer> buffer;  
+  
+    //所有线程的缓冲区，已经结束的线程的缓冲区在flushAll时去掉  
+    private final Set<Buffer> buffers = ConcurrentHashMap.newKeySet();  
+  
+    public BatchedAppender(Vector<E> target, int batchSize) {  
+        this(Objects.requireNonNull(target), null, batchSize);  
+    }  
+  
+    public BatchedAppender(Vector<E> target) {  
+        this(target, DEFAULT_BATCH_SIZE);  
+    }  
+  
+    public BatchedAppender(ArrayList<E> target, int batchSize) {  
+        this(null, Objects.requireNonNull(target), batchSize);  
+    }  
+  
+    public BatchedAppender(ArrayList<E> target) {  
+        this(target, DEFAULT_BATCH_SIZE);  
+    }  
+  
+    private BatchedAppender(Vector<E> vector, ArrayList<E> list, int batchSize) {  
+        if (batchSize <= 0)  
+            throw new IllegalArgumentException("Illegal batch size: "+  
+                                               batchSize);  
+        this.vector = vector;  
+        this.list = list;  
+        this.batchSize = batchSize;  
+        this.buffer = ThreadLocal.withInitial(this::register);  
+    }  
+  
+    private Buffer register() {  
+        Buffer b = new Buffer(batchSize);  
+        buffers.add(b);  
+        return b;  
+    }  
+  
+    /*  
+        1.放进当前线程的缓冲区，满了就整批追加到目标list  
+        2.缓冲区的锁只有flushAll、pending会来争，不碰目标list的锁，除非这一次正好满了  
+        3.上一次drain失败时缓冲区还是满的，先再drain一次  
+    */  
+    public void append(E e) {  
+        Buffer b = buffer.get();  
+        synchronized (b) {  
+            if (b.count == b.elements.length)  
+                drain(b);  
+            b.elements[b.count++] = e;  
+            if (b.count == b.elements.length)  
+                drain(b);  
+        }  
+    }  
+  
+    //把当前线程的缓冲区里剩下的元素追加到目标list，返回后当前线程之前append的元素都可见  
+    public void flush() {  
+        Buffer b = buffer.get();  
+        synchronized (b) {  
+            drain(b);  
+        }  
+    }  
+  
+    //把所有线程的缓冲区里的元素追加到目标list；线程已经结束的缓冲区追加完就不再登记  
+    public void flushAll() {  
+        for (Iterator<Buffer> it = buffers.iterator(); it.hasNext(); ) {  
+            Buffer b = it.next();  
+            synchronized (b) {  
+                drain(b);  
+            }  
+            if (!b.owner.isAlive())  
+                it.remove();  
+        }  
+    }  
+  
+    //还在缓冲区里、没有进入目标list的元素个数，只是一个估计值  
+    public int pending() {  
+        int n = 0;  
+        for (Buffer b : buffers) {  
+            synchronized (b) {  
+                n += b.count;  
+            }  
+        }  
+        return n;  
+    }  
+  
+    /*  
+        1.必须持有b的锁；锁的顺序总是先缓冲区再目标list，不会死锁  
+        2.Vector.addAll(E[], off, len)自己是synchronized的，一批只进一次锁  
+        3.追加失败（比如OutOfMemoryError）时缓冲区保持不变，元素不会丢  
+    */  
+    @SuppressWarnings("unchecked")  
+    private void drain(Buffer b) {  
+        int n = b.count;  
+        if (n == 0)  
+            return;  
+        E[] a = (E[]) b.elements;  
+        if (vector != null) {  
+            vector.addAll(a, 0, n);  
+        } else {  
+            synchronized (list) {  
+                list.addAll(a, 0, n);  
+            }  
+        }  
+        // clear to let GC do its work  
+        Arrays.fill(b.elements, 0, n, null);  
+        b.count = 0;  
+    }  
+}  
@@ -0,0 +1,550 @@
+package java.util;  
+  
+import java.util.concurrent.atomic.AtomicInteger;  
+import java.util.concurrent.locks.StampedLock;  
+  
+/*  
+    1.ConcurrentVector提供Vector的接口（addElement、elementAt、setElementAt、removeElementAt、elements()），  
+      但不再对每个方法都synchronized(this)，多核下不会全部串行在一把锁上  
+    2.读（get、elementAt、size、isEmpty、indexOf...）不加锁：  
+      elementData和elementCount都是volatile，先读elementCount再读elementData，  
+      再用StampedLock的乐观读（tryOptimisticRead/validate）确认期间没有删除、插入这类移动元素的操作  
+    3.追加（add、addElement）只拿StampedLock的读锁，多个追加线程可以同时进行：  
+      a.用CAS在reserved上占一个位置i  
+      b.把元素写进elementData[i]  
+      c.等前面的位置都发布完，再把elementCount设为i+1（按顺序发布，读线程永远看不到空洞）  
+      d.扩容是合作完成的：占到位置i == elementData.length的线程负责扩容，  
+        它先等前面的元素全部发布，再复制数组；占到更后面位置的线程等扩容完成  
+      e.扩容失败（OutOfMemoryError）时，负责扩容的线程和等扩容的线程都抛出异常，  
+        然后在写锁下把reserved退回到elementCount，vector保持失败前的内容，之后的追加会重新尝试扩容  
+    4.insertElementAt、removeElementAt、set等会移动或覆盖元素的操作拿写锁，和追加、乐观读互斥  
+    5.modCount只在写锁下修改，所以迭代器对删除、插入是fail-fast的，对并发的追加是弱一致的  
+*/  
+public class ConcurrentVector<E> extends AbstractList<E>  
+        implements List<E>, RandomAccess  
+{  
+    //发布后的数组，只会在扩容、trimToSize时整体替换  
+    private volatile Object[] elementData;  
+  
+    //已经发布（读线程可见）的元素数目  
+    private volatile int elementCount;  
+  
+    //已经被追加线程占用的位置数目，写锁下和elementCount相等  
+    private final AtomicInteger reserved = new AtomicInteger();  
+  
+    //负责扩容的线程失败了，等扩容的线程看到后放弃；只在写锁下清除  
+    private volatile boolean growFailed;  
+  
+    //和Vector一样，<=0表示每次扩容时容量翻倍  
+    private final int capacityIncrement;  
+  
+    private final StampedLock lock = new StampedLock();  
+  
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;  
+  
+    public ConcurrentVector(int initialCapacity, int capacityIncrement) {  
+        super();  
+        if (initialCapacity < 0)  
+            throw new IllegalArgumentException("Illegal Capacity: "+  
+                                               initialCapacity);  
+        this.elementData = new Object[initialCapacity];  
+        this.capacityIncrement = capacityIncrement;  
+    }  
+  
+    public ConcurrentVector(int initialCapacity) {  
+        this(initialCapacity, 0);  
+    }  
+  
+    public ConcurrentVector() {  
+        this(10);  
+    }  
+  
+    public ConcurrentVector(Collection<? extends E> c) {  
+        Object[] a = c.toArray();  
+        if (a.getClass() != Object[].class)  
+            a = Arrays.copyOf(a, a.length, Object[].class);  
+        elementData = a;  
+        capacityIncrement = 0;  
+        reserved.set(a.length);  
+        elementCount = a.length;  
+    }  
+  
+    //vector的实际大小，直接读volatile，不需要锁  
+    public int size() {  
+        return elementCount;  
+    }  
+  
+    public boolean isEmpty() {  
+        return elementCount == 0;  
+    }  
+  
+    public int capacity() {  
+        return elementData.length;  
+    }  
+  
+    /*  
+        1.追加只拿读锁，和其他追加线程并发  
+        2.CAS占位置 -> 写元素 -> 按顺序发布elementCount  
+        3.异常只可能来自扩容，这时占到的位置不会发布，放掉读锁后再退回reserved  
+    */  
+    public void addElement(E obj) {  
+        boolean published = false;  
+        long stamp = lock.readLock();  
+        try {  
+            int i;  
+            do {  
+                i = reserved.get();  
+                if (i == MAX_ARRAY_SIZE)  
+                    throw new OutOfMemoryError();  
+            } while (!reserved.compareAndSet(i, i + 1));  
+  
+            Object[] a = elementData;  
+            if (i >= a.length)  
+                a = awaitCapacity(i);  
+            a[i] = obj;  
+  
+            //等位置i之前的元素都发布完，保证elementCount之前没有空洞  
+            while (elementCount != i)  
+                Thread.yield();  
+            elementCount = i + 1;  
+            published = true;  
+        } finally {  
+            lock.unlockRead(stamp);  
+            if (!published)  
+                rollbackReservations();  
+        }  
+    }  
+  
+    public boolean add(E e) {  
+        addElement(e);  
+        return true;  
+    }  
+  
+    /*  
+        1.位置index正好等于数组长度的线程负责扩容  
+        2.扩容前必须等[0, index)都发布完，否则复制时会漏掉还没写进旧数组的元素  
+        3.其他线程（index更大）只需要等新数组发布  
+        4.扩容失败时先设置growFailed再抛出，等待的线程看到后也抛OutOfMemoryError，  
+          否则它们会一直等下去，并且一直拿着读锁，连写锁也拿不到  
+    */  
+    private Object[] awaitCapacity(int index) {  
+        for (;;) {  
+            Object[] a = elementData;  
+            if (index < a.length)  
+                return a;  
+            if (growFailed)  
+                throw new OutOfMemoryError("ConcurrentVector grow failed");  
+            if (index == a.length) {  
+                while (elementCount != index)  
+                    Thread.yield();  
+                Object[] b;  
+                try {  
+                    b = Arrays.copyOf(a, newCapacity(a.length, index + 1));  
+                } catch (Throwable t) {  
+                    growFailed = true;  
+                    throw t;  
+                }  
+                elementData = b;  
+                return b;  
+            }  
+            Thread.yield();  
+        }  
+    }  
+  
+    /*  
+        1.拿到写锁时没有进行中的追加，占了位置却没有发布的线程都已经离开，  
+          所以[elementCount, reserved)这些位置永远不会再被写，直接退回  
+        2.同时清掉growFailed，之后的追加从elementCount重新占位置、重新扩容  
+        3.同一次失败的每个线程都会调用一次，重复调用没有影响  
+    */  
+    private void rollbackReservations() {  
+        long stamp = lock.writeLock();  
+        try {  
+            setCount(elementCount);  
+            growFailed = false;  
+        } finally {  
+            lock.unlockWrite(stamp);  
+        }  
+    }  
+  
+    //和Vector.grow一样的增长策略  
+    private int newCapacity(int oldCapacity, int minCapacity) {  
+        // overflow-conscious code  
+        int newCapacity = oldCapacity + ((capacityIncrement > 0) ?  
+                                         capacityIncrement : oldCapacity);  
+        if (newCapacity - minCapacity < 0)  
+            newCapacity = minCapacity;  
+        if (newCapacity - MAX_ARRAY_SIZE > 0)  
+            newCapacity = hugeCapacity(minCapacity);  
+        return newCapacity;  
+    }  
+  
+    private static int hugeCapacity(int minCapacity) {  
+        if (minCapacity < 0) // overflow  
+            throw new OutOfMemoryError();  
+        return (minCapacity > MAX_ARRAY_SIZE) ?  
+            Integer.MAX_VALUE :  
+            MAX_ARRAY_SIZE;  
+    }  
+  
+    //只能在写锁下调用，此时没有进行中的追加  
+    private void ensureCapacityHelper(int minCapacity) {  
+        Object[] a = elementData;  
+        if (minCapacity - a.length > 0)  
+            elementData = Arrays.copyOf(a, newCapacity(a.length, minCapacity));  
+    }  
+  
+    //写锁下同时修改reserved和elementCount，让两者保持相等  
+    private void setCount(int newCount) {  
+        reserved.set(newCount);  
+        elementCount = newCount;  
+    }  
+  
+    //index越界时返回NONE，而不是抛异常，由调用者决定抛什么异常  
+    private static final Object NONE = new Object();  
+  
+    /*  
+        1.乐观读：先读elementCount再读elementData，新的elementCount一定对应足够新的数组  
+        2.validate失败说明期间有写锁（删除、插入、set），退回到读锁重读一次  
+    */  
+    private Object readAt(int index) {  
+        long stamp = lock.tryOptimisticRead();  
+        int n = elementCount;  
+        Object[] a = elementData;  
+        Object e = (index >= 0 && index < n && index < a.length) ? a[index] : NONE;  
+        if (!lock.validate(stamp)) {  
+            stamp = lock.readLock();  
+            try {  
+                n = elementCount;  
+                a = elementData;  
+                e = (index >= 0 && index < n) ? a[index] : NONE;  
+            } finally {  
+                lock.unlockRead(stamp);  
+            }  
+        }  
+        return e;  
+    }  
+  
+    @SuppressWarnings("unchecked")  
+    public E elementAt(int index) {  
+        Object e = readAt(index);  
+        if (e == NONE)  
+            throw new ArrayIndexOutOfBoundsException(index + " >= " + elementCount);  
+        return (E) e;  
+    }  
+  
+    public E get(int index) {  
+        return elementAt(index);  
+    }  
+  
+    @SuppressWarnings("unchecked")  
+    public E firstElement() {  
+        Object e = readAt(0);  
+        if (e == NONE)  
+            throw new NoSuchElementException();  
+        return (E) e;  
+    }  
+  
+    //elementCount和对应的元素必须在同一次乐观读里读出  
+    @SuppressWarnings("unchecked")  
+    public E lastElement() {  
+        long stamp = lock.tryOptimisticRead();  
+        int n = elementCount;  
+        Object[] a = elementData;  
+        Object e = (n > 0 && n <= a.length) ? a[n - 1] : NONE;  
+        if (!lock.validate(stamp)) {  
+            stamp = lock.readLock();  
+            try {  
+                n = elementCount;  
+                e = (n > 0) ? elementData[n - 1] : NONE;  
+            } finally {  
+                lock.unlockRead(stamp);  
+            }  
+        }  
+        if (e == NONE)  
+            throw new NoSuchElementException();  
+        return (E) e;  
+    }  
+  
+    public boolean contains(Object o) {  
+        return indexOf(o, 0) >= 0;  
+    }  
+  
+    public int indexOf(Object o) {  
+        return indexOf(o, 0);  
+    }  
+  
+    //整个扫描放在一次乐观读里，validate失败再在读锁下扫描一遍  
+    public int indexOf(Object o, int index) {  
+        long stamp = lock.tryOptimisticRead();  
+        int n = elementCount;  
+        Object[] a = elementData;  
+        int found = indexOf(o, index, a, Math.min(n, a.length));  
+        if (!lock.validate(stamp)) {  
+            stamp = lock.readLock();  
+            try {  
+                found = indexOf(o, index, elementData, elementCount);  
+            } finally {  
+                lock.unlockRead(stamp);  
+            }  
+        }  
+        return found;  
+    }  
+  
+    private static int indexOf(Object o, int index, Object[] a, int n) {  
+        if (o == null) {  
+            for (int i = index ; i < n ; i++)  
+                if (a[i]==null)  
+                    return i;  
+        } else {  
+            for (int i = index ; i < n ; i++)  
+                if (o.equals(a[i]))  
+                    return i;  
+        }  
+        return -1;  
+    }  
+  
+    public int lastIndexOf(Object o) {  
+        long stamp = lock.readLock();  
+        try {  
+            Object[] a = elementData;  
+            if (o == null) {  
+                for (int i = elementCount-1; i >= 0; i--)  
+                    if (a[i]==null)  
+                        return i;  
+            } else {  
+                for (int i = elementCount-1; i >= 0; i--)  
+                    if (o.equals(a[i]))  
+                        return i;  
+            }  
+            return -1;  
+        } finally {  
+            lock.unlockRead(stamp);  
+        }  
+    }  
+  
+    //覆盖元素会让乐观读读到新旧混杂的结果，所以也拿写锁  
+    public void setElementAt(E obj, int index) {  
+        set(index, obj);  
+    }  
+  
+    @SuppressWarnings("unchecked")  
+    public E set(int index, E element) {  
+        long stamp = lock.writeLock();  
+        try {  
+            if (index < 0 || index >= elementCount)  
+                throw new ArrayIndexOutOfBoundsException(index);  
+            Object[] a = elementData;  
+            E oldValue = (E) a[index];  
+            a[index] = element;  
+            return oldValue;  
+        } finally {  
+            lock.unlockWrite(stamp);  
+        }  
+    }  
+  
+    public void removeElementAt(int index) {  
+        remove(index);  
+    }  
+  
+    @SuppressWarnings("unchecked")  
+    public E remove(int index) {  
+        long stamp = lock.writeLock();  
+        try {  
+            int n = elementCount;  
+            if (index < 0 || index >= n)  
+                throw new ArrayIndexOutOfBoundsException(index);  
+            modCount++;  
+            Object[] a = elementData;  
+            E oldValue = (E) a[index];  
+            int numMoved = n - index - 1;  
+            if (numMoved > 0)  
+                System.arraycopy(a, index + 1, a, index, numMoved);  
+            a[n - 1] = null; // Let gc do its work  
+            setCount(n - 1);  
+            return oldValue;  
+        } finally {  
+            lock.unlockWrite(stamp);  
+        }  
+    }  
+  
+    public void insertElementAt(E obj, int index) {  
+        add(index, obj);  
+    }  
+  
+    public void add(int index, E element) {  
+        long stamp = lock.writeLock();  
+        try {  
+            int n = elementCount;  
+            if (index < 0 || index > n)  
+                throw new ArrayIndexOutOfBoundsException(index  
+                                                         + " > " + n);  
+            modCount++;  
+            ensureCapacityHelper(n + 1);  
+            Object[] a = elementData;  
+            System.arraycopy(a, index, a, index + 1, n - index);  
+            a[index] = element;  
+            setCount(n + 1);  
+        } finally {  
+            lock.unlockWrite(stamp);  
+        }  
+    }  
+  
+    public boolean removeElement(Object obj) {  
+        return remove(obj);  
+    }  
+  
+    public boolean remove(Object o) {  
+        long stamp = lock.writeLock();  
+        try {  
+            int n = elementCount;  
+            int i = indexOf(o, 0, elementData, n);  
+            if (i < 0)  
+                return false;  
+            modCount++;  
+            Object[] a = elementData;  
+            System.arraycopy(a, i + 1, a, i, n - i - 1);  
+            a[n - 1] = null;  
+            setCount(n - 1);  
+            return true;  
+        } finally {  
+            lock.unlockWrite(stamp);  
+        }  
+    }  
+  
+    public void removeAllElements() {  
+        clear();  
+    }  
+  
+    public void clear() {  
+        long stamp = lock.writeLock();  
+        try {  
+            modCount++;  
+            Object[] a = elementData;  
+            // Let gc do its work  
+            for (int i = 0, n = elementCount; i < n; i++)  
+                a[i] = null;  
+            setCount(0);  
+        } finally {  
+            lock.unlockWrite(stamp);  
+        }  
+    }  
+  
+    protected void removeRange(int fromIndex, int toIndex) {  
+        long stamp = lock.writeLock();  
+        try {  
+            modCount++;  
+            int n = elementCount;  
+            Object[] a = elementData;  
+            System.arraycopy(a, toIndex, a, fromIndex, n - toIndex);  
+            int newCount = n - (toIndex - fromIndex);  
+            for (int i = newCount; i < n; i++)  
+                a[i] = null;  
+            setCount(newCount);  
+        } finally {  
+            lock.unlockWrite(stamp);  
+        }  
+    }  
+  
+    //批量追加直接拿写锁，一次扩容一次复制  
+    public boolean addAll(Collection<? extends E> c) {  
+        Object[] src = c.toArray();  
+        int numNew = src.length;  
+        long stamp = lock.writeLock();  
+        try {  
+            modCount++;  
+            int n = elementCount;  
+            ensureCapacityHelper(n + numNew);  
+            System.arraycopy(src, 0, elementData, n, numNew);  
+            setCount(n + numNew);  
+            return numNew != 0;  
+        } finally {  
+            lock.unlockWrite(stamp);  
+        }  
+    }  
+  
+    public void setSize(int newSize) {  
+        long stamp = lock.writeLock();  
+        try {  
+            modCount++;  
+            int n = elementCount;  
+            if (newSize > n) {  
+                ensureCapacityHelper(newSize);  
+            } else {  
+                Object[] a = elementData;  
+                for (int i = newSize ; i < n ; i++)  
+                    a[i] = null;  
+            }  
+            setCount(newSize);  
+        } finally {  
+            lock.unlockWrite(stamp);  
+        }  
+    }  
+  
+    public void ensureCapacity(int minCapacity) {  
+        if (minCapacity > 0) {  
+            long stamp = lock.writeLock();  
+            try {  
+                modCount++;  
+                ensureCapacityHelper(minCapacity);  
+            } finally {  
+                lock.unlockWrite(stamp);  
+            }  
+        }  
+    }  
+  
+    public void trimToSize() {  
+        long stamp = lock.writeLock();  
+        try {  
+            modCount++;  
+            int n = elementCount;  
+            if (n < elementData.length)  
+                elementData = Arrays.copyOf(elementData, n);  
+        } finally {  
+            lock.unlockWrite(stamp);  
+        }  
+    }  
+  
+    //读锁下复制，和追加线程并发也能得到一个没有空洞的前缀  
+    public Object[] toArray() {  
+        long stamp = lock.readLock();  
+        try {  
+            int n = elementCount;  
+            return Arrays.copyOf(elementData, n);  
+        } finally {  
+            lock.unlockRead(stamp);  
+        }  
+    }  
+  
+    public void copyInto(Object[] anArray) {  
+        long stamp = lock.readLock();  
+        try {  
+            System.arraycopy(elementData, 0, anArray, 0, elementCount);  
+        } finally {  
+            lock.unlockRead(stamp);  
+        }  
+    }  
+  
+    /*  
+        1.和Vector.elements()不同，nextElement不需要每次都进入锁，只做一次乐观读  
+        2.hasMoreElements读的是volatile的elementCount  
+    */  
+    public Enumeration<E> elements() {  
+        return new Enumeration<E>() {  
+            int count = 0;  
+  
+            public boolean hasMoreElements() {  
+                return count < elementCount;  
+            }  
+  
+            @SuppressWarnings("unchecked")  
+            public E nextElement() {  
+                Object e = readAt(count);  
+                if (e == NONE)  
+                    throw new NoSuchElementException("Vector Enumeration");  
+                count++;  
+                return (E) e;  
+            }  
+        };  
+    }  
+}  
@@ -0,0 +1,442 @@
+package java.util;  
+  
+import java.util.function.DoubleConsumer;  
+  
+/*  
+    1.DoubleArrayList是ArrayList的double特化版本，直接用double[]存放元素，  
+      不再为每个元素装箱成Double，内存不到ArrayList<Double>的一半，get也少了一次指针跳转  
+    2.扩容策略（grow、ensureCapacityInternal）和ArrayList完全一致  
+    3.为了能当作List<Double>使用，仍然实现了装箱的List方法；  
+      热点代码应该使用getDouble、add(double)、set(int,double)、removeDouble等不装箱的方法  
+*/  
+public class DoubleArrayList extends AbstractList<Double>  
+        implements RandomAccess, Cloneable, java.io.Serializable  
+{  
+    private static final long serialVersionUID = 2960528394187512237L;  
+  
+    //默认的capacity为10，和ArrayList一样  
+    private static final int DEFAULT_CAPACITY = 10;  
+  
+    //共享的空数组，第一次add时才扩充为DEFAULT_CAPACITY  
+    private static final double[] EMPTY_ELEMENTDATA = {};  
+  
+    //存储元素的double数组，capacity等于数组的length  
+    private transient double[] elementData;  
+  
+    //包含元素的数目  
+    private int size;  
+  
+    public DoubleArrayList(int initialCapacity) {  
+        super();  
+        if (initialCapacity < 0)  
+            throw new IllegalArgumentException("Illegal Capacity: "+  
+                                               initialCapacity);  
+        this.elementData = new double[initialCapacity];  
+    }  
+  
+    public DoubleArrayList() {  
+        super();  
+        this.elementData = EMPTY_ELEMENTDATA;  
+    }  
+  
+    //直接复制double数组，不经过装箱  
+    public DoubleArrayList(double[] a) {  
+        this.elementData = Arrays.copyOf(a, a.length);  
+        this.size = a.length;  
+    }  
+  
+    public void trimToSize() {  
+        modCount++;  
+        if (size < elementData.length) {  
+            elementData = Arrays.copyOf(elementData, size);  
+        }  
+    }  
+  
+    //和ArrayList.ensureCapacity相同  
+    public void ensureCapacity(int minCapacity) {  
+        int minExpand = (elementData != EMPTY_ELEMENTDATA)  
+            ? 0  
+            : DEFAULT_CAPACITY;  
+  
+        if (minCapacity > minExpand) {  
+            ensureExplicitCapacity(minCapacity);  
+        }  
+    }  
+  
+    private void ensureCapacityInternal(int minCapacity) {  
+        if (elementData == EMPTY_ELEMENTDATA) {  
+            minCapacity = Math.max(DEFAULT_CAPACITY, minCapacity);  
+        }  
+  
+        ensureExplicitCapacity(minCapacity);  
+    }  
+  
+    private void ensureExplicitCapacity(int minCapacity) {  
+        modCount++;  
+  
+        // overflow-conscious code  
+        if (minCapacity - elementData.length > 0)  
+            grow(minCapacity);  
+    }  
+  
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;  
+  
+    //和ArrayList一样，每次增加原来capacity的一半  
+    private void grow(int minCapacity) {  
+        // overflow-conscious code  
+        int oldCapacity = elementData.length;  
+        int newCapacity = oldCapacity + (oldCapacity >> 1);  
+        if (newCapacity - minCapacity < 0)  
+            newCapacity = minCapacity;  
+        if (newCapacity - MAX_ARRAY_SIZE > 0)  
+            newCapacity = hugeCapacity(minCapacity);  
+        elementData = Arrays.copyOf(elementData, newCapacity);  
+    }  
+  
+    private static int hugeCapacity(int minCapacity) {  
+        if (minCapacity < 0) // overflow  
+            throw new OutOfMemoryError();  
+        return (minCapacity > MAX_ARRAY_SIZE) ?  
+            Integer.MAX_VALUE :  
+            MAX_ARRAY_SIZE;  
+    }  
+  
+    public int size() {  
+        return size;  
+    }  
+  
+    public boolean isEmpty() {  
+        return size == 0;  
+    }  
+  
+    public boolean contains(double e) {  
+        return indexOf(e) >= 0;  
+    }  
+  
+    /*  
+        1.不能直接用==比较，否则NaN永远找不到，而0.0和-0.0又会被当成同一个值  
+        2.和Double.equals一样，比较doubleToLongBits，这样装箱版本和double版本的结果一致  
+    */  
+    public int indexOf(double e) {  
+        long bits = Double.doubleToLongBits(e);  
+        for (int i = 0; i < size; i++)  
+            if (Double.doubleToLongBits(elementData[i]) == bits)  
+                return i;  
+        return -1;  
+    }  
+  
+    public int lastIndexOf(double e) {  
+        long bits = Double.doubleToLongBits(e);  
+        for (int i = size-1; i >= 0; i--)  
+            if (Double.doubleToLongBits(elementData[i]) == bits)  
+                return i;  
+        return -1;  
+    }  
+  
+    //装箱版本，null和非Double对象一定不包含  
+    public boolean contains(Object o) {  
+        return indexOf(o) >= 0;  
+    }  
+  
+    public int indexOf(Object o) {  
+        return (o instanceof Double) ? indexOf(((Double) o).doubleValue()) : -1;  
+    }  
+  
+    public int lastIndexOf(Object o) {  
+        return (o instanceof Double) ? lastIndexOf(((Double) o).doubleValue()) : -1;  
+    }  
+  
+    public Object clone() {  
+        try {  
+            DoubleArrayList v = (DoubleArrayList) super.clone();  
+            v.elementData = Arrays.copyOf(elementData, size);  
+            v.modCount = 0;  
+            return v;  
+        } catch (CloneNotSupportedException e) {  
+            // this shouldn't happen, since we are Cloneable  
+            throw new InternalError();  
+        }  
+    }  
+  
+    public double[] toDoubleArray() {  
+        return Arrays.copyOf(elementData, size);  
+    }  
+  
+    public double getDouble(int index) {  
+        rangeCheck(index);  
+  
+        return elementData[index];  
+    }  
+  
+    public double set(int index, double element) {  
+        rangeCheck(index);  
+  
+        double oldValue = elementData[index];  
+        elementData[index] = element;  
+        return oldValue;  
+    }  
+  
+    public boolean add(double e) {  
+        ensureCapacityInternal(size + 1);  // Increments modCount!!  
+        elementData[size++] = e;  
+        return true;  
+    }  
+  
+    public void add(int index, double element) {  
+        rangeCheckForAdd(index);  
+  
+        ensureCapacityInternal(size + 1);  // Increments modCount!!  
+        System.arraycopy(elementData, index, elementData, index + 1,  
+                         size - index);  
+        elementData[index] = element;  
+        size++;  
+    }  
+  
+    /*  
+        1.按位置删除，返回被删除的double  
+        2.不能叫remove(int)，因为List已经有返回Double的remove(int)  
+        3.double不引用对象，所以末尾不需要置null  
+    */  
+    public double removeDouble(int index) {  
+        rangeCheck(index);  
+  
+        modCount++;  
+        double oldValue = elementData[index];  
+  
+        int numMoved = size - index - 1;  
+        if (numMoved > 0)  
+            System.arraycopy(elementData, index+1, elementData, index,  
+                             numMoved);  
+        size--;  
+  
+        return oldValue;  
+    }  
+  
+    //装箱的List方法，全部转到上面的double版本  
+    public Double get(int index) {  
+        return getDouble(index);  
+    }  
+  
+    public Double set(int index, Double element) {  
+        return set(index, element.doubleValue());  
+    }  
+  
+    public boolean add(Double e) {  
+        return add(e.doubleValue());  
+    }  
+  
+    public void add(int index, Double element) {  
+        add(index, element.doubleValue());  
+    }  
+  
+    public Double remove(int index) {  
+        return removeDouble(index);  
+    }  
+  
+    //double不需要让GC回收，size置0即可  
+    public void clear() {  
+        modCount++;  
+        size = 0;  
+    }  
+  
+    protected void removeRange(int fromIndex, int toIndex) {  
+        modCount++;  
+        int numMoved = size - toIndex;  
+        System.arraycopy(elementData, toIndex, elementData, fromIndex,  
+                         numMoved);  
+        size -= toIndex - fromIndex;  
+    }  
+  
+    //不装箱的遍历方式，直接在elementData上循环  
+    public void forEachDouble(DoubleConsumer action) {  
+        Objects.requireNonNull(action);  
+        final int expectedModCount = modCount;  
+        final double[] elementData = this.elementData;  
+        final int size = this.size;  
+        for (int i = 0; modCount == expectedModCount && i < size; i++) {  
+            action.accept(elementData[i]);  
+        }  
+        if (modCount != expectedModCount) {  
+            throw new ConcurrentModificationException();  
+        }  
+    }  
+  
+    //不装箱的迭代器，nextDouble直接返回double  
+    public PrimitiveIterator.OfDouble doubleIterator() {  
+        return new DoubleItr(0, size);  
+    }  
+  
+    private void rangeCheck(int index) {  
+        if (index >= size)  
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+    }  
+  
+    private void rangeCheckForAdd(int index) {  
+        if (index > size || index < 0)  
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+    }  
+  
+    private String outOfBoundsMsg(int index) {  
+        return "Index: "+index+", Size: "+size;  
+    }  
+  
+    private void writeObject(java.io.ObjectOutputStream s)  
+        throws java.io.IOException{  
+        int expectedModCount = modCount;  
+        s.defaultWriteObject();  
+  
+        //直接写double，不写对象  
+        for (int i=0; i<size; i++) {  
+            s.writeDouble(elementData[i]);  
+        }  
+  
+        if (modCount != expectedModCount) {  
+            throw new ConcurrentModificationException();  
+        }  
+    }  
+  
+    private void readObject(java.io.ObjectInputStream s)  
+        throws java.io.IOException, ClassNotFoundException {  
+        s.defaultReadObject();  
+  
+        //和ArrayList.readObject一样，按size分配，而不是按capacity  
+        double[] a = (size > 0) ? new double[size] : EMPTY_ELEMENTDATA;  
+        for (int i=0; i<size; i++) {  
+            a[i] = s.readDouble();  
+        }  
+        elementData = a;  
+    }  
+  
+    //遍历[cursor, end)之间的元素，end由DoubleArrayList或者SubList决定  
+    private class DoubleItr implements PrimitiveIterator.OfDouble {  
+        int cursor;  
+        final int end;  
+        int expectedModCount = modCount;  
+  
+        DoubleItr(int cursor, int end) {  
+            this.cursor = cursor;  
+            this.end = end;  
+        }  
+  
+        public boolean hasNext() {  
+            return cursor < end;  
+        }  
+  
+        public double nextDouble() {  
+            if (modCount != expectedModCount)  
+                throw new ConcurrentModificationException();  
+            int i = cursor;  
+            if (i >= end)  
+                throw new NoSuchElementException();  
+            cursor = i + 1;  
+            return elementData[i];  
+        }  
+    }  
+  
+    /*  
+        1.返回的SubList也提供getDouble、set(int,double)，不会退化成装箱访问  
+        2.返回类型写成SubList而不是List<Double>，调用方才能直接用到double方法  
+    */  
+    public SubList subList(int fromIndex, int toIndex) {  
+        ArrayList.subListRangeCheck(fromIndex, toIndex, size);  
+        return new SubList(this, 0, fromIndex, toIndex);  
+    }  
+  
+    //和ArrayList.SubList相同，结构修改交给parent，读写直接访问elementData  
+    public class SubList extends AbstractList<Double> implements RandomAccess {  
+        private final AbstractList<Double> parent;  
+        private final int parentOffset;  
+        private final int offset;  
+        int size;  
+  
+        SubList(AbstractList<Double> parent,  
+                int offset, int fromIndex, int toIndex) {  
+            this.parent = parent;  
+            this.parentOffset = fromIndex;  
+            this.offset = offset + fromIndex;  
+            this.size = toIndex - fromIndex;  
+            this.modCount = DoubleArrayList.this.modCount;  
+        }  
+  
+        public double getDouble(int index) {  
+            rangeCheck(index);  
+            checkForComodification();  
+            return DoubleArrayList.this.elementData[offset + index];  
+        }  
+  
+        public double set(int index, double e) {  
+            rangeCheck(index);  
+            checkForComodification();  
+            double oldValue = DoubleArrayList.this.elementData[offset + index];  
+            DoubleArrayList.this.elementData[offset + index] = e;  
+            return oldValue;  
+        }  
+  
+        public Double get(int index) {  
+            return getDouble(index);  
+        }  
+  
+        public Double set(int index, Double e) {  
+            return set(index, e.doubleValue());  
+        }  
+  
+        public int size() {  
+            checkForComodification();  
+            return this.size;  
+        }  
+  
+        public void add(int index, Double e) {  
+            rangeCheckForAdd(index);  
+            checkForComodification();  
+            parent.add(parentOffset + index, e);  
+            this.modCount = parent.modCount;  
+            this.size++;  
+        }  
+  
+        public Double remove(int index) {  
+            rangeCheck(index);  
+            checkForComodification();  
+            Double result = parent.remove(parentOffset + index);  
+            this.modCount = parent.modCount;  
+            this.size--;  
+            return result;  
+        }  
+  
+        protected void removeRange(int fromIndex, int toIndex) {  
+            checkForComodification();  
+            parent.removeRange(parentOffset + fromIndex,  
+                               parentOffset + toIndex);  
+            this.modCount = parent.modCount;  
+            this.size -= toIndex - fromIndex;  
+        }  
+  
+        public PrimitiveIterator.OfDouble doubleIterator() {  
+            checkForComodification();  
+            return new DoubleItr(offset, offset + size);  
+        }  
+  
+        public SubList subList(int fromIndex, int toIndex) {  
+            ArrayList.subListRangeCheck(fromIndex, toIndex, size);  
+            return new SubList(this, offset, fromIndex, toIndex);  
+        }  
+  
+        private void rangeCheck(int index) {  
+            if (index < 0 || index >= this.size)  
+                throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+        }  
+  
+        private void rangeCheckForAdd(int index) {  
+            if (index < 0 || index > this.size)  
+                throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+        }  
+  
+        private String outOfBoundsMsg(int index) {  
+            return "Index: "+index+", Size: "+this.size;  
+        }  
+  
+        private void checkForComodification() {  
+            if (DoubleArrayList.this.modCount != this.modCount)  
+                throw new ConcurrentModificationException();  
+        }  
+    }  
+}  
@@ -0,0 +1,162 @@
+package java.util;  
+  
+import java.util.concurrent.atomic.LongAdder;  
+import jdk.internal.misc.Unsafe;  
+  
+/*  
+    1.GrowthPolicy决定ArrayList、Vector扩容时新数组的大小，代替ArrayList写死的1.5倍  
+      和Vector的capacityIncrement/翻倍  
+    2.newCapacity的返回值小于minCapacity时按minCapacity处理，超过MAX_ARRAY_SIZE时按hugeCapacity处理，  
+      所以实现不用自己处理溢出，返回Integer.MAX_VALUE表示"越大越好"即可  
+    3.recordBulk在ensureCapacity、addAll这类一次要很多空间的操作时调用，可以用来学习list最终会有多大；  
+      默认什么也不做  
+    4.factor、fixedStep、powerOfTwo是无状态的，可以随便共享；  
+      adaptive()有状态，同一类用途的list共用一个实例，它才能从这些list的历史里学到东西  
+    5.shrinkCapacity在remove、removeRange、removeIf/removeAll/retainAll、clear、Vector.setSize  
+      之后调用，返回比capacity小的值时list把elementData缩小到这个长度；默认不缩小，  
+      要自动缩小用autoShrink包装一个policy  
+*/  
+public interface GrowthPolicy {  
+  
+    //返回新的capacity，oldCapacity是当前数组的长度，minCapacity是至少需要的长度  
+    int newCapacity(int oldCapacity, int minCapacity);  
+  
+    //一次性需要minCapacity个位置（ensureCapacity、addAll）  
+    default void recordBulk(int oldCapacity, int minCapacity) {  
+    }  
+  
+    //删除之后只剩size个元素时elementData应该缩小到多大，返回capacity表示不缩小  
+    default int shrinkCapacity(int capacity, int size) {  
+        return capacity;  
+    }  
+  
+    /*  
+        1.每次扩容为原来的f倍，至少加1；factor(1.5)就是ArrayList原来的策略  
+        2.f很大（或者是无穷大）时增量转成long会变成Long.MAX_VALUE，先限制在Integer.MAX_VALUE以内再加，  
+          否则相加溢出成负数，list只按minCapacity扩容，每次add都要复制一次  
+    */  
+    static GrowthPolicy factor(double f) {  
+        if (!(f > 1.0))  
+            throw new IllegalArgumentException("Illegal factor: "+f);  
+        return (oldCapacity, minCapacity) -> {  
+            long increment = Math.min((long) (oldCapacity * (f - 1.0)), Integer.MAX_VALUE);  
+            return (int) Math.min(oldCapacity + Math.max(1L, increment), Integer.MAX_VALUE);  
+        };  
+    }  
+  
+    //每次固定增加step个，相当于Vector的capacityIncrement  
+    static GrowthPolicy fixedStep(int step) {  
+        if (step <= 0)  
+            throw new IllegalArgumentException("Illegal step: "+step);  
+        return (oldCapacity, minCapacity) -> (int) Math.min((long) oldCapacity + step, Integer.MAX_VALUE);  
+    }  
+  
+    //扩容到不小于minCapacity的最小的2的幂  
+    static GrowthPolicy powerOfTwo() {  
+        return (oldCapacity, minCapacity) -> (minCapacity <= 1) ? 1 :  
+            (int) Math.min(Long.highestOneBit((long) minCapacity - 1) << 1, Integer.MAX_VALUE);  
+    }  
+  
+    static GrowthPolicy adaptive() {  
+        return new Adaptive();  
+    }  
+  
+    //扩容交给base，元素少于capacity的1/4时缩小到2倍size  
+    static AutoShrink autoShrink(GrowthPolicy base) {  
+        return new AutoShrink(Objects.requireNonNull(base));  
+    }  
+  
+    /*  
+        1.小的时候翻倍（到SMALL为止），之后1.5倍，和普通的list一样  
+        2.记住用过这个policy的list一次要过的最大容量peak（来自recordBulk和每次扩容）  
+        3.一个list已经长到peak的1/8以上，说明它大概率又是一个"大list"，直接扩到peak，  
+          省掉中间几次复制；一直很小的list离peak很远，不受影响  
+        4.peak只增不减，多个线程共用时允许丢失个别更新  
+    */  
+    final class Adaptive implements GrowthPolicy {  
+        private static final int SMALL = 1 << 16;  
+  
+        private volatile int peak;  
+  
+        //只通过GrowthPolicy.adaptive()创建，peak从0开始  
+        Adaptive() {  
+        }  
+  
+        public int newCapacity(int oldCapacity, int minCapacity) {  
+            long grown = (oldCapacity < SMALL)  
+                ? Math.max((long) oldCapacity << 1, 1L)  
+                : oldCapacity + (long) (oldCapacity >> 1);  
+            int p = peak;  
+            if (p > grown && minCapacity > (p >>> 3))  
+                grown = p;  
+            record(minCapacity);  
+            return (int) Math.min(grown, Integer.MAX_VALUE);  
+        }  
+  
+        public void recordBulk(int oldCapacity, int minCapacity) {  
+            record(minCapacity);  
+        }  
+  
+        private void record(int minCapacity) {  
+            if (minCapacity > peak)  
+                peak = minCapacity;  
+        }  
+  
+        //目前学到的最大容量  
+        public int peak() {  
+            return peak;  
+        }  
+    }  
+  
+    /*  
+        1.元素个数少于capacity的1/4时缩小到2倍size（不小于MIN_CAPACITY），缩小后占用率是1/2，  
+          要再删掉一半才会缩小、再加一倍才会扩容，来回add、remove不会反复复制  
+        2.capacity不超过MIN_CAPACITY的数组不缩小，小list省下的空间不值一次复制  
+        3.shrinks、reclaimedSlots记录缩小的次数和少占用的位置数，reclaimedBytes按引用的大小换算成字节；  
+          同一个实例可以给很多list共用，统计的是它们的总和  
+    */  
+    final class AutoShrink implements GrowthPolicy {  
+        private static final int MIN_CAPACITY = 16;  
+  
+        //数组里每个引用占的字节数，开启压缩指针时是4；java.base内部用jdk.internal.misc.Unsafe，不依赖jdk.unsupported  
+        private static final int REFERENCE_SIZE = Unsafe.ARRAY_OBJECT_INDEX_SCALE;  
+  
+        private final GrowthPolicy base;  
+        private final LongAdder shrinks = new LongAdder();  
+        private final LongAdder reclaimedSlots = new LongAdder();  
+  
+        AutoShrink(GrowthPolicy base) {  
+            this.base = base;  
+        }  
+  
+        public int newCapacity(int oldCapacity, int minCapacity) {  
+            return base.newCapacity(oldCapacity, minCapacity);  
+        }  
+  
+        public void recordBulk(int oldCapacity, int minCapacity) {  
+            base.recordBulk(oldCapacity, minCapacity);  
+        }  
+  
+        //size < capacity/4，所以size*2不会溢出  
+        public int shrinkCapacity(int capacity, int size) {  
+            if (capacity <= MIN_CAPACITY || size >= (capacity >>> 2))  
+                return capacity;  
+            int newCapacity = Math.max(size << 1, MIN_CAPACITY);  
+            shrinks.increment();  
+            reclaimedSlots.add(capacity - newCapacity);  
+            return newCapacity;  
+        }  
+  
+        public long shrinks() {  
+            return shrinks.sum();  
+        }  
+  
+        public long reclaimedSlots() {  
+            return reclaimedSlots.sum();  
+        }  
+  
+        public long reclaimedBytes() {  
+            return reclaimedSlots.sum() * REFERENCE_SIZE;  
+        }  
+    }  
+}  
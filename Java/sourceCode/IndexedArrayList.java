@@ -0,0 +1,359 @@
+package java.util;  
+  
+/*  
+    1.IndexedArrayList在ArrayList的基础上加了一个"元素 -> 位置"的hash索引，  
+      indexOf、lastIndexOf、contains、remove(Object)不再线性扫描equals，期望O(1)  
+    2.索引是懒建立的：第一次查询时才扫描一遍建立；不查询就和ArrayList完全一样，没有额外开销  
+    3.索引记录建立（或最后一次同步）时的modCount：  
+      a.add、set、remove、add(int, E)、removeRange、clear在修改elementData的同时增量维护索引  
+      b.removeAll、retainAll、addAll(int, c)等批量操作只改变modCount，不维护索引，  
+        下一次查询发现modCount对不上，整体重建一次  
+    4.中间位置的插入删除要把后面每个元素的位置加一或减一，每个元素都是一次hash查找加一次二分查找，  
+      比System.arraycopy慢得多；后面超过SHIFT_THRESHOLD个元素时不再逐个修改，直接丢掉索引，  
+      下一次查询时整体重建，在头部反复插入删除时就不会每次都是O(n)次hash查找  
+    5.ArrayList.SubList.set直接写elementData，会绕过索引，所以subList返回的是通过本类方法修改的视图  
+    6.元素加入之后equals、hashCode变了，增量维护时在索引里找不到它的位置，这时也丢掉索引，  
+      下一次查询时按元素现在的hashCode重建，不会在修改到一半时抛NullPointerException  
+*/  
+public class IndexedArrayList<E> extends ArrayList<E> {  
+  
+    private static final long serialVersionUID = -4203986573092658127L;  
+  
+    /*  
+        1.一个元素在list中出现的所有位置，升序排列  
+        2.大部分元素只出现一次，初始容量为1  
+    */  
+    private static final class Positions {  
+        int[] a = new int[1];  
+        int n;  
+  
+        int first() {  
+            return a[0];  
+        }  
+  
+        int last() {  
+            return a[n - 1];  
+        }  
+  
+        //插入位置p，保持升序；追加时p最大，直接放到最后  
+        void add(int p) {  
+            if (n == a.length)  
+                a = Arrays.copyOf(a, n << 1);  
+            int i = (n == 0 || a[n - 1] < p) ? n : -Arrays.binarySearch(a, 0, n, p) - 1;  
+            System.arraycopy(a, i, a, i + 1, n - i);  
+            a[i] = p;  
+            n++;  
+        }  
+  
+        //没有位置p时返回false  
+        boolean remove(int p) {  
+            int i = Arrays.binarySearch(a, 0, n, p);  
+            if (i < 0)  
+                return false;  
+            System.arraycopy(a, i + 1, a, i, n - i - 1);  
+            n--;  
+            return true;  
+        }  
+  
+        //位置from整体移到to，中间没有同一元素的其他位置，所以顺序不变；没有位置from时返回false  
+        boolean move(int from, int to) {  
+            int i = Arrays.binarySearch(a, 0, n, from);  
+            if (i < 0)  
+                return false;  
+            a[i] = to;  
+            return true;  
+        }  
+    }  
+  
+    //null表示还没有建立索引  
+    private transient HashMap<Object, Positions> index;  
+  
+    //索引对应的modCount，和当前modCount不同说明索引过期了  
+    private transient int indexedModCount;  
+  
+    //插入删除时需要修改位置的元素超过这个数目，就丢掉索引而不是逐个修改  
+    private static final int SHIFT_THRESHOLD = 32;  
+  
+    public IndexedArrayList(int initialCapacity) {  
+        super(initialCapacity);  
+    }  
+  
+    public IndexedArrayList(int initialCapacity, GrowthPolicy growthPolicy) {  
+        super(initialCapacity, growthPolicy);  
+    }  
+  
+    public IndexedArrayList() {  
+        super();  
+    }  
+  
+    public IndexedArrayList(Collection<? extends E> c) {  
+        super(c);  
+    }  
+  
+    //------------------------ 索引的建立和维护 ------------------------  
+  
+    //索引存在并且没有过期，此时修改操作才需要增量维护  
+    private boolean inSync() {  
+        return index != null && indexedModCount == modCount;  
+    }  
+  
+    //丢掉索引，下一次查询时重建  
+    private void invalidateIndex() {  
+        index = null;  
+    }  
+  
+    private HashMap<Object, Positions> index() {  
+        if (!inSync())  
+            rebuildIndex();  
+        return index;  
+    }  
+  
+    private void rebuildIndex() {  
+        int n = size();  
+        HashMap<Object, Positions> m = new HashMap<>(Math.max(16, (int) (n / .75f) + 1));  
+        for (int i = 0; i < n; i++)  
+            addPosition(m, elementData(i), i);  
+        index = m;  
+        indexedModCount = modCount;  
+    }  
+  
+    private static void addPosition(HashMap<Object, Positions> m, Object e, int p) {  
+        Positions ps = m.get(e);  
+        if (ps == null)  
+            m.put(e, ps = new Positions());  
+        ps.add(p);  
+    }  
+  
+    //找不到e的位置（e的hashCode、equals在加入之后变了）时丢掉索引，返回false  
+    private boolean removePosition(Object e, int p) {  
+        Positions ps = index.get(e);  
+        if (ps == null || !ps.remove(p)) {  
+            invalidateIndex();  
+            return false;  
+        }  
+        if (ps.n == 0)  
+            index.remove(e);  
+        return true;  
+    }  
+  
+    private boolean movePosition(Object e, int from, int to) {  
+        Positions ps = index.get(e);  
+        if (ps == null || !ps.move(from, to)) {  
+            invalidateIndex();  
+            return false;  
+        }  
+        return true;  
+    }  
+  
+    //[from, to)之间的元素位置整体加上delta，delta > 0时从后往前处理，避免同一元素的位置互相越过；索引被丢掉时返回false  
+    private boolean shiftPositions(int from, int to, int delta) {  
+        if (delta > 0) {  
+            for (int i = to - 1; i >= from; i--)  
+                if (!movePosition(elementData(i + delta), i, i + delta))  
+                    return false;  
+        } else {  
+            for (int i = from; i < to; i++)  
+                if (!movePosition(elementData(i + delta), i, i + delta))  
+                    return false;  
+        }  
+        return true;  
+    }  
+  
+    //------------------------ 查询：走索引 ------------------------  
+  
+    public int indexOf(Object o) {  
+        Positions ps = index().get(o);  
+        return (ps == null) ? -1 : ps.first();  
+    }  
+  
+    public int lastIndexOf(Object o) {  
+        Positions ps = index().get(o);  
+        return (ps == null) ? -1 : ps.last();  
+    }  
+  
+    public boolean contains(Object o) {  
+        return index().containsKey(o);  
+    }  
+  
+    public boolean remove(Object o) {  
+        int i = indexOf(o);  
+        if (i < 0)  
+            return false;  
+        remove(i);  
+        return true;  
+    }  
+  
+    //------------------------ 修改：增量维护 ------------------------  
+  
+    public boolean add(E e) {  
+        boolean sync = inSync();  
+        super.add(e);  
+        if (sync) {  
+            addPosition(index, e, size() - 1);  
+            indexedModCount = modCount;  
+        }  
+        return true;  
+    }  
+  
+    public void add(int index, E element) {  
+        boolean sync = inSync();  
+        super.add(index, element);  
+        if (sync && size() - 1 - index > SHIFT_THRESHOLD) {  
+            invalidateIndex();  
+        } else if (sync && shiftPositions(index, size() - 1, 1)) {  
+            //原来[index, size-1)的元素现在在[index+1, size)  
+            addPosition(this.index, element, index);  
+            indexedModCount = modCount;  
+        }  
+    }  
+  
+    //set不改变modCount，所以只在索引存在时同步  
+    public E set(int index, E element) {  
+        boolean sync = inSync();  
+        E oldValue = super.set(index, element);  
+        if (sync && removePosition(oldValue, index))  
+            addPosition(this.index, element, index);  
+        return oldValue;  
+    }  
+  
+    public E remove(int index) {  
+        boolean sync = inSync();  
+        E oldValue = super.remove(index);  
+        if (sync && size() - index > SHIFT_THRESHOLD) {  
+            invalidateIndex();  
+        } else if (sync && removePosition(oldValue, index)  
+                && shiftPositions(index + 1, size() + 1, -1)) {  
+            //原来[index+1, size+1)的元素现在在[index, size)  
+            indexedModCount = modCount;  
+        }  
+        return oldValue;  
+    }  
+  
+    public void clear() {  
+        boolean sync = inSync();  
+        super.clear();  
+        if (sync) {  
+            index.clear();  
+            indexedModCount = modCount;  
+        }  
+    }  
+  
+    //先从索引里去掉被删除的元素，再把后面的元素位置整体前移；后面的元素太多时直接丢掉索引  
+    protected void removeRange(int fromIndex, int toIndex) {  
+        int oldSize = size();  
+        boolean sync = inSync();  
+        if (sync && oldSize - toIndex > SHIFT_THRESHOLD) {  
+            invalidateIndex();  
+            sync = false;  
+        }  
+        for (int i = fromIndex; sync && i < toIndex; i++)  
+            sync = removePosition(elementData(i), i);  
+        super.removeRange(fromIndex, toIndex);  
+        if (sync && shiftPositions(toIndex, oldSize, fromIndex - toIndex))  
+            indexedModCount = modCount;  
+    }  
+  
+    //追加到末尾时新元素的位置都是新的，不影响已有的位置  
+    public boolean addAll(Collection<? extends E> c) {  
+        boolean sync = inSync();  
+        int oldSize = size();  
+        boolean modified = super.addAll(c);  
+        if (sync) {  
+            for (int i = oldSize, n = size(); i < n; i++)  
+                addPosition(index, elementData(i), i);  
+            indexedModCount = modCount;  
+        }  
+        return modified;  
+    }  
+  
+    //trimToSize、ensureCapacity只改变容量，元素位置不变，索引仍然有效  
+    public void trimToSize() {  
+        boolean sync = inSync();  
+        super.trimToSize();  
+        if (sync)  
+            indexedModCount = modCount;  
+    }  
+  
+    public void ensureCapacity(int minCapacity) {  
+        boolean sync = inSync();  
+        super.ensureCapacity(minCapacity);  
+        if (sync)  
+            indexedModCount = modCount;  
+    }  
+  
+    //super.clone()会浅复制index，克隆出来的list要自己重新建立索引  
+    public Object clone() {  
+        IndexedArrayList<?> v = (IndexedArrayList<?>) super.clone();  
+        v.index = null;  
+        return v;  
+    }  
+  
+    public List<E> subList(int fromIndex, int toIndex) {  
+        subListRangeCheck(fromIndex, toIndex, size());  
+        return new IndexedSubList(fromIndex, toIndex);  
+    }  
+  
+    //所有读写都转到IndexedArrayList的方法上，索引才能保持正确  
+    private class IndexedSubList extends AbstractList<E> implements RandomAccess {  
+        private final int offset;  
+        private int size;  
+  
+        IndexedSubList(int fromIndex, int toIndex) {  
+            this.offset = fromIndex;  
+            this.size = toIndex - fromIndex;  
+            this.modCount = IndexedArrayList.this.modCount;  
+        }  
+  
+        public E get(int index) {  
+            rangeCheck(index);  
+            checkForComodification();  
+            return IndexedArrayList.this.get(offset + index);  
+        }  
+  
+        public E set(int index, E e) {  
+            rangeCheck(index);  
+            checkForComodification();  
+            return IndexedArrayList.this.set(offset + index, e);  
+        }  
+  
+        public int size() {  
+            checkForComodification();  
+            return size;  
+        }  
+  
+        public void add(int index, E e) {  
+            if (index < 0 || index > size)  
+                throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);  
+            checkForComodification();  
+            IndexedArrayList.this.add(offset + index, e);  
+            this.modCount = IndexedArrayList.this.modCount;  
+            size++;  
+        }  
+  
+        public E remove(int index) {  
+            rangeCheck(index);  
+            checkForComodification();  
+            E result = IndexedArrayList.this.remove(offset + index);  
+            this.modCount = IndexedArrayList.this.modCount;  
+            size--;  
+            return result;  
+        }  
+  
+        protected void removeRange(int fromIndex, int toIndex) {  
+            checkForComodification();  
+            IndexedArrayList.this.removeRange(offset + fromIndex, offset + toIndex);  
+            this.modCount = IndexedArrayList.this.modCount;  
+            size -= toIndex - fromIndex;  
+        }  
+  
+        private void rangeCheck(int index) {  
+            if (index < 0 || index >= size)  
+                throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);  
+        }  
+  
+        private void checkForComodification() {  
+            if (IndexedArrayList.this.modCount != this.modCount)  
+                throw new ConcurrentModificationException();  
+        }  
+    }  
+}  
@@ -0,0 +1,437 @@
+package java.util;  
+  
+import java.util.function.IntConsumer;  
+  
+/*  
+    1.IntArrayList是ArrayList的int特化版本，直接用int[]存放元素，  
+      不再为每个元素装箱成Integer，内存大约是ArrayList<Integer>的1/4，get也少了一次指针跳转  
+    2.扩容策略（grow、ensureCapacityInternal）和ArrayList完全一致  
+    3.为了能当作List<Integer>使用，仍然实现了装箱的List方法；  
+      热点代码应该使用getInt、add(int)、set(int,int)、removeInt等不装箱的方法  
+*/  
+public class IntArrayList extends AbstractList<Integer>  
+        implements RandomAccess, Cloneable, java.io.Serializable  
+{  
+    private static final long serialVersionUID = 4863498753186236843L;  
+  
+    //默认的capacity为10，和ArrayList一样  
+    private static final int DEFAULT_CAPACITY = 10;  
+  
+    //共享的空数组，第一次add时才扩充为DEFAULT_CAPACITY  
+    private static final int[] EMPTY_ELEMENTDATA = {};  
+  
+    //存储元素的int数组，capacity等于数组的length  
+    private transient int[] elementData;  
+  
+    //包含元素的数目  
+    private int size;  
+  
+    public IntArrayList(int initialCapacity) {  
+        super();  
+        if (initialCapacity < 0)  
+            throw new IllegalArgumentException("Illegal Capacity: "+  
+                                               initialCapacity);  
+        this.elementData = new int[initialCapacity];  
+    }  
+  
+    public IntArrayList() {  
+        super();  
+        this.elementData = EMPTY_ELEMENTDATA;  
+    }  
+  
+    //直接复制int数组，不经过装箱  
+    public IntArrayList(int[] a) {  
+        this.elementData = Arrays.copyOf(a, a.length);  
+        this.size = a.length;  
+    }  
+  
+    public void trimToSize() {  
+        modCount++;  
+        if (size < elementData.length) {  
+            elementData = Arrays.copyOf(elementData, size);  
+        }  
+    }  
+  
+    //和ArrayList.ensureCapacity相同  
+    public void ensureCapacity(int minCapacity) {  
+        int minExpand = (elementData != EMPTY_ELEMENTDATA)  
+            ? 0  
+            : DEFAULT_CAPACITY;  
+  
+        if (minCapacity > minExpand) {  
+            ensureExplicitCapacity(minCapacity);  
+        }  
+    }  
+  
+    private void ensureCapacityInternal(int minCapacity) {  
+        if (elementData == EMPTY_ELEMENTDATA) {  
+            minCapacity = Math.max(DEFAULT_CAPACITY, minCapacity);  
+        }  
+  
+        ensureExplicitCapacity(minCapacity);  
+    }  
+  
+    private void ensureExplicitCapacity(int minCapacity) {  
+        modCount++;  
+  
+        // overflow-conscious code  
+        if (minCapacity - elementData.length > 0)  
+            grow(minCapacity);  
+    }  
+  
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;  
+  
+    //和ArrayList一样，每次增加原来capacity的一半  
+    private void grow(int minCapacity) {  
+        // overflow-conscious code  
+        int oldCapacity = elementData.length;  
+        int newCapacity = oldCapacity + (oldCapacity >> 1);  
+        if (newCapacity - minCapacity < 0)  
+            newCapacity = minCapacity;  
+        if (newCapacity - MAX_ARRAY_SIZE > 0)  
+            newCapacity = hugeCapacity(minCapacity);  
+        elementData = Arrays.copyOf(elementData, newCapacity);  
+    }  
+  
+    private static int hugeCapacity(int minCapacity) {  
+        if (minCapacity < 0) // overflow  
+            throw new OutOfMemoryError();  
+        return (minCapacity > MAX_ARRAY_SIZE) ?  
+            Integer.MAX_VALUE :  
+            MAX_ARRAY_SIZE;  
+    }  
+  
+    public int size() {  
+        return size;  
+    }  
+  
+    public boolean isEmpty() {  
+        return size == 0;  
+    }  
+  
+    public boolean contains(int e) {  
+        return indexOf(e) >= 0;  
+    }  
+  
+    //int直接用==比较，不需要equals  
+    public int indexOf(int e) {  
+        for (int i = 0; i < size; i++)  
+            if (elementData[i] == e)  
+                return i;  
+        return -1;  
+    }  
+  
+    public int lastIndexOf(int e) {  
+        for (int i = size-1; i >= 0; i--)  
+            if (elementData[i] == e)  
+                return i;  
+        return -1;  
+    }  
+  
+    //装箱版本，null和非Integer对象一定不包含  
+    public boolean contains(Object o) {  
+        return indexOf(o) >= 0;  
+    }  
+  
+    public int indexOf(Object o) {  
+        return (o instanceof Integer) ? indexOf(((Integer) o).intValue()) : -1;  
+    }  
+  
+    public int lastIndexOf(Object o) {  
+        return (o instanceof Integer) ? lastIndexOf(((Integer) o).intValue()) : -1;  
+    }  
+  
+    public Object clone() {  
+        try {  
+            IntArrayList v = (IntArrayList) super.clone();  
+            v.elementData = Arrays.copyOf(elementData, size);  
+            v.modCount = 0;  
+            return v;  
+        } catch (CloneNotSupportedException e) {  
+            // this shouldn't happen, since we are Cloneable  
+            throw new InternalError();  
+        }  
+    }  
+  
+    public int[] toIntArray() {  
+        return Arrays.copyOf(elementData, size);  
+    }  
+  
+    public int getInt(int index) {  
+        rangeCheck(index);  
+  
+        return elementData[index];  
+    }  
+  
+    public int set(int index, int element) {  
+        rangeCheck(index);  
+  
+        int oldValue = elementData[index];  
+        elementData[index] = element;  
+        return oldValue;  
+    }  
+  
+    public boolean add(int e) {  
+        ensureCapacityInternal(size + 1);  // Increments modCount!!  
+        elementData[size++] = e;  
+        return true;  
+    }  
+  
+    public void add(int index, int element) {  
+        rangeCheckForAdd(index);  
+  
+        ensureCapacityInternal(size + 1);  // Increments modCount!!  
+        System.arraycopy(elementData, index, elementData, index + 1,  
+                         size - index);  
+        elementData[index] = element;  
+        size++;  
+    }  
+  
+    /*  
+        1.按位置删除，返回被删除的int  
+        2.不能叫remove(int)，因为List已经有返回Integer的remove(int)  
+        3.int不引用对象，所以末尾不需要置null  
+    */  
+    public int removeInt(int index) {  
+        rangeCheck(index);  
+  
+        modCount++;  
+        int oldValue = elementData[index];  
+  
+        int numMoved = size - index - 1;  
+        if (numMoved > 0)  
+            System.arraycopy(elementData, index+1, elementData, index,  
+                             numMoved);  
+        size--;  
+  
+        return oldValue;  
+    }  
+  
+    //装箱的List方法，全部转到上面的int版本  
+    public Integer get(int index) {  
+        return getInt(index);  
+    }  
+  
+    public Integer set(int index, Integer element) {  
+        return set(index, element.intValue());  
+    }  
+  
+    public boolean add(Integer e) {  
+        return add(e.intValue());  
+    }  
+  
+    public void add(int index, Integer element) {  
+        add(index, element.intValue());  
+    }  
+  
+    public Integer remove(int index) {  
+        return removeInt(index);  
+    }  
+  
+    //int不需要让GC回收，size置0即可  
+    public void clear() {  
+        modCount++;  
+        size = 0;  
+    }  
+  
+    protected void removeRange(int fromIndex, int toIndex) {  
+        modCount++;  
+        int numMoved = size - toIndex;  
+        System.arraycopy(elementData, toIndex, elementData, fromIndex,  
+                         numMoved);  
+        size -= toIndex - fromIndex;  
+    }  
+  
+    //不装箱的遍历方式，直接在elementData上循环  
+    public void forEachInt(IntConsumer action) {  
+        Objects.requireNonNull(action);  
+        final int expectedModCount = modCount;  
+        final int[] elementData = this.elementData;  
+        final int size = this.size;  
+        for (int i = 0; modCount == expectedModCount && i < size; i++) {  
+            action.accept(elementData[i]);  
+        }  
+        if (modCount != expectedModCount) {  
+            throw new ConcurrentModificationException();  
+        }  
+    }  
+  
+    //不装箱的迭代器，nextInt直接返回int  
+    public PrimitiveIterator.OfInt intIterator() {  
+        return new IntItr(0, size);  
+    }  
+  
+    private void rangeCheck(int index) {  
+        if (index >= size)  
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+    }  
+  
+    private void rangeCheckForAdd(int index) {  
+        if (index > size || index < 0)  
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+    }  
+  
+    private String outOfBoundsMsg(int index) {  
+        return "Index: "+index+", Size: "+size;  
+    }  
+  
+    private void writeObject(java.io.ObjectOutputStream s)  
+        throws java.io.IOException{  
+        int expectedModCount = modCount;  
+        s.defaultWriteObject();  
+  
+        //直接写int，不写对象  
+        for (int i=0; i<size; i++) {  
+            s.writeInt(elementData[i]);  
+        }  
+  
+        if (modCount != expectedModCount) {  
+            throw new ConcurrentModificationException();  
+        }  
+    }  
+  
+    private void readObject(java.io.ObjectInputStream s)  
+        throws java.io.IOException, ClassNotFoundException {  
+        s.defaultReadObject();  
+  
+        //和ArrayList.readObject一样，按size分配，而不是按capacity  
+        int[] a = (size > 0) ? new int[size] : EMPTY_ELEMENTDATA;  
+        for (int i=0; i<size; i++) {  
+            a[i] = s.readInt();  
+        }  
+        elementData = a;  
+    }  
+  
+    //遍历[cursor, end)之间的元素，end由IntArrayList或者SubList决定  
+    private class IntItr implements PrimitiveIterator.OfInt {  
+        int cursor;  
+        final int end;  
+        int expectedModCount = modCount;  
+  
+        IntItr(int cursor, int end) {  
+            this.cursor = cursor;  
+            this.end = end;  
+        }  
+  
+        public boolean hasNext() {  
+            return cursor < end;  
+        }  
+  
+        public int nextInt() {  
+            if (modCount != expectedModCount)  
+                throw new ConcurrentModificationException();  
+            int i = cursor;  
+            if (i >= end)  
+                throw new NoSuchElementException();  
+            cursor = i + 1;  
+            return elementData[i];  
+        }  
+    }  
+  
+    /*  
+        1.返回的SubList也提供getInt、set(int,int)，不会退化成装箱访问  
+        2.返回类型写成SubList而不是List<Integer>，调用方才能直接用到int方法  
+    */  
+    public SubList subList(int fromIndex, int toIndex) {  
+        ArrayList.subListRangeCheck(fromIndex, toIndex, size);  
+        return new SubList(this, 0, fromIndex, toIndex);  
+    }  
+  
+    //和ArrayList.SubList相同，结构修改交给parent，读写直接访问elementData  
+    public class SubList extends AbstractList<Integer> implements RandomAccess {  
+        private final AbstractList<Integer> parent;  
+        private final int parentOffset;  
+        private final int offset;  
+        int size;  
+  
+        SubList(AbstractList<Integer> parent,  
+                int offset, int fromIndex, int toIndex) {  
+            this.parent = parent;  
+            this.parentOffset = fromIndex;  
+            this.offset = offset + fromIndex;  
+            this.size = toIndex - fromIndex;  
+            this.modCount = IntArrayList.this.modCount;  
+        }  
+  
+        public int getInt(int index) {  
+            rangeCheck(index);  
+            checkForComodification();  
+            return IntArrayList.this.elementData[offset + index];  
+        }  
+  
+        public int set(int index, int e) {  
+            rangeCheck(index);  
+            checkForComodification();  
+            int oldValue = IntArrayList.this.elementData[offset + index];  
+            IntArrayList.this.elementData[offset + index] = e;  
+            return oldValue;  
+        }  
+  
+        public Integer get(int index) {  
+            return getInt(index);  
+        }  
+  
+        public Integer set(int index, Integer e) {  
+            return set(index, e.intValue());  
+        }  
+  
+        public int size() {  
+            checkForComodification();  
+            return this.size;  
+        }  
+  
+        public void add(int index, Integer e) {  
+            rangeCheckForAdd(index);  
+            checkForComodification();  
+            parent.add(parentOffset + index, e);  
+            this.modCount = parent.modCount;  
+            this.size++;  
+        }  
+  
+        public Integer remove(int index) {  
+            rangeCheck(index);  
+            checkForComodification();  
+            Integer result = parent.remove(parentOffset + index);  
+            this.modCount = parent.modCount;  
+            this.size--;  
+            return result;  
+        }  
+  
+        protected void removeRange(int fromIndex, int toIndex) {  
+            checkForComodification();  
+            parent.removeRange(parentOffset + fromIndex,  
+                               parentOffset + toIndex);  
+            this.modCount = parent.modCount;  
+            this.size -= toIndex - fromIndex;  
+        }  
+  
+        public PrimitiveIterator.OfInt intIterator() {  
+            checkForComodification();  
+            return new IntItr(offset, offset + size);  
+        }  
+  
+        public SubList subList(int fromIndex, int toIndex) {  
+            ArrayList.subListRangeCheck(fromIndex, toIndex, size);  
+            return new SubList(this, offset, fromIndex, toIndex);  
+        }  
+  
+        private void rangeCheck(int index) {  
+            if (index < 0 || index >= this.size)  
+                throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+        }  
+  
+        private void rangeCheckForAdd(int index) {  
+            if (index < 0 || index > this.size)  
+                throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+        }  
+  
+        private String outOfBoundsMsg(int index) {  
+            return "Index: "+index+", Size: "+this.size;  
+        }  
+  
+        private void checkForComodification() {  
+            if (IntArrayList.this.modCount != this.modCount)  
+                throw new ConcurrentModificationException();  
+        }  
+    }  
+}  
@@ -0,0 +1,285 @@
+package java.util;  
+  
+import java.io.ByteArrayInputStream;  
+import java.io.ByteArrayOutputStream;  
+import java.io.IOException;  
+import java.io.ObjectInputFilter;  
+import java.io.ObjectInputStream;  
+import java.io.ObjectOutputStream;  
+  
+/*  
+    1.LazyArrayList是反序列化时不解码元素的ArrayList：readObject只读入一个byte[]和每个元素的偏移，  
+      第一次get(i)时才把第i个元素反序列化出来，size()、只看前几个元素的场景不用为整个list付出代价  
+    2.要延迟解码，每个元素必须能单独反序列化，所以writeObject给每个元素单独开一个ObjectOutputStream，  
+      每段字节都带着流头和自己的类描述符；代价是序列化后比ArrayList大，同一个类的描述符会重复出现  
+    3.同样因为每个元素是单独的流，对象之间的共享关系不会保留：两个元素引用同一个对象（或者同一个对象加入两次），  
+      反序列化后是两个各自独立的副本，==不再成立；元素和list外面的对象共享的引用也一样  
+    4.还没解码的元素再次序列化时直接复制原来的字节，不需要先解码  
+    5.materialize()把剩下的元素全部解码并丢掉字节数组，之后就是一个普通的数组list  
+    6.延迟解码发生在get的时候，类是用那时的调用栈上的class loader解析的，  
+      和readObject时可能不同；需要特定class loader时先materialize()  
+    7.readObject记下外层流的ObjectInputFilter，延迟解码时每个元素的流都设置同一个filter，  
+      不会因为解码推迟到readObject之后就绕过了filter  
+    8.在中间插入、删除会先materialize()；set、在末尾add不需要  
+    9.和ArrayList一样不是线程安全的，而且get会修改内部状态，并发的get也不安全  
+*/  
+public class LazyArrayList<E> extends AbstractList<E>  
+        implements RandomAccess, java.io.Serializable  
+{  
+    private static final long serialVersionUID = -2716433925413407368L;  
+  
+    //默认的capacity为10，和ArrayList一样  
+    private static final int DEFAULT_CAPACITY = 10;  
+  
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;  
+  
+    //elementData里还没有解码的位置  
+    private static final Object UNDECODED = new Object();  
+  
+    //已经解码（或者加入）的元素；没有解码的位置是UNDECODED  
+    private transient Object[] elementData;  
+  
+    //序列化后的元素，第i个元素在[offsets[i], offsets[i + 1])；全部解码后为null  
+    private transient byte[] blob;  
+    private transient int[] offsets;  
+  
+    //还有多少个UNDECODED  
+    private transient int undecoded;  
+  
+    //readObject时外层流的filter，解码每个元素时用；没有filter时为null  
+    private transient ObjectInputFilter filter;  
+  
+    //包含元素的数目  
+    private int size;  
+  
+    public LazyArrayList(int initialCapacity) {  
+        super();  
+        if (initialCapacity < 0)  
+            throw new IllegalArgumentException("Illegal Capacity: "+  
+                                               initialCapacity);  
+        this.elementData = new Object[initialCapacity];  
+    }  
+  
+    public LazyArrayList() {  
+        this(DEFAULT_CAPACITY);  
+    }  
+  
+    public LazyArrayList(Collection<? extends E> c) {  
+        elementData = c.toArray();  
+        size = elementData.length;  
+        // c.toArray might (incorrectly) not return Object[] (see 6260652)  
+        if (elementData.getClass() != Object[].class)  
+            elementData = Arrays.copyOf(elementData, size, Object[].class);  
+    }  
+  
+    //------------------------ 解码 ------------------------  
+  
+    @SuppressWarnings("unchecked")  
+    private E elementData(int index) {  
+        Object e = elementData[index];  
+        if (e == UNDECODED)  
+            e = decode(index);  
+        return (E) e;  
+    }  
+  
+    //反序列化第i段字节，放回elementData；最后一个也解码后释放blob  
+    private Object decode(int i) {  
+        int off = offsets[i];  
+        Object e;  
+        try (ObjectInputStream in = new ObjectInputStream(  
+                 new ByteArrayInputStream(blob, off, offsets[i + 1] - off))) {  
+            if (filter != null)  
+                in.setObjectInputFilter(filter);  
+            e = in.readObject();  
+        } catch (IOException | ClassNotFoundException ex) {  
+            throw new IllegalStateException("Cannot decode element "+i, ex);  
+        }  
+        elementData[i] = e;  
+        if (--undecoded == 0)  
+            dropBlob();  
+        return e;  
+    }  
+  
+    private void dropBlob() {  
+        blob = null;  
+        offsets = null;  
+        undecoded = 0;  
+        filter = null;  
+    }  
+  
+    //把剩下的元素全部解码，之后不再持有序列化的字节  
+    public void materialize() {  
+        if (blob == null)  
+            return;  
+        final Object[] elementData = this.elementData;  
+        for (int i = 0; i < size && blob != null; i++)  
+            if (elementData[i] == UNDECODED)  
+                decode(i);  
+    }  
+  
+    //还没有解码的元素个数  
+    public int undecodedCount() {  
+        return undecoded;  
+    }  
+  
+    //------------------------ List ------------------------  
+  
+    public int size() {  
+        return size;  
+    }  
+  
+    public E get(int index) {  
+        rangeCheck(index);  
+        return elementData(index);  
+    }  
+  
+    //旧值要返回，所以还是要解码一次  
+    public E set(int index, E element) {  
+        rangeCheck(index);  
+        E oldValue = elementData(index);  
+        elementData[index] = element;  
+        return oldValue;  
+    }  
+  
+    //在末尾add不影响已有元素的偏移，不需要materialize  
+    public boolean add(E e) {  
+        ensureCapacityInternal(size + 1);  
+        elementData[size++] = e;  
+        return true;  
+    }  
+  
+    public void add(int index, E element) {  
+        if (index == size) {  
+            add(element);  
+            return;  
+        }  
+        rangeCheckForAdd(index);  
+        materialize();  
+        ensureCapacityInternal(size + 1);  
+        System.arraycopy(elementData, index, elementData, index + 1,  
+                         size - index);  
+        elementData[index] = element;  
+        size++;  
+    }  
+  
+    public E remove(int index) {  
+        rangeCheck(index);  
+        materialize();  
+        modCount++;  
+        @SuppressWarnings("unchecked") E oldValue = (E) elementData[index];  
+        int numMoved = size - index - 1;  
+        if (numMoved > 0)  
+            System.arraycopy(elementData, index+1, elementData, index,  
+                             numMoved);  
+        elementData[--size] = null; // clear to let GC do its work  
+        return oldValue;  
+    }  
+  
+    public void clear() {  
+        modCount++;  
+        for (int i = 0; i < size; i++)  
+            elementData[i] = null;  
+        size = 0;  
+        dropBlob();  
+    }  
+  
+    private void ensureCapacityInternal(int minCapacity) {  
+        modCount++;  
+        // overflow-conscious code  
+        if (minCapacity - elementData.length > 0)  
+            grow(minCapacity);  
+    }  
+  
+    private void grow(int minCapacity) {  
+        // overflow-conscious code  
+        int oldCapacity = elementData.length;  
+        int newCapacity = oldCapacity + (oldCapacity >> 1);  
+        if (newCapacity - minCapacity < 0)  
+            newCapacity = minCapacity;  
+        if (newCapacity - MAX_ARRAY_SIZE > 0)  
+            newCapacity = hugeCapacity(minCapacity);  
+        elementData = Arrays.copyOf(elementData, newCapacity);  
+    }  
+  
+    private static int hugeCapacity(int minCapacity) {  
+        if (minCapacity < 0) // overflow  
+            throw new OutOfMemoryError();  
+        return (minCapacity > MAX_ARRAY_SIZE) ?  
+            Integer.MAX_VALUE :  
+            MAX_ARRAY_SIZE;  
+    }  
+  
+    private void rangeCheck(int index) {  
+        if (index >= size)  
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+    }  
+  
+    private void rangeCheckForAdd(int index) {  
+        if (index > size || index < 0)  
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+    }  
+  
+    private String outOfBoundsMsg(int index) {  
+        return "Index: "+index+", Size: "+size;  
+    }  
+  
+    //------------------------ 序列化 ------------------------  
+  
+    /*  
+        1.先写size，再写每个元素的偏移int[size + 1]，最后写所有元素的字节byte[]  
+        2.每个元素用一个新的ObjectOutputStream单独序列化；没有解码的元素直接复制原来的字节  
+    */  
+    private void writeObject(java.io.ObjectOutputStream s)  
+        throws java.io.IOException{  
+        int expectedModCount = modCount;  
+        s.defaultWriteObject();  
+  
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();  
+        int[] offs = new int[size + 1];  
+        for (int i = 0; i < size; i++) {  
+            offs[i] = bytes.size();  
+            Object e = elementData[i];  
+            if (e == UNDECODED) {  
+                bytes.write(blob, offsets[i], offsets[i + 1] - offsets[i]);  
+            } else {  
+                ObjectOutputStream out = new ObjectOutputStream(bytes);  
+                out.writeObject(e);  
+                out.flush();  
+            }  
+        }  
+        offs[size] = bytes.size();  
+        s.writeObject(offs);  
+        s.writeObject(bytes.toByteArray());  
+  
+        if (modCount != expectedModCount) {  
+            throw new ConcurrentModificationException();  
+        }  
+    }  
+  
+    /*  
+        1.只读入偏移和字节数组，不反序列化任何元素  
+        2.偏移从0开始、单调不减、不超过字节数组的长度，否则每一段的范围都不可信  
+    */  
+    private void readObject(java.io.ObjectInputStream s)  
+        throws java.io.IOException, ClassNotFoundException {  
+        s.defaultReadObject();  
+        int[] offs = (int[]) s.readObject();  
+        byte[] b = (byte[]) s.readObject();  
+        if (size < 0 || offs.length != size + 1 || offs[size] > b.length)  
+            throw new java.io.StreamCorruptedException("Illegal size: "+size);  
+        if (offs[0] != 0)  
+            throw new java.io.StreamCorruptedException("Illegal offset: "+offs[0]);  
+        for (int i = 0; i < size; i++)  
+            if (offs[i + 1] < offs[i])  
+                throw new java.io.StreamCorruptedException("Illegal offset: "+offs[i + 1]);  
+  
+        elementData = new Object[Math.max(size, DEFAULT_CAPACITY)];  
+        Arrays.fill(elementData, 0, size, UNDECODED);  
+        if (size > 0) {  
+            blob = b;  
+            offsets = offs;  
+            undecoded = size;  
+            filter = s.getObjectInputFilter();  
+        }  
+    }  
+}  
@@ -0,0 +1,352 @@
+package java.util;  
+  
+import java.io.ByteArrayOutputStream;  
+import java.io.DataInput;  
+import java.io.DataInputStream;  
+import java.io.DataOutput;  
+import java.io.DataOutputStream;  
+import java.io.EOFException;  
+import java.io.FilterInputStream;  
+import java.io.IOException;  
+import java.io.InputStream;  
+import java.io.OutputStream;  
+import java.io.StreamCorruptedException;  
+import java.nio.ByteBuffer;  
+import java.nio.channels.WritableByteChannel;  
+import java.nio.charset.StandardCharsets;  
+  
+/*  
+    1.ListCodec是ArrayList、Vector的另一种序列化格式：元素经过ElementCodec直接写成字节，  
+      不经过ObjectOutputStream，没有类描述符、对象句柄表，也不写多余的capacity  
+    2.格式：  
+        int MAGIC  
+        int size                       写入开始时的元素个数，读的时候用来ensureCapacity（最多MAX_PREALLOCATE个）  
+        { int count, int length, length个字节 }*    每个chunk最多chunkSize个元素  
+        int 0                          结束标记  
+      每个chunk带着字节长度，读的一方可以整块跳过，也可以边读边解码  
+    3.写的时候一次只编码一个chunk，缓冲区复用，不会像Vector.writeObject那样先clone整个elementData  
+    4.Vector每个chunk在synchronized里编码，chunk之间释放锁；期间vector被修改过  
+      （modCount变了）就抛ConcurrentModificationException，和writeObject的检查一样  
+    5.ArrayList和其他list不加锁，同样在每个chunk检查modCount  
+*/  
+public class ListCodec<E> {  
+  
+    /*  
+        1.元素编解码器，读写都通过DataInput/DataOutput，元素长度可以不固定  
+        2.read必须正好读出write写入的字节  
+    */  
+    public interface ElementCodec<E> {  
+        void write(DataOutput out, E e) throws IOException;  
+        E read(DataInput in) throws IOException;  
+    }  
+  
+    public static final ElementCodec<Integer> INT_CODEC = new ElementCodec<Integer>() {  
+        public void write(DataOutput out, Integer e) throws IOException { out.writeInt(e); }  
+        public Integer read(DataInput in) throws IOException { return in.readInt(); }  
+    };  
+  
+    public static final ElementCodec<Long> LONG_CODEC = new ElementCodec<Long>() {  
+        public void write(DataOutput out, Long e) throws IOException { out.writeLong(e); }  
+        public Long read(DataInput in) throws IOException { return in.readLong(); }  
+    };  
+  
+    public static final ElementCodec<Double> DOUBLE_CODEC = new ElementCodec<Double>() {  
+        public void write(DataOutput out, Double e) throws IOException { out.writeDouble(e); }  
+        public Double read(DataInput in) throws IOException { return in.readDouble(); }  
+    };  
+  
+    //writeUTF最多只能写65535字节，这里用int长度 + UTF-8字节，长度-1表示null  
+    public static final ElementCodec<String> STRING_CODEC = new ElementCodec<String>() {  
+        public void write(DataOutput out, String e) throws IOException {  
+            if (e == null) {  
+                out.writeInt(-1);  
+                return;  
+            }  
+            byte[] b = e.getBytes(StandardCharsets.UTF_8);  
+            out.writeInt(b.length);  
+            out.write(b);  
+        }  
+        public String read(DataInput in) throws IOException {  
+            int n = in.readInt();  
+            if (n < 0)  
+                return null;  
+            byte[] b = new byte[n];  
+            in.readFully(b);  
+            return new String(b, StandardCharsets.UTF_8);  
+        }  
+    };  
+  
+    private static final int MAGIC = 0x4C535431; // "LST1"  
+  
+    //默认每个chunk 1024个元素  
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 10;  
+  
+    /*  
+        1.读的时候按头部的size预先扩容，最多扩到这么多个元素  
+        2.size来自输入流，不可信：一个8字节的头部就能让read分配2G个引用的数组；  
+          超过的部分随着元素真正读出来，由list自己按正常的方式扩容  
+    */  
+    private static final int MAX_PREALLOCATE = 1 << 16;  
+  
+    private final ElementCodec<E> codec;  
+    private final int chunkSize;  
+  
+    public ListCodec(ElementCodec<E> codec, int chunkSize) {  
+        if (codec == null)  
+            throw new NullPointerException();  
+        if (chunkSize <= 0)  
+            throw new IllegalArgumentException("Illegal chunk size: "+  
+                                               chunkSize);  
+        this.codec = codec;  
+        this.chunkSize = chunkSize;  
+    }  
+  
+    public ListCodec(ElementCodec<E> codec) {  
+        this(codec, DEFAULT_CHUNK_SIZE);  
+    }  
+  
+    //------------------------ 写 ------------------------  
+  
+    //chunk的编码缓冲区，暴露buf，写到channel时直接wrap，不再toByteArray复制一份  
+    private static final class ChunkBuffer extends ByteArrayOutputStream {  
+        final DataOutputStream data = new DataOutputStream(this);  
+  
+        ChunkBuffer() {  
+            super(1 << 12);  
+        }  
+  
+        //chunk头部占8个字节，先空出来，编码完再填上  
+        void begin() {  
+            reset();  
+            count = 8;  
+        }  
+  
+        void finish(int elements) {  
+            int length = count - 8;  
+            putInt(0, elements);  
+            putInt(4, length);  
+        }  
+  
+        private void putInt(int off, int v) {  
+            buf[off]     = (byte) (v >>> 24);  
+            buf[off + 1] = (byte) (v >>> 16);  
+            buf[off + 2] = (byte) (v >>>  8);  
+            buf[off + 3] = (byte)  v;  
+        }  
+  
+        ByteBuffer asByteBuffer() {  
+            return ByteBuffer.wrap(buf, 0, count);  
+        }  
+    }  
+  
+    //chunk写到哪里：OutputStream或者WritableByteChannel  
+    private interface Sink {  
+        void write(ChunkBuffer chunk) throws IOException;  
+    }  
+  
+    public void write(List<? extends E> list, OutputStream out) throws IOException {  
+        final OutputStream os = out;  
+        writeChunks(list, new Sink() {  
+            public void write(ChunkBuffer chunk) throws IOException {  
+                chunk.writeTo(os);  
+            }  
+        });  
+        out.flush();  
+    }  
+  
+    //channel可能一次写不完，循环到buffer写空为止  
+    public void write(List<? extends E> list, WritableByteChannel ch) throws IOException {  
+        final WritableByteChannel channel = ch;  
+        writeChunks(list, new Sink() {  
+            public void write(ChunkBuffer chunk) throws IOException {  
+                ByteBuffer b = chunk.asByteBuffer();  
+                while (b.hasRemaining())  
+                    channel.write(b);  
+            }  
+        });  
+    }  
+  
+    /*  
+        1.先写MAGIC和size，再一个chunk一个chunk地编码、输出，最后写结束标记  
+        2.Vector、RandomAccess的list按下标取元素，其他list用迭代器  
+    */  
+    private void writeChunks(List<? extends E> list, Sink sink) throws IOException {  
+        ChunkBuffer chunk = new ChunkBuffer();  
+        if (list instanceof Vector)  
+            writeVector((Vector<? extends E>) list, chunk, sink);  
+        else if (list instanceof RandomAccess)  
+            writeRandomAccess(list, chunk, sink);  
+        else  
+            writeSequential(list, chunk, sink);  
+        chunk.reset();  
+        chunk.data.writeInt(0);  
+        sink.write(chunk);  
+    }  
+  
+    private static void writeHeader(ChunkBuffer chunk, Sink sink, int size) throws IOException {  
+        chunk.reset();  
+        chunk.data.writeInt(MAGIC);  
+        chunk.data.writeInt(size);  
+        sink.write(chunk);  
+    }  
+  
+    //每个chunk在synchronized里编码，sink.write在锁外面做，慢的输出不会挡住其他线程  
+    @SuppressWarnings("unchecked")  
+    private void writeVector(Vector<? extends E> v, ChunkBuffer chunk, Sink sink) throws IOException {  
+        int expectedModCount, size;  
+        synchronized (v) {  
+            expectedModCount = v.modCount;  
+            size = v.elementCount;  
+        }  
+        writeHeader(chunk, sink, size);  
+        for (int from = 0; from < size; from += chunkSize) {  
+            int to = Math.min(from + chunkSize, size);  
+            synchronized (v) {  
+                if (v.modCount != expectedModCount)  
+                    throw new ConcurrentModificationException();  
+                chunk.begin();  
+                Object[] elementData = v.elementData;  
+                for (int i = from; i < to; i++)  
+                    codec.write(chunk.data, (E) elementData[i]);  
+            }  
+            chunk.finish(to - from);  
+            sink.write(chunk);  
+        }  
+    }  
+  
+    private void writeRandomAccess(List<? extends E> list, ChunkBuffer chunk, Sink sink) throws IOException {  
+        int expectedModCount = modCount(list);  
+        int size = list.size();  
+        writeHeader(chunk, sink, size);  
+        for (int from = 0; from < size; from += chunkSize) {  
+            int to = Math.min(from + chunkSize, size);  
+            chunk.begin();  
+            for (int i = from; i < to; i++)  
+                codec.write(chunk.data, list.get(i));  
+            if (modCount(list) != expectedModCount)  
+                throw new ConcurrentModificationException();  
+            chunk.finish(to - from);  
+            sink.write(chunk);  
+        }  
+    }  
+  
+    private void writeSequential(List<? extends E> list, ChunkBuffer chunk, Sink sink) throws IOException {  
+        writeHeader(chunk, sink, list.size());  
+        Iterator<? extends E> it = list.iterator();  
+        while (it.hasNext()) {  
+            chunk.begin();  
+            int n = 0;  
+            do {  
+                codec.write(chunk.data, it.next());  
+            } while (++n < chunkSize && it.hasNext());  
+            chunk.finish(n);  
+            sink.write(chunk);  
+        }  
+    }  
+  
+    //不是AbstractList的list没有modCount，只能不检查  
+    private static int modCount(List<?> list) {  
+        return (list instanceof AbstractList) ? ((AbstractList<?>) list).modCount : 0;  
+    }  
+  
+    //------------------------ 读 ------------------------  
+  
+    public ArrayList<E> read(InputStream in) throws IOException {  
+        return read(in, new ArrayList<E>());  
+    }  
+  
+    /*  
+        1.边读边解码，元素直接add到into里，不先读出整个字节数组  
+        2.into是ArrayList、Vector时按头部的size预先扩容，但最多MAX_PREALLOCATE个元素  
+        3.每个chunk解码完都核对实际读了多少字节，和chunk头部的length不一致说明流损坏了，  
+          或者codec.read和write不对称，抛StreamCorruptedException  
+    */  
+    public <L extends List<? super E>> L read(InputStream in, L into) throws IOException {  
+        CountingInputStream counter = new CountingInputStream(in);  
+        DataInputStream data = new DataInputStream(counter);  
+        if (data.readInt() != MAGIC)  
+            throw new StreamCorruptedException("Not a ListCodec stream");  
+        int size = data.readInt();  
+        if (size < 0 || size > Integer.MAX_VALUE - into.size())  
+            throw new StreamCorruptedException("Illegal size: "+size);  
+        int minCapacity = into.size() + Math.min(size, MAX_PREALLOCATE);  
+        if (into instanceof ArrayList)  
+            ((ArrayList<?>) into).ensureCapacity(minCapacity);  
+        else if (into instanceof Vector)  
+            ((Vector<?>) into).ensureCapacity(minCapacity);  
+        int count;  
+        while ((count = data.readInt()) != 0) {  
+            int length = data.readInt();  
+            if (count < 0 || length < 0)  
+                throw new StreamCorruptedException("Illegal chunk: "+count+", "+length);  
+            long start = counter.count;  
+            for (int i = 0; i < count; i++)  
+                into.add(codec.read(data));  
+            long consumed = counter.count - start;  
+            if (consumed != length)  
+                throw new StreamCorruptedException("Chunk length "+length+  
+                                                   " but "+consumed+" bytes decoded");  
+        }  
+        return into;  
+    }  
+  
+    //记录读了多少字节；不做缓冲，不会多读list后面的数据  
+    private static final class CountingInputStream extends FilterInputStream {  
+        long count;  
+  
+        CountingInputStream(InputStream in) {  
+            super(in);  
+        }  
+  
+        public int read() throws IOException {  
+            int b = in.read();  
+            if (b >= 0)  
+                count++;  
+            return b;  
+        }  
+  
+        public int read(byte[] b, int off, int len) throws IOException {  
+            int n = in.read(b, off, len);  
+            if (n > 0)  
+                count += n;  
+            return n;  
+        }  
+  
+        public long skip(long n) throws IOException {  
+            long skipped = in.skip(n);  
+            if (skipped > 0)  
+                count += skipped;  
+            return skipped;  
+        }  
+  
+        public boolean markSupported() {  
+            return false;  
+        }  
+    }  
+  
+    //跳过整个list，不解码元素；返回跳过的元素个数  
+    public static int skip(InputStream in) throws IOException {  
+        DataInputStream data = (in instanceof DataInputStream)  
+            ? (DataInputStream) in : new DataInputStream(in);  
+        if (data.readInt() != MAGIC)  
+            throw new StreamCorruptedException("Not a ListCodec stream");  
+        data.readInt();  
+        int total = 0, count;  
+        while ((count = data.readInt()) != 0) {  
+            int length = data.readInt();  
+            if (count < 0 || length < 0)  
+                throw new StreamCorruptedException("Illegal chunk: "+count+", "+length);  
+            int skipped = 0;  
+            while (skipped < length) {  
+                int n = data.skipBytes(length - skipped);  
+                if (n <= 0)  
+                    throw new EOFException();  
+                skipped += n;  
+            }  
+            if (count > Integer.MAX_VALUE - total)  
+                throw new StreamCorruptedException("Illegal chunk: "+count+", "+length);  
+            total += count;  
+        }  
+        return total;  
+    }  
+}  
@@ -0,0 +1,201 @@
+package java.util;  
+  
+import java.util.concurrent.atomic.LongAdder;  
+  
+/*  
+    1.ListMetrics统计ArrayList、Vector扩容、缩小、移动元素（System.arraycopy）的次数和复制的位置数，  
+      以及fail-fast检查失败（抛出ConcurrentModificationException）的次数  
+    2.默认关闭，启动时加-Djava.util.ListMetrics.enabled=true才打开；ENABLED是static final，  
+      调用的地方都写成if (ListMetrics.ENABLED) ...，关闭时JIT把整个分支去掉，没有任何开销  
+    3.计数用LongAdder，多线程同时记录不会争用同一个cache line；直方图按2的幂分桶，  
+      第i个桶是[2^(i-1), 2^i)，第0个桶是0  
+    4.这里只有计数和Listener，统计的都是位置数（slot），不换算成字节：  
+        a.grows()、growSlots()这些静态方法直接读  
+        b.setListener()收到每一次事件  
+      JMX、JFR和按引用大小换算字节都在java.base之外（interview.metrics），java.base不依赖java.management、jdk.jfr  
+    5.fail-fast的计数在抛异常的地方记录（ArrayList、Vector本身，SubList、迭代器、Cursor、spliterator），  
+      只统计这两个类，别的地方抛出的ConcurrentModificationException不算  
+*/  
+public final class ListMetrics {  
+  
+    public static final boolean ENABLED = Boolean.getBoolean("java.util.ListMetrics.enabled");  
+  
+    //直方图的桶数  
+    public static final int BUCKETS = 32;  
+  
+    private static final LongAdder grows = new LongAdder();  
+    private static final LongAdder growSlots = new LongAdder();  
+    private static final LongAdder hugeCapacities = new LongAdder();  
+    private static final LongAdder shrinks = new LongAdder();  
+    private static final LongAdder shrinkSlots = new LongAdder();  
+    private static final LongAdder shifts = new LongAdder();  
+    private static final LongAdder shiftSlots = new LongAdder();  
+    private static final LongAdder comodifications = new LongAdder();  
+  
+    //扩容后多出来的位置：newCapacity - minCapacity  
+    private static final Histogram wastedCapacity = new Histogram();  
+    //每次移动元素时移动的距离（插入、删除的个数）  
+    private static final Histogram shiftDistance = new Histogram();  
+  
+    private static volatile Listener listener;  
+  
+    private ListMetrics() {  
+    }  
+  
+    //------------------------ 记录 ------------------------  
+  
+    /*  
+        1.每一种事件的回调，默认什么也不做，按需要覆盖  
+        2.在list的方法里同步调用，Vector的还在synchronized里，不要做耗时的事  
+    */  
+    public interface Listener {  
+        default void grow(int oldCapacity, int newCapacity, int minCapacity) {  
+        }  
+        default void hugeCapacity(int minCapacity) {  
+        }  
+        default void shrink(int oldCapacity, int newCapacity, int copied) {  
+        }  
+        default void shift(int distance, int moved) {  
+        }  
+        default void comodified() {  
+        }  
+    }  
+  
+    //null表示不再通知  
+    public static void setListener(Listener l) {  
+        listener = l;  
+    }  
+  
+    //grow：复制了oldCapacity个位置  
+    public static void grow(int oldCapacity, int newCapacity, int minCapacity) {  
+        grows.increment();  
+        growSlots.add(oldCapacity);  
+        wastedCapacity.record(newCapacity - minCapacity);  
+        Listener l = listener;  
+        if (l != null)  
+            l.grow(oldCapacity, newCapacity, minCapacity);  
+    }  
+  
+    //需要的容量超过了MAX_ARRAY_SIZE  
+    public static void hugeCapacity(int minCapacity) {  
+        hugeCapacities.increment();  
+        Listener l = listener;  
+        if (l != null)  
+            l.hugeCapacity(minCapacity);  
+    }  
+  
+    //trimToSize、自动缩小：复制了copied个位置  
+    public static void shrink(int oldCapacity, int newCapacity, int copied) {  
+        shrinks.increment();  
+        shrinkSlots.add(copied);  
+        Listener l = listener;  
+        if (l != null)  
+            l.shrink(oldCapacity, newCapacity, copied);  
+    }  
+  
+    //插入、删除时把moved个元素移动了distance个位置  
+    public static void shift(int distance, int moved) {  
+        shifts.increment();  
+        shiftSlots.add(moved);  
+        shiftDistance.record(distance);  
+        Listener l = listener;  
+        if (l != null)  
+            l.shift(distance, moved);  
+    }  
+  
+    //fail-fast检查发现list被并发修改，马上要抛ConcurrentModificationException  
+    public static void comodified() {  
+        comodifications.increment();  
+        Listener l = listener;  
+        if (l != null)  
+            l.comodified();  
+    }  
+  
+    //------------------------ 读取 ------------------------  
+  
+    //扩容的次数；下面这些值每个单独读取，彼此之间不是原子的  
+    public static long grows() {  
+        return grows.sum();  
+    }  
+  
+    //扩容时复制的位置数  
+    public static long growSlots() {  
+        return growSlots.sum();  
+    }  
+  
+    public static long hugeCapacities() {  
+        return hugeCapacities.sum();  
+    }  
+  
+    public static long shrinks() {  
+        return shrinks.sum();  
+    }  
+  
+    //缩小时复制的位置数  
+    public static long shrinkSlots() {  
+        return shrinkSlots.sum();  
+    }  
+  
+    public static long shifts() {  
+        return shifts.sum();  
+    }  
+  
+    //移动元素时移动的位置数  
+    public static long shiftSlots() {  
+        return shiftSlots.sum();  
+    }  
+  
+    //fail-fast抛出ConcurrentModificationException的次数  
+    public static long comodifications() {  
+        return comodifications.sum();  
+    }  
+  
+    //long[BUCKETS]，下标i对应[2^(i-1), 2^i)  
+    public static long[] wastedCapacityHistogram() {  
+        return wastedCapacity.snapshot();  
+    }  
+  
+    public static long[] shiftDistanceHistogram() {  
+        return shiftDistance.snapshot();  
+    }  
+  
+    //按2的幂分桶的直方图  
+    static final class Histogram {  
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];  
+  
+        Histogram() {  
+            for (int i = 0; i < BUCKETS; i++)  
+                buckets[i] = new LongAdder();  
+        }  
+  
+        //负数算作0  
+        void record(int v) {  
+            buckets[(v <= 0) ? 0 : 32 - Integer.numberOfLeadingZeros(v)].increment();  
+        }  
+  
+        long[] snapshot() {  
+            long[] a = new long[BUCKETS];  
+            for (int i = 0; i < BUCKETS; i++)  
+                a[i] = buckets[i].sum();  
+            return a;  
+        }  
+  
+        void reset() {  
+            for (LongAdder b : buckets)  
+                b.reset();  
+        }  
+    }  
+  
+    public static void reset() {  
+        grows.reset();  
+        growSlots.reset();  
+        hugeCapacities.reset();  
+        shrinks.reset();  
+        shrinkSlots.reset();  
+        shifts.reset();  
+        shiftSlots.reset();  
+        comodifications.reset();  
+        wastedCapacity.reset();  
+        shiftDistance.reset();  
+    }  
+}  
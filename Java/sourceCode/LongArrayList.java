@@ -0,0 +1,437 @@
+package java.util;  
+  
+import java.util.function.LongConsumer;  
+  
+/*  
+    1.LongArrayList是ArrayList的long特化版本，直接用long[]存放元素，  
+      不再为每个元素装箱成Long，内存不到ArrayList<Long>的一半，get也少了一次指针跳转  
+    2.扩容策略（grow、ensureCapacityInternal）和ArrayList完全一致  
+    3.为了能当作List<Long>使用，仍然实现了装箱的List方法；  
+      热点代码应该使用getLong、add(long)、set(int,long)、removeLong等不装箱的方法  
+*/  
+public class LongArrayList extends AbstractList<Long>  
+        implements RandomAccess, Cloneable, java.io.Serializable  
+{  
+    private static final long serialVersionUID = -7314659240591803124L;  
+  
+    //默认的capacity为10，和ArrayList一样  
+    private static final int DEFAULT_CAPACITY = 10;  
+  
+    //共享的空数组，第一次add时才扩充为DEFAULT_CAPACITY  
+    private static final long[] EMPTY_ELEMENTDATA = {};  
+  
+    //存储元素的long数组，capacity等于数组的length  
+    private transient long[] elementData;  
+  
+    //包含元素的数目  
+    private int size;  
+  
+    public LongArrayList(int initialCapacity) {  
+        super();  
+        if (initialCapacity < 0)  
+            throw new IllegalArgumentException("Illegal Capacity: "+  
+                                               initialCapacity);  
+        this.elementData = new long[initialCapacity];  
+    }  
+  
+    public LongArrayList() {  
+        super();  
+        this.elementData = EMPTY_ELEMENTDATA;  
+    }  
+  
+    //直接复制long数组，不经过装箱  
+    public LongArrayList(long[] a) {  
+        this.elementData = Arrays.copyOf(a, a.length);  
+        this.size = a.length;  
+    }  
+  
+    public void trimToSize() {  
+        modCount++;  
+        if (size < elementData.length) {  
+            elementData = Arrays.copyOf(elementData, size);  
+        }  
+    }  
+  
+    //和ArrayList.ensureCapacity相同  
+    public void ensureCapacity(int minCapacity) {  
+        int minExpand = (elementData != EMPTY_ELEMENTDATA)  
+            ? 0  
+            : DEFAULT_CAPACITY;  
+  
+        if (minCapacity > minExpand) {  
+            ensureExplicitCapacity(minCapacity);  
+        }  
+    }  
+  
+    private void ensureCapacityInternal(int minCapacity) {  
+        if (elementData == EMPTY_ELEMENTDATA) {  
+            minCapacity = Math.max(DEFAULT_CAPACITY, minCapacity);  
+        }  
+  
+        ensureExplicitCapacity(minCapacity);  
+    }  
+  
+    private void ensureExplicitCapacity(int minCapacity) {  
+        modCount++;  
+  
+        // overflow-conscious code  
+        if (minCapacity - elementData.length > 0)  
+            grow(minCapacity);  
+    }  
+  
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;  
+  
+    //和ArrayList一样，每次增加原来capacity的一半  
+    private void grow(int minCapacity) {  
+        // overflow-conscious code  
+        int oldCapacity = elementData.length;  
+        int newCapacity = oldCapacity + (oldCapacity >> 1);  
+        if (newCapacity - minCapacity < 0)  
+            newCapacity = minCapacity;  
+        if (newCapacity - MAX_ARRAY_SIZE > 0)  
+            newCapacity = hugeCapacity(minCapacity);  
+        elementData = Arrays.copyOf(elementData, newCapacity);  
+    }  
+  
+    private static int hugeCapacity(int minCapacity) {  
+        if (minCapacity < 0) // overflow  
+            throw new OutOfMemoryError();  
+        return (minCapacity > MAX_ARRAY_SIZE) ?  
+            Integer.MAX_VALUE :  
+            MAX_ARRAY_SIZE;  
+    }  
+  
+    public int size() {  
+        return size;  
+    }  
+  
+    public boolean isEmpty() {  
+        return size == 0;  
+    }  
+  
+    public boolean contains(long e) {  
+        return indexOf(e) >= 0;  
+    }  
+  
+    //long直接用==比较，不需要equals  
+    public int indexOf(long e) {  
+        for (int i = 0; i < size; i++)  
+            if (elementData[i] == e)  
+                return i;  
+        return -1;  
+    }  
+  
+    public int lastIndexOf(long e) {  
+        for (int i = size-1; i >= 0; i--)  
+            if (elementData[i] == e)  
+                return i;  
+        return -1;  
+    }  
+  
+    //装箱版本，null和非Long对象一定不包含  
+    public boolean contains(Object o) {  
+        return indexOf(o) >= 0;  
+    }  
+  
+    public int indexOf(Object o) {  
+        return (o instanceof Long) ? indexOf(((Long) o).longValue()) : -1;  
+    }  
+  
+    public int lastIndexOf(Object o) {  
+        return (o instanceof Long) ? lastIndexOf(((Long) o).longValue()) : -1;  
+    }  
+  
+    public Object clone() {  
+        try {  
+            LongArrayList v = (LongArrayList) super.clone();  
+            v.elementData = Arrays.copyOf(elementData, size);  
+            v.modCount = 0;  
+            return v;  
+        } catch (CloneNotSupportedException e) {  
+            // this shouldn't happen, since we are Cloneable  
+            throw new InternalError();  
+        }  
+    }  
+  
+    public long[] toLongArray() {  
+        return Arrays.copyOf(elementData, size);  
+    }  
+  
+    public long getLong(int index) {  
+        rangeCheck(index);  
+  
+        return elementData[index];  
+    }  
+  
+    public long set(int index, long element) {  
+        rangeCheck(index);  
+  
+        long oldValue = elementData[index];  
+        elementData[index] = element;  
+        return oldValue;  
+    }  
+  
+    public boolean add(long e) {  
+        ensureCapacityInternal(size + 1);  // Increments modCount!!  
+        elementData[size++] = e;  
+        return true;  
+    }  
+  
+    public void add(int index, long element) {  
+        rangeCheckForAdd(index);  
+  
+        ensureCapacityInternal(size + 1);  // Increments modCount!!  
+        System.arraycopy(elementData, index, elementData, index + 1,  
+                         size - index);  
+        elementData[index] = element;  
+        size++;  
+    }  
+  
+    /*  
+        1.按位置删除，返回被删除的long  
+        2.不能叫remove(int)，因为List已经有返回Long的remove(int)  
+        3.long不引用对象，所以末尾不需要置null  
+    */  
+    public long removeLong(int index) {  
+        rangeCheck(index);  
+  
+        modCount++;  
+        long oldValue = elementData[index];  
+  
+        int numMoved = size - index - 1;  
+        if (numMoved > 0)  
+            System.arraycopy(elementData, index+1, elementData, index,  
+                             numMoved);  
+        size--;  
+  
+        return oldValue;  
+    }  
+  
+    //装箱的List方法，全部转到上面的long版本  
+    public Long get(int index) {  
+        return getLong(index);  
+    }  
+  
+    public Long set(int index, Long element) {  
+        return set(index, element.longValue());  
+    }  
+  
+    public boolean add(Long e) {  
+        return add(e.longValue());  
+    }  
+  
+    public void add(int index, Long element) {  
+        add(index, element.longValue());  
+    }  
+  
+    public Long remove(int index) {  
+        return removeLong(index);  
+    }  
+  
+    //long不需要让GC回收，size置0即可  
+    public void clear() {  
+        modCount++;  
+        size = 0;  
+    }  
+  
+    protected void removeRange(int fromIndex, int toIndex) {  
+        modCount++;  
+        int numMoved = size - toIndex;  
+        System.arraycopy(elementData, toIndex, elementData, fromIndex,  
+                         numMoved);  
+        size -= toIndex - fromIndex;  
+    }  
+  
+    //不装箱的遍历方式，直接在elementData上循环  
+    public void forEachLong(LongConsumer action) {  
+        Objects.requireNonNull(action);  
+        final int expectedModCount = modCount;  
+        final long[] elementData = this.elementData;  
+        final int size = this.size;  
+        for (int i = 0; modCount == expectedModCount && i < size; i++) {  
+            action.accept(elementData[i]);  
+        }  
+        if (modCount != expectedModCount) {  
+            throw new ConcurrentModificationException();  
+        }  
+    }  
+  
+    //不装箱的迭代器，nextLong直接返回long  
+    public PrimitiveIterator.OfLong longIterator() {  
+        return new LongItr(0, size);  
+    }  
+  
+    private void rangeCheck(int index) {  
+        if (index >= size)  
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+    }  
+  
+    private void rangeCheckForAdd(int index) {  
+        if (index > size || index < 0)  
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+    }  
+  
+    private String outOfBoundsMsg(int index) {  
+        return "Index: "+index+", Size: "+size;  
+    }  
+  
+    private void writeObject(java.io.ObjectOutputStream s)  
+        throws java.io.IOException{  
+        int expectedModCount = modCount;  
+        s.defaultWriteObject();  
+  
+        //直接写long，不写对象  
+        for (int i=0; i<size; i++) {  
+            s.writeLong(elementData[i]);  
+        }  
+  
+        if (modCount != expectedModCount) {  
+            throw new ConcurrentModificationException();  
+        }  
+    }  
+  
+    private void readObject(java.io.ObjectInputStream s)  
+        throws java.io.IOException, ClassNotFoundException {  
+        s.defaultReadObject();  
+  
+        //和ArrayList.readObject一样，按size分配，而不是按capacity  
+        long[] a = (size > 0) ? new long[size] : EMPTY_ELEMENTDATA;  
+        for (int i=0; i<size; i++) {  
+            a[i] = s.readLong();  
+        }  
+        elementData = a;  
+    }  
+  
+    //遍历[cursor, end)之间的元素，end由LongArrayList或者SubList决定  
+    private class LongItr implements PrimitiveIterator.OfLong {  
+        int cursor;  
+        final int end;  
+        int expectedModCount = modCount;  
+  
+        LongItr(int cursor, int end) {  
+            this.cursor = cursor;  
+            this.end = end;  
+        }  
+  
+        public boolean hasNext() {  
+            return cursor < end;  
+        }  
+  
+        public long nextLong() {  
+            if (modCount != expectedModCount)  
+                throw new ConcurrentModificationException();  
+            int i = cursor;  
+            if (i >= end)  
+                throw new NoSuchElementException();  
+            cursor = i + 1;  
+            return elementData[i];  
+        }  
+    }  
+  
+    /*  
+        1.返回的SubList也提供getLong、set(int,long)，不会退化成装箱访问  
+        2.返回类型写成SubList而不是List<Long>，调用方才能直接用到long方法  
+    */  
+    public SubList subList(int fromIndex, int toIndex) {  
+        ArrayList.subListRangeCheck(fromIndex, toIndex, size);  
+        return new SubList(this, 0, fromIndex, toIndex);  
+    }  
+  
+    //和ArrayList.SubList相同，结构修改交给parent，读写直接访问elementData  
+    public class SubList extends AbstractList<Long> implements RandomAccess {  
+        private final AbstractList<Long> parent;  
+        private final int parentOffset;  
+        private final int offset;  
+        int size;  
+  
+        SubList(AbstractList<Long> parent,  
+                int offset, int fromIndex, int toIndex) {  
+            this.parent = parent;  
+            this.parentOffset = fromIndex;  
+            this.offset = offset + fromIndex;  
+            this.size = toIndex - fromIndex;  
+            this.modCount = LongArrayList.this.modCount;  
+        }  
+  
+        public long getLong(int index) {  
+            rangeCheck(index);  
+            checkForComodification();  
+            return LongArrayList.this.elementData[offset + index];  
+        }  
+  
+        public long set(int index, long e) {  
+            rangeCheck(index);  
+            checkForComodification();  
+            long oldValue = LongArrayList.this.elementData[offset + index];  
+            LongArrayList.this.elementData[offset + index] = e;  
+            return oldValue;  
+        }  
+  
+        public Long get(int index) {  
+            return getLong(index);  
+        }  
+  
+        public Long set(int index, Long e) {  
+            return set(index, e.longValue());  
+        }  
+  
+        public int size() {  
+            checkForComodification();  
+            return this.size;  
+        }  
+  
+        public void add(int index, Long e) {  
+            rangeCheckForAdd(index);  
+            checkForComodification();  
+            parent.add(parentOffset + index, e);  
+            this.modCount = parent.modCount;  
+            this.size++;  
+        }  
+  
+        public Long remove(int index) {  
+            rangeCheck(index);  
+            checkForComodification();  
+            Long result = parent.remove(parentOffset + index);  
+            this.modCount = parent.modCount;  
+            this.size--;  
+            return result;  
+        }  
+  
+        protected void removeRange(int fromIndex, int toIndex) {  
+            checkForComodification();  
+            parent.removeRange(parentOffset + fromIndex,  
+                               parentOffset + toIndex);  
+            this.modCount = parent.modCount;  
+            this.size -= toIndex - fromIndex;  
+        }  
+  
+        public PrimitiveIterator.OfLong longIterator() {  
+            checkForComodification();  
+            return new LongItr(offset, offset + size);  
+        }  
+  
+        public SubList subList(int fromIndex, int toIndex) {  
+            ArrayList.subListRangeCheck(fromIndex, toIndex, size);  
+            return new SubList(this, offset, fromIndex, toIndex);  
+        }  
+  
+        private void rangeCheck(int index) {  
+            if (index < 0 || index >= this.size)  
+                throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+        }  
+  
+        private void rangeCheckForAdd(int index) {  
+            if (index < 0 || index > this.size)  
+                throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+        }  
+  
+        private String outOfBoundsMsg(int index) {  
+            return "Index: "+index+", Size: "+this.size;  
+        }  
+  
+        private void checkForComodification() {  
+            if (LongArrayList.this.modCount != this.modCount)  
+                throw new ConcurrentModificationException();  
+        }  
+    }  
+}  
@@ -0,0 +1,346 @@
+package java.util;  
+  
+import java.io.IOException;  
+import java.io.StreamCorruptedException;  
+import java.io.UncheckedIOException;  
+import java.nio.ByteBuffer;  
+import java.nio.MappedByteBuffer;  
+import java.nio.channels.FileChannel;  
+import java.nio.charset.StandardCharsets;  
+import java.nio.file.Path;  
+import java.nio.file.StandardOpenOption;  
+  
+/*  
+    1.MappedFileList把元素存在文件里，通过FileChannel.map映射到内存，get时才解码对应的那一条记录  
+    2.open只读取16字节的文件头再建立映射，不解码任何元素，所以打开的时间和文件大小无关；  
+      不像readObject那样要先把所有元素反序列化出来  
+    3.两种记录格式：  
+        a.定长：用OffHeapArrayList.Codec，第i条记录在HEADER + i*width  
+        b.变长：用VarCodec，另外有一个索引文件，第i个int是第i条记录在数据文件中的结束位置  
+    4.数据文件头部：int MAGIC, int width（变长为-1）, int size, int 保留  
+      add时先写记录（和索引），最后才更新头部的size，进程中途崩溃（页缓存还在）最多丢掉最后一条；  
+      掉电或操作系统崩溃时，映射的页以什么顺序写回磁盘是不确定的，头部可能先于记录落盘，  
+      只有force()之前写入的内容是可靠的  
+    5.open时核对头部的size和文件长度；变长记录的起止位置在get时才检查，文件损坏时抛  
+      UncheckedIOException(StreamCorruptedException)，不会读到记录区之外  
+    6.可写模式下映射的区域按1.5倍增长，不够时重新map（文件随之变长）；  
+      文件末尾可能有没用到的空间，以头部的size为准  
+    7.一个文件最多映射Integer.MAX_VALUE字节  
+    8.只支持追加和定长记录的set，不支持中间插入删除；subList、iterator由AbstractList提供，同样是懒解码  
+    9.不是线程安全的  
+*/  
+public class MappedFileList<E> extends AbstractList<E>  
+        implements RandomAccess, java.io.Closeable  
+{  
+    /*  
+        1.变长记录的编解码器  
+        2.decode时src正好是一条记录，position从0开始  
+    */  
+    public interface VarCodec<E> {  
+        byte[] encode(E e);  
+        E decode(ByteBuffer src);  
+    }  
+  
+    public static final VarCodec<String> STRING_CODEC = new VarCodec<String>() {  
+        public byte[] encode(String e) { return e.getBytes(StandardCharsets.UTF_8); }  
+        public String decode(ByteBuffer src) {  
+            byte[] b = new byte[src.remaining()];  
+            src.get(b);  
+            return new String(b, StandardCharsets.UTF_8);  
+        }  
+    };  
+  
+    private static final int MAGIC = 0x4D4C5354; // "MLST"  
+  
+    private static final int HEADER = 16;  
+  
+    private static final int VARIABLE = -1;  
+  
+    //新建文件时映射的初始大小  
+    private static final int INITIAL_MAPPING = 1 << 12;  
+  
+    private final OffHeapArrayList.Codec<E> fixedCodec;  
+    private final VarCodec<E> varCodec;  
+  
+    //定长记录的字节数，变长为VARIABLE  
+    private final int width;  
+  
+    private final boolean readOnly;  
+  
+    private FileChannel dataChannel;  
+    private MappedByteBuffer data;  
+  
+    //变长记录的索引文件，定长时为null  
+    private FileChannel indexChannel;  
+    private MappedByteBuffer index;  
+  
+    //包含元素的数目  
+    private int size;  
+  
+    private MappedFileList(OffHeapArrayList.Codec<E> fixedCodec, VarCodec<E> varCodec,  
+                           boolean readOnly) {  
+        this.fixedCodec = fixedCodec;  
+        this.varCodec = varCodec;  
+        this.width = (fixedCodec != null) ? fixedCodec.width() : VARIABLE;  
+        this.readOnly = readOnly;  
+    }  
+  
+    //------------------------ 创建和打开 ------------------------  
+  
+    //新建（或清空）一个定长记录的文件  
+    public static <E> MappedFileList<E> create(Path file, OffHeapArrayList.Codec<E> codec)  
+        throws IOException {  
+        if (codec.width() <= 0)  
+            throw new IllegalArgumentException("Illegal width: "+  
+                                               codec.width());  
+        MappedFileList<E> l = new MappedFileList<>(codec, null, false);  
+        l.dataChannel = createChannel(file);  
+        l.data = l.dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_MAPPING);  
+        l.writeHeader();  
+        return l;  
+    }  
+  
+    //新建（或清空）一个变长记录的文件和它的索引文件  
+    public static <E> MappedFileList<E> create(Path file, Path indexFile, VarCodec<E> codec)  
+        throws IOException {  
+        MappedFileList<E> l = new MappedFileList<>(null, Objects.requireNonNull(codec), false);  
+        l.dataChannel = createChannel(file);  
+        l.indexChannel = createChannel(indexFile);  
+        l.data = l.dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_MAPPING);  
+        l.index = l.indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_MAPPING);  
+        l.writeHeader();  
+        return l;  
+    }  
+  
+    public static <E> MappedFileList<E> open(Path file, OffHeapArrayList.Codec<E> codec,  
+                                             boolean readOnly) throws IOException {  
+        MappedFileList<E> l = new MappedFileList<>(codec, null, readOnly);  
+        l.dataChannel = openChannel(file, readOnly);  
+        l.data = l.map(l.dataChannel);  
+        l.readHeader();  
+        return l;  
+    }  
+  
+    public static <E> MappedFileList<E> open(Path file, Path indexFile, VarCodec<E> codec,  
+                                             boolean readOnly) throws IOException {  
+        MappedFileList<E> l = new MappedFileList<>(null, Objects.requireNonNull(codec), readOnly);  
+        l.dataChannel = openChannel(file, readOnly);  
+        l.indexChannel = openChannel(indexFile, readOnly);  
+        l.data = l.map(l.dataChannel);  
+        l.index = l.map(l.indexChannel);  
+        l.readHeader();  
+        return l;  
+    }  
+  
+    private static FileChannel createChannel(Path file) throws IOException {  
+        return FileChannel.open(file, StandardOpenOption.CREATE,  
+                                StandardOpenOption.TRUNCATE_EXISTING,  
+                                StandardOpenOption.READ, StandardOpenOption.WRITE);  
+    }  
+  
+    private static FileChannel openChannel(Path file, boolean readOnly) throws IOException {  
+        return readOnly ? FileChannel.open(file, StandardOpenOption.READ)  
+            : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);  
+    }  
+  
+    //映射整个文件；可写时至少映射INITIAL_MAPPING，给后面的add留空间  
+    private MappedByteBuffer map(FileChannel ch) throws IOException {  
+        long length = ch.size();  
+        if (length > Integer.MAX_VALUE)  
+            throw new IOException("File too large to map: "+length);  
+        if (readOnly)  
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, length);  
+        return ch.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(length, INITIAL_MAPPING));  
+    }  
+  
+    private void writeHeader() {  
+        data.putInt(0, MAGIC);  
+        data.putInt(4, width);  
+        data.putInt(8, size);  
+        data.putInt(12, 0);  
+    }  
+  
+    /*  
+        1.头部的size要和文件长度对得上：定长时n条记录都在数据文件里，变长时n个结束位置都在索引文件里  
+        2.变长时只检查最后一条记录的结束位置，其余的在get时检查，open的时间仍然和文件大小无关  
+    */  
+    private void readHeader() throws IOException {  
+        if (data.capacity() < HEADER || data.getInt(0) != MAGIC)  
+            throw new StreamCorruptedException("Not a MappedFileList file");  
+        if (data.getInt(4) != width)  
+            throw new StreamCorruptedException("Record width "+data.getInt(4)+  
+                                               " does not match codec width "+width);  
+        int n = data.getInt(8);  
+        if (n < 0)  
+            throw new StreamCorruptedException("Illegal size: "+n);  
+        if (width != VARIABLE) {  
+            if (HEADER + (long) n * width > dataChannel.size())  
+                throw new StreamCorruptedException("Size "+n+" exceeds file length "+  
+                                                   dataChannel.size());  
+        } else {  
+            if ((long) n << 2 > indexChannel.size())  
+                throw new StreamCorruptedException("Size "+n+" exceeds index length "+  
+                                                   indexChannel.size());  
+            if (n > 0 && (end(n - 1) < HEADER || end(n - 1) > dataChannel.size()))  
+                throw new StreamCorruptedException("Illegal record end: "+end(n - 1));  
+        }  
+        size = n;  
+    }  
+  
+    //------------------------ 读 ------------------------  
+  
+    public int size() {  
+        return size;  
+    }  
+  
+    public E get(int index) {  
+        rangeCheck(index);  
+        ensureOpen();  
+        return decode(index);  
+    }  
+  
+    //从映射中切出第i条记录，只解码这一条  
+    private E decode(int i) {  
+        ByteBuffer b = data.duplicate();  
+        if (width != VARIABLE) {  
+            int off = offset(i);  
+            b.limit(off + width).position(off);  
+            return fixedCodec.decode(b.slice());  
+        }  
+        int start = start(i), end = end(i);  
+        if (start < HEADER || start > end || end > data.capacity())  
+            throw new UncheckedIOException(new StreamCorruptedException(  
+                "Illegal record "+i+": ["+start+", "+end+")"));  
+        b.limit(end).position(start);  
+        return varCodec.decode(b.slice());  
+    }  
+  
+    /*  
+        1.定长记录i在数据文件中的起始位置  
+        2.按long计算，i*width可能超过int；readHeader和ensureMapped保证了结果在映射之内  
+    */  
+    private int offset(int i) {  
+        return (int) (HEADER + (long) i * width);  
+    }  
+  
+    //变长记录i在数据文件中的起止位置  
+    private int start(int i) {  
+        return (i == 0) ? HEADER : index.getInt((i - 1) << 2);  
+    }  
+  
+    private int end(int i) {  
+        return index.getInt(i << 2);  
+    }  
+  
+    //------------------------ 写 ------------------------  
+  
+    /*  
+        1.先把记录写到size位置（变长的还要写索引），最后更新头部的size  
+        2.映射不够大时按1.5倍重新map  
+    */  
+    public boolean add(E e) {  
+        ensureWritable();  
+        if (size == Integer.MAX_VALUE)  
+            throw new OutOfMemoryError();  
+        modCount++;  
+        try {  
+            if (width != VARIABLE) {  
+                data = ensureMapped(dataChannel, data, HEADER + ((long) size + 1) * width);  
+                int off = offset(size);  
+                ByteBuffer b = data.duplicate();  
+                b.limit(off + width).position(off);  
+                fixedCodec.encode(e, b.slice());  
+            } else {  
+                byte[] bytes = varCodec.encode(e);  
+                int off = start(size);  
+                if (off < HEADER || off > data.capacity())  
+                    throw new StreamCorruptedException("Illegal record end: "+off);  
+                data = ensureMapped(dataChannel, data, (long) off + bytes.length);  
+                index = ensureMapped(indexChannel, index, ((long) size + 1) << 2);  
+                ByteBuffer b = data.duplicate();  
+                b.position(off);  
+                b.put(bytes);  
+                index.putInt(size << 2, off + bytes.length);  
+            }  
+        } catch (IOException ex) {  
+            throw new UncheckedIOException(ex);  
+        }  
+        data.putInt(8, ++size);  
+        return true;  
+    }  
+  
+    //只有定长记录可以原地覆盖  
+    public E set(int index, E element) {  
+        rangeCheck(index);  
+        ensureWritable();  
+        if (width == VARIABLE)  
+            throw new UnsupportedOperationException("set on variable-width records");  
+        E oldValue = decode(index);  
+        int off = offset(index);  
+        ByteBuffer b = data.duplicate();  
+        b.limit(off + width).position(off);  
+        fixedCodec.encode(element, b.slice());  
+        return oldValue;  
+    }  
+  
+    private static MappedByteBuffer ensureMapped(FileChannel ch, MappedByteBuffer map,  
+                                                 long minLength) throws IOException {  
+        if (minLength <= map.capacity())  
+            return map;  
+        if (minLength > Integer.MAX_VALUE)  
+            throw new OutOfMemoryError("Mapped file too large");  
+        long newLength = map.capacity() + (map.capacity() >> 1);  
+        if (newLength < minLength)  
+            newLength = minLength;  
+        if (newLength > Integer.MAX_VALUE)  
+            newLength = Integer.MAX_VALUE;  
+        return ch.map(FileChannel.MapMode.READ_WRITE, 0, newLength);  
+    }  
+  
+    //把映射中修改过的部分写回磁盘  
+    public void force() {  
+        ensureWritable();  
+        data.force();  
+        if (index != null)  
+            index.force();  
+    }  
+  
+    /*  
+        1.可写模式下先force，再关闭文件  
+        2.之后除了size()以外的所有操作都会抛IllegalStateException  
+    */  
+    public void close() throws IOException {  
+        if (data == null)  
+            return;  
+        if (!readOnly)  
+            force();  
+        data = null;  
+        index = null;  
+        try {  
+            dataChannel.close();  
+        } finally {  
+            if (indexChannel != null)  
+                indexChannel.close();  
+        }  
+    }  
+  
+    private void ensureOpen() {  
+        if (data == null)  
+            throw new IllegalStateException("MappedFileList is closed");  
+    }  
+  
+    private void ensureWritable() {  
+        ensureOpen();  
+        if (readOnly)  
+            throw new UnsupportedOperationException("MappedFileList is read-only");  
+    }  
+  
+    private void rangeCheck(int index) {  
+        if (index < 0 || index >= size)  
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+    }  
+  
+    private String outOfBoundsMsg(int index) {  
+        return "Index: "+index+", Size: "+size;  
+    }  
+}  
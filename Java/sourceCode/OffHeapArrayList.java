@@ -0,0 +1,332 @@
+package java.util;  
+  
+import java.lang.ref.Cleaner;  
+import java.nio.ByteBuffer;  
+import jdk.internal.misc.Unsafe;  
+import jdk.internal.ref.CleanerFactory;  
+  
+/*  
+    1.OffHeapArrayList的接口和ArrayList一样（add、get、set、removeRange、ensureCapacity、trimToSize），  
+      但元素不放在Object[] elementData里，而是经过Codec编码后放在堆外（native memory）  
+    2.每个元素编码后的长度固定为codec.width()字节，所以第i个元素的地址就是address + i*width  
+    3.堆外内存GC看不到，也就不会在full GC时被扫描、复制；用完应该调用close()立即释放，  
+      忘了close时和DirectByteBuffer一样由Cleaner在list不可达之后释放，但什么时候释放取决于GC  
+    4.和ArrayList一样不是线程安全的；而且编解码共用一个scratch缓冲区，所以并发的get也不安全  
+*/  
+public class OffHeapArrayList<E> extends AbstractList<E>  
+        implements RandomAccess, java.io.Closeable  
+{  
+    /*  
+        1.定长编解码器，encode时写入dst，decode时从src读出，position都从0开始  
+        2.dst和src的大小正好是width()字节  
+    */  
+    public interface Codec<E> {  
+        int width();  
+        void encode(E e, ByteBuffer dst);  
+        E decode(ByteBuffer src);  
+    }  
+  
+    public static final Codec<Long> LONG_CODEC = new Codec<Long>() {  
+        public int width() { return 8; }  
+        public void encode(Long e, ByteBuffer dst) { dst.putLong(e); }  
+        public Long decode(ByteBuffer src) { return src.getLong(); }  
+    };  
+  
+    public static final Codec<Integer> INT_CODEC = new Codec<Integer>() {  
+        public int width() { return 4; }  
+        public void encode(Integer e, ByteBuffer dst) { dst.putInt(e); }  
+        public Integer decode(ByteBuffer src) { return src.getInt(); }  
+    };  
+  
+    public static final Codec<Double> DOUBLE_CODEC = new Codec<Double>() {  
+        public int width() { return 8; }  
+        public void encode(Double e, ByteBuffer dst) { dst.putDouble(e); }  
+        public Double decode(ByteBuffer src) { return src.getDouble(); }  
+    };  
+  
+    private static final Unsafe UNSAFE = Unsafe.getUnsafe();  
+    private static final long BYTE_ARRAY_BASE = Unsafe.ARRAY_BYTE_BASE_OFFSET;  
+  
+    //默认的capacity为10，和ArrayList一样  
+    private static final int DEFAULT_CAPACITY = 10;  
+  
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;  
+  
+    private final Codec<E> codec;  
+  
+    //每个元素占用的字节数  
+    private final int width;  
+  
+    //堆外内存的起始地址，0表示还没有分配（或者已经释放）  
+    private long address;  
+  
+    //能存放的元素个数，相当于ArrayList的elementData.length  
+    private int capacity;  
+  
+    //包含元素的数目  
+    private int size;  
+  
+    private boolean closed;  
+  
+    /*  
+        1.Cleaner的清理动作，不能引用list本身，否则list永远不会不可达  
+        2.address和list的address保持一致，每次reallocate都更新  
+    */  
+    private static final class Deallocator implements Runnable {  
+        private long address;  
+  
+        public void run() {  
+            if (address != 0) {  
+                UNSAFE.freeMemory(address);  
+                address = 0;  
+            }  
+        }  
+    }  
+  
+    private final Deallocator deallocator = new Deallocator();  
+    private final Cleaner.Cleanable cleanable;  
+  
+    //编解码用的堆内缓冲区，只有一个元素那么大  
+    private final byte[] scratch;  
+    private final ByteBuffer scratchBuffer;  
+  
+    public OffHeapArrayList(Codec<E> codec, int initialCapacity) {  
+        super();  
+        if (initialCapacity < 0)  
+            throw new IllegalArgumentException("Illegal Capacity: "+  
+                                               initialCapacity);  
+        if (codec.width() <= 0)  
+            throw new IllegalArgumentException("Illegal width: "+  
+                                               codec.width());  
+        this.codec = codec;  
+        this.width = codec.width();  
+        this.scratch = new byte[width];  
+        this.scratchBuffer = ByteBuffer.wrap(scratch);  
+        this.cleanable = CleanerFactory.cleaner().register(this, deallocator);  
+        if (initialCapacity > 0)  
+            reallocate(initialCapacity);  
+    }  
+  
+    //和ArrayList()一样，第一次add时才分配DEFAULT_CAPACITY  
+    public OffHeapArrayList(Codec<E> codec) {  
+        this(codec, 0);  
+    }  
+  
+    /*  
+        1.只保留size个元素的空间  
+        2.size为0时直接把堆外内存全部释放  
+    */  
+    public void trimToSize() {  
+        ensureOpen();  
+        modCount++;  
+        if (size < capacity) {  
+            reallocate(size);  
+        }  
+    }  
+  
+    public void ensureCapacity(int minCapacity) {  
+        ensureOpen();  
+        int minExpand = (address != 0) ? 0 : DEFAULT_CAPACITY;  
+  
+        if (minCapacity > minExpand) {  
+            ensureExplicitCapacity(minCapacity);  
+        }  
+    }  
+  
+    private void ensureCapacityInternal(int minCapacity) {  
+        if (address == 0) {  
+            minCapacity = Math.max(DEFAULT_CAPACITY, minCapacity);  
+        }  
+  
+        ensureExplicitCapacity(minCapacity);  
+    }  
+  
+    private void ensureExplicitCapacity(int minCapacity) {  
+        modCount++;  
+  
+        // overflow-conscious code  
+        if (minCapacity - capacity > 0)  
+            grow(minCapacity);  
+    }  
+  
+    //增长策略和ArrayList相同，只是用reallocate代替Arrays.copyOf  
+    private void grow(int minCapacity) {  
+        // overflow-conscious code  
+        int oldCapacity = capacity;  
+        int newCapacity = oldCapacity + (oldCapacity >> 1);  
+        if (newCapacity - minCapacity < 0)  
+            newCapacity = minCapacity;  
+        if (newCapacity - MAX_ARRAY_SIZE > 0)  
+            newCapacity = hugeCapacity(minCapacity);  
+        reallocate(newCapacity);  
+    }  
+  
+    private static int hugeCapacity(int minCapacity) {  
+        if (minCapacity < 0) // overflow  
+            throw new OutOfMemoryError();  
+        return (minCapacity > MAX_ARRAY_SIZE) ?  
+            Integer.MAX_VALUE :  
+            MAX_ARRAY_SIZE;  
+    }  
+  
+    /*  
+        1.reallocateMemory相当于C的realloc，能原地扩展时不需要复制，  
+          不能原地扩展时由它负责复制，原来的内存也由它释放  
+        2.字节数用long计算，所以总大小可以超过2G  
+    */  
+    private void reallocate(int newCapacity) {  
+        if (newCapacity == 0) {  
+            if (address != 0)  
+                UNSAFE.freeMemory(address);  
+            address = 0;  
+        } else if (address == 0) {  
+            address = UNSAFE.allocateMemory((long) newCapacity * width);  
+        } else {  
+            address = UNSAFE.reallocateMemory(address, (long) newCapacity * width);  
+        }  
+        deallocator.address = address;  
+        capacity = newCapacity;  
+    }  
+  
+    //第index个元素的地址  
+    private long offset(int index) {  
+        return address + (long) index * width;  
+    }  
+  
+    //从堆外读出一个元素，复制到scratch再交给codec解码  
+    private E read(int index) {  
+        UNSAFE.copyMemory(null, offset(index), scratch, BYTE_ARRAY_BASE, width);  
+        scratchBuffer.clear();  
+        return codec.decode(scratchBuffer);  
+    }  
+  
+    //codec先编码到scratch，再复制到堆外  
+    private void write(int index, E e) {  
+        encode(e);  
+        store(index);  
+    }  
+  
+    //只编码到scratch，不碰堆外；codec抛异常时list没有任何变化  
+    private void encode(E e) {  
+        scratchBuffer.clear();  
+        codec.encode(e, scratchBuffer);  
+    }  
+  
+    //把scratch里已经编码好的元素复制到第index个位置  
+    private void store(int index) {  
+        UNSAFE.copyMemory(scratch, BYTE_ARRAY_BASE, null, offset(index), width);  
+    }  
+  
+    /*  
+        1.把[from, from+count)之间的元素移动到to开始的位置  
+        2.copyMemory对重叠区域是安全的（相当于memmove），作用和System.arraycopy一样  
+    */  
+    private void move(int from, int to, int count) {  
+        if (count > 0)  
+            UNSAFE.copyMemory(null, offset(from), null, offset(to), (long) count * width);  
+    }  
+  
+    public int size() {  
+        return size;  
+    }  
+  
+    public boolean isEmpty() {  
+        return size == 0;  
+    }  
+  
+    public E get(int index) {  
+        rangeCheck(index);  
+  
+        return read(index);  
+    }  
+  
+    public E set(int index, E element) {  
+        rangeCheck(index);  
+  
+        E oldValue = read(index);  
+        write(index, element);  
+        return oldValue;  
+    }  
+  
+    public boolean add(E e) {  
+        ensureOpen();  
+        ensureCapacityInternal(size + 1);  // Increments modCount!!  
+        write(size, e);  
+        size++;  
+        return true;  
+    }  
+  
+    /*  
+        1.先编码再移动：codec抛异常时后面的元素还没有移动，list保持不变  
+        2.反过来的话index处留下的是index+1处元素的副本，size却没有增加  
+    */  
+    public void add(int index, E element) {  
+        rangeCheckForAdd(index);  
+  
+        encode(element);  
+        ensureCapacityInternal(size + 1);  // Increments modCount!!  
+        move(index, index + 1, size - index);  
+        store(index);  
+        size++;  
+    }  
+  
+    //不需要像ArrayList那样把末尾置null，堆外没有引用需要GC回收  
+    public E remove(int index) {  
+        rangeCheck(index);  
+  
+        modCount++;  
+        E oldValue = read(index);  
+        move(index + 1, index, size - index - 1);  
+        size--;  
+        return oldValue;  
+    }  
+  
+    public void clear() {  
+        ensureOpen();  
+        modCount++;  
+        size = 0;  
+    }  
+  
+    protected void removeRange(int fromIndex, int toIndex) {  
+        ensureOpen();  
+        modCount++;  
+        move(toIndex, fromIndex, size - toIndex);  
+        size -= toIndex - fromIndex;  
+    }  
+  
+    /*  
+        1.显式释放堆外内存，之后除了size()以外的所有操作都会抛IllegalStateException  
+        2.可以重复调用；clean()只会执行一次Deallocator，并且从Cleaner里注销  
+    */  
+    public void close() {  
+        if (!closed) {  
+            closed = true;  
+            cleanable.clean();  
+            address = 0;  
+            capacity = 0;  
+            size = 0;  
+            modCount++;  
+        }  
+    }  
+  
+    private void ensureOpen() {  
+        if (closed)  
+            throw new IllegalStateException("OffHeapArrayList is closed");  
+    }  
+  
+    private void rangeCheck(int index) {  
+        ensureOpen();  
+        if (index < 0 || index >= size)  
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+    }  
+  
+    private void rangeCheckForAdd(int index) {  
+        ensureOpen();  
+        if (index > size || index < 0)  
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+    }  
+  
+    private String outOfBoundsMsg(int index) {  
+        return "Index: "+index+", Size: "+size;  
+    }  
+}  
@@ -0,0 +1,435 @@
+package java.util;  
+  
+/*  
+    1.PersistentVector是不可变的list：with、append、pop不修改原来的vector，而是返回一个新版本，  
+      新旧版本共享没有改动的部分，每个版本只多出O(log32 n)个节点，不用像clone()那样复制整个数组  
+    2.结构是32叉的trie，元素都在叶子节点里，第i个元素的路径就是i的二进制每5位一段；  
+      最后不满32个的元素单独放在tail里，append大多数时候只复制tail  
+    3.shift是根节点所在层的位移，树高为shift/5；根节点满了就加一层  
+    4.读的一侧和ArrayList一样（get、size、indexOf、iterator、subList...），add、set等修改方法  
+      由AbstractList抛UnsupportedOperationException  
+    5.批量修改用Builder：Builder拥有的节点直接原地修改，第一次碰到别的版本的节点时才复制一份，  
+      build()之后Builder失效，得到的vector和其他版本一样不可变  
+    6.不可变，可以不加锁地在线程之间共享  
+*/  
+public final class PersistentVector<E> extends AbstractList<E>  
+        implements RandomAccess  
+{  
+    private static final int SHIFT = 5;  
+    private static final int WIDTH = 1 << SHIFT;  
+    private static final int MASK = WIDTH - 1;  
+  
+    /*  
+        1.trie的节点，array里是子节点（内部节点）或者元素（叶子节点）  
+        2.owner不为null表示这个节点是某个Builder新建的，那个Builder可以原地修改它  
+    */  
+    static final class Node {  
+        final Object owner;  
+        final Object[] array;  
+  
+        Node(Object owner, Object[] array) {  
+            this.owner = owner;  
+            this.array = array;  
+        }  
+    }  
+  
+    private static final Node EMPTY_NODE = new Node(null, new Object[WIDTH]);  
+  
+    private static final PersistentVector<Object> EMPTY =  
+        new PersistentVector<>(0, SHIFT, EMPTY_NODE, new Object[0]);  
+  
+    //包含元素的数目  
+    private final int cnt;  
+  
+    //根节点的位移  
+    private final int shift;  
+  
+    private final Node root;  
+  
+    //最后cnt - tailoff()个元素，长度正好等于元素个数  
+    private final Object[] tail;  
+  
+    private PersistentVector(int cnt, int shift, Node root, Object[] tail) {  
+        this.cnt = cnt;  
+        this.shift = shift;  
+        this.root = root;  
+        this.tail = tail;  
+    }  
+  
+    @SuppressWarnings("unchecked")  
+    public static <E> PersistentVector<E> empty() {  
+        return (PersistentVector<E>) EMPTY;  
+    }  
+  
+    public static <E> PersistentVector<E> of(Collection<? extends E> c) {  
+        Builder<E> b = new Builder<>();  
+        for (E e : c)  
+            b.add(e);  
+        return b.build();  
+    }  
+  
+    //------------------------ 读 ------------------------  
+  
+    public int size() {  
+        return cnt;  
+    }  
+  
+    //tail里第一个元素的下标  
+    private static int tailoff(int cnt) {  
+        return (cnt < WIDTH) ? 0 : ((cnt - 1) >>> SHIFT) << SHIFT;  
+    }  
+  
+    //第i个元素所在的叶子数组，或者tail  
+    private Object[] arrayFor(int i) {  
+        if (i >= tailoff(cnt))  
+            return tail;  
+        Node node = root;  
+        for (int level = shift; level > 0; level -= SHIFT)  
+            node = (Node) node.array[(i >>> level) & MASK];  
+        return node.array;  
+    }  
+  
+    @SuppressWarnings("unchecked")  
+    public E get(int index) {  
+        rangeCheck(index);  
+        return (E) arrayFor(index)[index & MASK];  
+    }  
+  
+    //一次取出一整个叶子数组，每32个元素才走一次从根到叶子的路径  
+    public Iterator<E> iterator() {  
+        return new Iterator<E>() {  
+            int cursor;  
+            int base;  
+            Object[] array = (cnt > 0) ? arrayFor(0) : null;  
+  
+            public boolean hasNext() {  
+                return cursor < cnt;  
+            }  
+  
+            @SuppressWarnings("unchecked")  
+            public E next() {  
+                int i = cursor;  
+                if (i >= cnt)  
+                    throw new NoSuchElementException();  
+                if (i - base == WIDTH) {  
+                    array = arrayFor(i);  
+                    base = i;  
+                }  
+                cursor = i + 1;  
+                return (E) array[i & MASK];  
+            }  
+        };  
+    }  
+  
+    //------------------------ 返回新版本的修改 ------------------------  
+  
+    //index等于size时相当于append；只复制从根到这个元素的路径  
+    public PersistentVector<E> with(int index, E e) {  
+        if (index == cnt)  
+            return append(e);  
+        rangeCheck(index);  
+        if (index >= tailoff(cnt)) {  
+            Object[] newTail = tail.clone();  
+            newTail[index & MASK] = e;  
+            return new PersistentVector<>(cnt, shift, root, newTail);  
+        }  
+        return new PersistentVector<>(cnt, shift, assoc(shift, root, index, e), tail);  
+    }  
+  
+    private static Node assoc(int level, Node node, int i, Object e) {  
+        Node ret = new Node(null, node.array.clone());  
+        if (level == 0) {  
+            ret.array[i & MASK] = e;  
+        } else {  
+            int sub = (i >>> level) & MASK;  
+            ret.array[sub] = assoc(level - SHIFT, (Node) node.array[sub], i, e);  
+        }  
+        return ret;  
+    }  
+  
+    /*  
+        1.tail没满：复制tail，多放一个元素  
+        2.tail满了：tail变成一个叶子节点挂到树上，新的tail只有e一个元素；  
+          根节点也满了（cnt/32 > 32^(shift/5)）就新建一个根，树高加一  
+    */  
+    public PersistentVector<E> append(E e) {  
+        if (cnt - tailoff(cnt) < WIDTH) {  
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);  
+            newTail[tail.length] = e;  
+            return new PersistentVector<>(cnt + 1, shift, root, newTail);  
+        }  
+        Node tailNode = new Node(null, tail);  
+        Node newRoot;  
+        int newShift = shift;  
+        if ((cnt >>> SHIFT) > (1 << shift)) {  
+            newRoot = new Node(null, new Object[WIDTH]);  
+            newRoot.array[0] = root;  
+            newRoot.array[1] = newPath(null, shift, tailNode);  
+            newShift += SHIFT;  
+        } else {  
+            newRoot = pushTail(shift, root, tailNode);  
+        }  
+        return new PersistentVector<>(cnt + 1, newShift, newRoot, new Object[]{ e });  
+    }  
+  
+    //把满了的tail作为第cnt/32个叶子挂到树上，复制经过的节点  
+    private Node pushTail(int level, Node parent, Node tailNode) {  
+        int sub = ((cnt - 1) >>> level) & MASK;  
+        Node ret = new Node(null, parent.array.clone());  
+        Node toInsert;  
+        if (level == SHIFT) {  
+            toInsert = tailNode;  
+        } else {  
+            Node child = (Node) parent.array[sub];  
+            toInsert = (child != null)  
+                ? pushTail(level - SHIFT, child, tailNode)  
+                : newPath(null, level - SHIFT, tailNode);  
+        }  
+        ret.array[sub] = toInsert;  
+        return ret;  
+    }  
+  
+    //从level层一路向下只有第0个孩子，最下面是node  
+    private static Node newPath(Object owner, int level, Node node) {  
+        if (level == 0)  
+            return node;  
+        Node ret = new Node(owner, new Object[WIDTH]);  
+        ret.array[0] = newPath(owner, level - SHIFT, node);  
+        return ret;  
+    }  
+  
+    /*  
+        1.去掉最后一个元素  
+        2.tail只剩一个元素时，把树上最后一个叶子取下来作为新的tail；根只剩一个孩子时树高减一  
+    */  
+    public PersistentVector<E> pop() {  
+        if (cnt == 0)  
+            throw new IllegalStateException("Can't pop empty vector");  
+        if (cnt == 1)  
+            return empty();  
+        if (cnt - tailoff(cnt) > 1) {  
+            Object[] newTail = Arrays.copyOf(tail, tail.length - 1);  
+            return new PersistentVector<>(cnt - 1, shift, root, newTail);  
+        }  
+        Object[] newTail = arrayFor(cnt - 2);  
+        Node newRoot = popTail(shift, root);  
+        int newShift = shift;  
+        if (newRoot == null)  
+            newRoot = EMPTY_NODE;  
+        if (shift > SHIFT && newRoot.array[1] == null) {  
+            newRoot = (Node) newRoot.array[0];  
+            newShift -= SHIFT;  
+        }  
+        return new PersistentVector<>(cnt - 1, newShift, newRoot, newTail);  
+    }  
+  
+    //去掉树上最后一个叶子，返回null表示这个子树空了  
+    private Node popTail(int level, Node node) {  
+        int sub = ((cnt - 2) >>> level) & MASK;  
+        if (level > SHIFT) {  
+            Node newChild = popTail(level - SHIFT, (Node) node.array[sub]);  
+            if (newChild == null && sub == 0)  
+                return null;  
+            Node ret = new Node(null, node.array.clone());  
+            ret.array[sub] = newChild;  
+            return ret;  
+        } else if (sub == 0) {  
+            return null;  
+        } else {  
+            Node ret = new Node(null, node.array.clone());  
+            ret.array[sub] = null;  
+            return ret;  
+        }  
+    }  
+  
+    //从这个版本开始批量修改  
+    public Builder<E> toBuilder() {  
+        return new Builder<>(this);  
+    }  
+  
+    private void rangeCheck(int index) {  
+        if (index < 0 || index >= cnt)  
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+    }  
+  
+    private String outOfBoundsMsg(int index) {  
+        return "Index: "+index+", Size: "+cnt;  
+    }  
+  
+    /*  
+        1.可变的构建器，add、set、pop的算法和PersistentVector一样，只是节点属于自己时原地修改  
+        2.owner标记自己新建（或复制）的节点；别的版本的节点第一次修改前复制一份，之后就是自己的了  
+        3.tail总是32长，不用每次add都复制  
+        4.build()之后Builder失效，再调用任何方法都抛IllegalStateException；  
+          build出来的vector里的节点虽然带着owner，但已经没有Builder能修改它们了  
+        5.不是线程安全的  
+    */  
+    public static final class Builder<E> {  
+        private Object owner = new Object();  
+        private int cnt;  
+        private int shift;  
+        private Node root;  
+        private Object[] tail;  
+  
+        public Builder() {  
+            this(PersistentVector.<E>empty());  
+        }  
+  
+        Builder(PersistentVector<E> v) {  
+            cnt = v.cnt;  
+            shift = v.shift;  
+            root = editable(v.root);  
+            tail = Arrays.copyOf(v.tail, WIDTH);  
+        }  
+  
+        private Node editable(Node node) {  
+            return (node.owner == owner) ? node : new Node(owner, node.array.clone());  
+        }  
+  
+        private void ensureActive() {  
+            if (owner == null)  
+                throw new IllegalStateException("Builder used after build()");  
+        }  
+  
+        public int size() {  
+            ensureActive();  
+            return cnt;  
+        }  
+  
+        private Object[] arrayFor(int i) {  
+            if (i >= tailoff(cnt))  
+                return tail;  
+            Node node = root;  
+            for (int level = shift; level > 0; level -= SHIFT)  
+                node = (Node) node.array[(i >>> level) & MASK];  
+            return node.array;  
+        }  
+  
+        @SuppressWarnings("unchecked")  
+        public E get(int index) {  
+            ensureActive();  
+            rangeCheck(index);  
+            return (E) arrayFor(index)[index & MASK];  
+        }  
+  
+        public Builder<E> add(E e) {  
+            ensureActive();  
+            int i = cnt;  
+            if (i - tailoff(i) < WIDTH) {  
+                tail[i & MASK] = e;  
+                cnt = i + 1;  
+                return this;  
+            }  
+            Node tailNode = new Node(owner, tail);  
+            tail = new Object[WIDTH];  
+            tail[0] = e;  
+            if ((i >>> SHIFT) > (1 << shift)) {  
+                Node newRoot = new Node(owner, new Object[WIDTH]);  
+                newRoot.array[0] = root;  
+                newRoot.array[1] = newPath(owner, shift, tailNode);  
+                root = newRoot;  
+                shift += SHIFT;  
+            } else {  
+                root = pushTail(shift, root, tailNode);  
+            }  
+            cnt = i + 1;  
+            return this;  
+        }  
+  
+        private Node pushTail(int level, Node parent, Node tailNode) {  
+            parent = editable(parent);  
+            int sub = ((cnt - 1) >>> level) & MASK;  
+            Node toInsert;  
+            if (level == SHIFT) {  
+                toInsert = tailNode;  
+            } else {  
+                Node child = (Node) parent.array[sub];  
+                toInsert = (child != null)  
+                    ? pushTail(level - SHIFT, child, tailNode)  
+                    : newPath(owner, level - SHIFT, tailNode);  
+            }  
+            parent.array[sub] = toInsert;  
+            return parent;  
+        }  
+  
+        public E set(int index, E e) {  
+            ensureActive();  
+            rangeCheck(index);  
+            E oldValue = get(index);  
+            if (index >= tailoff(cnt))  
+                tail[index & MASK] = e;  
+            else  
+                root = assoc(shift, root, index, e);  
+            return oldValue;  
+        }  
+  
+        private Node assoc(int level, Node node, int i, Object e) {  
+            node = editable(node);  
+            if (level == 0) {  
+                node.array[i & MASK] = e;  
+            } else {  
+                int sub = (i >>> level) & MASK;  
+                node.array[sub] = assoc(level - SHIFT, (Node) node.array[sub], i, e);  
+            }  
+            return node;  
+        }  
+  
+        public E pop() {  
+            ensureActive();  
+            if (cnt == 0)  
+                throw new IllegalStateException("Can't pop empty vector");  
+            E oldValue = get(cnt - 1);  
+            int i = cnt - 1;  
+            if (cnt == 1 || cnt - tailoff(cnt) > 1) {  
+                tail[i & MASK] = null;  
+                cnt = i;  
+                return oldValue;  
+            }  
+            //树上的叶子可能是别的版本的，复制一份再作为tail  
+            Object[] newTail = Arrays.copyOf(arrayFor(cnt - 2), WIDTH);  
+            Node newRoot = popTail(shift, root);  
+            if (newRoot == null)  
+                newRoot = new Node(owner, new Object[WIDTH]);  
+            if (shift > SHIFT && newRoot.array[1] == null) {  
+                newRoot = editable((Node) newRoot.array[0]);  
+                shift -= SHIFT;  
+            }  
+            root = newRoot;  
+            tail = newTail;  
+            cnt = i;  
+            return oldValue;  
+        }  
+  
+        private Node popTail(int level, Node node) {  
+            node = editable(node);  
+            int sub = ((cnt - 2) >>> level) & MASK;  
+            if (level > SHIFT) {  
+                Node newChild = popTail(level - SHIFT, (Node) node.array[sub]);  
+                if (newChild == null && sub == 0)  
+                    return null;  
+                node.array[sub] = newChild;  
+                return node;  
+            } else if (sub == 0) {  
+                return null;  
+            } else {  
+                node.array[sub] = null;  
+                return node;  
+            }  
+        }  
+  
+        //tail截成正好的长度，之后这个Builder不能再用  
+        public PersistentVector<E> build() {  
+            ensureActive();  
+            owner = null;  
+            if (cnt == 0)  
+                return empty();  
+            Object[] t = Arrays.copyOf(tail, cnt - tailoff(cnt));  
+            return new PersistentVector<>(cnt, shift, root, t);  
+        }  
+  
+        private void rangeCheck(int index) {  
+            if (index < 0 || index >= cnt)  
+                throw new IndexOutOfBoundsException("Index: "+index+", Size: "+cnt);  
+        }  
+    }  
+}  
@@ -0,0 +1,415 @@
+package java.util;  
+  
+/*  
+    1.SegmentedArrayList和ArrayList接口一样，但元素分段存放在多个定长的chunk里（Object[][] chunks）  
+    2.ArrayList.grow每次都要分配1.5倍的新数组并Arrays.copyOf整个elementData，  
+      5000万个元素时一次扩容就是几百MB的临时分配，在G1下还都是humongous对象；  
+      这里扩容只是追加一个新的chunk，已有的元素一个都不复制  
+    3.chunk的大小是2的幂，第index个元素在chunks[index >>> chunkShift][index & chunkMask]，  
+      get/set仍然是O(1)，所以实现了RandomAccess  
+    4.为了不让很小的list也占一整个chunk，只有一个chunk时它像ArrayList一样按1.5倍增长，  
+      长到chunkSize后才开始追加新的chunk  
+    5.add(int, E)、remove(int)仍然要移动后面的元素（按chunk分段System.arraycopy），复杂度和ArrayList一样  
+*/  
+public class SegmentedArrayList<E> extends AbstractList<E>  
+        implements List<E>, RandomAccess, Cloneable, java.io.Serializable  
+{  
+    private static final long serialVersionUID = -1870398152774261837L;  
+  
+    //默认每个chunk 16384个引用，开了压缩指针时64KB，远小于G1的humongous阈值  
+    private static final int DEFAULT_CHUNK_SHIFT = 14;  
+  
+    //第一个chunk最初的大小，和ArrayList的DEFAULT_CAPACITY一样  
+    private static final int DEFAULT_CAPACITY = 10;  
+  
+    private static final Object[][] EMPTY_CHUNKS = {};  
+  
+    private final int chunkShift;  
+    private final int chunkSize;  
+    private final int chunkMask;  
+  
+    /*  
+        1.存放元素的chunk，只有前chunkCount个有效，后面是为了spine扩容预留的null  
+        2.chunkCount > 1时每个chunk的长度都是chunkSize  
+    */  
+    private transient Object[][] chunks;  
+    private transient int chunkCount;  
+  
+    //包含元素的数目  
+    private int size;  
+  
+    public SegmentedArrayList() {  
+        this(DEFAULT_CHUNK_SHIFT);  
+    }  
+  
+    //chunkShift决定chunk的大小（1 << chunkShift）  
+    public SegmentedArrayList(int chunkShift) {  
+        super();  
+        if (chunkShift < 4 || chunkShift > 30)  
+            throw new IllegalArgumentException("Illegal chunk shift: "+  
+                                               chunkShift);  
+        this.chunkShift = chunkShift;  
+        this.chunkSize = 1 << chunkShift;  
+        this.chunkMask = chunkSize - 1;  
+        this.chunks = EMPTY_CHUNKS;  
+    }  
+  
+    public SegmentedArrayList(Collection<? extends E> c) {  
+        this(DEFAULT_CHUNK_SHIFT);  
+        addAll(c);  
+    }  
+  
+    /*  
+        1.当前能存放的元素个数  
+        2.chunkCount * chunkSize可以超过int的范围（比如chunkShift为30时两个chunk就是2^31），  
+          用long计算，超过Integer.MAX_VALUE的部分反正用不到，按Integer.MAX_VALUE算  
+    */  
+    private int capacity() {  
+        if (chunkCount == 0)  
+            return 0;  
+        if (chunkCount == 1)  
+            return chunks[0].length;  
+        return (int) Math.min((long) chunkCount << chunkShift, Integer.MAX_VALUE);  
+    }  
+  
+    /*  
+        1.只有一个chunk时，把它缩小到size，和ArrayList.trimToSize一样  
+        2.多个chunk时，只释放size之后完全没用到的chunk，已经用到的chunk不复制  
+    */  
+    public void trimToSize() {  
+        modCount++;  
+        int needed = (int) (((long) size + chunkMask) >>> chunkShift);  
+        if (needed <= 1 && chunkCount > 0) {  
+            Object[] first = chunks[0];  
+            chunks = (size == 0) ? EMPTY_CHUNKS  
+                                 : new Object[][] { Arrays.copyOf(first, size) };  
+            chunkCount = chunks.length;  
+        } else if (needed < chunkCount || needed < chunks.length) {  
+            chunks = Arrays.copyOf(chunks, needed);  
+            chunkCount = needed;  
+        }  
+    }  
+  
+    public void ensureCapacity(int minCapacity) {  
+        if (minCapacity > 0) {  
+            modCount++;  
+            ensureCapacityInternal(minCapacity);  
+        }  
+    }  
+  
+    private void ensureCapacityInternal(int minCapacity) {  
+        // overflow-conscious code  
+        if (minCapacity - capacity() > 0)  
+            grow(minCapacity);  
+    }  
+  
+    /*  
+        1.第一个chunk还没到chunkSize时，按ArrayList的方式1.5倍增长（复制最多chunkSize个元素）  
+        2.否则只追加新的chunk，旧的元素不动  
+    */  
+    private void grow(int minCapacity) {  
+        if (minCapacity < 0) // overflow  
+            throw new OutOfMemoryError();  
+        if (chunkCount <= 1) {  
+            int oldCapacity = capacity();  
+            int newCapacity = Math.max(oldCapacity + (oldCapacity >> 1), DEFAULT_CAPACITY);  
+            if (newCapacity - minCapacity < 0)  
+                newCapacity = minCapacity;  
+            if (newCapacity <= chunkSize) {  
+                Object[] first = (chunkCount == 0) ? new Object[newCapacity]  
+                                                   : Arrays.copyOf(chunks[0], newCapacity);  
+                if (chunks.length == 0)  
+                    chunks = new Object[1][];  
+                chunks[0] = first;  
+                chunkCount = 1;  
+                return;  
+            }  
+            //第一个chunk要先补满到chunkSize，之后的chunk才能按index >>> chunkShift寻址  
+            if (chunkCount == 1 && chunks[0].length < chunkSize)  
+                chunks[0] = Arrays.copyOf(chunks[0], chunkSize);  
+        }  
+        int needed = (int) (((long) minCapacity + chunkMask) >>> chunkShift);  
+        if (needed > chunks.length)  
+            chunks = Arrays.copyOf(chunks, Math.max(needed, chunks.length << 1));  
+        for (int i = chunkCount; i < needed; i++)  
+            chunks[i] = new Object[chunkSize];  
+        chunkCount = needed;  
+    }  
+  
+    public int size() {  
+        return size;  
+    }  
+  
+    public boolean isEmpty() {  
+        return size == 0;  
+    }  
+  
+    public boolean contains(Object o) {  
+        return indexOf(o) >= 0;  
+    }  
+  
+    //按chunk循环，内层循环和ArrayList.indexOf一样  
+    public int indexOf(Object o) {  
+        for (int c = 0, base = 0; base < size; c++, base += chunkSize) {  
+            Object[] chunk = chunks[c];  
+            int n = Math.min(chunk.length, size - base);  
+            if (o == null) {  
+                for (int i = 0; i < n; i++)  
+                    if (chunk[i]==null)  
+                        return base + i;  
+            } else {  
+                for (int i = 0; i < n; i++)  
+                    if (o.equals(chunk[i]))  
+                        return base + i;  
+            }  
+        }  
+        return -1;  
+    }  
+  
+    public int lastIndexOf(Object o) {  
+        if (o == null) {  
+            for (int i = size-1; i >= 0; i--)  
+                if (chunks[i >>> chunkShift][i & chunkMask]==null)  
+                    return i;  
+        } else {  
+            for (int i = size-1; i >= 0; i--)  
+                if (o.equals(chunks[i >>> chunkShift][i & chunkMask]))  
+                    return i;  
+        }  
+        return -1;  
+    }  
+  
+    //每个chunk单独复制，不会产生一个大数组  
+    public Object clone() {  
+        try {  
+            @SuppressWarnings("unchecked")  
+                SegmentedArrayList<E> v = (SegmentedArrayList<E>) super.clone();  
+            v.chunks = new Object[chunkCount][];  
+            for (int c = 0; c < chunkCount; c++)  
+                v.chunks[c] = chunks[c].clone();  
+            v.modCount = 0;  
+            return v;  
+        } catch (CloneNotSupportedException e) {  
+            // this shouldn't happen, since we are Cloneable  
+            throw new InternalError();  
+        }  
+    }  
+  
+    public Object[] toArray() {  
+        return copyTo(new Object[size]);  
+    }  
+  
+    @SuppressWarnings("unchecked")  
+    public <T> T[] toArray(T[] a) {  
+        if (a.length < size)  
+            a = (T[]) java.lang.reflect.Array.newInstance(  
+                a.getClass().getComponentType(), size);  
+        copyTo(a);  
+        if (a.length > size)  
+            a[size] = null;  
+        return a;  
+    }  
+  
+    private <T> T[] copyTo(T[] a) {  
+        for (int c = 0, base = 0; base < size; c++, base += chunkSize)  
+            System.arraycopy(chunks[c], 0, a, base, Math.min(chunkSize, size - base));  
+        return a;  
+    }  
+  
+    @SuppressWarnings("unchecked")  
+    E elementData(int index) {  
+        return (E) chunks[index >>> chunkShift][index & chunkMask];  
+    }  
+  
+    public E get(int index) {  
+        rangeCheck(index);  
+  
+        return elementData(index);  
+    }  
+  
+    public E set(int index, E element) {  
+        rangeCheck(index);  
+  
+        Object[] chunk = chunks[index >>> chunkShift];  
+        @SuppressWarnings("unchecked")  
+            E oldValue = (E) chunk[index & chunkMask];  
+        chunk[index & chunkMask] = element;  
+        return oldValue;  
+    }  
+  
+    public boolean add(E e) {  
+        modCount++;  
+        ensureCapacityInternal(size + 1);  
+        chunks[size >>> chunkShift][size & chunkMask] = e;  
+        size++;  
+        return true;  
+    }  
+  
+    public void add(int index, E element) {  
+        rangeCheckForAdd(index);  
+  
+        modCount++;  
+        ensureCapacityInternal(size + 1);  
+        move(index, index + 1, size - index);  
+        chunks[index >>> chunkShift][index & chunkMask] = element;  
+        size++;  
+    }  
+  
+    public E remove(int index) {  
+        rangeCheck(index);  
+  
+        modCount++;  
+        E oldValue = elementData(index);  
+        move(index + 1, index, size - index - 1);  
+        --size;  
+        chunks[size >>> chunkShift][size & chunkMask] = null; // clear to let GC do its work  
+        return oldValue;  
+    }  
+  
+    public boolean remove(Object o) {  
+        int index = indexOf(o);  
+        if (index < 0)  
+            return false;  
+        remove(index);  
+        return true;  
+    }  
+  
+    //保留已经分配的chunk，和ArrayList.clear一样只把元素置null  
+    public void clear() {  
+        modCount++;  
+        nullOut(0, size);  
+        size = 0;  
+    }  
+  
+    public boolean addAll(Collection<? extends E> c) {  
+        Object[] a = c.toArray();  
+        int numNew = a.length;  
+        modCount++;  
+        ensureCapacityInternal(size + numNew);  
+        copyIn(a, size, numNew);  
+        size += numNew;  
+        return numNew != 0;  
+    }  
+  
+    public boolean addAll(int index, Collection<? extends E> c) {  
+        rangeCheckForAdd(index);  
+  
+        Object[] a = c.toArray();  
+        int numNew = a.length;  
+        modCount++;  
+        ensureCapacityInternal(size + numNew);  
+        move(index, index + numNew, size - index);  
+        copyIn(a, index, numNew);  
+        size += numNew;  
+        return numNew != 0;  
+    }  
+  
+    protected void removeRange(int fromIndex, int toIndex) {  
+        modCount++;  
+        move(toIndex, fromIndex, size - toIndex);  
+        int newSize = size - (toIndex-fromIndex);  
+        nullOut(newSize, size);  
+        size = newSize;  
+    }  
+  
+    /*  
+        1.相当于System.arraycopy(elementData, from, elementData, to, length)  
+        2.按chunk边界切成若干段，每段一次System.arraycopy  
+        3.to > from时从后往前复制，否则从前往后复制，保证重叠的区域不被覆盖  
+    */  
+    private void move(int from, int to, int length) {  
+        if (length <= 0 || from == to)  
+            return;  
+        if (to > from) {  
+            int src = from + length, dst = to + length;  
+            while (src > from) {  
+                int srcOff = ((src - 1) & chunkMask) + 1;  
+                int dstOff = ((dst - 1) & chunkMask) + 1;  
+                int n = Math.min(Math.min(srcOff, dstOff), src - from);  
+                System.arraycopy(chunks[(src - 1) >>> chunkShift], srcOff - n,  
+                                 chunks[(dst - 1) >>> chunkShift], dstOff - n, n);  
+                src -= n;  
+                dst -= n;  
+            }  
+        } else {  
+            int src = from, dst = to, end = from + length;  
+            while (src < end) {  
+                int srcOff = src & chunkMask;  
+                int dstOff = dst & chunkMask;  
+                int n = Math.min(Math.min(chunkSize - srcOff, chunkSize - dstOff), end - src);  
+                System.arraycopy(chunks[src >>> chunkShift], srcOff,  
+                                 chunks[dst >>> chunkShift], dstOff, n);  
+                src += n;  
+                dst += n;  
+            }  
+        }  
+    }  
+  
+    //把a[0, length)复制到index开始的位置  
+    private void copyIn(Object[] a, int index, int length) {  
+        int done = 0;  
+        while (done < length) {  
+            int off = index & chunkMask;  
+            int n = Math.min(chunkSize - off, length - done);  
+            System.arraycopy(a, done, chunks[index >>> chunkShift], off, n);  
+            done += n;  
+            index += n;  
+        }  
+    }  
+  
+    // clear to let GC do its work  
+    private void nullOut(int from, int to) {  
+        while (from < to) {  
+            int off = from & chunkMask;  
+            int n = Math.min(chunkSize - off, to - from);  
+            Arrays.fill(chunks[from >>> chunkShift], off, off + n, null);  
+            from += n;  
+        }  
+    }  
+  
+    private void rangeCheck(int index) {  
+        if (index < 0 || index >= size)  
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+    }  
+  
+    private void rangeCheckForAdd(int index) {  
+        if (index > size || index < 0)  
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+    }  
+  
+    private String outOfBoundsMsg(int index) {  
+        return "Index: "+index+", Size: "+size;  
+    }  
+  
+    private void writeObject(java.io.ObjectOutputStream s)  
+        throws java.io.IOException{  
+        int expectedModCount = modCount;  
+        s.defaultWriteObject();  
+  
+        for (int i=0; i<size; i++) {  
+            s.writeObject(elementData(i));  
+        }  
+  
+        if (modCount != expectedModCount) {  
+            throw new ConcurrentModificationException();  
+        }  
+    }  
+  
+    //读回来时直接按size分配chunk，不经过1.5倍的增长  
+    private void readObject(java.io.ObjectInputStream s)  
+        throws java.io.IOException, ClassNotFoundException {  
+        s.defaultReadObject();  
+        chunks = EMPTY_CHUNKS;  
+        chunkCount = 0;  
+  
+        int n = size;  
+        size = 0;  
+        if (n > 0) {  
+            grow(n);  
+            for (int i=0; i<n; i++) {  
+                chunks[i >>> chunkShift][i & chunkMask] = s.readObject();  
+            }  
+            size = n;  
+        }  
+    }  
+}  
@@ -0,0 +1,360 @@
+package java.util;  
+  
+import java.util.concurrent.locks.StampedLock;  
+import java.util.function.Predicate;  
+import java.util.function.UnaryOperator;  
+  
+/*  
+    1.StampedVector是Vector的读多写少版本：get、elementAt、firstElement、lastElement、  
+      indexOf、contains、size、isEmpty先用StampedLock做乐观读，不进入synchronized，  
+      多个核读同一个vector时monitor不会在核之间来回传递  
+    2.修改方法仍然是Vector原来的synchronized方法，只是在synchronized里面再拿StampedLock的写锁，  
+      让期间开始的乐观读validate失败  
+    3.写锁只会在持有monitor时获取，所以同一时刻最多一个线程去拿写锁，永远不会阻塞；  
+      如果已经写锁定，那一定是当前线程嵌套调用（比如removeElement里调用removeElementAt），直接跳过  
+    4.乐观读失败时退回到Vector原来的synchronized方法，所以异常类型、语义都和Vector完全一致  
+    5.modCount照旧在synchronized里修改，Itr、ListItr仍然是fail-fast的  
+*/  
+public class StampedVector<E> extends Vector<E> {  
+  
+    private static final long serialVersionUID = -3219425381625437813L;  
+  
+    //不是final，clone时要换成新的锁  
+    private StampedLock lock = new StampedLock();  
+  
+    public StampedVector(int initialCapacity, int capacityIncrement) {  
+        super(initialCapacity, capacityIncrement);  
+    }  
+  
+    public StampedVector(int initialCapacity, GrowthPolicy growthPolicy) {  
+        super(initialCapacity, growthPolicy);  
+    }  
+  
+    public StampedVector(int initialCapacity) {  
+        super(initialCapacity);  
+    }  
+  
+    public StampedVector() {  
+        super();  
+    }  
+  
+    public StampedVector(Collection<? extends E> c) {  
+        super(c);  
+    }  
+  
+    /*  
+        1.必须在synchronized(this)里调用  
+        2.返回0表示写锁已经被当前线程持有（嵌套调用），endWrite时什么也不做  
+    */  
+    private long beginWrite() {  
+        return lock.isWriteLocked() ? 0L : lock.writeLock();  
+    }  
+  
+    private void endWrite(long stamp) {  
+        if (stamp != 0L)  
+            lock.unlockWrite(stamp);  
+    }  
+  
+    //------------------------ 乐观读 ------------------------  
+  
+    /*  
+        1.乐观读出elementCount和elementData[index]，validate成功就直接返回  
+        2.stamp为0（写锁定中）时validate一定失败；越界时也交给super去抛Vector原来的异常  
+    */  
+    @SuppressWarnings("unchecked")  
+    public E get(int index) {  
+        long stamp = lock.tryOptimisticRead();  
+        Object[] a = elementData;  
+        int n = elementCount;  
+        if (index >= 0 && index < n && index < a.length) {  
+            Object e = a[index];  
+            if (lock.validate(stamp))  
+                return (E) e;  
+        }  
+        return super.get(index);  
+    }  
+  
+    @SuppressWarnings("unchecked")  
+    public E elementAt(int index) {  
+        long stamp = lock.tryOptimisticRead();  
+        Object[] a = elementData;  
+        int n = elementCount;  
+        if (index >= 0 && index < n && index < a.length) {  
+            Object e = a[index];  
+            if (lock.validate(stamp))  
+                return (E) e;  
+        }  
+        return super.elementAt(index);  
+    }  
+  
+    @SuppressWarnings("unchecked")  
+    public E firstElement() {  
+        long stamp = lock.tryOptimisticRead();  
+        Object[] a = elementData;  
+        int n = elementCount;  
+        if (n > 0 && a.length > 0) {  
+            Object e = a[0];  
+            if (lock.validate(stamp))  
+                return (E) e;  
+        }  
+        return super.firstElement();  
+    }  
+  
+    @SuppressWarnings("unchecked")  
+    public E lastElement() {  
+        long stamp = lock.tryOptimisticRead();  
+        Object[] a = elementData;  
+        int n = elementCount;  
+        if (n > 0 && n <= a.length) {  
+            Object e = a[n - 1];  
+            if (lock.validate(stamp))  
+                return (E) e;  
+        }  
+        return super.lastElement();  
+    }  
+  
+    public int size() {  
+        long stamp = lock.tryOptimisticRead();  
+        int n = elementCount;  
+        if (lock.validate(stamp))  
+            return n;  
+        return super.size();  
+    }  
+  
+    public boolean isEmpty() {  
+        return size() == 0;  
+    }  
+  
+    public boolean contains(Object o) {  
+        return indexOf(o, 0) >= 0;  
+    }  
+  
+    public int indexOf(Object o) {  
+        return indexOf(o, 0);  
+    }  
+  
+    //整个扫描放在一次乐观读里；负的index交给super去抛异常  
+    public int indexOf(Object o, int index) {  
+        long stamp = lock.tryOptimisticRead();  
+        if (stamp != 0L && index >= 0) {  
+            Object[] a = elementData;  
+            int n = Math.min(elementCount, a.length);  
+            int found = -1;  
+            if (o == null) {  
+                for (int i = index ; i < n ; i++)  
+                    if (a[i]==null) {  
+                        found = i;  
+                        break;  
+                    }  
+            } else {  
+                for (int i = index ; i < n ; i++)  
+                    if (o.equals(a[i])) {  
+                        found = i;  
+                        break;  
+                    }  
+            }  
+            if (lock.validate(stamp))  
+                return found;  
+        }  
+        return super.indexOf(o, index);  
+    }  
+  
+    //------------------------ 修改方法：synchronized + 写锁 ------------------------  
+  
+    public synchronized void trimToSize() {  
+        long stamp = beginWrite();  
+        try {  
+            super.trimToSize();  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized void ensureCapacity(int minCapacity) {  
+        long stamp = beginWrite();  
+        try {  
+            super.ensureCapacity(minCapacity);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized void setSize(int newSize) {  
+        long stamp = beginWrite();  
+        try {  
+            super.setSize(newSize);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized void setElementAt(E obj, int index) {  
+        long stamp = beginWrite();  
+        try {  
+            super.setElementAt(obj, index);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized void removeElementAt(int index) {  
+        long stamp = beginWrite();  
+        try {  
+            super.removeElementAt(index);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized void insertElementAt(E obj, int index) {  
+        long stamp = beginWrite();  
+        try {  
+            super.insertElementAt(obj, index);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized void addElement(E obj) {  
+        long stamp = beginWrite();  
+        try {  
+            super.addElement(obj);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized boolean removeElement(Object obj) {  
+        long stamp = beginWrite();  
+        try {  
+            return super.removeElement(obj);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized void removeAllElements() {  
+        long stamp = beginWrite();  
+        try {  
+            super.removeAllElements();  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized E set(int index, E element) {  
+        long stamp = beginWrite();  
+        try {  
+            return super.set(index, element);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized boolean add(E e) {  
+        long stamp = beginWrite();  
+        try {  
+            return super.add(e);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized E remove(int index) {  
+        long stamp = beginWrite();  
+        try {  
+            return super.remove(index);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized boolean addAll(Collection<? extends E> c) {  
+        long stamp = beginWrite();  
+        try {  
+            return super.addAll(c);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized boolean addAll(E[] src, int off, int len) {  
+        long stamp = beginWrite();  
+        try {  
+            return super.addAll(src, off, len);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized boolean addAll(int index, Collection<? extends E> c) {  
+        long stamp = beginWrite();  
+        try {  
+            return super.addAll(index, c);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized boolean removeAll(Collection<?> c) {  
+        long stamp = beginWrite();  
+        try {  
+            return super.removeAll(c);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized boolean retainAll(Collection<?> c) {  
+        long stamp = beginWrite();  
+        try {  
+            return super.retainAll(c);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    protected synchronized void removeRange(int fromIndex, int toIndex) {  
+        long stamp = beginWrite();  
+        try {  
+            super.removeRange(fromIndex, toIndex);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized void replaceAll(UnaryOperator<E> operator) {  
+        long stamp = beginWrite();  
+        try {  
+            super.replaceAll(operator);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized boolean removeIf(Predicate<? super E> filter) {  
+        long stamp = beginWrite();  
+        try {  
+            return super.removeIf(filter);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    public synchronized void sort(Comparator<? super E> c) {  
+        long stamp = beginWrite();  
+        try {  
+            super.sort(c);  
+        } finally {  
+            endWrite(stamp);  
+        }  
+    }  
+  
+    //super.clone()会把lock也浅复制过去，两个vector不能共用一把锁  
+    public synchronized Object clone() {  
+        @SuppressWarnings("unchecked")  
+            StampedVector<E> v = (StampedVector<E>) super.clone();  
+        v.lock = new StampedLock();  
+        return v;  
+    }  
+}  
@@ -0,0 +1,434 @@
+package java.util;  
+  
+/*  
+    1.TieredArrayList是tiered vector：元素放在若干个大小为B的块里，每个块是一个环形缓冲区（circular deque）  
+    2.除最后一个块外，所有块都是满的，所以第i个元素在第i/B个块，块内偏移(head + i%B) % B，  
+      get/set和ArrayList一样是O(1)，实现了RandomAccess  
+    3.ArrayList.add(int, E)、remove(int)要System.arraycopy整个尾部，是O(n)；这里：  
+      a.只在目标块内移动元素，O(B)  
+      b.后面的每个块只需要"前面弹出一个、后面压入一个"（或者反过来），环形缓冲区里是O(1)，一共O(n/B)  
+      B取√n左右，插入删除就是O(√n)  
+    4.块大小B随size增长：块数超过2B时按2B重建一次（O(n)，均摊下来可以忽略）；trimToSize会按当前size重新选B  
+    5.迭代器的语义和ArrayList.Itr/ListItr完全一样（fail-fast、remove、set、add）  
+*/  
+public class TieredArrayList<E> extends AbstractList<E>  
+        implements List<E>, RandomAccess, java.io.Serializable  
+{  
+    private static final long serialVersionUID = 6529131738264580911L;  
+  
+    //最小的块大小16  
+    private static final int MIN_SHIFT = 4;  
+  
+    private static final Object[][] EMPTY_BLOCKS = {};  
+  
+    //块大小B = 1 << shift  
+    private transient int shift;  
+    private transient int mask;  
+  
+    //blocks[0, blockCount)有效，每个块长度都是B；heads[j]是第j个块第一个元素在块内的位置  
+    private transient Object[][] blocks;  
+    private transient int[] heads;  
+    private transient int blockCount;  
+  
+    private int size;  
+  
+    public TieredArrayList() {  
+        super();  
+        init(MIN_SHIFT);  
+    }  
+  
+    public TieredArrayList(Collection<? extends E> c) {  
+        this();  
+        addAll(c);  
+    }  
+  
+    private void init(int shift) {  
+        this.shift = shift;  
+        this.mask = (1 << shift) - 1;  
+        this.blocks = EMPTY_BLOCKS;  
+        this.heads = new int[0];  
+        this.blockCount = 0;  
+    }  
+  
+    public int size() {  
+        return size;  
+    }  
+  
+    public boolean isEmpty() {  
+        return size == 0;  
+    }  
+  
+    //第index个元素在块内的实际位置  
+    private int slot(int index) {  
+        return (heads[index >>> shift] + index) & mask;  
+    }  
+  
+    @SuppressWarnings("unchecked")  
+    E elementData(int index) {  
+        return (E) blocks[index >>> shift][slot(index)];  
+    }  
+  
+    public E get(int index) {  
+        rangeCheck(index);  
+  
+        return elementData(index);  
+    }  
+  
+    public E set(int index, E element) {  
+        rangeCheck(index);  
+  
+        Object[] block = blocks[index >>> shift];  
+        int p = slot(index);  
+        @SuppressWarnings("unchecked")  
+            E oldValue = (E) block[p];  
+        block[p] = element;  
+        return oldValue;  
+    }  
+  
+    public boolean add(E e) {  
+        modCount++;  
+        if (size == (blockCount << shift))  
+            addBlock();  
+        int index = size;  
+        blocks[index >>> shift][slot(index)] = e;  
+        size++;  
+        return true;  
+    }  
+  
+    /*  
+        1.最后一个块满了，先追加一个空块  
+        2.从最后一个块往前，把前一个块的最后一个元素挪到后一个块的最前面，每个块O(1)  
+        3.这样目标块就空出了一个位置，在块内移动插入点之后的元素，O(B)  
+    */  
+    public void add(int index, E element) {  
+        rangeCheckForAdd(index);  
+  
+        if (index == size) {  
+            add(element);  
+            return;  
+        }  
+        modCount++;  
+        if (size == (blockCount << shift))  
+            addBlock();  
+  
+        int k = index >>> shift;  
+        //插入后最后一个元素所在的块  
+        int last = size >>> shift;  
+        int b = 1 << shift;  
+        for (int j = last; j > k; j--) {  
+            //弹出第j-1块的最后一个元素（此时第j-1块一定是满的）  
+            Object[] prev = blocks[j - 1];  
+            int back = (heads[j - 1] + b - 1) & mask;  
+            Object x = prev[back];  
+            prev[back] = null;  
+            //压入第j块的最前面  
+            heads[j] = (heads[j] - 1) & mask;  
+            blocks[j][heads[j]] = x;  
+        }  
+  
+        //第k块现在的元素数目  
+        int count = (k == last) ? size - (k << shift) : b - 1;  
+        Object[] block = blocks[k];  
+        int h = heads[k];  
+        for (int p = count, o = index & mask; p > o; p--)  
+            block[(h + p) & mask] = block[(h + p - 1) & mask];  
+        block[(h + (index & mask)) & mask] = element;  
+        size++;  
+    }  
+  
+    /*  
+        1.在目标块内把删除点之后的元素往前移一位，O(B)  
+        2.从目标块的下一块开始，把后一个块的第一个元素挪到前一个块的最后面，每个块O(1)  
+        3.最后一个块空了就去掉  
+    */  
+    public E remove(int index) {  
+        rangeCheck(index);  
+  
+        modCount++;  
+        int k = index >>> shift;  
+        int last = (size - 1) >>> shift;  
+        int b = 1 << shift;  
+        int count = (k == last) ? size - (k << shift) : b;  
+        Object[] block = blocks[k];  
+        int h = heads[k];  
+        int o = index & mask;  
+        @SuppressWarnings("unchecked")  
+            E oldValue = (E) block[(h + o) & mask];  
+        for (int p = o; p < count - 1; p++)  
+            block[(h + p) & mask] = block[(h + p + 1) & mask];  
+        block[(h + count - 1) & mask] = null; // clear to let GC do its work  
+  
+        for (int j = k + 1; j <= last; j++) {  
+            //弹出第j块的第一个元素  
+            Object[] next = blocks[j];  
+            Object x = next[heads[j]];  
+            next[heads[j]] = null;  
+            heads[j] = (heads[j] + 1) & mask;  
+            //压入第j-1块的最后面（第j-1块现在少一个元素）  
+            blocks[j - 1][(heads[j - 1] + b - 1) & mask] = x;  
+        }  
+  
+        size--;  
+        if (size == ((blockCount - 1) << shift)) {  
+            blocks[--blockCount] = null;  
+        }  
+        return oldValue;  
+    }  
+  
+    public boolean remove(Object o) {  
+        int index = indexOf(o);  
+        if (index < 0)  
+            return false;  
+        remove(index);  
+        return true;  
+    }  
+  
+    public void clear() {  
+        modCount++;  
+        // clear to let GC do its work  
+        init(MIN_SHIFT);  
+        size = 0;  
+    }  
+  
+    //区间删除按新的size整体重建一次，O(n)，比逐个remove的O(k·√n)好  
+    protected void removeRange(int fromIndex, int toIndex) {  
+        modCount++;  
+        Object[] a = new Object[size - (toIndex - fromIndex)];  
+        for (int i = 0; i < fromIndex; i++)  
+            a[i] = elementData(i);  
+        for (int i = toIndex; i < size; i++)  
+            a[i - (toIndex - fromIndex)] = elementData(i);  
+        rebuild(a, shiftFor(a.length));  
+    }  
+  
+    public int indexOf(Object o) {  
+        if (o == null) {  
+            for (int i = 0; i < size; i++)  
+                if (elementData(i)==null)  
+                    return i;  
+        } else {  
+            for (int i = 0; i < size; i++)  
+                if (o.equals(elementData(i)))  
+                    return i;  
+        }  
+        return -1;  
+    }  
+  
+    public int lastIndexOf(Object o) {  
+        if (o == null) {  
+            for (int i = size-1; i >= 0; i--)  
+                if (elementData(i)==null)  
+                    return i;  
+        } else {  
+            for (int i = size-1; i >= 0; i--)  
+                if (o.equals(elementData(i)))  
+                    return i;  
+        }  
+        return -1;  
+    }  
+  
+    public Object[] toArray() {  
+        Object[] a = new Object[size];  
+        for (int i = 0; i < size; i++)  
+            a[i] = elementData(i);  
+        return a;  
+    }  
+  
+    //按当前size重新选择块大小  
+    public void trimToSize() {  
+        modCount++;  
+        rebuild(toArray(), shiftFor(size));  
+    }  
+  
+    /*  
+        1.追加一个空块  
+        2.块数已经超过2B时，先用2B的块重建，让B保持在√n左右  
+    */  
+    private void addBlock() {  
+        if (blockCount > (2 << shift)) {  
+            rebuild(toArray(), shift + 1);  
+            if (size < (blockCount << shift))  
+                return;  
+        }  
+        if (blockCount == blocks.length) {  
+            int newLength = Math.max(4, blockCount << 1);  
+            blocks = Arrays.copyOf(blocks, newLength);  
+            heads = Arrays.copyOf(heads, newLength);  
+        }  
+        blocks[blockCount] = new Object[1 << shift];  
+        heads[blockCount] = 0;  
+        blockCount++;  
+    }  
+  
+    //让块数不超过2B的最小块大小  
+    private static int shiftFor(int n) {  
+        int s = MIN_SHIFT;  
+        while (((long) 2 << (2 * s)) < n)  
+            s++;  
+        return s;  
+    }  
+  
+    //用块大小1 << newShift重新存放a中的元素，每个块的head都归零  
+    private void rebuild(Object[] a, int newShift) {  
+        init(newShift);  
+        int b = 1 << newShift;  
+        int n = (a.length + b - 1) >>> newShift;  
+        blocks = new Object[Math.max(n, 4)][];  
+        heads = new int[blocks.length];  
+        for (int j = 0; j < n; j++) {  
+            blocks[j] = new Object[b];  
+            System.arraycopy(a, j << newShift, blocks[j], 0,  
+                             Math.min(b, a.length - (j << newShift)));  
+        }  
+        blockCount = n;  
+        size = a.length;  
+    }  
+  
+    private void rangeCheck(int index) {  
+        if (index < 0 || index >= size)  
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+    }  
+  
+    private void rangeCheckForAdd(int index) {  
+        if (index > size || index < 0)  
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));  
+    }  
+  
+    private String outOfBoundsMsg(int index) {  
+        return "Index: "+index+", Size: "+size;  
+    }  
+  
+    private void writeObject(java.io.ObjectOutputStream s)  
+        throws java.io.IOException{  
+        int expectedModCount = modCount;  
+        s.defaultWriteObject();  
+  
+        for (int i=0; i<size; i++) {  
+            s.writeObject(elementData(i));  
+        }  
+  
+        if (modCount != expectedModCount) {  
+            throw new ConcurrentModificationException();  
+        }  
+    }  
+  
+    private void readObject(java.io.ObjectInputStream s)  
+        throws java.io.IOException, ClassNotFoundException {  
+        s.defaultReadObject();  
+  
+        Object[] a = new Object[size];  
+        for (int i=0; i<a.length; i++) {  
+            a[i] = s.readObject();  
+        }  
+        rebuild(a, shiftFor(a.length));  
+    }  
+  
+    public ListIterator<E> listIterator(int index) {  
+        if (index < 0 || index > size)  
+            throw new IndexOutOfBoundsException("Index: "+index);  
+        return new ListItr(index);  
+    }  
+  
+    public ListIterator<E> listIterator() {  
+        return new ListItr(0);  
+    }  
+  
+    public Iterator<E> iterator() {  
+        return new Itr();  
+    }  
+  
+    //和ArrayList.Itr一样  
+    private class Itr implements Iterator<E> {  
+        int cursor;       // index of next element to return  
+        int lastRet = -1; // index of last element returned; -1 if no such  
+        int expectedModCount = modCount;  
+  
+        public boolean hasNext() {  
+            return cursor != size;  
+        }  
+  
+        public E next() {  
+            checkForComodification();  
+            int i = cursor;  
+            if (i >= size)  
+                throw new NoSuchElementException();  
+            cursor = i + 1;  
+            return elementData(lastRet = i);  
+        }  
+  
+        public void remove() {  
+            if (lastRet < 0)  
+                throw new IllegalStateException();  
+            checkForComodification();  
+  
+            try {  
+                TieredArrayList.this.remove(lastRet);  
+                cursor = lastRet;  
+                lastRet = -1;  
+                expectedModCount = modCount;  
+            } catch (IndexOutOfBoundsException ex) {  
+                throw new ConcurrentModificationException();  
+            }  
+        }  
+  
+        final void checkForComodification() {  
+            if (modCount != expectedModCount)  
+                throw new ConcurrentModificationException();  
+        }  
+    }  
+  
+    //和ArrayList.ListItr一样  
+    private class ListItr extends Itr implements ListIterator<E> {  
+        ListItr(int index) {  
+            super();  
+            cursor = index;  
+        }  
+  
+        public boolean hasPrevious() {  
+            return cursor != 0;  
+        }  
+  
+        public int nextIndex() {  
+            return cursor;  
+        }  
+  
+        public int previousIndex() {  
+            return cursor - 1;  
+        }  
+  
+        public E previous() {  
+            checkForComodification();  
+            int i = cursor - 1;  
+            if (i < 0)  
+                throw new NoSuchElementException();  
+            cursor = i;  
+            return elementData(lastRet = i);  
+        }  
+  
+        public void set(E e) {  
+            if (lastRet < 0)  
+                throw new IllegalStateException();  
+            checkForComodification();  
+  
+            try {  
+                TieredArrayList.this.set(lastRet, e);  
+            } catch (IndexOutOfBoundsException ex) {  
+                throw new ConcurrentModificationException();  
+            }  
+        }  
+  
+        public void add(E e) {  
+            checkForComodification();  
+  
+            try {  
+                int i = cursor;  
+                TieredArrayList.this.add(i, e);  
+                cursor = i + 1;  
+                lastRet = -1;  
+                expectedModCount = modCount;  
+            } catch (IndexOutOfBoundsException ex) {  
+                throw new ConcurrentModificationException();  
+            }  
+        }  
+    }  
+}  
@@ -3,9 +3,15 @@
     2.Vector类通过维护capacity（函数）和capacityIncrement（变量）来优化存储。 
     3.capacity总是至少和vector的size一般大（capacity>=size）。 
     4.通过在向vector插入元素之前增大capacity，可以减少很大的内存分配时间。 
+    5.snapshot()、snapshotElements()不复制elementData，而是和vector共用（copy-on-write，见unshare()）； 
+      只有Vector本身这样做，子类可能直接写protected的elementData，它们的快照照旧复制一份；序列化和原来一样在锁里复制 
 */  
 package java.util;  
   
+import java.util.function.Consumer;  
+import java.util.function.Predicate;  
+import java.util.function.UnaryOperator;  
+  
 public class Vector<E>  
     extends AbstractList<E>  
     implements List<E>, RandomAccess, Cloneable, java.io.Serializable  
@@ -21,6 +27,16 @@ public class Vector<E>
     2.当capacity<=0时，vector的capacity每次需要增长时，大小翻倍 
     */  
     protected int capacityIncrement;  
+  
+    /*  
+        1.elementData可能和snapshot()、snapshotElements()，以及从快照clone()出来的vector共用，这时不能直接写  
+        2.每个会写elementData的方法先调用unshare()，第一次写时才复制一份（copy-on-write）  
+        3.只有canShare()为true（类就是Vector）时才会变成true，不依赖子类配合调用unshare()  
+    */  
+    private transient boolean shared;  
+  
+    //扩容策略，不为null时代替capacityIncrement；删除之后是否缩小也由它决定（shrinkCapacity）  
+    private transient GrowthPolicy growthPolicy;  
       
     //使用JDK 1.0.2得到的序列号  
     private static final long serialVersionUID = -2767605614048989439L;  
@@ -43,6 +59,12 @@ public class Vector<E>
         this.capacityIncrement = capacityIncrement;  
     }  
       
+    //使用指定的扩容策略，capacityIncrement不再起作用  
+    public Vector(int initialCapacity, GrowthPolicy growthPolicy) {  
+        this(initialCapacity, 0);  
+        this.growthPolicy = Objects.requireNonNull(growthPolicy);  
+    }  
+      
     //默认的capacityIncrement为0，表示vector大小需要增加时，采用double策略  
     public Vector(int initialCapacity) {  
         this(initialCapacity, 0);  
@@ -89,7 +111,43 @@ public class Vector<E>
         modCount++;  
         int oldCapacity = elementData.length;  
         if (elementCount < oldCapacity) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.shrink(oldCapacity, elementCount, elementCount);  
             elementData = Arrays.copyOf(elementData, elementCount);  
+            shared = false;  
+        }  
+    }  
+  
+    //elementData和别人共用时先复制一份，之后就可以直接写了；必须在synchronized里调用  
+    private void unshare() {  
+        if (shared) {  
+            elementData = Arrays.copyOf(elementData, elementData.length);  
+            shared = false;  
+        }  
+    }  
+  
+    //子类可能不经过unshare()直接写elementData，只有Vector本身才把elementData共用出去  
+    private boolean canShare() {  
+        return getClass() == Vector.class;  
+    }  
+  
+    //删除之后剩newCount个元素时扩容策略要求的新长度，不需要缩小时返回-1  
+    private int shrinkTarget(int newCount) {  
+        if (growthPolicy == null)  
+            return -1;  
+        int capacity = elementData.length;  
+        int newCapacity = growthPolicy.shrinkCapacity(capacity, newCount);  
+        return (newCapacity < capacity && newCapacity >= newCount) ? newCapacity : -1;  
+    }  
+  
+    //删除之后按扩容策略缩小elementData；复制出来的新数组只属于自己  
+    private void shrinkIfSparse() {  
+        int newCapacity = shrinkTarget(elementCount);  
+        if (newCapacity >= 0) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.shrink(elementData.length, newCapacity, elementCount);  
+            elementData = Arrays.copyOf(elementData, newCapacity);  
+            shared = false;  
         }  
     }  
       
@@ -99,9 +157,16 @@ public class Vector<E>
     public synchronized void ensureCapacity(int minCapacity) {  
         if (minCapacity > 0) {  
             modCount++;  
+            recordBulk(minCapacity);  
             ensureCapacityHelper(minCapacity);//函数在下面  
         }  
     }  
+  
+    //ensureCapacity、addAll一次要很多空间，告诉扩容策略  
+    private void recordBulk(int minCapacity) {  
+        if (growthPolicy != null)  
+            growthPolicy.recordBulk(elementData.length, minCapacity);  
+    }  
       
     private void ensureCapacityHelper(int minCapacity) {  
         // overflow-conscious code  
@@ -123,14 +188,23 @@ public class Vector<E>
         如果capacityIncrement>0，则新的capacity = 旧的capacity+capacityIncrement 
         否则double 
         */  
-        int newCapacity = oldCapacity + ((capacityIncrement > 0) ?  
-                                         capacityIncrement : oldCapacity);  
+        int newCapacity = (growthPolicy != null)  
+            ? growthPolicy.newCapacity(oldCapacity, minCapacity)  
+            : oldCapacity + ((capacityIncrement > 0) ?  
+                             capacityIncrement : oldCapacity);  
         if (newCapacity - minCapacity < 0)  
             newCapacity = minCapacity;  
         //如果容量过大，进行异常处理  
-        if (newCapacity - MAX_ARRAY_SIZE > 0)  
+        if (newCapacity - MAX_ARRAY_SIZE > 0) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.hugeCapacity(minCapacity);  
             newCapacity = hugeCapacity(minCapacity);//函数在下面  
+        }  
+        if (ListMetrics.ENABLED)  
+            ListMetrics.grow(oldCapacity, newCapacity, minCapacity);  
         elementData = Arrays.copyOf(elementData, newCapacity);  
+        //复制出来的新数组只属于自己  
+        shared = false;  
     }  
       
     private static int hugeCapacity(int minCapacity) {  
@@ -149,8 +223,20 @@ public class Vector<E>
         if (newSize > elementCount) {  
             ensureCapacityHelper(newSize);  
         } else {  
-            for (int i = newSize ; i < elementCount ; i++) {  
-                elementData[i] = null;  
+            //要缩小时只复制前newSize个，不用逐个置null  
+            int newCapacity = shrinkTarget(newSize);  
+            if (newCapacity >= 0) {  
+                if (ListMetrics.ENABLED)  
+                    ListMetrics.shrink(elementData.length, newCapacity, newSize);  
+                Object[] a = new Object[newCapacity];  
+                System.arraycopy(elementData, 0, a, 0, newSize);  
+                elementData = a;  
+                shared = false;  
+            } else {  
+                unshare();  
+                for (int i = newSize ; i < elementCount ; i++) {  
+                    elementData[i] = null;  
+                }  
             }  
         }  
         elementCount = newSize;  
@@ -192,6 +278,86 @@ public class Vector<E>
             }  
         };  
     }  
+  
+    /*  
+        1.elements()每个nextElement都要进一次synchronized；这里每次加锁从elementData复制batchSize个元素  
+          到自己的缓冲区，之后的nextElement只读缓冲区，加锁次数降为1/batchSize  
+        2.和elements()一样不是fail-fast的：两批之间vector被修改，下一批从原来的下标继续取，  
+          可能漏掉或者重复元素；vector变短时提前结束  
+        3.hasMoreElements在缓冲区读完时会取下一批，结果是准确的，不像elements()那样不加锁读elementCount  
+    */  
+    public Enumeration<E> elements(int batchSize) {  
+        if (batchSize <= 0)  
+            throw new IllegalArgumentException("Illegal batch size: "+  
+                                               batchSize);  
+        final int batch = batchSize;  
+        return new Enumeration<E>() {  
+            int count = 0;      // index in the vector of the next batch  
+            Object[] buffer;  
+            int pos = 0;        // next element in buffer  
+            int filled = 0;     // number of valid elements in buffer  
+  
+            public boolean hasMoreElements() {  
+                return pos < filled || fill();  
+            }  
+  
+            @SuppressWarnings("unchecked")  
+            public E nextElement() {  
+                if (pos >= filled && !fill())  
+                    throw new NoSuchElementException("Vector Enumeration");  
+                E e = (E) buffer[pos];  
+                buffer[pos++] = null;  
+                return e;  
+            }  
+  
+            //在一次synchronized里复制下一批，vector已经取完返回false  
+            private boolean fill() {  
+                synchronized (Vector.this) {  
+                    int n = Math.min(batch, elementCount - count);  
+                    if (n <= 0)  
+                        return false;  
+                    if (buffer == null || buffer.length < n)  
+                        buffer = new Object[n];  
+                    System.arraycopy(elementData, count, buffer, 0, n);  
+                    count += n;  
+                    pos = 0;  
+                    filled = n;  
+                    return true;  
+                }  
+            }  
+        };  
+    }  
+  
+    /*  
+        1.遍历调用时的快照：只在这里加一次锁，把elementData标记为shared（copy-on-write），  
+          之后的遍历不再加锁，也看不到之后的修改  
+        2.不复制数组；代价是快照之后vector第一次被修改时要复制一次elementData（见unshare()）  
+        3.子类的vector（canShare()为false）复制前elementCount个元素  
+    */  
+    public synchronized Enumeration<E> snapshotElements() {  
+        final int n = elementCount;  
+        final Object[] array;  
+        if (canShare()) {  
+            array = elementData;  
+            shared = true;  
+        } else {  
+            array = Arrays.copyOf(elementData, n);  
+        }  
+        return new Enumeration<E>() {  
+            int count = 0;  
+  
+            public boolean hasMoreElements() {  
+                return count < n;  
+            }  
+  
+            @SuppressWarnings("unchecked")  
+            public E nextElement() {  
+                if (count < n)  
+                    return (E) array[count++];  
+                throw new NoSuchElementException("Vector Enumeration");  
+            }  
+        };  
+    }  
       
     //是否包含o对象  
     public boolean contains(Object o) {  
@@ -270,6 +436,7 @@ public class Vector<E>
             throw new ArrayIndexOutOfBoundsException(index + " >= " +  
                                                      elementCount);  
         }  
+        unshare();  
         elementData[index] = obj;  
     }  
       
@@ -283,14 +450,18 @@ public class Vector<E>
         else if (index < 0) {  
             throw new ArrayIndexOutOfBoundsException(index);  
         }  
+        unshare();  
         //得到删除位置到结尾之间的距离  
         int j = elementCount - index - 1;  
+        if (ListMetrics.ENABLED)  
+            ListMetrics.shift(1, j);  
         if (j > 0) {  
             System.arraycopy(elementData, index + 1, elementData, index, j);  
         }  
         elementCount--;  
         //java中不必自己删除对象（用delete用习惯了），将对象置为null即可  
         elementData[elementCount] = null; /* to let gc do its work */  
+        shrinkIfSparse();  
     }  
       
     public synchronized void insertElementAt(E obj, int index) {  
@@ -301,6 +472,9 @@ public class Vector<E>
         }  
         //扩大vector的存储空间  
         ensureCapacityHelper(elementCount + 1);  
+        unshare();  
+        if (ListMetrics.ENABLED)  
+            ListMetrics.shift(1, elementCount - index);  
         //多了好多的拷贝时间呀  
         System.arraycopy(elementData, index, elementData, index + 1, elementCount - index);  
         elementData[index] = obj;  
@@ -311,6 +485,7 @@ public class Vector<E>
     public synchronized void addElement(E obj) {  
         modCount++;  
         ensureCapacityHelper(elementCount + 1);  
+        unshare();  
         elementData[elementCount++] = obj;  
     }  
       
@@ -328,6 +503,21 @@ public class Vector<E>
     //将对象置为null，就可以删除对象了  
     public synchronized void removeAllElements() {  
         modCount++;  
+        //要缩小时直接换一个小数组，不用逐个置null  
+        int newCapacity = shrinkTarget(0);  
+        if (newCapacity >= 0) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.shrink(elementData.length, newCapacity, 0);  
+            elementData = new Object[newCapacity];  
+            shared = false;  
+            elementCount = 0;  
+            return;  
+        }  
+        //共用的数组不能清空，直接换一个同样大的新数组，不用复制  
+        if (shared) {  
+            elementData = new Object[elementData.length];  
+            shared = false;  
+        }  
         // Let gc do its work  
         for (int i = 0; i < elementCount; i++)  
             elementData[i] = null;  
@@ -335,12 +525,20 @@ public class Vector<E>
         elementCount = 0;  
     }  
       
-    //创建并返回此对象的一个副本（不是同一个对象了）  
+    /*  
+        1.创建并返回此对象的一个副本（不是同一个对象了）  
+        2.和原来一样复制elementData，不修改这个vector的状态  
+        3.elementData已经被快照共用（shared）时不用再复制，新的vector也共用它，O(1)；谁先修改谁复制  
+    */  
     public synchronized Object clone() {  
         try {  
             @SuppressWarnings("unchecked")  
                 Vector<E> v = (Vector<E>) super.clone();  
-            v.elementData = Arrays.copyOf(elementData, elementCount);  
+            if (shared) {  
+                v.elementData = elementData;  
+            } else {  
+                v.elementData = Arrays.copyOf(elementData, elementCount);  
+            }  
             v.modCount = 0;  
             return v;  
         } catch (CloneNotSupportedException e) {  
@@ -349,6 +547,14 @@ public class Vector<E>
         }  
     }  
       
+    //返回当前内容的只读快照，O(1)；把elementData标记为shared，这个vector之后的修改会先复制数组，不影响快照；子类的vector是O(n)的复制  
+    @SuppressWarnings("unchecked")  
+    public synchronized List<E> snapshot() {  
+        if (canShare())  
+            shared = true;  
+        return Collections.unmodifiableList((List<E>) clone());  
+    }  
+  
     //得到数组的表现形式  
     public synchronized Object[] toArray() {  
         return Arrays.copyOf(elementData, elementCount);  
@@ -387,6 +593,7 @@ public class Vector<E>
             throw new ArrayIndexOutOfBoundsException(index);  
   
         E oldValue = elementData(index);  
+        unshare();  
         elementData[index] = element;  
         return oldValue;  
     }  
@@ -395,6 +602,7 @@ public class Vector<E>
     public synchronized boolean add(E e) {  
         modCount++;  
         ensureCapacityHelper(elementCount + 1);  
+        unshare();  
         elementData[elementCount++] = e;  
         return true;  
     }  
@@ -413,15 +621,19 @@ public class Vector<E>
         modCount++;  
         if (index >= elementCount)  
             throw new ArrayIndexOutOfBoundsException(index);  
+        unshare();  
         //保存旧的对象  
         E oldValue = elementData(index);  
   
         //将后面的对象往前移动  
         int numMoved = elementCount - index - 1;  
+        if (ListMetrics.ENABLED)  
+            ListMetrics.shift(1, numMoved);  
         if (numMoved > 0)  
             System.arraycopy(elementData, index+1, elementData, index,  
                              numMoved);  
         elementData[--elementCount] = null; // Let gc do its work  
+        shrinkIfSparse();  
   
         return oldValue;  
     }  
@@ -436,17 +648,60 @@ public class Vector<E>
         return super.containsAll(c);  
     }  
       
-    //将指定 Collection 中的所有元素添加到此向量的末尾，按照指定 collection 的迭代器所返回的顺序添加这些元素。  
+    /*  
+        1.将指定 Collection 中的所有元素添加到此向量的末尾，按照指定 collection 的迭代器所返回的顺序添加这些元素。  
+        2.c正好是ArrayList、Vector时直接从它的elementData复制，只有一次arraycopy；其他集合先toArray  
+        3.c是Vector时在持有this的锁的同时再锁c，和原来调用c.toArray()的加锁顺序一样  
+        4.addAll(this)时扩容、unshare之后elementData的前elementCount个元素不变，可以直接从自己复制  
+    */  
     public synchronized boolean addAll(Collection<? extends E> c) {  
-        modCount++;  
-        Object[] a = c.toArray();  
-        int numNew = a.length;  
-        ensureCapacityHelper(elementCount + numNew);  
-          
-        System.arraycopy(a, 0, elementData, elementCount, numNew);  
+        int numNew;  
+        Class<?> k = c.getClass();  
+        if (k == ArrayList.class) {  
+            ArrayList<?> src = (ArrayList<?>) c;  
+            numNew = src.size();  
+            prepareAppend(numNew);  
+            src.copyTo(0, elementData, elementCount, numNew);  
+        } else if (k == Vector.class) {  
+            Vector<?> src = (Vector<?>) c;  
+            synchronized (src) {  
+                numNew = src.elementCount;  
+                prepareAppend(numNew);  
+                System.arraycopy(src.elementData, 0, elementData, elementCount, numNew);  
+            }  
+        } else {  
+            Object[] a = c.toArray();  
+            numNew = a.length;  
+            prepareAppend(numNew);  
+            System.arraycopy(a, 0, elementData, elementCount, numNew);  
+        }  
         elementCount += numNew;  
         return numNew != 0;  
     }  
+  
+    //把src[off, off+len)接到末尾，src可以是任何类型的数组  
+    public synchronized boolean addAll(E[] src, int off, int len) {  
+        ArrayList.arrayRangeCheck(src.length, off, len);  
+        prepareAppend(len);  
+        System.arraycopy(src, off, elementData, elementCount, len);  
+        elementCount += len;  
+        return len != 0;  
+    }  
+  
+    //一次扩到最终需要的长度，不会一个一个地grow；之后可以直接写elementData[elementCount, elementCount+numNew)  
+    private void prepareAppend(int numNew) {  
+        modCount++;  
+        recordBulk(elementCount + numNew);  
+        ensureCapacityHelper(elementCount + numNew);  
+        unshare();  
+    }  
+  
+    //把[from, from+len)的元素复制到dst[off, off+len)，只加一次锁  
+    public synchronized void getRange(int from, E[] dst, int off, int len) {  
+        ArrayList.arrayRangeCheck(elementCount, from, len);  
+        ArrayList.arrayRangeCheck(dst.length, off, len);  
+        System.arraycopy(elementData, from, dst, off, len);  
+    }  
       
     public synchronized boolean removeAll(Collection<?> c) {  
         return super.removeAll(c);  
@@ -465,9 +720,13 @@ public class Vector<E>
         Object[] a = c.toArray();  
         int numNew = a.length;  
         //首先扩大容量  
+        recordBulk(elementCount + numNew);  
         ensureCapacityHelper(elementCount + numNew);  
+        unshare();  
   
         int numMoved = elementCount - index;  
+        if (ListMetrics.ENABLED)  
+            ListMetrics.shift(numNew, numMoved);  
         if (numMoved > 0)  
             System.arraycopy(elementData, index, elementData, index + numNew,  
                              numMoved);  
@@ -496,18 +755,35 @@ public class Vector<E>
     //从此 List 中移除其索引位于 fromIndex（包括）与 toIndex（不包括）之间的所有元素。  
     protected synchronized void removeRange(int fromIndex, int toIndex) {  
         modCount++;  
+        //要缩小时把两段直接复制到小数组里，不用先移动再逐个置null  
+        int newElementCount = elementCount - (toIndex-fromIndex);  
+        int newCapacity = shrinkTarget(newElementCount);  
+        if (newCapacity >= 0) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.shrink(elementData.length, newCapacity, newElementCount);  
+            Object[] a = new Object[newCapacity];  
+            System.arraycopy(elementData, 0, a, 0, fromIndex);  
+            System.arraycopy(elementData, toIndex, a, fromIndex, elementCount - toIndex);  
+            elementData = a;  
+            shared = false;  
+            elementCount = newElementCount;  
+            return;  
+        }  
+        unshare();  
         int numMoved = elementCount - toIndex;  
+        if (ListMetrics.ENABLED)  
+            ListMetrics.shift(toIndex - fromIndex, numMoved);  
         //现将后面的对象移到前面来  
         System.arraycopy(elementData, toIndex, elementData, fromIndex,  
                          numMoved);  
   
         // Let gc do its work  
-        int newElementCount = elementCount - (toIndex-fromIndex);  
         while (elementCount != newElementCount)  
             elementData[--elementCount] = null;  
     }  
       
       
+    //和原来一样在锁里复制elementData，流写数据时vector可以继续被修改  
     private void writeObject(java.io.ObjectOutputStream s)  
             throws java.io.IOException {  
         final java.io.ObjectOutputStream.PutField fields = s.putFields();  
@@ -521,6 +797,111 @@ public class Vector<E>
         s.writeFields();  
     }  
       
+    /*  
+        1.内部迭代：整个循环只进一次synchronized，不像Itr那样每个next()都要进出monitor  
+        2.elementData、elementCount读到局部变量里再循环，只在最后检查一次modCount  
+    */  
+    @SuppressWarnings("unchecked")  
+    public synchronized void forEach(Consumer<? super E> action) {  
+        Objects.requireNonNull(action);  
+        final int expectedModCount = modCount;  
+        final Object[] elementData = this.elementData;  
+        final int elementCount = this.elementCount;  
+        for (int i = 0; i < elementCount; i++)  
+            action.accept((E) elementData[i]);  
+        if (modCount != expectedModCount) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.comodified();  
+            throw new ConcurrentModificationException();  
+        }  
+    }  
+  
+    @SuppressWarnings("unchecked")  
+    public synchronized void replaceAll(UnaryOperator<E> operator) {  
+        Objects.requireNonNull(operator);  
+        final int expectedModCount = modCount;  
+        unshare();  
+        final Object[] elementData = this.elementData;  
+        final int elementCount = this.elementCount;  
+        for (int i = 0; i < elementCount; i++)  
+            elementData[i] = operator.apply((E) elementData[i]);  
+        if (modCount != expectedModCount) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.comodified();  
+            throw new ConcurrentModificationException();  
+        }  
+        modCount++;  
+    }  
+  
+    /*  
+        1.分两步：先对每个元素调用filter，把要删除的位置记在位图deathRow里；  
+          全部调用成功、并且确认filter没有修改vector之后，才按位图把保留的元素往前移  
+        2.原来的removeIf是Collection的默认实现，用Itr逐个remove，每次都要arraycopy和进出monitor  
+        3.filter抛异常或者修改了vector时还没有写过elementData，vector保持不变  
+        4.第一个要删除的元素之前只读不写，一个都不删除时不分配位图，共用的数组也不用复制  
+    */  
+    @SuppressWarnings("unchecked")  
+    public synchronized boolean removeIf(Predicate<? super E> filter) {  
+        Objects.requireNonNull(filter);  
+        final int elementCount = this.elementCount;  
+        final int expectedModCount = modCount;  
+        final Object[] es = this.elementData;  
+        int i = 0;  
+        while (i < elementCount && !filter.test((E) es[i]))  
+            i++;  
+        if (i == elementCount) {  
+            if (modCount != expectedModCount) {  
+                if (ListMetrics.ENABLED)  
+                    ListMetrics.comodified();  
+                throw new ConcurrentModificationException();  
+            }  
+            return false;  
+        }  
+        //位图的第0位对应第一个要删除的位置beg  
+        final int beg = i;  
+        final long[] deathRow = new long[((elementCount - beg - 1) >>> 6) + 1];  
+        deathRow[0] = 1L;  
+        int removed = 1;  
+        for (i = beg + 1; i < elementCount; i++) {  
+            if (filter.test((E) es[i])) {  
+                deathRow[(i - beg) >>> 6] |= 1L << (i - beg);  
+                removed++;  
+            }  
+        }  
+        //filter里修改了vector  
+        if (modCount != expectedModCount) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.comodified();  
+            throw new ConcurrentModificationException();  
+        }  
+        unshare();  
+        final Object[] elementData = this.elementData;  
+        int w = beg;  
+        for (i = beg + 1; i < elementCount; i++)  
+            if ((deathRow[(i - beg) >>> 6] & (1L << (i - beg))) == 0)  
+                elementData[w++] = elementData[i];  
+        // Let gc do its work  
+        for (i = w; i < elementCount; i++)  
+            elementData[i] = null;  
+        this.elementCount = elementCount - removed;  
+        modCount++;  
+        shrinkIfSparse();  
+        return true;  
+    }  
+  
+    @SuppressWarnings("unchecked")  
+    public synchronized void sort(Comparator<? super E> c) {  
+        final int expectedModCount = modCount;  
+        unshare();  
+        Arrays.sort((E[]) elementData, 0, elementCount, c);  
+        if (modCount != expectedModCount) {  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.comodified();  
+            throw new ConcurrentModificationException();  
+        }  
+        modCount++;  
+    }  
+  
     public synchronized ListIterator<E> listIterator(int index) {  
         if (index < 0 || index > elementCount)  
             throw new IndexOutOfBoundsException("Index: "+index);  
@@ -576,8 +957,11 @@ public class Vector<E>
         }  
   
         final void checkForComodification() {  
-            if (modCount != expectedModCount)  
+            if (modCount != expectedModCount) {  
+                if (ListMetrics.ENABLED)  
+                    ListMetrics.comodified();  
                 throw new ConcurrentModificationException();  
+            }  
         }  
     }  
   
@@ -631,4 +1015,217 @@ public class Vector<E>
             lastRet = -1;  
         }  
     }  
-      
+  
+    /*  
+        1.可以重复使用的迭代器，用法和ArrayList.Cursor一样：reset(vector)之后while (advance()) current()，  
+          遍历本身不分配任何对象；elements()、iterator()每次都要new一个Enumeration、Itr  
+        2.advance、current、remove各自在synchronized(vector)里做，和Itr.next一样；  
+          整个遍历期间不持有锁，别的线程修改了vector会在下一次advance时抛ConcurrentModificationException  
+        3.长期持有Cursor时先release()，不要让它一直引用着vector  
+        4.Cursor本身不是线程安全的，一个Cursor同一时间只能给一个线程用  
+    */  
+    public Cursor<E> cursor() {  
+        return new Cursor<E>(this);  
+    }  
+  
+    public static final class Cursor<E> {  
+        private Vector<E> list;  
+        private int cursor;       // index of next element to return  
+        private int lastRet = -1; // index of last element returned; -1 if no such  
+        private int expectedModCount;  
+  
+        //还没有绑定vector，先reset(vector)才能使用  
+        public Cursor() {  
+        }  
+  
+        //绑定vector，从头开始遍历，和new Cursor<>().reset(vector)一样  
+        public Cursor(Vector<E> list) {  
+            reset(list);  
+        }  
+  
+        //从头开始遍历vector  
+        public Cursor<E> reset(Vector<E> list) {  
+            synchronized (list) {  
+                expectedModCount = list.modCount;  
+            }  
+            this.list = list;  
+            cursor = 0;  
+            lastRet = -1;  
+            return this;  
+        }  
+  
+        //从头开始再遍历一次同一个vector  
+        public Cursor<E> reset() {  
+            return reset(list);  
+        }  
+  
+        //不再引用vector，之后要先reset(list)才能使用  
+        public void release() {  
+            list = null;  
+            lastRet = -1;  
+        }  
+  
+        //移到下一个元素，没有了返回false  
+        public boolean advance() {  
+            final Vector<E> list = this.list;  
+            synchronized (list) {  
+                if (list.modCount != expectedModCount) {  
+                    if (ListMetrics.ENABLED)  
+                        ListMetrics.comodified();  
+                    throw new ConcurrentModificationException();  
+                }  
+                int i = cursor;  
+                if (i >= list.elementCount) {  
+                    lastRet = -1;  
+                    return false;  
+                }  
+                cursor = i + 1;  
+                lastRet = i;  
+                return true;  
+            }  
+        }  
+  
+        //advance()返回true之后的当前元素  
+        public E current() {  
+            if (lastRet < 0)  
+                throw new NoSuchElementException();  
+            final Vector<E> list = this.list;  
+            synchronized (list) {  
+                if (list.modCount != expectedModCount) {  
+                    if (ListMetrics.ENABLED)  
+                        ListMetrics.comodified();  
+                    throw new ConcurrentModificationException();  
+                }  
+                return list.elementData(lastRet);  
+            }  
+        }  
+  
+        //当前元素的下标  
+        public int index() {  
+            if (lastRet < 0)  
+                throw new NoSuchElementException();  
+            return lastRet;  
+        }  
+  
+        //删除当前元素，和Itr.remove一样，之后要再advance()  
+        public void remove() {  
+            if (lastRet < 0)  
+                throw new IllegalStateException();  
+            final Vector<E> list = this.list;  
+            synchronized (list) {  
+                if (list.modCount != expectedModCount) {  
+                    if (ListMetrics.ENABLED)  
+                        ListMetrics.comodified();  
+                    throw new ConcurrentModificationException();  
+                }  
+                list.remove(lastRet);  
+                expectedModCount = list.modCount;  
+            }  
+            cursor = lastRet;  
+            lastRet = -1;  
+        }  
+    }  
+  
+    /*  
+        1.和ArrayList的spliterator一样是late-binding的，但fence、elementData、expectedModCount  
+          要在同一次synchronized里一起读出来，否则可能读到扩容前的数组和扩容后的elementCount  
+        2.forEachRemaining只进一次synchronized拿快照，之后遍历不再加锁，  
+          最后在synchronized里检查一次modCount  
+        3.拆分出来的spliterator共享同一个快照数组  
+    */  
+    public Spliterator<E> spliterator() {  
+        return new VectorSpliterator<>(this, null, 0, -1, 0);  
+    }  
+  
+    static final class VectorSpliterator<E> implements Spliterator<E> {  
+        private final Vector<E> list;  
+        private Object[] array;  
+        private int index; // current index, modified on advance/split  
+        private int fence; // -1 until used; then one past last index  
+        private int expectedModCount; // initialized when fence set  
+  
+        VectorSpliterator(Vector<E> list, Object[] array, int origin, int fence,  
+                          int expectedModCount) {  
+            this.list = list;  
+            this.array = array;  
+            this.index = origin;  
+            this.fence = fence;  
+            this.expectedModCount = expectedModCount;  
+        }  
+  
+        private int getFence() { // initialize on first use  
+            int hi;  
+            if ((hi = fence) < 0) {  
+                synchronized(list) {  
+                    array = list.elementData;  
+                    expectedModCount = list.modCount;  
+                    hi = fence = list.elementCount;  
+                }  
+            }  
+            return hi;  
+        }  
+  
+        public Spliterator<E> trySplit() {  
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;  
+            return (lo >= mid) ? null :  
+                new VectorSpliterator<E>(list, array, lo, index = mid,  
+                                         expectedModCount);  
+        }  
+  
+        @SuppressWarnings("unchecked")  
+        public boolean tryAdvance(Consumer<? super E> action) {  
+            int i;  
+            if (action == null)  
+                throw new NullPointerException();  
+            if (getFence() > (i = index)) {  
+                index = i + 1;  
+                action.accept((E)array[i]);  
+                if (list.modCount != expectedModCount) {  
+                    if (ListMetrics.ENABLED)  
+                        ListMetrics.comodified();  
+                    throw new ConcurrentModificationException();  
+                }  
+                return true;  
+            }  
+            return false;  
+        }  
+  
+        @SuppressWarnings("unchecked")  
+        public void forEachRemaining(Consumer<? super E> action) {  
+            int i, hi; // hoist accesses and checks from loop  
+            Vector<E> lst; Object[] a;  
+            if (action == null)  
+                throw new NullPointerException();  
+            if ((lst = list) != null) {  
+                if ((hi = fence) < 0) {  
+                    synchronized(lst) {  
+                        expectedModCount = lst.modCount;  
+                        a = array = lst.elementData;  
+                        hi = fence = lst.elementCount;  
+                    }  
+                }  
+                else  
+                    a = array;  
+                if (a != null && (i = index) >= 0 && (index = hi) <= a.length) {  
+                    while (i < hi)  
+                        action.accept((E) a[i++]);  
+                    synchronized(lst) {  
+                        if (lst.modCount == expectedModCount)  
+                            return;  
+                    }  
+                }  
+            }  
+            if (ListMetrics.ENABLED)  
+                ListMetrics.comodified();  
+            throw new ConcurrentModificationException();  
+        }  
+  
+        public long estimateSize() {  
+            return (long) (getFence() - index);  
+        }  
+  
+        public int characteristics() {  
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;  
+        }  
+    }  
+}  
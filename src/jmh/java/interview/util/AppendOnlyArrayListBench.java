@@ -0,0 +1,120 @@
+package interview.util;  
+  
+import java.util.AppendOnlyArrayList;  
+import java.util.Vector;  
+import java.util.concurrent.ThreadLocalRandom;  
+import java.util.concurrent.TimeUnit;  
+  
+import org.openjdk.jmh.annotations.Benchmark;  
+import org.openjdk.jmh.annotations.BenchmarkMode;  
+import org.openjdk.jmh.annotations.Fork;  
+import org.openjdk.jmh.annotations.Group;  
+import org.openjdk.jmh.annotations.GroupThreads;  
+import org.openjdk.jmh.annotations.Level;  
+import org.openjdk.jmh.annotations.Measurement;  
+import org.openjdk.jmh.annotations.Mode;  
+import org.openjdk.jmh.annotations.OutputTimeUnit;  
+import org.openjdk.jmh.annotations.Param;  
+import org.openjdk.jmh.annotations.Scope;  
+import org.openjdk.jmh.annotations.Setup;  
+import org.openjdk.jmh.annotations.State;  
+import org.openjdk.jmh.annotations.TearDown;  
+import org.openjdk.jmh.annotations.Threads;  
+import org.openjdk.jmh.annotations.Warmup;  
+  
+/*  
+    1.所有线程读同一个list，每个线程按自己的随机下标序列get：Vector的读线程都要进同一个monitor，  
+      AppendOnlyArrayList的读不加锁，用-t 1,2,4,8,16,32,64看吞吐量随线程数怎么变：  
+      Vector过了几个线程就不再增长甚至下降，AppendOnlyArrayList应该接近线性，机器的硬件线程数要不少于-t  
+    2.@Group里一个写线程一直add，3个读线程同时get，看并发追加对读的影响  
+    3.追加的元素每轮结束后删掉，Vector用setSize；AppendOnlyArrayList不能删，每轮重新建一个  
+*/  
+@BenchmarkMode(Mode.Throughput)  
+@OutputTimeUnit(TimeUnit.MICROSECONDS)  
+@Warmup(iterations = 3, time = 1)  
+@Measurement(iterations = 5, time = 1)  
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")  
+public class AppendOnlyArrayListBench {  
+  
+    @State(Scope.Benchmark)  
+    public static class Shared {  
+        @Param({"1000", "1000000"})  
+        int size;  
+  
+        AppendOnlyArrayList<Integer> appendOnly;  
+        Vector<Integer> vector;  
+  
+        @Setup(Level.Iteration)  
+        public void setup() {  
+            appendOnly = new AppendOnlyArrayList<>(size);  
+            for (int i = 0; i < size; i++)  
+                appendOnly.add(i);  
+            vector = new Vector<>(appendOnly);  
+        }  
+  
+        @TearDown(Level.Iteration)  
+        public void tearDown() {  
+            vector.setSize(size);  
+        }  
+    }  
+  
+    //每个线程自己的下标序列，读的范围只到size，不受写线程追加的影响  
+    @State(Scope.Thread)  
+    public static class ThreadState {  
+        int[] indexes;  
+        int next;  
+  
+        @Setup(Level.Trial)  
+        public void setup(Shared s) {  
+            indexes = new int[1024];  
+            for (int i = 0; i < indexes.length; i++)  
+                indexes[i] = ThreadLocalRandom.current().nextInt(s.size);  
+        }  
+  
+        int next() {  
+            int i = indexes[next];  
+            next = (next + 1) & (indexes.length - 1);  
+            return i;  
+        }  
+    }  
+  
+    @Benchmark  
+    @Threads(4)  
+    public Integer appendOnlyGet(Shared s, ThreadState t) {  
+        return s.appendOnly.get(t.next());  
+    }  
+  
+    @Benchmark  
+    @Threads(4)  
+    public Integer vectorGet(Shared s, ThreadState t) {  
+        return s.vector.get(t.next());  
+    }  
+  
+    @Benchmark  
+    @Group("appendOnly")  
+    @GroupThreads(3)  
+    public Integer appendOnlyRead(Shared s, ThreadState t) {  
+        return s.appendOnly.get(t.next());  
+    }  
+  
+    @Benchmark  
+    @Group("appendOnly")  
+    @GroupThreads(1)  
+    public boolean appendOnlyWrite(Shared s) {  
+        return s.appendOnly.add(-1);  
+    }  
+  
+    @Benchmark  
+    @Group("vector")  
+    @GroupThreads(3)  
+    public Integer vectorRead(Shared s, ThreadState t) {  
+        return s.vector.get(t.next());  
+    }  
+  
+    @Benchmark  
+    @Group("vector")  
+    @GroupThreads(1)  
+    public boolean vectorWrite(Shared s) {  
+        return s.vector.add(-1);  
+    }  
+}  
@@ -0,0 +1,75 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.concurrent.TimeUnit;  
+  
+import org.openjdk.jmh.annotations.Benchmark;  
+import org.openjdk.jmh.annotations.BenchmarkMode;  
+import org.openjdk.jmh.annotations.Fork;  
+import org.openjdk.jmh.annotations.Level;  
+import org.openjdk.jmh.annotations.Measurement;  
+import org.openjdk.jmh.annotations.Mode;  
+import org.openjdk.jmh.annotations.OutputTimeUnit;  
+import org.openjdk.jmh.annotations.Param;  
+import org.openjdk.jmh.annotations.Scope;  
+import org.openjdk.jmh.annotations.Setup;  
+import org.openjdk.jmh.annotations.State;  
+import org.openjdk.jmh.annotations.Warmup;  
+  
+/*  
+    1.ArrayList的热点路径：add、get、remove(int)、indexOf、batchRemove，规模从10到10M  
+    2.每个@Param一组数据，Level.Iteration重建，removeMiddle先删再插回，规模不变  
+    3.加-prof gc看gc.alloc.rate.norm，grow和toArray的复制都体现在这里  
+*/  
+@State(Scope.Thread)  
+@BenchmarkMode(Mode.AverageTime)  
+@OutputTimeUnit(TimeUnit.NANOSECONDS)  
+@Warmup(iterations = 3, time = 1)  
+@Measurement(iterations = 5, time = 1)  
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")  
+public class ArrayListBench {  
+  
+    @Param({"10", "1000", "100000", "10000000"})  
+    int size;  
+  
+    ArrayList<Integer> list;  
+    ArrayList<Integer> half;  
+  
+    @Setup(Level.Iteration)  
+    public void setup() {  
+        list = new ArrayList<>();  
+        for (int i = 0; i < size; i++)  
+            list.add(i);  
+        half = new ArrayList<>(list.subList(0, size / 2));  
+    }  
+  
+    @Benchmark  
+    public ArrayList<Integer> add() {  
+        ArrayList<Integer> l = new ArrayList<>();  
+        for (int i = 0; i < size; i++)  
+            l.add(i);  
+        return l;  
+    }  
+  
+    @Benchmark  
+    public Integer get() {  
+        return list.get(size >> 1);  
+    }  
+  
+    @Benchmark  
+    public int indexOf() {  
+        return list.indexOf(size - 1);  
+    }  
+  
+    @Benchmark  
+    public Integer removeMiddle() {  
+        Integer e = list.remove(size >> 1);  
+        list.add(size >> 1, e);  
+        return e;  
+    }  
+  
+    @Benchmark  
+    public boolean batchRemove() {  
+        return new ArrayList<>(list).removeAll(half);  
+    }  
+}  
@@ -0,0 +1,91 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.GrowthPolicy;  
+import java.util.Vector;  
+import java.util.concurrent.TimeUnit;  
+  
+import org.openjdk.jmh.annotations.Benchmark;  
+import org.openjdk.jmh.annotations.BenchmarkMode;  
+import org.openjdk.jmh.annotations.Fork;  
+import org.openjdk.jmh.annotations.Measurement;  
+import org.openjdk.jmh.annotations.Mode;  
+import org.openjdk.jmh.annotations.OutputTimeUnit;  
+import org.openjdk.jmh.annotations.Param;  
+import org.openjdk.jmh.annotations.Scope;  
+import org.openjdk.jmh.annotations.State;  
+import org.openjdk.jmh.annotations.Warmup;  
+  
+/*  
+    1.先加到size个元素，再从末尾删到只剩size/16个：none是不带扩容策略的list，  
+      factor是GrowthPolicy.factor(1.5)（和none一样但走了策略的调用），autoShrink在它外面包了一层自动缩小  
+    2.autoShrink在删除的过程中要复制几次数组，时间上多出来的就是这几次复制；  
+      换来的是删完之后数组只有2倍size，用-prof gc看多分配了多少字节；  
+      数组变小这一点benchmark看不出来，要用ListMetrics.shrinkSlots()或者堆直方图看  
+    3.drainToEmpty是最坏的情况，每缩小一次之后很快又满足缩小的条件  
+*/  
+@BenchmarkMode(Mode.AverageTime)  
+@OutputTimeUnit(TimeUnit.MICROSECONDS)  
+@Warmup(iterations = 3, time = 1)  
+@Measurement(iterations = 5, time = 1)  
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")  
+@State(Scope.Thread)  
+public class AutoShrinkBench {  
+  
+    @Param({"1000", "100000", "1000000"})  
+    int size;  
+  
+    @Param({"none", "factor", "autoShrink"})  
+    String policy;  
+  
+    private GrowthPolicy growthPolicy() {  
+        switch (policy) {  
+            case "factor":  
+                return GrowthPolicy.factor(1.5);  
+            case "autoShrink":  
+                return GrowthPolicy.autoShrink(GrowthPolicy.factor(1.5));  
+            default:  
+                return null;  
+        }  
+    }  
+  
+    private ArrayList<Integer> newArrayList() {  
+        GrowthPolicy p = growthPolicy();  
+        return (p == null) ? new ArrayList<>() : new ArrayList<>(10, p);  
+    }  
+  
+    private Vector<Integer> newVector() {  
+        GrowthPolicy p = growthPolicy();  
+        return (p == null) ? new Vector<>() : new Vector<>(10, p);  
+    }  
+  
+    @Benchmark  
+    public ArrayList<Integer> arrayListFillThenDrain() {  
+        ArrayList<Integer> l = newArrayList();  
+        for (int i = 0; i < size; i++)  
+            l.add(i);  
+        for (int i = size - 1; i >= (size >> 4); i--)  
+            l.remove(i);  
+        return l;  
+    }  
+  
+    @Benchmark  
+    public ArrayList<Integer> arrayListDrainToEmpty() {  
+        ArrayList<Integer> l = newArrayList();  
+        for (int i = 0; i < size; i++)  
+            l.add(i);  
+        for (int i = size - 1; i >= 0; i--)  
+            l.remove(i);  
+        return l;  
+    }  
+  
+    @Benchmark  
+    public Vector<Integer> vectorFillThenDrain() {  
+        Vector<Integer> v = newVector();  
+        for (int i = 0; i < size; i++)  
+            v.addElement(i);  
+        for (int i = size - 1; i >= (size >> 4); i--)  
+            v.removeElementAt(i);  
+        return v;  
+    }  
+}  
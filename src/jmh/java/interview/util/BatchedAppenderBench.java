@@ -0,0 +1,80 @@
+package interview.util;  
+  
+import java.util.BatchedAppender;  
+import java.util.Vector;  
+import java.util.concurrent.TimeUnit;  
+  
+import org.openjdk.jmh.annotations.Benchmark;  
+import org.openjdk.jmh.annotations.BenchmarkMode;  
+import org.openjdk.jmh.annotations.Fork;  
+import org.openjdk.jmh.annotations.Level;  
+import org.openjdk.jmh.annotations.Measurement;  
+import org.openjdk.jmh.annotations.Mode;  
+import org.openjdk.jmh.annotations.OutputTimeUnit;  
+import org.openjdk.jmh.annotations.Param;  
+import org.openjdk.jmh.annotations.Scope;  
+import org.openjdk.jmh.annotations.Setup;  
+import org.openjdk.jmh.annotations.State;  
+import org.openjdk.jmh.annotations.TearDown;  
+import org.openjdk.jmh.annotations.Threads;  
+import org.openjdk.jmh.annotations.Warmup;  
+  
+/*  
+    1.多个生产者线程往同一个Vector里追加：addElement每个元素都要抢一次Vector的锁，  
+      append先放进自己线程的缓冲区，满batchSize个才整批addAll一次  
+    2.默认8个线程，用-t 8,16,32,64改；单核机器上两边都是没有竞争的锁，差不多快，要在多核上比较  
+    3.每轮结束时flushAll，再清空vector，避免vector一轮比一轮大  
+*/  
+@BenchmarkMode(Mode.Throughput)  
+@OutputTimeUnit(TimeUnit.MICROSECONDS)  
+@Warmup(iterations = 3, time = 1)  
+@Measurement(iterations = 5, time = 1)  
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")  
+@Threads(8)  
+public class BatchedAppenderBench {  
+  
+    private static final Integer VALUE = 42;  
+  
+    @State(Scope.Benchmark)  
+    public static class Plain {  
+        Vector<Integer> vector = new Vector<>();  
+  
+        @TearDown(Level.Iteration)  
+        public void tearDown() {  
+            vector.removeAllElements();  
+            vector.trimToSize();  
+        }  
+    }  
+  
+    @State(Scope.Benchmark)  
+    public static class Batched {  
+        @Param({"64", "256", "1024"})  
+        int batchSize;  
+  
+        Vector<Integer> vector;  
+        BatchedAppender<Integer> appender;  
+  
+        @Setup(Level.Iteration)  
+        public void setup() {  
+            vector = new Vector<>();  
+            appender = new BatchedAppender<>(vector, batchSize);  
+        }  
+  
+        @TearDown(Level.Iteration)  
+        public void tearDown() {  
+            appender.flushAll();  
+            vector.removeAllElements();  
+            vector.trimToSize();  
+        }  
+    }  
+  
+    @Benchmark  
+    public void addElement(Plain s) {  
+        s.vector.addElement(VALUE);  
+    }  
+  
+    @Benchmark  
+    public void append(Batched s) {  
+        s.appender.append(VALUE);  
+    }  
+}  
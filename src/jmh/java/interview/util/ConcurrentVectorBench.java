@@ -0,0 +1,115 @@
+package interview.util;  
+  
+import java.util.ConcurrentVector;  
+import java.util.Vector;  
+import java.util.concurrent.TimeUnit;  
+  
+import org.openjdk.jmh.annotations.Benchmark;  
+import org.openjdk.jmh.annotations.BenchmarkMode;  
+import org.openjdk.jmh.annotations.Fork;  
+import org.openjdk.jmh.annotations.Group;  
+import org.openjdk.jmh.annotations.GroupThreads;  
+import org.openjdk.jmh.annotations.Level;  
+import org.openjdk.jmh.annotations.Measurement;  
+import org.openjdk.jmh.annotations.Mode;  
+import org.openjdk.jmh.annotations.OutputTimeUnit;  
+import org.openjdk.jmh.annotations.Param;  
+import org.openjdk.jmh.annotations.Scope;  
+import org.openjdk.jmh.annotations.Setup;  
+import org.openjdk.jmh.annotations.State;  
+import org.openjdk.jmh.annotations.TearDown;  
+import org.openjdk.jmh.annotations.Threads;  
+import org.openjdk.jmh.annotations.Warmup;  
+  
+/*  
+    1.ConcurrentVector和synchronized的Vector放在同样的竞争下比较，两个list都是所有线程共用的  
+    2.xxxGet、xxxAddElement是同一种操作的多个线程，用-t 1,4,16,32改线程数  
+    3.@Group的读写混合：每组3个读线程、1个写线程，Vector的读线程要和写线程抢同一个锁，  
+      ConcurrentVector的读线程不加锁，看读线程的吞吐量差多少  
+    4.ConcurrentVector不在JDK里，不能用-Pjdk跑  
+*/  
+@BenchmarkMode(Mode.AverageTime)  
+@OutputTimeUnit(TimeUnit.NANOSECONDS)  
+@Warmup(iterations = 3, time = 1)  
+@Measurement(iterations = 5, time = 1)  
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")  
+public class ConcurrentVectorBench {  
+  
+    @State(Scope.Benchmark)  
+    public static class Shared {  
+        @Param({"1000", "100000"})  
+        int size;  
+  
+        Vector<Integer> vector;  
+        ConcurrentVector<Integer> concurrent;  
+  
+        @Setup(Level.Iteration)  
+        public void setup() {  
+            vector = new Vector<>();  
+            concurrent = new ConcurrentVector<>();  
+            for (int i = 0; i < size; i++) {  
+                vector.addElement(i);  
+                concurrent.addElement(i);  
+            }  
+        }  
+  
+        //addElement一直在加，每轮结束后恢复原来的规模  
+        @TearDown(Level.Iteration)  
+        public void tearDown() {  
+            vector.setSize(size);  
+            concurrent.setSize(size);  
+        }  
+    }  
+  
+    @Benchmark  
+    @Threads(4)  
+    public Integer vectorGet(Shared s) {  
+        return s.vector.get(s.size >> 1);  
+    }  
+  
+    @Benchmark  
+    @Threads(4)  
+    public Integer concurrentGet(Shared s) {  
+        return s.concurrent.get(s.size >> 1);  
+    }  
+  
+    @Benchmark  
+    @Threads(4)  
+    public void vectorAddElement(Shared s) {  
+        s.vector.addElement(s.size);  
+    }  
+  
+    @Benchmark  
+    @Threads(4)  
+    public void concurrentAddElement(Shared s) {  
+        s.concurrent.addElement(s.size);  
+    }  
+  
+    @Benchmark  
+    @Group("vector")  
+    @GroupThreads(3)  
+    public Integer vectorRead(Shared s) {  
+        return s.vector.get(s.size >> 1);  
+    }  
+  
+    @Benchmark  
+    @Group("vector")  
+    @GroupThreads(1)  
+    public void vectorWrite(Shared s) {  
+        s.vector.addElement(s.size);  
+    }  
+  
+    @Benchmark  
+    @Group("concurrent")  
+    @GroupThreads(3)  
+    public Integer concurrentRead(Shared s) {  
+        return s.concurrent.get(s.size >> 1);  
+    }  
+  
+    @Benchmark  
+    @Group("concurrent")  
+    @GroupThreads(1)  
+    public void concurrentWrite(Shared s) {  
+        s.concurrent.addElement(s.size);  
+    }  
+}  
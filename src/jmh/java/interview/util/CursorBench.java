@@ -0,0 +1,94 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.Enumeration;  
+import java.util.Iterator;  
+import java.util.Vector;  
+import java.util.concurrent.TimeUnit;  
+  
+import org.openjdk.jmh.annotations.Benchmark;  
+import org.openjdk.jmh.annotations.BenchmarkMode;  
+import org.openjdk.jmh.annotations.Fork;  
+import org.openjdk.jmh.annotations.Level;  
+import org.openjdk.jmh.annotations.Measurement;  
+import org.openjdk.jmh.annotations.Mode;  
+import org.openjdk.jmh.annotations.OutputTimeUnit;  
+import org.openjdk.jmh.annotations.Param;  
+import org.openjdk.jmh.annotations.Scope;  
+import org.openjdk.jmh.annotations.Setup;  
+import org.openjdk.jmh.annotations.State;  
+import org.openjdk.jmh.annotations.Warmup;  
+import org.openjdk.jmh.infra.Blackhole;  
+  
+/*  
+    1.Cursor放在@State里，每次reset之后遍历一遍，不分配对象；iterator()、elements()每次遍历new一个  
+    2.迭代器交给Blackhole逃逸出去，逃逸分析不能把它消掉，这是iterator最坏的情况  
+    3.要看gc.alloc.rate.norm，用-prof gc跑；加-jvmArgs -XX:-DoEscapeAnalysis看逃逸分析失效时的情况  
+    4.Cursor每个规模都应该是0 B/op，iterator()是32 B/op，elements()是24 B/op；  
+      时间上Cursor比迭代器慢：位置存在堆上的对象里，每一步都要写一次，Vector.Cursor的advance()和current()还都要加锁，  
+      所以只在分配比遍历速度更重要的地方用Cursor  
+*/  
+@BenchmarkMode(Mode.AverageTime)  
+@OutputTimeUnit(TimeUnit.NANOSECONDS)  
+@Warmup(iterations = 3, time = 1)  
+@Measurement(iterations = 5, time = 1)  
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")  
+public class CursorBench {  
+  
+    @State(Scope.Thread)  
+    public static class Local {  
+        @Param({"10", "1000", "100000"})  
+        int size;  
+  
+        ArrayList<Integer> arrayList;  
+        Vector<Integer> vector;  
+        ArrayList.Cursor<Integer> arrayListCursor = new ArrayList.Cursor<>();  
+        Vector.Cursor<Integer> vectorCursor = new Vector.Cursor<>();  
+  
+        @Setup(Level.Trial)  
+        public void setup() {  
+            arrayList = new ArrayList<>(size);  
+            for (int i = 0; i < size; i++)  
+                arrayList.add(i);  
+            vector = new Vector<>(arrayList);  
+        }  
+    }  
+  
+    @Benchmark  
+    public long arrayListCursor(Local s) {  
+        long sum = 0;  
+        ArrayList.Cursor<Integer> c = s.arrayListCursor.reset(s.arrayList);  
+        while (c.advance())  
+            sum += c.current();  
+        return sum;  
+    }  
+  
+    @Benchmark  
+    public long arrayListIterator(Local s, Blackhole bh) {  
+        long sum = 0;  
+        Iterator<Integer> it = s.arrayList.iterator();  
+        bh.consume(it);  
+        while (it.hasNext())  
+            sum += it.next();  
+        return sum;  
+    }  
+  
+    @Benchmark  
+    public long vectorCursor(Local s) {  
+        long sum = 0;  
+        Vector.Cursor<Integer> c = s.vectorCursor.reset(s.vector);  
+        while (c.advance())  
+            sum += c.current();  
+        return sum;  
+    }  
+  
+    @Benchmark  
+    public long vectorElements(Local s, Blackhole bh) {  
+        long sum = 0;  
+        Enumeration<Integer> e = s.vector.elements();  
+        bh.consume(e);  
+        while (e.hasMoreElements())  
+            sum += e.nextElement();  
+        return sum;  
+    }  
+}  
@@ -0,0 +1,90 @@
+package interview.util;  
+  
+import java.io.ByteArrayInputStream;  
+import java.io.ByteArrayOutputStream;  
+import java.io.IOException;  
+import java.io.ObjectInputStream;  
+import java.io.ObjectOutputStream;  
+import java.util.ArrayList;  
+import java.util.ListCodec;  
+import java.util.concurrent.TimeUnit;  
+  
+import org.openjdk.jmh.annotations.Benchmark;  
+import org.openjdk.jmh.annotations.BenchmarkMode;  
+import org.openjdk.jmh.annotations.Fork;  
+import org.openjdk.jmh.annotations.Level;  
+import org.openjdk.jmh.annotations.Measurement;  
+import org.openjdk.jmh.annotations.Mode;  
+import org.openjdk.jmh.annotations.OutputTimeUnit;  
+import org.openjdk.jmh.annotations.Param;  
+import org.openjdk.jmh.annotations.Scope;  
+import org.openjdk.jmh.annotations.Setup;  
+import org.openjdk.jmh.annotations.State;  
+import org.openjdk.jmh.annotations.Warmup;  
+  
+/*  
+    1.同一个ArrayList<Integer>用ListCodec.INT_CODEC和Java序列化各写一次、读一次  
+    2.都写进ByteArrayOutputStream，比较的是编码本身，不含磁盘和网络；-prof gc看每次分配了多少  
+    3.Java序列化每个Integer都是一个对象（有引用表、类描述），ListCodec每个元素只写4个字节  
+*/  
+@BenchmarkMode(Mode.AverageTime)  
+@OutputTimeUnit(TimeUnit.MICROSECONDS)  
+@Warmup(iterations = 3, time = 1)  
+@Measurement(iterations = 5, time = 1)  
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")  
+public class ListCodecBench {  
+  
+    @State(Scope.Thread)  
+    public static class Local {  
+        @Param({"1000", "100000", "1000000"})  
+        int size;  
+  
+        ListCodec<Integer> codec = new ListCodec<>(ListCodec.INT_CODEC);  
+        ArrayList<Integer> list;  
+        byte[] encoded;  
+        byte[] serialized;  
+  
+        @Setup(Level.Trial)  
+        public void setup() throws IOException {  
+            list = new ArrayList<>(size);  
+            for (int i = 0; i < size; i++)  
+                list.add(i);  
+            ByteArrayOutputStream b = new ByteArrayOutputStream();  
+            codec.write(list, b);  
+            encoded = b.toByteArray();  
+            b = new ByteArrayOutputStream();  
+            try (ObjectOutputStream out = new ObjectOutputStream(b)) {  
+                out.writeObject(list);  
+            }  
+            serialized = b.toByteArray();  
+        }  
+    }  
+  
+    @Benchmark  
+    public byte[] codecWrite(Local s) throws IOException {  
+        ByteArrayOutputStream b = new ByteArrayOutputStream(s.encoded.length);  
+        s.codec.write(s.list, b);  
+        return b.toByteArray();  
+    }  
+  
+    @Benchmark  
+    public ArrayList<Integer> codecRead(Local s) throws IOException {  
+        return s.codec.read(new ByteArrayInputStream(s.encoded));  
+    }  
+  
+    @Benchmark  
+    public byte[] serializationWrite(Local s) throws IOException {  
+        ByteArrayOutputStream b = new ByteArrayOutputStream(s.serialized.length);  
+        try (ObjectOutputStream out = new ObjectOutputStream(b)) {  
+            out.writeObject(s.list);  
+        }  
+        return b.toByteArray();  
+    }  
+  
+    @Benchmark  
+    public Object serializationRead(Local s) throws IOException, ClassNotFoundException {  
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(s.serialized))) {  
+            return in.readObject();  
+        }  
+    }  
+}  
@@ -0,0 +1,82 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.Vector;  
+import java.util.concurrent.TimeUnit;  
+  
+import org.openjdk.jmh.annotations.Benchmark;  
+import org.openjdk.jmh.annotations.BenchmarkMode;  
+import org.openjdk.jmh.annotations.Fork;  
+import org.openjdk.jmh.annotations.Level;  
+import org.openjdk.jmh.annotations.Measurement;  
+import org.openjdk.jmh.annotations.Mode;  
+import org.openjdk.jmh.annotations.OutputTimeUnit;  
+import org.openjdk.jmh.annotations.Param;  
+import org.openjdk.jmh.annotations.Scope;  
+import org.openjdk.jmh.annotations.Setup;  
+import org.openjdk.jmh.annotations.State;  
+import org.openjdk.jmh.annotations.Warmup;  
+  
+/*  
+    1.ListMetrics.ENABLED是启动时读的static final，开关不能在同一个JVM里切换，  
+      所以xxxOff和xxxOn是同一段代码，只是各自的@Fork带不同的-Djava.util.ListMetrics.enabled  
+    2.grow：从空list追加size个元素，每次扩容都要记一次；shift：在中间插入再删除，每次都要记两次移动  
+    3.Off应该和没有ListMetrics的版本一样快（加-Pjdk可以对照），On多出来的是LongAdder和直方图的开销  
+*/  
+@BenchmarkMode(Mode.AverageTime)  
+@OutputTimeUnit(TimeUnit.NANOSECONDS)  
+@Warmup(iterations = 3, time = 1)  
+@Measurement(iterations = 5, time = 1)  
+@State(Scope.Thread)  
+public class ListMetricsBench {  
+  
+    @Param({"1000", "100000"})  
+    int size;  
+  
+    ArrayList<Integer> arrayList;  
+    Vector<Integer> vector;  
+  
+    private ArrayList<Integer> grow() {  
+        ArrayList<Integer> l = new ArrayList<>();  
+        for (int i = 0; i < size; i++)  
+            l.add(i);  
+        return l;  
+    }  
+  
+    @Setup(Level.Trial)  
+    public void setup() {  
+        arrayList = grow();  
+        vector = new Vector<>(arrayList);  
+    }  
+  
+    private Integer shift() {  
+        arrayList.add(size >> 1, -1);  
+        vector.add(size >> 1, -1);  
+        vector.remove(size >> 1);  
+        return arrayList.remove(size >> 1);  
+    }  
+  
+    @Benchmark  
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.util.ListMetrics.enabled=false"})  
+    public ArrayList<Integer> growOff() {  
+        return grow();  
+    }  
+  
+    @Benchmark  
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.util.ListMetrics.enabled=true"})  
+    public ArrayList<Integer> growOn() {  
+        return grow();  
+    }  
+  
+    @Benchmark  
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.util.ListMetrics.enabled=false"})  
+    public Integer shiftOff() {  
+        return shift();  
+    }  
+  
+    @Benchmark  
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.util.ListMetrics.enabled=true"})  
+    public Integer shiftOn() {  
+        return shift();  
+    }  
+}  
@@ -0,0 +1,92 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.Collections;  
+import java.util.Comparator;  
+import java.util.Random;  
+import java.util.concurrent.TimeUnit;  
+  
+import org.openjdk.jmh.annotations.Benchmark;  
+import org.openjdk.jmh.annotations.BenchmarkMode;  
+import org.openjdk.jmh.annotations.Fork;  
+import org.openjdk.jmh.annotations.Level;  
+import org.openjdk.jmh.annotations.Measurement;  
+import org.openjdk.jmh.annotations.Mode;  
+import org.openjdk.jmh.annotations.OutputTimeUnit;  
+import org.openjdk.jmh.annotations.Param;  
+import org.openjdk.jmh.annotations.Scope;  
+import org.openjdk.jmh.annotations.Setup;  
+import org.openjdk.jmh.annotations.State;  
+import org.openjdk.jmh.annotations.Warmup;  
+  
+/*  
+    1.sort、replaceAll、removeIf和对应的parallelXxx两两比较，数据一样，都是打乱的size个Integer  
+    2.每次调用先复制一份shuffled再修改，两边都付出同样的复制开销，size小的时候复制占的比例大  
+    3.parallelXxx用的是common pool，用-jvmArgs -Djava.util.concurrent.ForkJoinPool.common.parallelism=N改并行度，  
+      只在多核的机器上比较才有意义  
+*/  
+@BenchmarkMode(Mode.AverageTime)  
+@OutputTimeUnit(TimeUnit.MICROSECONDS)  
+@Warmup(iterations = 3, time = 1)  
+@Measurement(iterations = 5, time = 1)  
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")  
+public class ParallelBulkBench {  
+  
+    @State(Scope.Thread)  
+    public static class Local {  
+        @Param({"10000", "1000000", "10000000"})  
+        int size;  
+  
+        ArrayList<Integer> shuffled;  
+  
+        @Setup(Level.Trial)  
+        public void setup() {  
+            shuffled = new ArrayList<>(size);  
+            for (int i = 0; i < size; i++)  
+                shuffled.add(i);  
+            Collections.shuffle(shuffled, new Random(12));  
+        }  
+    }  
+  
+    @Benchmark  
+    public ArrayList<Integer> sort(Local s) {  
+        ArrayList<Integer> l = new ArrayList<>(s.shuffled);  
+        l.sort(Comparator.naturalOrder());  
+        return l;  
+    }  
+  
+    @Benchmark  
+    public ArrayList<Integer> parallelSort(Local s) {  
+        ArrayList<Integer> l = new ArrayList<>(s.shuffled);  
+        l.parallelSort(Comparator.naturalOrder());  
+        return l;  
+    }  
+  
+    @Benchmark  
+    public ArrayList<Integer> replaceAll(Local s) {  
+        ArrayList<Integer> l = new ArrayList<>(s.shuffled);  
+        l.replaceAll(x -> x ^ 0x5555);  
+        return l;  
+    }  
+  
+    @Benchmark  
+    public ArrayList<Integer> parallelReplaceAll(Local s) {  
+        ArrayList<Integer> l = new ArrayList<>(s.shuffled);  
+        l.parallelReplaceAll(x -> x ^ 0x5555);  
+        return l;  
+    }  
+  
+    @Benchmark  
+    public ArrayList<Integer> removeIf(Local s) {  
+        ArrayList<Integer> l = new ArrayList<>(s.shuffled);  
+        l.removeIf(x -> (x & 3) == 0);  
+        return l;  
+    }  
+  
+    @Benchmark  
+    public ArrayList<Integer> parallelRemoveIf(Local s) {  
+        ArrayList<Integer> l = new ArrayList<>(s.shuffled);  
+        l.parallelRemoveIf(x -> (x & 3) == 0);  
+        return l;  
+    }  
+}  
@@ -0,0 +1,101 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.PersistentVector;  
+import java.util.concurrent.TimeUnit;  
+  
+import org.openjdk.jmh.annotations.Benchmark;  
+import org.openjdk.jmh.annotations.BenchmarkMode;  
+import org.openjdk.jmh.annotations.Fork;  
+import org.openjdk.jmh.annotations.Level;  
+import org.openjdk.jmh.annotations.Measurement;  
+import org.openjdk.jmh.annotations.Mode;  
+import org.openjdk.jmh.annotations.OutputTimeUnit;  
+import org.openjdk.jmh.annotations.Param;  
+import org.openjdk.jmh.annotations.Scope;  
+import org.openjdk.jmh.annotations.Setup;  
+import org.openjdk.jmh.annotations.State;  
+import org.openjdk.jmh.annotations.Warmup;  
+  
+/*  
+    1.得到一个修改过的新版本、旧版本保持不变：PersistentVector用with/append，ArrayList只能clone再set/add  
+    2.clone复制整个数组，是O(n)；with只复制根到叶子路径上的log32(n)个节点  
+    3.get是PersistentVector多付出的代价，每层多一次数组访问；builderAppend是批量构建的路径  
+    4.-prof gc看每个新版本分配了多少字节  
+*/  
+@BenchmarkMode(Mode.AverageTime)  
+@OutputTimeUnit(TimeUnit.NANOSECONDS)  
+@Warmup(iterations = 3, time = 1)  
+@Measurement(iterations = 5, time = 1)  
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")  
+public class PersistentVectorBench {  
+  
+    @State(Scope.Thread)  
+    public static class Local {  
+        @Param({"32", "1000", "100000", "1000000"})  
+        int size;  
+  
+        ArrayList<Integer> arrayList;  
+        PersistentVector<Integer> persistent;  
+        int next;  
+  
+        @Setup(Level.Trial)  
+        public void setup() {  
+            arrayList = new ArrayList<>(size);  
+            for (int i = 0; i < size; i++)  
+                arrayList.add(i);  
+            persistent = PersistentVector.of(arrayList);  
+        }  
+  
+        //每次修改不同的位置，避免一直命中同一条路径  
+        int nextIndex() {  
+            int i = next;  
+            next = (i + 7919) % size;  
+            return i;  
+        }  
+    }  
+  
+    @Benchmark  
+    @SuppressWarnings("unchecked")  
+    public ArrayList<Integer> arrayListCloneSet(Local s) {  
+        ArrayList<Integer> l = (ArrayList<Integer>) s.arrayList.clone();  
+        l.set(s.nextIndex(), -1);  
+        return l;  
+    }  
+  
+    @Benchmark  
+    public PersistentVector<Integer> persistentWith(Local s) {  
+        return s.persistent.with(s.nextIndex(), -1);  
+    }  
+  
+    @Benchmark  
+    @SuppressWarnings("unchecked")  
+    public ArrayList<Integer> arrayListCloneAdd(Local s) {  
+        ArrayList<Integer> l = (ArrayList<Integer>) s.arrayList.clone();  
+        l.add(-1);  
+        return l;  
+    }  
+  
+    @Benchmark  
+    public PersistentVector<Integer> persistentAppend(Local s) {  
+        return s.persistent.append(-1);  
+    }  
+  
+    @Benchmark  
+    public Integer arrayListGet(Local s) {  
+        return s.arrayList.get(s.nextIndex());  
+    }  
+  
+    @Benchmark  
+    public Integer persistentGet(Local s) {  
+        return s.persistent.get(s.nextIndex());  
+    }  
+  
+    @Benchmark  
+    public PersistentVector<Integer> builderAppend(Local s) {  
+        PersistentVector.Builder<Integer> b = new PersistentVector.Builder<>();  
+        for (int i = 0; i < s.size; i++)  
+            b.add(i);  
+        return b.build();  
+    }  
+}  
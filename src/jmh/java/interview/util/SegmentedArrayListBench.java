@@ -0,0 +1,76 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.SegmentedArrayList;  
+import java.util.concurrent.TimeUnit;  
+  
+import org.openjdk.jmh.annotations.Benchmark;  
+import org.openjdk.jmh.annotations.BenchmarkMode;  
+import org.openjdk.jmh.annotations.Fork;  
+import org.openjdk.jmh.annotations.Level;  
+import org.openjdk.jmh.annotations.Measurement;  
+import org.openjdk.jmh.annotations.Mode;  
+import org.openjdk.jmh.annotations.OutputTimeUnit;  
+import org.openjdk.jmh.annotations.Param;  
+import org.openjdk.jmh.annotations.Scope;  
+import org.openjdk.jmh.annotations.Setup;  
+import org.openjdk.jmh.annotations.State;  
+import org.openjdk.jmh.annotations.Warmup;  
+  
+/*  
+    1.从空list开始追加size个元素：ArrayList每次扩容都要复制整个数组，SegmentedArrayList只加一个chunk  
+    2.用-prof gc看gc.alloc.rate.norm，ArrayList多出来的是扩容时丢掉的旧数组  
+    3.get是SegmentedArrayList多付出的代价：一次移位、一次与运算和多一次数组访问  
+*/  
+@BenchmarkMode(Mode.AverageTime)  
+@OutputTimeUnit(TimeUnit.NANOSECONDS)  
+@Warmup(iterations = 3, time = 1)  
+@Measurement(iterations = 5, time = 1)  
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")  
+public class SegmentedArrayListBench {  
+  
+    @State(Scope.Thread)  
+    public static class Local {  
+        @Param({"1000", "100000", "10000000"})  
+        int size;  
+  
+        ArrayList<Integer> arrayList;  
+        SegmentedArrayList<Integer> segmented;  
+  
+        @Setup(Level.Iteration)  
+        public void setup() {  
+            arrayList = new ArrayList<>();  
+            segmented = new SegmentedArrayList<>();  
+            for (int i = 0; i < size; i++) {  
+                arrayList.add(i);  
+                segmented.add(i);  
+            }  
+        }  
+    }  
+  
+    @Benchmark  
+    public ArrayList<Integer> arrayListAppend(Local s) {  
+        ArrayList<Integer> l = new ArrayList<>();  
+        for (int i = 0; i < s.size; i++)  
+            l.add(i);  
+        return l;  
+    }  
+  
+    @Benchmark  
+    public SegmentedArrayList<Integer> segmentedAppend(Local s) {  
+        SegmentedArrayList<Integer> l = new SegmentedArrayList<>();  
+        for (int i = 0; i < s.size; i++)  
+            l.add(i);  
+        return l;  
+    }  
+  
+    @Benchmark  
+    public Integer arrayListGet(Local s) {  
+        return s.arrayList.get(s.size >> 1);  
+    }  
+  
+    @Benchmark  
+    public Integer segmentedGet(Local s) {  
+        return s.segmented.get(s.size >> 1);  
+    }  
+}  
@@ -0,0 +1,86 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.List;  
+import java.util.Vector;  
+import java.util.concurrent.TimeUnit;  
+  
+import org.openjdk.jmh.annotations.Benchmark;  
+import org.openjdk.jmh.annotations.BenchmarkMode;  
+import org.openjdk.jmh.annotations.Fork;  
+import org.openjdk.jmh.annotations.Level;  
+import org.openjdk.jmh.annotations.Measurement;  
+import org.openjdk.jmh.annotations.Mode;  
+import org.openjdk.jmh.annotations.OutputTimeUnit;  
+import org.openjdk.jmh.annotations.Param;  
+import org.openjdk.jmh.annotations.Scope;  
+import org.openjdk.jmh.annotations.Setup;  
+import org.openjdk.jmh.annotations.State;  
+import org.openjdk.jmh.annotations.Warmup;  
+  
+/*  
+    1.stream和parallelStream都走spliterator：顺序流看forEachRemaining，并行流看trySplit切得是否均匀  
+    2.subList也有自己的spliterator，和整个list放在一起比较  
+    3.只用了JDK里也有的方法，可以加-Pjdk和原版比较  
+*/  
+@BenchmarkMode(Mode.AverageTime)  
+@OutputTimeUnit(TimeUnit.MICROSECONDS)  
+@Warmup(iterations = 3, time = 1)  
+@Measurement(iterations = 5, time = 1)  
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")  
+public class SpliteratorBench {  
+  
+    @State(Scope.Thread)  
+    public static class Local {  
+        @Param({"1000", "100000", "10000000"})  
+        int size;  
+  
+        ArrayList<Integer> arrayList;  
+        Vector<Integer> vector;  
+        List<Integer> subList;  
+  
+        @Setup(Level.Trial)  
+        public void setup() {  
+            arrayList = new ArrayList<>();  
+            for (int i = 0; i < size; i++)  
+                arrayList.add(i);  
+            vector = new Vector<>(arrayList);  
+            subList = arrayList.subList(size >> 2, size - (size >> 2));  
+        }  
+    }  
+  
+    @Benchmark  
+    public long arrayListSum(Local s) {  
+        return s.arrayList.stream().mapToLong(Integer::longValue).sum();  
+    }  
+  
+    @Benchmark  
+    public long arrayListParallelSum(Local s) {  
+        return s.arrayList.parallelStream().mapToLong(Integer::longValue).sum();  
+    }  
+  
+    @Benchmark  
+    public long arrayListParallelFilter(Local s) {  
+        return s.arrayList.parallelStream().filter(x -> (x & 7) == 0).count();  
+    }  
+  
+    @Benchmark  
+    public long subListParallelSum(Local s) {  
+        return s.subList.parallelStream().mapToLong(Integer::longValue).sum();  
+    }  
+  
+    @Benchmark  
+    public long vectorSum(Local s) {  
+        return s.vector.stream().mapToLong(Integer::longValue).sum();  
+    }  
+  
+    @Benchmark  
+    public long vectorParallelSum(Local s) {  
+        return s.vector.parallelStream().mapToLong(Integer::longValue).sum();  
+    }  
+  
+    @Benchmark  
+    public long vectorParallelFilter(Local s) {  
+        return s.vector.parallelStream().filter(x -> (x & 7) == 0).count();  
+    }  
+}  
@@ -0,0 +1,118 @@
+package interview.util;  
+  
+import java.util.Vector;  
+import java.util.concurrent.TimeUnit;  
+  
+import org.openjdk.jmh.annotations.Benchmark;  
+import org.openjdk.jmh.annotations.BenchmarkMode;  
+import org.openjdk.jmh.annotations.Fork;  
+import org.openjdk.jmh.annotations.Level;  
+import org.openjdk.jmh.annotations.Measurement;  
+import org.openjdk.jmh.annotations.Mode;  
+import org.openjdk.jmh.annotations.OutputTimeUnit;  
+import org.openjdk.jmh.annotations.Param;  
+import org.openjdk.jmh.annotations.Scope;  
+import org.openjdk.jmh.annotations.Setup;  
+import org.openjdk.jmh.annotations.State;  
+import org.openjdk.jmh.annotations.TearDown;  
+import org.openjdk.jmh.annotations.Threads;  
+import org.openjdk.jmh.annotations.Warmup;  
+  
+/*  
+    1.和ArrayListBench一样的热点路径，再加上addElement、elementAt  
+    2.Shared里的Vector是所有线程共用的（Scope.Benchmark），用-t 1,4,16,32或者@Threads  
+      看synchronized把多个线程串行化到什么程度  
+*/  
+@BenchmarkMode(Mode.AverageTime)  
+@OutputTimeUnit(TimeUnit.NANOSECONDS)  
+@Warmup(iterations = 3, time = 1)  
+@Measurement(iterations = 5, time = 1)  
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")  
+public class VectorBench {  
+  
+    @State(Scope.Thread)  
+    public static class Local {  
+        @Param({"10", "1000", "100000", "10000000"})  
+        int size;  
+  
+        Vector<Integer> vector;  
+        Vector<Integer> half;  
+  
+        @Setup(Level.Iteration)  
+        public void setup() {  
+            vector = new Vector<>();  
+            for (int i = 0; i < size; i++)  
+                vector.addElement(i);  
+            half = new Vector<>(vector.subList(0, size / 2));  
+        }  
+    }  
+  
+    //所有线程共用一个Vector  
+    @State(Scope.Benchmark)  
+    public static class Shared {  
+        @Param({"10", "1000", "100000", "10000000"})  
+        int size;  
+  
+        Vector<Integer> vector;  
+  
+        @Setup(Level.Iteration)  
+        public void setup() {  
+            vector = new Vector<>();  
+            for (int i = 0; i < size; i++)  
+                vector.addElement(i);  
+        }  
+  
+        //addElement一直在加，每轮结束后恢复原来的规模  
+        @TearDown(Level.Iteration)  
+        public void tearDown() {  
+            vector.setSize(size);  
+        }  
+    }  
+  
+    @Benchmark  
+    public Vector<Integer> addElement(Local s) {  
+        Vector<Integer> v = new Vector<>();  
+        for (int i = 0; i < s.size; i++)  
+            v.addElement(i);  
+        return v;  
+    }  
+  
+    @Benchmark  
+    public Integer elementAt(Local s) {  
+        return s.vector.elementAt(s.size >> 1);  
+    }  
+  
+    @Benchmark  
+    public Integer get(Local s) {  
+        return s.vector.get(s.size >> 1);  
+    }  
+  
+    @Benchmark  
+    public int indexOf(Local s) {  
+        return s.vector.indexOf(s.size - 1);  
+    }  
+  
+    @Benchmark  
+    public Integer removeMiddle(Local s) {  
+        Integer e = s.vector.remove(s.size >> 1);  
+        s.vector.add(s.size >> 1, e);  
+        return e;  
+    }  
+  
+    @Benchmark  
+    public boolean batchRemove(Local s) {  
+        return new Vector<>(s.vector).removeAll(s.half);  
+    }  
+  
+    @Benchmark  
+    @Threads(4)  
+    public Integer sharedElementAt(Shared s) {  
+        return s.vector.elementAt(s.size >> 1);  
+    }  
+  
+    @Benchmark  
+    @Threads(4)  
+    public void sharedAddElement(Shared s) {  
+        s.vector.addElement(s.size);  
+    }  
+}  
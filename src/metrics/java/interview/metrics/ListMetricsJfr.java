@@ -0,0 +1,133 @@
+package interview.metrics;  
+  
+import java.util.ListMetrics;  
+import jdk.jfr.Category;  
+import jdk.jfr.DataAmount;  
+import jdk.jfr.Enabled;  
+import jdk.jfr.Event;  
+import jdk.jfr.FlightRecorder;  
+import jdk.jfr.Label;  
+import jdk.jfr.Name;  
+import jdk.jfr.StackTrace;  
+  
+/*  
+    1.把java.util.ListMetrics的事件发成JFR自定义事件，在JMC里可以和GC、分配事件放在一起看，带调用栈  
+    2.放在java.base之外，java.base不用读jdk.jfr；单独放在一个类里，不用JFR的时候jdk.jfr的类不会被加载  
+    3.install()只是设置ListMetrics的Listener，ListMetrics.ENABLED为false时不会有任何事件；  
+      事件本身是否记录还要看JFR的配置（-XX:StartFlightRecording的settings或者jfc文件）  
+    4.shift事件非常多，默认不开启，需要时在配置里打开interview.metrics.ListShift  
+    5.ListConcurrentModification带调用栈，能看到是哪里的遍历发现了并发修改；只在这两个list上触发，  
+      不像jdk.JavaExceptionThrow那样记录所有异常  
+*/  
+public final class ListMetricsJfr {  
+  
+    private ListMetricsJfr() {  
+    }  
+  
+    @Name("interview.metrics.ListGrow")  
+    @Label("List Grow")  
+    @Category({"Java Application", "Collections"})  
+    @StackTrace(true)  
+    static final class GrowEvent extends Event {  
+        @Label("Old Capacity") int oldCapacity;  
+        @Label("New Capacity") int newCapacity;  
+        @Label("Min Capacity") int minCapacity;  
+        @Label("Bytes Copied") @DataAmount long bytesCopied;  
+    }  
+  
+    @Name("interview.metrics.ListShrink")  
+    @Label("List Shrink")  
+    @Category({"Java Application", "Collections"})  
+    static final class ShrinkEvent extends Event {  
+        @Label("Old Capacity") int oldCapacity;  
+        @Label("New Capacity") int newCapacity;  
+        @Label("Elements Copied") int copied;  
+    }  
+  
+    @Name("interview.metrics.ListShift")  
+    @Label("List Shift")  
+    @Category({"Java Application", "Collections"})  
+    @Enabled(false)  
+    static final class ShiftEvent extends Event {  
+        @Label("Distance") int distance;  
+        @Label("Elements Moved") int moved;  
+    }  
+  
+    @Name("interview.metrics.ListHugeCapacity")  
+    @Label("List Huge Capacity")  
+    @Category({"Java Application", "Collections"})  
+    static final class HugeCapacityEvent extends Event {  
+        @Label("Min Capacity") int minCapacity;  
+    }  
+  
+    @Name("interview.metrics.ListConcurrentModification")  
+    @Label("List Concurrent Modification")  
+    @Category({"Java Application", "Collections"})  
+    @StackTrace(true)  
+    static final class ComodificationEvent extends Event {  
+    }  
+  
+    //每个事件先看shouldCommit，没有在录制的事件不填字段也不commit  
+    private static final class JfrListener implements ListMetrics.Listener {  
+        public void grow(int oldCapacity, int newCapacity, int minCapacity) {  
+            GrowEvent e = new GrowEvent();  
+            if (e.shouldCommit()) {  
+                e.oldCapacity = oldCapacity;  
+                e.newCapacity = newCapacity;  
+                e.minCapacity = minCapacity;  
+                e.bytesCopied = ReferenceSize.bytes(oldCapacity);  
+                e.commit();  
+            }  
+        }  
+  
+        public void hugeCapacity(int minCapacity) {  
+            HugeCapacityEvent e = new HugeCapacityEvent();  
+            if (e.shouldCommit()) {  
+                e.minCapacity = minCapacity;  
+                e.commit();  
+            }  
+        }  
+  
+        public void shrink(int oldCapacity, int newCapacity, int copied) {  
+            ShrinkEvent e = new ShrinkEvent();  
+            if (e.shouldCommit()) {  
+                e.oldCapacity = oldCapacity;  
+                e.newCapacity = newCapacity;  
+                e.copied = copied;  
+                e.commit();  
+            }  
+        }  
+  
+        public void shift(int distance, int moved) {  
+            ShiftEvent e = new ShiftEvent();  
+            if (e.shouldCommit()) {  
+                e.distance = distance;  
+                e.moved = moved;  
+                e.commit();  
+            }  
+        }  
+  
+        public void comodified() {  
+            ComodificationEvent e = new ComodificationEvent();  
+            if (e.shouldCommit())  
+                e.commit();  
+        }  
+    }  
+  
+    /*  
+        1.把JFR设为ListMetrics的Listener，会替换掉原来的Listener  
+        2.JFR初始化时自己也会用到ArrayList，所以先把事件类注册好（会初始化JFR），再设置Listener，  
+          否则第一次grow时会在注册事件类的过程中又回调到这里  
+        3.ReferenceSize初始化时要查询MXBean，同样会用到ArrayList，也要在设置Listener之前初始化，  
+          否则grow事件会在它的初始化过程中读到还没赋值的BYTES（0）  
+    */  
+    public static void install() {  
+        FlightRecorder.register(GrowEvent.class);  
+        FlightRecorder.register(ShrinkEvent.class);  
+        FlightRecorder.register(ShiftEvent.class);  
+        FlightRecorder.register(HugeCapacityEvent.class);  
+        FlightRecorder.register(ComodificationEvent.class);  
+        ReferenceSize.bytes(0);  
+        ListMetrics.setListener(new JfrListener());  
+    }  
+}  
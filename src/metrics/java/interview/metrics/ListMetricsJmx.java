@@ -0,0 +1,47 @@
+package interview.metrics;  
+  
+import java.lang.management.ManagementFactory;  
+import java.util.ListMetrics;  
+import javax.management.JMException;  
+import javax.management.ObjectName;  
+  
+/*  
+    1.把java.util.ListMetrics的计数导出成MXBean，名字是interview.metrics:type=ListMetrics  
+    2.放在java.base之外，java.base不用读java.management；  
+      ListMetrics只记录位置数，这里读的时候才换算成字节  
+*/  
+public final class ListMetricsJmx {  
+  
+    public static final String OBJECT_NAME = "interview.metrics:type=ListMetrics";  
+  
+    private ListMetricsJmx() {  
+    }  
+  
+    private static final class Stats implements ListMetricsMXBean {  
+        public boolean isEnabled() { return ListMetrics.ENABLED; }  
+        public long getGrows() { return ListMetrics.grows(); }  
+        public long getGrowBytesCopied() { return ReferenceSize.bytes(ListMetrics.growSlots()); }  
+        public long getHugeCapacities() { return ListMetrics.hugeCapacities(); }  
+        public long getShrinks() { return ListMetrics.shrinks(); }  
+        public long getShrinkBytesCopied() { return ReferenceSize.bytes(ListMetrics.shrinkSlots()); }  
+        public long getShifts() { return ListMetrics.shifts(); }  
+        public long getShiftBytesCopied() { return ReferenceSize.bytes(ListMetrics.shiftSlots()); }  
+        public long getComodifications() { return ListMetrics.comodifications(); }  
+        public long[] getWastedCapacityHistogram() { return ListMetrics.wastedCapacityHistogram(); }  
+        public long[] getShiftDistanceHistogram() { return ListMetrics.shiftDistanceHistogram(); }  
+        public void reset() { ListMetrics.reset(); }  
+    }  
+  
+    private static final Stats STATS = new Stats();  
+  
+    //当前的统计值，每个值单独读取，彼此之间不是原子的  
+    public static ListMetricsMXBean stats() {  
+        return STATS;  
+    }  
+  
+    //注册到platform MBeanServer；已经注册过时抛InstanceAlreadyExistsException  
+    public static void register() throws JMException {  
+        ManagementFactory.getPlatformMBeanServer()  
+            .registerMBean(STATS, new ObjectName(OBJECT_NAME));  
+    }  
+}  
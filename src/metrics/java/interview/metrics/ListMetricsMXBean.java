@@ -0,0 +1,21 @@
+package interview.metrics;  
+  
+/*  
+    1.java.util.ListMetrics的JMX接口，getXxx成为MBean的属性  
+    2.字节数是复制的位置数乘以引用的大小（见ReferenceSize）  
+    3.直方图是long[32]，下标i对应[2^(i-1), 2^i)  
+*/  
+public interface ListMetricsMXBean {  
+    boolean isEnabled();  
+    long getGrows();  
+    long getGrowBytesCopied();  
+    long getHugeCapacities();  
+    long getShrinks();  
+    long getShrinkBytesCopied();  
+    long getShifts();  
+    long getShiftBytesCopied();  
+    long getComodifications();  
+    long[] getWastedCapacityHistogram();  
+    long[] getShiftDistanceHistogram();  
+    void reset();  
+}  
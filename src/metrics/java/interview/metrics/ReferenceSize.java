@@ -0,0 +1,35 @@
+package interview.metrics;  
+  
+import com.sun.management.HotSpotDiagnosticMXBean;  
+import java.lang.management.ManagementFactory;  
+  
+/*  
+    1.数组里每个引用占的字节数：开启压缩指针时是4，否则是8  
+    2.java.base之外读不到Unsafe.ARRAY_OBJECT_INDEX_SCALE，从HotSpot的UseCompressedOops参数推出来；  
+      不是HotSpot（没有这个参数）时按8算  
+    3.java.util.ListMetrics只记录位置数（slot），换算成字节都在这里  
+*/  
+final class ReferenceSize {  
+  
+    static final int BYTES = referenceSize();  
+  
+    private ReferenceSize() {  
+    }  
+  
+    private static int referenceSize() {  
+        HotSpotDiagnosticMXBean hotspot =  
+            ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);  
+        if (hotspot == null)  
+            return 8;  
+        try {  
+            return Boolean.parseBoolean(hotspot.getVMOption("UseCompressedOops").getValue()) ? 4 : 8;  
+        } catch (IllegalArgumentException e) {  
+            // not a HotSpot VM  
+            return 8;  
+        }  
+    }  
+  
+    static long bytes(long slots) {  
+        return slots * BYTES;  
+    }  
+}  
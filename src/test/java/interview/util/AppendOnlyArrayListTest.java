@@ -0,0 +1,70 @@
+package interview.util;  
+  
+import java.util.AppendOnlyArrayList;  
+import java.util.ArrayList;  
+import java.util.List;  
+import java.util.Random;  
+import java.util.concurrent.atomic.AtomicBoolean;  
+import java.util.concurrent.atomic.AtomicInteger;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class AppendOnlyArrayListTest {  
+  
+    /*  
+        1.一个写线程用add和addAll追加，初始容量是0，中间会扩容很多次  
+        2.读线程不加锁，看到的size以内的元素都要已经发布，subList遍历的个数也要对  
+    */  
+    @Test  
+    void readersNeverSeeUnpublishedElements() throws Exception {  
+        AppendOnlyArrayList<Integer> l = new AppendOnlyArrayList<>(0);  
+        int n = 300000;  
+        AtomicBoolean done = new AtomicBoolean();  
+        AtomicInteger errors = new AtomicInteger();  
+        List<Thread> readers = new ArrayList<>();  
+        for (int r = 0; r < 4; r++) {  
+            final long seed = r;  
+            Thread t = new Thread(() -> {  
+                Random rnd = new Random(seed);  
+                long k = 0;  
+                while (!done.get()) {  
+                    int size = l.size();  
+                    if (size == 0)  
+                        continue;  
+                    int i = rnd.nextInt(size);  
+                    Integer e = l.get(i);  
+                    if (e == null || e != i)  
+                        errors.incrementAndGet();  
+                    if ((k++ & 1023) == 0) {  
+                        int m = Math.min(size, 100), s = 0;  
+                        for (Integer x : l.subList(0, m))  
+                            s++;  
+                        if (s != m)  
+                            errors.incrementAndGet();  
+                    }  
+                }  
+            });  
+            t.start();  
+            readers.add(t);  
+        }  
+        for (int i = 0; i < n; i++) {  
+            if (i % 1000 == 0 && i > 0) {  
+                List<Integer> batch = new ArrayList<>();  
+                for (int j = 0; j < 10; j++)  
+                    batch.add(i + j);  
+                l.addAll(batch);  
+                i += 9;  
+            } else  
+                l.add(i);  
+        }  
+        done.set(true);  
+        for (Thread t : readers)  
+            t.join();  
+        assertEquals(0, errors.get());  
+        assertEquals(n, l.size());  
+        assertEquals(n - 1, l.get(n - 1));  
+        assertEquals((long) n * (n - 1) / 2, l.stream().mapToLong(x -> x).sum());  
+    }  
+}  
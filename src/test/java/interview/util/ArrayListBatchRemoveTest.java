@@ -0,0 +1,107 @@
+package interview.util;  
+  
+import java.util.AbstractCollection;  
+import java.util.ArrayList;  
+import java.util.Arrays;  
+import java.util.Collection;  
+import java.util.ConcurrentModificationException;  
+import java.util.Iterator;  
+import java.util.LinkedList;  
+import java.util.List;  
+import java.util.Random;  
+import java.util.Vector;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class ArrayListBatchRemoveTest {  
+  
+    //removeAll、retainAll的参数有ArrayList、Vector、LinkedList三种，大的会走HashSet查找  
+    @Test  
+    void matchesLinkedList() {  
+        Random r = new Random(1);  
+        for (int it = 0; it < 2000; it++) {  
+            ArrayList<Integer> l = new ArrayList<>();  
+            LinkedList<Integer> ref = new LinkedList<>();  
+            int n = r.nextInt(60);  
+            for (int i = 0; i < n; i++) {  
+                int v = r.nextInt(40);  
+                l.add(v);  
+                ref.add(v);  
+            }  
+            Collection<Integer> c = (it % 3 == 0) ? new ArrayList<>()  
+                                  : (it % 3 == 1) ? new Vector<>() : new LinkedList<>();  
+            int m = r.nextInt(40);  
+            for (int i = 0; i < m; i++)  
+                c.add(r.nextInt(40));  
+            switch (r.nextInt(3)) {  
+                case 0:  
+                    assertEquals(ref.removeAll(c), l.removeAll(c));  
+                    break;  
+                case 1:  
+                    assertEquals(ref.retainAll(c), l.retainAll(c));  
+                    break;  
+                default:  
+                    assertEquals(ref.removeIf(e -> e % 3 == 0), l.removeIf(e -> e % 3 == 0));  
+            }  
+            assertEquals(ref, l, "iteration " + it);  
+        }  
+    }  
+  
+    @Test  
+    void throwingFilterLeavesListUnchanged() {  
+        ArrayList<Integer> l = new ArrayList<>();  
+        for (int i = 0; i < 200; i++)  
+            l.add(i);  
+        List<Integer> before = new ArrayList<>(l);  
+        assertThrows(IllegalStateException.class, () -> l.removeIf(x -> {  
+            if (x == 150)  
+                throw new IllegalStateException();  
+            return x % 2 == 0;  
+        }));  
+        assertEquals(before, l);  
+  
+        List<Integer> sub = l.subList(10, 190);  
+        assertThrows(IllegalStateException.class, () -> sub.removeIf(x -> {  
+            if (x == 100)  
+                throw new IllegalStateException();  
+            return x % 2 == 0;  
+        }));  
+        assertEquals(before, l);  
+        assertEquals(180, sub.size());  
+        assertTrue(sub.removeIf(x -> x % 2 == 0));  
+        assertEquals(90, sub.size());  
+        assertEquals(110, l.size());  
+    }  
+  
+    //contains在中途抛异常的集合  
+    @Test  
+    void throwingContainsLeavesListUnchanged() {  
+        ArrayList<Integer> l = new ArrayList<>(Arrays.asList(1, 2, 3, 4, 5, 6));  
+        Collection<Integer> bad = new AbstractCollection<Integer>() {  
+            public boolean contains(Object o) {  
+                if ((Integer) o == 5)  
+                    throw new UnsupportedOperationException();  
+                return (Integer) o % 2 == 1;  
+            }  
+            public Iterator<Integer> iterator() { throw new UnsupportedOperationException(); }  
+            public int size() { return 3; }  
+        };  
+        assertThrows(UnsupportedOperationException.class, () -> l.removeAll(bad));  
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), l);  
+        assertThrows(UnsupportedOperationException.class, () -> l.retainAll(bad));  
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), l);  
+    }  
+  
+    @Test  
+    void modifyingFromFilterFailsFast() {  
+        ArrayList<Integer> l = new ArrayList<>(Arrays.asList(1, 2, 3, 4));  
+        assertThrows(ConcurrentModificationException.class, () -> l.removeIf(x -> {  
+            if (x == 2)  
+                l.add(9);  
+            return x == 1;  
+        }));  
+        assertEquals(Arrays.asList(1, 2, 3, 4, 9), l);  
+    }  
+}  
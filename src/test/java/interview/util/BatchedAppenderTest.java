@@ -0,0 +1,84 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.Arrays;  
+import java.util.BatchedAppender;  
+import java.util.List;  
+import java.util.Vector;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class BatchedAppenderTest {  
+  
+    /*  
+        1.16个生产者，一半自己flush，剩下的由flushAll追加  
+        2.每个线程的元素按append的顺序出现；每一批只有一个线程的元素，所以同一个线程的元素至少batchSize个连在一起  
+    */  
+    @Test  
+    void everyElementArrivesInPerThreadOrder() throws Exception {  
+        for (int mode = 0; mode < 2; mode++) {  
+            Vector<Long> v = new Vector<>();  
+            ArrayList<Long> al = new ArrayList<>();  
+            int batch = (mode == 0) ? 100 : 7;  
+            BatchedAppender<Long> ap = (mode == 0) ? new BatchedAppender<>(v, batch)  
+                                                   : new BatchedAppender<>(al, batch);  
+            int producers = 16, n = 50000;  
+            Thread[] ts = new Thread[producers];  
+            for (int p = 0; p < producers; p++) {  
+                final long id = p;  
+                ts[p] = new Thread(() -> {  
+                    for (int i = 0; i < n; i++)  
+                        ap.append(id << 32 | i);  
+                    if (id % 2 == 0)  
+                        ap.flush();  
+                });  
+                ts[p].start();  
+            }  
+            for (Thread t : ts)  
+                t.join();  
+            List<Long> target = (mode == 0) ? v : al;  
+            assertEquals(producers / 2 * (n % batch), ap.pending());  
+            ap.flushAll();  
+            assertEquals(0, ap.pending());  
+            assertEquals(producers * n, target.size());  
+  
+            int[] next = new int[producers];  
+            for (int i = 0; i < target.size(); ) {  
+                int p = (int) (target.get(i) >>> 32);  
+                //从一批的开头起，至少连续batch个（或者这个线程剩下的全部）都属于同一个线程  
+                int run = Math.min(batch, n - next[p]);  
+                for (int j = 0; j < run; j++, i++) {  
+                    long x = target.get(i);  
+                    assertEquals(p, (int) (x >>> 32));  
+                    assertEquals(next[p]++, (int) x);  
+                }  
+            }  
+        }  
+    }  
+  
+    //flush之后当前线程append的元素都在vector里  
+    @Test  
+    void flushPublishesOwnElements() throws Exception {  
+        Vector<Integer> v = new Vector<>();  
+        BatchedAppender<Integer> ap = new BatchedAppender<>(v);  
+        ap.append(1);  
+        ap.append(2);  
+        assertTrue(v.isEmpty());  
+        assertEquals(2, ap.pending());  
+        ap.flush();  
+        assertEquals(Arrays.asList(1, 2), v);  
+  
+        //结束了的线程剩下的元素由flushAll追加  
+        Thread t = new Thread(() -> ap.append(3));  
+        t.start();  
+        t.join();  
+        assertEquals(1, ap.pending());  
+        ap.flushAll();  
+        assertEquals(Arrays.asList(1, 2, 3), v);  
+        assertEquals(0, ap.pending());  
+  
+        assertThrows(IllegalArgumentException.class, () -> new BatchedAppender<>(v, 0));  
+    }  
+}  
@@ -0,0 +1,93 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.Arrays;  
+import java.util.HashSet;  
+import java.util.LinkedList;  
+import java.util.StampedVector;  
+import java.util.Vector;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class BulkCopyTest {  
+  
+    //addAll的参数是ArrayList、Vector、LinkedList、HashSet和自己  
+    @Test  
+    void addAllFromEveryKindOfCollection() {  
+        ArrayList<Integer> l = new ArrayList<>();  
+        Vector<Integer> v = new Vector<>();  
+        for (int i = 0; i < 100; i++) {  
+            l.add(i);  
+            v.add(i + 100);  
+        }  
+        ArrayList<Integer> x = new ArrayList<>();  
+        x.addAll(l);  
+        x.addAll(v);  
+        x.addAll(new LinkedList<>(l));  
+        x.addAll(x);  
+        assertEquals(600, x.size());  
+        assertEquals(150, x.get(150));  
+        assertEquals(50, x.get(250));  
+        assertEquals(99, x.get(599));  
+  
+        Vector<Integer> y = new Vector<>();  
+        y.addAll(l);  
+        y.addAll(v);  
+        y.addAll(y);  
+        y.addAll(new HashSet<>(Arrays.asList(7)));  
+        assertEquals(401, y.size());  
+        assertEquals(199, y.get(199));  
+        assertEquals(199, y.get(399));  
+        assertEquals(7, y.get(400));  
+    }  
+  
+    @Test  
+    void addAllFromArrayRange() {  
+        Integer[] arr = {1, 2, 3, 4, 5};  
+        ArrayList<Integer> x = new ArrayList<>();  
+        x.addAll(arr, 1, 3);  
+        assertEquals(Arrays.asList(2, 3, 4), x);  
+        Vector<Integer> y = new Vector<>();  
+        y.addAll(arr, 0, 5);  
+        assertEquals(Arrays.asList(arr), y);  
+        assertThrows(IndexOutOfBoundsException.class, () -> x.addAll(arr, 3, 3));  
+        assertThrows(IndexOutOfBoundsException.class, () -> x.addAll(arr, -1, 1));  
+  
+        StampedVector<Integer> sv = new StampedVector<>();  
+        sv.addAll(arr, 0, 5);  
+        sv.addAll(y);  
+        assertEquals(10, sv.size());  
+        assertEquals(5, sv.get(9));  
+  
+        //clone出来的list不受之后addAll的影响  
+        ArrayList<Integer> big = new ArrayList<>(200);  
+        for (int i = 0; i < 10; i++)  
+            big.add(i);  
+        @SuppressWarnings("unchecked")  
+        ArrayList<Integer> copy = (ArrayList<Integer>) big.clone();  
+        big.addAll(arr, 0, 5);  
+        assertEquals(10, copy.size());  
+        assertEquals(15, big.size());  
+    }  
+  
+    @Test  
+    void getRange() {  
+        ArrayList<Integer> l = new ArrayList<>();  
+        Vector<Integer> v = new Vector<>();  
+        for (int i = 0; i < 100; i++) {  
+            l.add(i);  
+            v.add(i + 100);  
+        }  
+        Integer[] d = new Integer[10];  
+        l.getRange(10, d, 2, 5);  
+        assertEquals(10, d[2]);  
+        assertEquals(14, d[6]);  
+        assertNull(d[7]);  
+        v.getRange(95, d, 0, 5);  
+        assertEquals(199, d[4]);  
+        assertThrows(IndexOutOfBoundsException.class, () -> l.getRange(96, d, 0, 5));  
+        assertThrows(IndexOutOfBoundsException.class, () -> v.getRange(0, d, 8, 5));  
+    }  
+}  
@@ -0,0 +1,109 @@
+package interview.util;  
+  
+import java.time.Duration;  
+import java.util.ArrayList;  
+import java.util.Arrays;  
+import java.util.ConcurrentVector;  
+import java.util.List;  
+import java.util.concurrent.CountDownLatch;  
+import java.util.concurrent.atomic.AtomicInteger;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class ConcurrentVectorTest {  
+  
+    @Test  
+    void concurrentAppendsArePublishedInOrderWithoutHoles() throws Exception {  
+        ConcurrentVector<Long> v = new ConcurrentVector<>(1);  
+        int producers = 8, n = 20000;  
+        Thread[] ts = new Thread[producers];  
+        for (int p = 0; p < producers; p++) {  
+            final long id = p;  
+            ts[p] = new Thread(() -> {  
+                for (int i = 0; i < n; i++)  
+                    v.addElement(id << 32 | i);  
+            });  
+            ts[p].start();  
+        }  
+        //读线程不加锁，任何时候看到的前size个元素都不能是null  
+        AtomicInteger holes = new AtomicInteger();  
+        Thread reader = new Thread(() -> {  
+            while (v.size() < producers * n) {  
+                int size = v.size();  
+                if (size > 0 && v.elementAt(size - 1) == null)  
+                    holes.incrementAndGet();  
+            }  
+        });  
+        reader.start();  
+        for (Thread t : ts)  
+            t.join();  
+        reader.join();  
+        assertEquals(0, holes.get());  
+        assertEquals(producers * n, v.size());  
+        int[] next = new int[producers];  
+        for (long x : v)  
+            assertEquals(next[(int) (x >>> 32)]++, (int) x);  
+    }  
+  
+    @Test  
+    void writesAreSerializedWithAppends() {  
+        ConcurrentVector<Integer> v = new ConcurrentVector<>();  
+        List<Integer> ref = new ArrayList<>();  
+        for (int i = 0; i < 100; i++) {  
+            v.add(i);  
+            ref.add(i);  
+        }  
+        v.insertElementAt(-1, 0);  
+        ref.add(0, -1);  
+        v.removeElementAt(50);  
+        ref.remove(50);  
+        v.setElementAt(7, 3);  
+        ref.set(3, 7);  
+        v.subList(10, 20).clear();  
+        ref.subList(10, 20).clear();  
+        assertEquals(ref, v);  
+        assertEquals(ref.indexOf(7), v.indexOf(7));  
+        assertEquals(ref.get(ref.size() - 1), v.lastElement());  
+    }  
+  
+    //扩容一定失败（每次要加2^30个位置），所有追加线程都要抛出OutOfMemoryError，而不是一直等下去  
+    @Test  
+    void failedGrowDoesNotHangAppenders() {  
+        ConcurrentVector<Integer> v = new ConcurrentVector<>(4, 1 << 30);  
+        v.addAll(Arrays.asList(0, 1, 2, 3));  
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {  
+            int threads = 8;  
+            AtomicInteger failures = new AtomicInteger();  
+            CountDownLatch go = new CountDownLatch(1);  
+            Thread[] ts = new Thread[threads];  
+            for (int t = 0; t < threads; t++) {  
+                ts[t] = new Thread(() -> {  
+                    try {  
+                        go.await();  
+                        v.add(42);  
+                    } catch (OutOfMemoryError e) {  
+                        failures.incrementAndGet();  
+                    } catch (InterruptedException e) {  
+                        Thread.currentThread().interrupt();  
+                    }  
+                });  
+                ts[t].start();  
+            }  
+            go.countDown();  
+            for (Thread t : ts)  
+                t.join();  
+            assertEquals(threads, failures.get());  
+  
+            //内容不变，写锁还能拿到，之后的追加重新扩容（这里还是失败）  
+            assertEquals(Arrays.asList(0, 1, 2, 3), v);  
+            v.removeElementAt(0);  
+            assertEquals(Arrays.asList(1, 2, 3), v);  
+            v.add(4);  
+            assertEquals(Arrays.asList(1, 2, 3, 4), v);  
+            assertThrows(OutOfMemoryError.class, () -> v.add(5));  
+            assertEquals(4, v.size());  
+        });  
+    }  
+}  
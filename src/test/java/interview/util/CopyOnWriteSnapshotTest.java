@@ -0,0 +1,173 @@
+package interview.util;  
+  
+import java.io.ByteArrayInputStream;  
+import java.io.ByteArrayOutputStream;  
+import java.io.ObjectInputStream;  
+import java.io.ObjectOutputStream;  
+import java.lang.reflect.Field;  
+import java.util.ArrayList;  
+import java.util.Arrays;  
+import java.util.Collection;  
+import java.util.Comparator;  
+import java.util.Enumeration;  
+import java.util.LinkedList;  
+import java.util.List;  
+import java.util.ListIterator;  
+import java.util.Random;  
+import java.util.StampedVector;  
+import java.util.Vector;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class CopyOnWriteSnapshotTest {  
+  
+    //各种修改，clone出来的list和原来的list都会被修改  
+    private static void mutate(List<Integer> l, Random r) {  
+        int n = l.size();  
+        switch (r.nextInt(15)) {  
+            case 0: l.add(r.nextInt(50)); break;  
+            case 1: if (n > 0) l.set(r.nextInt(n), r.nextInt(50)); break;  
+            case 2: if (n > 0) l.remove(r.nextInt(n)); break;  
+            case 3: l.add(n == 0 ? 0 : r.nextInt(n + 1), 7); break;  
+            case 4: if (r.nextInt(8) == 0) l.clear(); break;  
+            case 5: l.addAll(Arrays.asList(1, 2, 3)); break;  
+            case 6: l.addAll(n == 0 ? 0 : r.nextInt(n + 1), Arrays.asList(4, 5)); break;  
+            case 7: if (n > 2) l.subList(1, n - 1).clear(); break;  
+            case 8: l.removeIf(x -> x % 5 == 0); break;  
+            case 9: l.replaceAll(x -> x + 1); break;  
+            case 10: l.sort(null); break;  
+            case 11: if (n > 3) l.subList(1, 3).set(0, 99); break;  
+            case 12: l.remove((Object) Integer.valueOf(7)); break;  
+            case 13:  
+                if (n > 0) {  
+                    ListIterator<Integer> it = l.listIterator();  
+                    it.next();  
+                    it.set(42);  
+                }  
+                break;  
+            case 14:  
+                if (n > 4) {  
+                    l.subList(1, 4).sort(Comparator.reverseOrder());  
+                    l.subList(1, 4).replaceAll(x -> x * 2);  
+                    l.subList(0, 4).removeIf(x -> x % 3 == 0);  
+                }  
+                break;  
+        }  
+    }  
+  
+    /*  
+        1.随机地clone、snapshot、序列化，再随机修改原来的list和clone出来的list  
+        2.每一个clone都要和它被创建时的内容加上它自己的修改一致，snapshot则一直不变  
+    */  
+    @Test  
+    @SuppressWarnings("unchecked")  
+    void clonesAndSnapshotsAreIsolated() throws Exception {  
+        Random r = new Random(9);  
+        for (int kind = 0; kind < 3; kind++) {  
+            for (int it = 0; it < 1000; it++) {  
+                List<Integer> l = kind == 0 ? new ArrayList<>()  
+                                : kind == 1 ? new Vector<>() : new StampedVector<>();  
+                for (int i = r.nextInt(30); i > 0; i--)  
+                    l.add(r.nextInt(50));  
+                List<List<Integer>> copies = new ArrayList<>();  
+                List<List<Integer>> expected = new ArrayList<>();  
+                List<Boolean> writable = new ArrayList<>();  
+                for (int step = 0; step < 20; step++) {  
+                    if (r.nextInt(4) == 0) {  
+                        copies.add((List<Integer>) (l instanceof ArrayList  
+                            ? ((ArrayList<Integer>) l).clone() : ((Vector<Integer>) l).clone()));  
+                        expected.add(new LinkedList<>(l));  
+                        writable.add(true);  
+                    }  
+                    if (r.nextInt(6) == 0) {  
+                        copies.add(l instanceof ArrayList  
+                            ? ((ArrayList<Integer>) l).snapshot() : ((Vector<Integer>) l).snapshot());  
+                        expected.add(new LinkedList<>(l));  
+                        writable.add(false);  
+                    }  
+                    if (r.nextInt(8) == 0 && l instanceof Vector)  
+                        new ObjectOutputStream(new ByteArrayOutputStream()).writeObject(l);  
+                    mutate(l, r);  
+                    for (int c = 0; c < copies.size(); c++) {  
+                        if (writable.get(c)) {  
+                            long seed = r.nextLong();  
+                            mutate(copies.get(c), new Random(seed));  
+                            mutate(expected.get(c), new Random(seed));  
+                        }  
+                        assertEquals(expected.get(c), copies.get(c));  
+                    }  
+                }  
+            }  
+        }  
+    }  
+  
+    @Test  
+    @SuppressWarnings("unchecked")  
+    void serializedVectorIsNotAffectedByLaterWrites() throws Exception {  
+        Vector<Integer> v = new Vector<>(Arrays.asList(1, 2, 3));  
+        ByteArrayOutputStream b = new ByteArrayOutputStream();  
+        new ObjectOutputStream(b).writeObject(v);  
+        v.set(0, 9);  
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(b.toByteArray()))) {  
+            assertEquals(Arrays.asList(1, 2, 3), in.readObject());  
+        }  
+        assertEquals(Arrays.asList(9, 2, 3), v);  
+    }  
+  
+    //clone、序列化结束以后原来的list不再是shared，下一次修改不用复制；只有snapshot会标记它  
+    @Test  
+    void onlySnapshotMarksTheSourceShared() throws Exception {  
+        Field arrayListShared = ArrayList.class.getDeclaredField("shared");  
+        Field vectorShared = Vector.class.getDeclaredField("shared");  
+        arrayListShared.setAccessible(true);  
+        vectorShared.setAccessible(true);  
+  
+        ArrayList<Integer> l = new ArrayList<>(Arrays.asList(1, 2, 3));  
+        l.clone();  
+        assertFalse(arrayListShared.getBoolean(l));  
+        l.snapshot();  
+        assertTrue(arrayListShared.getBoolean(l));  
+        l.set(0, 0);  
+        assertFalse(arrayListShared.getBoolean(l));  
+  
+        Vector<Integer> v = new Vector<>(Arrays.asList(1, 2, 3));  
+        v.clone();  
+        assertFalse(vectorShared.getBoolean(v));  
+        new ObjectOutputStream(new ByteArrayOutputStream()).writeObject(v);  
+        assertFalse(vectorShared.getBoolean(v));  
+        List<Integer> s = v.snapshot();  
+        new ObjectOutputStream(new ByteArrayOutputStream()).writeObject(v);  
+        assertTrue(vectorShared.getBoolean(v));  
+        v.set(0, 0);  
+        assertEquals(Arrays.asList(1, 2, 3), s);  
+    }  
+  
+    //直接写elementData、不调用unshare()的子类  
+    static class RawVector<E> extends Vector<E> {  
+        RawVector(Collection<? extends E> c) {  
+            super(c);  
+        }  
+  
+        synchronized void rawSet(int index, E e) {  
+            elementData[index] = e;  
+        }  
+    }  
+  
+    //子类的vector不共用elementData，直接写elementData也不会影响快照  
+    @Test  
+    void subclassSnapshotsCopy() throws Exception {  
+        Field vectorShared = Vector.class.getDeclaredField("shared");  
+        vectorShared.setAccessible(true);  
+  
+        RawVector<Integer> v = new RawVector<>(Arrays.asList(1, 2, 3));  
+        List<Integer> s = v.snapshot();  
+        Enumeration<Integer> e = v.snapshotElements();  
+        assertFalse(vectorShared.getBoolean(v));  
+        v.rawSet(0, 9);  
+        assertEquals(Arrays.asList(1, 2, 3), s);  
+        assertEquals(Integer.valueOf(1), e.nextElement());  
+        assertEquals(Arrays.asList(9, 2, 3), v);  
+    }  
+}  
@@ -0,0 +1,87 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.ConcurrentModificationException;  
+import java.util.NoSuchElementException;  
+import java.util.Vector;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class CursorTest {  
+  
+    @Test  
+    void traverseAndRemove() {  
+        ArrayList<Integer> l = new ArrayList<>();  
+        Vector<Integer> v = new Vector<>();  
+        for (int i = 0; i < 100; i++) {  
+            l.add(i);  
+            v.add(i);  
+        }  
+        ArrayList.Cursor<Integer> c = l.cursor();  
+        Vector.Cursor<Integer> vc = v.cursor();  
+        long sum = 0;  
+        while (c.advance())  
+            sum += c.current();  
+        while (vc.advance())  
+            sum += vc.current();  
+        assertEquals(9900, sum);  
+  
+        //同一个Cursor再遍历一次，用Cursor自己的remove删除  
+        c.reset();  
+        while (c.advance())  
+            if (c.current() % 2 == 0)  
+                c.remove();  
+        vc.reset();  
+        while (vc.advance())  
+            if (vc.current() % 2 == 0)  
+                vc.remove();  
+        assertEquals(50, l.size());  
+        assertEquals(50, v.size());  
+        assertEquals(1, l.get(0));  
+        assertEquals(99, v.get(49));  
+    }  
+  
+    //构造时绑定list，和cursor()、new Cursor<>().reset(list)一样  
+    @Test  
+    void constructors() {  
+        ArrayList<String> l = new ArrayList<>();  
+        l.add("a");  
+        Vector<String> v = new Vector<>();  
+        v.add("b");  
+        ArrayList.Cursor<String> c = new ArrayList.Cursor<>(l);  
+        assertTrue(c.advance());  
+        assertEquals("a", c.current());  
+        assertFalse(c.advance());  
+        Vector.Cursor<String> vc = new Vector.Cursor<>(v);  
+        assertTrue(vc.advance());  
+        assertEquals("b", vc.current());  
+        assertFalse(vc.advance());  
+  
+        //没有绑定list的Cursor先reset(list)  
+        ArrayList.Cursor<String> unbound = new ArrayList.Cursor<>();  
+        assertThrows(NoSuchElementException.class, () -> unbound.reset(l).current());  
+        assertThrows(NullPointerException.class, () -> new ArrayList.Cursor<String>(null));  
+        Vector.Cursor<String> vunbound = new Vector.Cursor<>();  
+        assertTrue(vunbound.reset(v).advance());  
+    }  
+  
+    @Test  
+    void failFast() {  
+        ArrayList<Integer> l = new ArrayList<>();  
+        Vector<Integer> v = new Vector<>();  
+        for (int i = 0; i < 10; i++) {  
+            l.add(i);  
+            v.add(i);  
+        }  
+        ArrayList.Cursor<Integer> c = new ArrayList.Cursor<>(l);  
+        c.advance();  
+        l.add(1);  
+        assertThrows(ConcurrentModificationException.class, c::advance);  
+        Vector.Cursor<Integer> vc = new Vector.Cursor<>(v);  
+        vc.advance();  
+        v.add(1);  
+        assertThrows(ConcurrentModificationException.class, vc::current);  
+    }  
+}  
@@ -0,0 +1,178 @@
+package interview.util;  
+  
+import java.lang.reflect.Field;  
+import java.util.ArrayList;  
+import java.util.GrowthPolicy;  
+import java.util.LinkedList;  
+import java.util.List;  
+import java.util.Vector;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class GrowthPolicyTest {  
+  
+    //每种policy从capacity 0开始add、addAll，内容要和LinkedList一样  
+    @Test  
+    void everyPolicyKeepsTheContents() {  
+        GrowthPolicy[] policies = {  
+            GrowthPolicy.factor(1.25), GrowthPolicy.fixedStep(3),  
+            GrowthPolicy.powerOfTwo(), GrowthPolicy.adaptive()  
+        };  
+        for (GrowthPolicy p : policies) {  
+            ArrayList<Integer> l = new ArrayList<>(0, p);  
+            Vector<Integer> v = new Vector<>(0, p);  
+            List<Integer> ref = new LinkedList<>();  
+            for (int i = 0; i < 5000; i++) {  
+                l.add(i);  
+                v.add(i);  
+                ref.add(i);  
+            }  
+            l.addAll(ref);  
+            v.addAll(0, ref);  
+            assertEquals(10000, l.size());  
+            assertEquals(10000, v.size());  
+            assertEquals(ref, l.subList(0, 5000));  
+            assertEquals(ref, v.subList(5000, 10000));  
+            assertTrue(v.capacity() >= 10000);  
+        }  
+        assertEquals(16, GrowthPolicy.powerOfTwo().newCapacity(10, 9));  
+        assertEquals(13, GrowthPolicy.fixedStep(3).newCapacity(10, 11));  
+    }  
+  
+    //一个list要过很大的容量之后，同一个adaptive policy的list长大时直接扩到peak，小list不受影响  
+    @Test  
+    void adaptiveLearnsThePeak() {  
+        GrowthPolicy.Adaptive ad = (GrowthPolicy.Adaptive) GrowthPolicy.adaptive();  
+        new Vector<Integer>(10, ad).ensureCapacity(1000000);  
+        assertEquals(1000000, ad.peak());  
+        Vector<Integer> v = new Vector<>(10, ad);  
+        //翻倍、1.5倍长到peak的1/8以上之后，下一次扩容直接到peak  
+        int grows = 0;  
+        for (int i = 0; i < 1000000; i++) {  
+            int capacity = v.capacity();  
+            v.add(i);  
+            if (v.capacity() != capacity)  
+                grows++;  
+        }  
+        assertEquals(1000000, v.capacity());  
+        assertEquals(16, grows);  
+        Vector<Integer> tiny = new Vector<>(10, ad);  
+        for (int i = 0; i < 50; i++)  
+            tiny.add(i);  
+        assertTrue(tiny.capacity() < 1000);  
+    }  
+  
+    //f特别大时增量不能溢出成负数，要扩到最大，而不是只扩到minCapacity  
+    @Test  
+    void hugeFactorDoesNotOverflow() {  
+        for (double f : new double[]{1e10, 1e30, Double.MAX_VALUE, Double.POSITIVE_INFINITY}) {  
+            GrowthPolicy p = GrowthPolicy.factor(f);  
+            assertEquals(Integer.MAX_VALUE, p.newCapacity(10, 11));  
+            assertEquals(Integer.MAX_VALUE, p.newCapacity(Integer.MAX_VALUE - 1, Integer.MAX_VALUE));  
+            assertEquals(1, p.newCapacity(0, 1));  
+        }  
+        assertEquals(15, GrowthPolicy.factor(1.5).newCapacity(10, 11));  
+        assertEquals(Integer.MAX_VALUE, GrowthPolicy.factor(1.5).newCapacity(Integer.MAX_VALUE - 8, 0));  
+        assertThrows(IllegalArgumentException.class, () -> GrowthPolicy.factor(1.0));  
+        assertThrows(IllegalArgumentException.class, () -> GrowthPolicy.factor(Double.NaN));  
+    }  
+  
+    /*  
+        1.元素少于capacity的1/4时缩小到2倍size，remove、removeRange、removeIf、clear都会触发  
+        2.缩小以后要再删掉一半才会再缩小  
+    */  
+    @Test  
+    @SuppressWarnings("unchecked")  
+    void autoShrinkArrayList() throws Exception {  
+        GrowthPolicy.AutoShrink p = GrowthPolicy.autoShrink(GrowthPolicy.factor(1.5));  
+        ArrayList<Integer> l = new ArrayList<>(10, p);  
+        for (int i = 0; i < 100000; i++)  
+            l.add(i);  
+        l.subList(100, 100000).clear();  
+        assertEquals(100, l.size());  
+        assertEquals(200, capacity(l));  
+        for (int i = 0; i < 100; i++)  
+            assertEquals(i, l.get(i));  
+        l.removeIf(x -> x >= 40);  
+        assertEquals(40, l.size());  
+        assertEquals(80, capacity(l));  
+        while (l.size() > 20)  
+            l.remove(l.size() - 1);  
+        assertEquals(80, capacity(l));  
+        l.remove(Integer.valueOf(5));  
+        assertEquals(38, capacity(l));  
+        ArrayList<Integer> copy = (ArrayList<Integer>) l.clone();  
+        l.clear();  
+        assertEquals(16, capacity(l));  
+        assertEquals(19, copy.size());  
+        assertEquals(19, copy.get(18));  
+  
+        ArrayList<Integer> big = new ArrayList<>(10, p);  
+        for (int i = 0; i < 100000; i++)  
+            big.add(i);  
+        big.parallelRemoveIf(x -> x % 100 != 0);  
+        assertEquals(1000, big.size());  
+        assertEquals(2000, capacity(big));  
+        assertEquals(99900, big.get(999));  
+  
+        //reclaimedBytes按数组里引用的大小换算  
+        assertTrue(p.shrinks() > 0);  
+        long slots = p.reclaimedSlots();  
+        assertTrue(p.reclaimedBytes() == slots * 4 || p.reclaimedBytes() == slots * 8);  
+  
+        //默认的policy不缩小  
+        ArrayList<Integer> d = new ArrayList<>();  
+        for (int i = 0; i < 1000; i++)  
+            d.add(i);  
+        int c = capacity(d);  
+        d.clear();  
+        assertEquals(c, capacity(d));  
+    }  
+  
+    @Test  
+    @SuppressWarnings("unchecked")  
+    void autoShrinkVector() throws Exception {  
+        GrowthPolicy.AutoShrink p = GrowthPolicy.autoShrink(GrowthPolicy.factor(1.5));  
+        Vector<Integer> v = new Vector<>(10, p);  
+        for (int i = 0; i < 10000; i++)  
+            v.add(i);  
+        Vector<Integer> copy = (Vector<Integer>) v.clone();  
+        v.setSize(10);  
+        assertEquals(10, v.size());  
+        assertEquals(20, capacity(v));  
+        assertEquals(10000, copy.size());  
+        assertEquals(9999, copy.get(9999));  
+        v.setSize(15);  
+        assertNull(v.get(12));  
+        v.setSize(0);  
+        v.setSize(0);  
+  
+        for (int i = 0; i < 1000; i++)  
+            v.add(i);  
+        v.removeIf(x -> x > 3);  
+        assertEquals(4, v.size());  
+        assertEquals(16, capacity(v));  
+  
+        for (int i = 0; i < 1000; i++)  
+            v.add(i);  
+        v.subList(2, 1000).clear();  
+        assertEquals(6, v.size());  
+        assertEquals(996, v.get(2));  
+        assertEquals(999, v.get(5));  
+        assertEquals(16, capacity(v));  
+  
+        for (int i = 0; i < 1000; i++)  
+            v.add(i);  
+        v.removeAllElements();  
+        assertEquals(16, capacity(v));  
+    }  
+  
+    private static int capacity(Object list) throws Exception {  
+        Class<?> c = (list instanceof Vector) ? Vector.class : ArrayList.class;  
+        Field f = c.getDeclaredField("elementData");  
+        f.setAccessible(true);  
+        return ((Object[]) f.get(list)).length;  
+    }  
+}  
@@ -0,0 +1,146 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.Arrays;  
+import java.util.IndexedArrayList;  
+import java.util.List;  
+import java.util.Random;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class IndexedArrayListTest {  
+  
+    /*  
+        1.每一步修改之后都查询一次，索引要么被增量维护，要么被丢掉重建，结果都要和ArrayList一样  
+        2.list在几十到几百个元素之间，插入删除的位置随机，离末尾近的走增量维护，离得远的丢掉索引  
+    */  
+    @Test  
+    void queriesMatchLinearScanAfterEveryEdit() {  
+        Random r = new Random(8);  
+        IndexedArrayList<Integer> l = new IndexedArrayList<>();  
+        List<Integer> ref = new ArrayList<>();  
+        for (int i = 0; i < 100; i++) {  
+            int v = r.nextInt(40);  
+            l.add(v);  
+            ref.add(v);  
+        }  
+        for (int step = 0; step < 20000; step++) {  
+            int n = ref.size();  
+            int v = r.nextInt(40);  
+            switch (r.nextInt(7)) {  
+                case 0:  
+                    l.add(v);  
+                    ref.add(v);  
+                    break;  
+                case 1:  
+                    int i = r.nextInt(n + 1);  
+                    l.add(i, v);  
+                    ref.add(i, v);  
+                    break;  
+                case 2:  
+                    if (n > 0) {  
+                        int j = r.nextInt(n);  
+                        assertEquals(ref.remove(j), l.remove(j));  
+                    }  
+                    break;  
+                case 3:  
+                    if (n > 0) {  
+                        int j = r.nextInt(n);  
+                        assertEquals(ref.set(j, v), l.set(j, v));  
+                    }  
+                    break;  
+                case 4:  
+                    assertEquals(ref.remove((Object) v), l.remove((Object) v));  
+                    break;  
+                case 5:  
+                    if (n > 10) {  
+                        int from = r.nextInt(n - 10);  
+                        int to = from + 1 + r.nextInt(10);  
+                        l.subList(from, to).clear();  
+                        ref.subList(from, to).clear();  
+                    }  
+                    break;  
+                case 6:  
+                    if (n > 300) {  
+                        l.subList(0, n / 2).clear();  
+                        ref.subList(0, n / 2).clear();  
+                    }  
+                    break;  
+            }  
+            int q = r.nextInt(40);  
+            assertEquals(ref.indexOf(q), l.indexOf(q));  
+            assertEquals(ref.lastIndexOf(q), l.lastIndexOf(q));  
+            assertEquals(ref.contains(q), l.contains(q));  
+        }  
+        assertEquals(ref, l);  
+    }  
+  
+    @Test  
+    void bulkOperationsRebuildTheIndex() {  
+        IndexedArrayList<String> l = new IndexedArrayList<>(Arrays.asList("a", "b", "c", "b"));  
+        assertEquals(3, l.lastIndexOf("b"));  
+        l.removeAll(Arrays.asList("b"));  
+        assertEquals(-1, l.indexOf("b"));  
+        l.addAll(0, Arrays.asList("c", "d"));  
+        assertEquals(0, l.indexOf("c"));  
+        assertEquals(3, l.lastIndexOf("c"));  
+        l.subList(1, 3).set(0, "z");  
+        assertEquals(1, l.indexOf("z"));  
+        assertFalse(l.contains("d"));  
+    }  
+  
+    //加入list之后hashCode还会变的元素  
+    static final class Key {  
+        int k;  
+  
+        Key(int k) {  
+            this.k = k;  
+        }  
+  
+        public boolean equals(Object o) {  
+            return o instanceof Key && ((Key) o).k == k;  
+        }  
+  
+        public int hashCode() {  
+            return k;  
+        }  
+    }  
+  
+    //索引里找不到元素时丢掉索引，修改照常完成，之后的查询按现在的hashCode重建  
+    @Test  
+    void mutatedElementsDropTheIndex() {  
+        List<Key> keys = new ArrayList<>();  
+        for (int i = 0; i < 10; i++)  
+            keys.add(new Key(i));  
+  
+        IndexedArrayList<Key> l = new IndexedArrayList<>(keys);  
+        assertEquals(5, l.indexOf(new Key(5)));  
+        keys.get(5).k = 50;  
+        assertEquals(keys.get(5), l.remove(5));  
+        assertEquals(5, l.indexOf(new Key(6)));  
+  
+        l = new IndexedArrayList<>(keys);  
+        assertEquals(6, l.indexOf(new Key(6)));  
+        keys.get(7).k = 70;  
+        l.add(2, new Key(100));  
+        assertEquals(3, l.indexOf(new Key(2)));  
+        assertEquals(8, l.indexOf(new Key(70)));  
+  
+        l = new IndexedArrayList<>(keys);  
+        assertEquals(0, l.indexOf(new Key(0)));  
+        keys.get(3).k = 30;  
+        assertEquals(keys.get(3), l.set(3, new Key(3)));  
+        assertEquals(3, l.indexOf(new Key(3)));  
+        assertFalse(l.contains(new Key(30)));  
+  
+        l = new IndexedArrayList<>(keys);  
+        assertEquals(0, l.indexOf(new Key(0)));  
+        keys.get(8).k = 80;  
+        l.subList(1, 4).clear();  
+        assertEquals(5, l.indexOf(new Key(80)));  
+        assertEquals(-1, l.indexOf(new Key(2)));  
+        assertEquals(7, l.size());  
+    }  
+}  
@@ -0,0 +1,139 @@
+package interview.util;  
+  
+import java.io.ByteArrayInputStream;  
+import java.io.ByteArrayOutputStream;  
+import java.io.IOException;  
+import java.io.InvalidClassException;  
+import java.io.ObjectInputFilter;  
+import java.io.ObjectInputStream;  
+import java.io.ObjectOutputStream;  
+import java.io.StreamCorruptedException;  
+import java.nio.ByteBuffer;  
+import java.util.ArrayList;  
+import java.util.Arrays;  
+import java.util.Date;  
+import java.util.LazyArrayList;  
+import java.util.List;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class LazyArrayListTest {  
+  
+    @Test  
+    @SuppressWarnings("unchecked")  
+    void decodesOnDemand() throws Exception {  
+        List<Object> src = new ArrayList<>();  
+        for (int i = 0; i < 1000; i++)  
+            src.add(i % 5 == 0 ? null : i % 2 == 0 ? "s" + i : new Date(i));  
+        LazyArrayList<Object> l = (LazyArrayList<Object>) roundTrip(new LazyArrayList<>(src));  
+        assertEquals(1000, l.size());  
+        assertEquals(1000, l.undecodedCount());  
+        assertEquals("s2", l.get(2));  
+        assertEquals(999, l.undecodedCount());  
+  
+        //没解码的元素直接复制字节；末尾add不用解码  
+        LazyArrayList<Object> l2 = (LazyArrayList<Object>) roundTrip(l);  
+        l2.add("end");  
+        assertEquals(1000, l2.undecodedCount());  
+        l2.set(7, "x");  
+        List<Object> expected = new ArrayList<>(src);  
+        expected.add("end");  
+        expected.set(7, "x");  
+        assertEquals(expected, l2);  
+        assertEquals(0, l2.undecodedCount());  
+  
+        //中间插入先materialize  
+        l.add(3, "ins");  
+        assertEquals(0, l.undecodedCount());  
+        l.remove(3);  
+        assertEquals(src, l);  
+  
+        LazyArrayList<Object> e = (LazyArrayList<Object>) roundTrip(new LazyArrayList<>());  
+        e.add(1);  
+        assertEquals(1, e.size());  
+    }  
+  
+    //每个元素单独序列化，同一个对象出现两次，回来以后是两个对象  
+    @Test  
+    @SuppressWarnings("unchecked")  
+    void sharedReferencesAreNotPreserved() throws Exception {  
+        Date d = new Date(42);  
+        LazyArrayList<Date> l = (LazyArrayList<Date>) roundTrip(new LazyArrayList<>(Arrays.asList(d, d)));  
+        assertEquals(l.get(0), l.get(1));  
+        assertNotSame(l.get(0), l.get(1));  
+    }  
+  
+    //外层流的filter在get时同样生效  
+    @Test  
+    @SuppressWarnings("unchecked")  
+    void lazyDecodeAppliesTheStreamFilter() throws Exception {  
+        byte[] bytes = serialize(new LazyArrayList<>(Arrays.asList("a", new Date(1))));  
+        LazyArrayList<Object> l;  
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {  
+            in.setObjectInputFilter(ObjectInputFilter.Config.createFilter("!java.util.Date"));  
+            l = (LazyArrayList<Object>) in.readObject();  
+        }  
+        assertEquals("a", l.get(0));  
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> l.get(1));  
+        assertInstanceOf(InvalidClassException.class, ex.getCause());  
+    }  
+  
+    //把偏移数组[0, a, b]改成不从0开始、不单调的  
+    @Test  
+    void rejectsCorruptOffsets() throws Exception {  
+        byte[] bytes = serialize(new LazyArrayList<>(Arrays.asList("a", "bb")));  
+        int a = serialize("a").length, b = a + serialize("bb").length;  
+        int at = indexOf(bytes, ints(0, a, b));  
+        assertTrue(at > 0);  
+  
+        byte[] notFromZero = bytes.clone();  
+        System.arraycopy(ints(1, a, b), 0, notFromZero, at, 12);  
+        assertThrows(StreamCorruptedException.class, () -> deserialize(notFromZero));  
+  
+        byte[] decreasing = bytes.clone();  
+        System.arraycopy(ints(0, b, a), 0, decreasing, at, 12);  
+        assertThrows(StreamCorruptedException.class, () -> deserialize(decreasing));  
+  
+        byte[] negative = bytes.clone();  
+        System.arraycopy(ints(0, -4, b), 0, negative, at, 12);  
+        assertThrows(StreamCorruptedException.class, () -> deserialize(negative));  
+    }  
+  
+    private static Object roundTrip(Object o) throws Exception {  
+        return deserialize(serialize(o));  
+    }  
+  
+    private static byte[] serialize(Object o) throws IOException {  
+        ByteArrayOutputStream b = new ByteArrayOutputStream();  
+        ObjectOutputStream out = new ObjectOutputStream(b);  
+        out.writeObject(o);  
+        out.flush();  
+        return b.toByteArray();  
+    }  
+  
+    private static Object deserialize(byte[] bytes) throws Exception {  
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {  
+            return in.readObject();  
+        }  
+    }  
+  
+    private static byte[] ints(int... xs) {  
+        ByteBuffer b = ByteBuffer.allocate(xs.length * 4);  
+        for (int x : xs)  
+            b.putInt(x);  
+        return b.array();  
+    }  
+  
+    private static int indexOf(byte[] a, byte[] key) {  
+        outer:  
+        for (int i = 0; i + key.length <= a.length; i++) {  
+            for (int j = 0; j < key.length; j++)  
+                if (a[i + j] != key[j])  
+                    continue outer;  
+            return i;  
+        }  
+        return -1;  
+    }  
+}  
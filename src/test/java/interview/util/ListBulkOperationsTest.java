@@ -0,0 +1,103 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.Arrays;  
+import java.util.Comparator;  
+import java.util.ConcurrentModificationException;  
+import java.util.LinkedList;  
+import java.util.List;  
+import java.util.Random;  
+import java.util.StampedVector;  
+import java.util.Vector;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class ListBulkOperationsTest {  
+  
+    //forEach、replaceAll、removeIf、sort在list本身和两层subList上都要和LinkedList一样  
+    @Test  
+    void matchesLinkedList() {  
+        Random r = new Random(3);  
+        for (int it = 0; it < 3000; it++) {  
+            List<Integer> l = (it % 3 == 0) ? new ArrayList<>()  
+                            : (it % 3 == 1) ? new Vector<>() : new StampedVector<>();  
+            List<Integer> ref = new LinkedList<>();  
+            int n = r.nextInt(50);  
+            for (int i = 0; i < n; i++) {  
+                int v = r.nextInt(30);  
+                l.add(v);  
+                ref.add(v);  
+            }  
+            List<Integer> L = l, R = ref;  
+            if (n > 10 && r.nextBoolean()) {  
+                int f = r.nextInt(5), t = n - r.nextInt(5);  
+                L = l.subList(f, t);  
+                R = ref.subList(f, t);  
+                if (r.nextBoolean()) {  
+                    L = L.subList(1, L.size() - 1);  
+                    R = R.subList(1, R.size() - 1);  
+                }  
+            }  
+            int k = r.nextInt(30);  
+            switch (r.nextInt(4)) {  
+                case 0:  
+                    assertEquals(R.removeIf(x -> x < k), L.removeIf(x -> x < k));  
+                    break;  
+                case 1:  
+                    L.replaceAll(x -> x * 2 + k);  
+                    R.replaceAll(x -> x * 2 + k);  
+                    break;  
+                case 2:  
+                    L.sort(Comparator.reverseOrder());  
+                    R.sort(Comparator.reverseOrder());  
+                    break;  
+                case 3:  
+                    long[] s = {0}, t = {0};  
+                    L.forEach(x -> s[0] += x);  
+                    R.forEach(x -> t[0] += x);  
+                    assertEquals(t[0], s[0]);  
+                    break;  
+            }  
+            assertEquals(R, L);  
+            assertEquals(ref, l);  
+        }  
+    }  
+  
+    @Test  
+    void modifyingFromActionFailsFast() {  
+        ArrayList<Integer> x = new ArrayList<>(Arrays.asList(1, 2, 3));  
+        assertThrows(ConcurrentModificationException.class, () -> x.forEach(e -> x.add(1)));  
+        Vector<Integer> v = new Vector<>(Arrays.asList(1, 2, 3));  
+        assertThrows(ConcurrentModificationException.class, () -> v.removeIf(e -> v.add(1)));  
+    }  
+  
+    //removeIf先算出所有要删除的位置，filter失败时vector不变  
+    @Test  
+    void vectorRemoveIfIsAllOrNothing() {  
+        Vector<Integer> v = new Vector<>();  
+        for (int i = 0; i < 200; i++)  
+            v.add(i);  
+        List<Integer> before = new ArrayList<>(v);  
+        assertThrows(IllegalStateException.class, () -> v.removeIf(x -> {  
+            if (x == 150)  
+                throw new IllegalStateException();  
+            return x % 2 == 0;  
+        }));  
+        assertEquals(before, v);  
+  
+        //第一个要删除的元素之后才修改vector，也不能留下压缩了一半的结果  
+        assertThrows(ConcurrentModificationException.class, () -> v.removeIf(x -> {  
+            if (x == 100)  
+                v.add(-1);  
+            return x % 3 == 0;  
+        }));  
+        before.add(-1);  
+        assertEquals(before, v);  
+  
+        assertTrue(v.removeIf(x -> x % 2 == 0));  
+        assertEquals(101, v.size());  
+        assertFalse(v.removeIf(x -> x % 2 == 0));  
+    }  
+}  
@@ -0,0 +1,114 @@
+package interview.util;  
+  
+import java.io.ByteArrayInputStream;  
+import java.io.ByteArrayOutputStream;  
+import java.io.DataOutputStream;  
+import java.io.IOException;  
+import java.io.StreamCorruptedException;  
+import java.nio.channels.Channels;  
+import java.util.ArrayList;  
+import java.util.Arrays;  
+import java.util.LinkedList;  
+import java.util.List;  
+import java.util.ListCodec;  
+import java.util.Vector;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class ListCodecTest {  
+  
+    private static final int MAGIC = 0x4C535431;  
+  
+    //0个、1个、刚好一个chunk、多个chunk，三种list写出来再读回来要相等，流后面的字节不能被读掉  
+    @Test  
+    void roundTrip() throws IOException {  
+        ListCodec<String> c = new ListCodec<>(ListCodec.STRING_CODEC, 7);  
+        for (int n : new int[]{0, 1, 7, 8, 1000}) {  
+            Vector<String> v = new Vector<>();  
+            ArrayList<String> l = new ArrayList<>();  
+            LinkedList<String> k = new LinkedList<>();  
+            for (int i = 0; i < n; i++) {  
+                String s = i % 10 == 0 ? null : "sé" + i;  
+                v.add(s);  
+                l.add(s);  
+                k.add(s);  
+            }  
+            for (List<String> src : Arrays.<List<String>>asList(v, l, k)) {  
+                ByteArrayOutputStream bo = new ByteArrayOutputStream();  
+                c.write(src, bo);  
+                bo.write(1);  
+                ByteArrayInputStream bi = new ByteArrayInputStream(bo.toByteArray());  
+                assertEquals(src, c.read(bi));  
+                assertEquals(1, bi.read());  
+                assertEquals(n, ListCodec.skip(new ByteArrayInputStream(bo.toByteArray())));  
+  
+                //写到channel的字节和写到stream的一样  
+                ByteArrayOutputStream bo2 = new ByteArrayOutputStream();  
+                c.write(src, Channels.newChannel(bo2));  
+                assertArrayEquals(Arrays.copyOf(bo.toByteArray(), bo.size() - 1), bo2.toByteArray());  
+            }  
+        }  
+    }  
+  
+    @Test  
+    void readIntoExistingVector() throws IOException {  
+        ListCodec<Integer> c = new ListCodec<>(ListCodec.INT_CODEC);  
+        Vector<Integer> v = new Vector<>();  
+        for (int i = 0; i < 5000; i++)  
+            v.add(i);  
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();  
+        c.write(v, bo);  
+        Vector<Integer> into = new Vector<>(Arrays.asList(-1));  
+        c.read(new ByteArrayInputStream(bo.toByteArray()), into);  
+        assertEquals(5001, into.size());  
+        assertEquals(v, into.subList(1, 5001));  
+    }  
+  
+    //头部的size不可信：声称有Integer.MAX_VALUE个元素，实际只有两个，不能按size预先分配  
+    @Test  
+    void hugeSizeDoesNotPreallocate() throws IOException {  
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();  
+        DataOutputStream out = new DataOutputStream(bo);  
+        out.writeInt(MAGIC);  
+        out.writeInt(Integer.MAX_VALUE);  
+        out.writeInt(2);  
+        out.writeInt(8);  
+        out.writeInt(10);  
+        out.writeInt(20);  
+        out.writeInt(0);  
+        ListCodec<Integer> c = new ListCodec<>(ListCodec.INT_CODEC);  
+        assertEquals(Arrays.asList(10, 20), c.read(new ByteArrayInputStream(bo.toByteArray())));  
+  
+        //into里已经有元素，再加上size会溢出  
+        ArrayList<Integer> into = new ArrayList<>(Arrays.asList(1));  
+        assertThrows(StreamCorruptedException.class,  
+                     () -> c.read(new ByteArrayInputStream(bo.toByteArray()), into));  
+    }  
+  
+    @Test  
+    void rejectsCorruptStreams() throws IOException {  
+        ListCodec<Integer> c = new ListCodec<>(ListCodec.INT_CODEC);  
+        //负的size  
+        assertThrows(StreamCorruptedException.class, () -> c.read(stream(-1, 1, 4, 7)));  
+        //chunk的length和实际解码的字节数不一致  
+        assertThrows(StreamCorruptedException.class, () -> c.read(stream(1, 1, 5, 7)));  
+        assertThrows(StreamCorruptedException.class, () -> c.read(stream(2, 2, 4, 7, 8)));  
+        //负的count、length  
+        assertThrows(StreamCorruptedException.class, () -> c.read(stream(1, -1, 4, 7)));  
+        assertThrows(StreamCorruptedException.class, () -> c.read(stream(1, 1, -4, 7)));  
+        assertEquals(Arrays.asList(7), c.read(stream(1, 1, 4, 7)));  
+    }  
+  
+    //MAGIC之后依次写ints，最后写结束标记0  
+    private static ByteArrayInputStream stream(int... ints) throws IOException {  
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();  
+        DataOutputStream out = new DataOutputStream(bo);  
+        out.writeInt(MAGIC);  
+        for (int x : ints)  
+            out.writeInt(x);  
+        out.writeInt(0);  
+        return new ByteArrayInputStream(bo.toByteArray());  
+    }  
+}  
@@ -0,0 +1,189 @@
+package interview.util;  
+  
+import interview.metrics.ListMetricsJfr;  
+import interview.metrics.ListMetricsJmx;  
+import interview.metrics.ListMetricsMXBean;  
+import java.lang.management.ManagementFactory;  
+import java.nio.file.Path;  
+import java.util.ArrayList;  
+import java.util.ConcurrentModificationException;  
+import java.util.Iterator;  
+import java.util.List;  
+import java.util.ListMetrics;  
+import java.util.Spliterator;  
+import java.util.Vector;  
+import javax.management.MBeanServer;  
+import javax.management.ObjectName;  
+import jdk.jfr.Recording;  
+import jdk.jfr.consumer.RecordedEvent;  
+import jdk.jfr.consumer.RecordingFile;  
+  
+import org.junit.jupiter.api.AfterEach;  
+import org.junit.jupiter.api.BeforeEach;  
+import org.junit.jupiter.api.Test;  
+import org.junit.jupiter.api.io.TempDir;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+import static org.junit.jupiter.api.Assumptions.assumeTrue;  
+  
+//build.gradle给测试打开了-Djava.util.ListMetrics.enabled=true；别的线程也会用ArrayList，只按下限检查总数  
+class ListMetricsTest {  
+  
+    @TempDir  
+    Path dir;  
+  
+    @BeforeEach  
+    void enabled() {  
+        assumeTrue(ListMetrics.ENABLED);  
+    }  
+  
+    @AfterEach  
+    void removeListener() {  
+        ListMetrics.setListener(null);  
+    }  
+  
+    //只记录当前线程的事件  
+    @Test  
+    void listenerSeesShiftsOfThisThread() {  
+        final Thread self = Thread.currentThread();  
+        final List<int[]> shifts = new ArrayList<>();  
+        final int[] grows = {0};  
+        ListMetrics.setListener(new ListMetrics.Listener() {  
+            public void grow(int oldCapacity, int newCapacity, int minCapacity) {  
+                if (Thread.currentThread() == self)  
+                    grows[0]++;  
+            }  
+            public void shift(int distance, int moved) {  
+                if (Thread.currentThread() == self)  
+                    shifts.add(new int[]{distance, moved});  
+            }  
+        });  
+        ArrayList<Integer> l = new ArrayList<>();  
+        for (int i = 0; i < 1000; i++)  
+            l.add(i);  
+        l.add(0, -1);  
+        l.remove(500);  
+        Vector<Integer> v = new Vector<>();  
+        for (int i = 0; i < 1000; i++)  
+            v.add(i);  
+        v.insertElementAt(5, 0);  
+        ListMetrics.setListener(null);  
+  
+        assertTrue(grows[0] > 0);  
+        assertEquals(3, shifts.size());  
+        assertArrayEquals(new int[]{1, 1000}, shifts.get(0));  
+        assertArrayEquals(new int[]{1, 500}, shifts.get(1));  
+        assertArrayEquals(new int[]{1, 1000}, shifts.get(2));  
+    }  
+  
+    //每一种fail-fast检查抛出ConcurrentModificationException之前都要记一次  
+    @Test  
+    void comodificationsAreCounted() {  
+        final Thread self = Thread.currentThread();  
+        final int[] seen = {0};  
+        ListMetrics.setListener(new ListMetrics.Listener() {  
+            public void comodified() {  
+                if (Thread.currentThread() == self)  
+                    seen[0]++;  
+            }  
+        });  
+        long before = ListMetrics.comodifications();  
+  
+        ArrayList<Integer> l = new ArrayList<>();  
+        Vector<Integer> v = new Vector<>();  
+        for (int i = 0; i < 10; i++) {  
+            l.add(i);  
+            v.add(i);  
+        }  
+        Iterator<Integer> it = l.iterator();  
+        l.add(10);  
+        assertThrows(ConcurrentModificationException.class, it::next);  
+  
+        List<Integer> sub = l.subList(2, 5);  
+        l.add(11);  
+        assertThrows(ConcurrentModificationException.class, sub::size);  
+  
+        ArrayList.Cursor<Integer> c = new ArrayList.Cursor<>(l);  
+        l.add(12);  
+        assertThrows(ConcurrentModificationException.class, c::advance);  
+  
+        Spliterator<Integer> sp = l.spliterator();  
+        assertThrows(ConcurrentModificationException.class,  
+                     () -> sp.forEachRemaining(x -> l.add(x)));  
+  
+        assertThrows(ConcurrentModificationException.class, () -> l.forEach(x -> l.add(x)));  
+  
+        Iterator<Integer> vi = v.iterator();  
+        v.add(10);  
+        assertThrows(ConcurrentModificationException.class, vi::next);  
+  
+        Vector.Cursor<Integer> vc = new Vector.Cursor<>(v);  
+        v.add(11);  
+        assertThrows(ConcurrentModificationException.class, vc::advance);  
+  
+        assertThrows(ConcurrentModificationException.class, () -> v.forEach(x -> v.add(x)));  
+        ListMetrics.setListener(null);  
+  
+        assertEquals(8, seen[0]);  
+        assertTrue(ListMetrics.comodifications() - before >= 8);  
+        assertTrue(ListMetricsJmx.stats().getComodifications() >= 8);  
+    }  
+  
+    @Test  
+    void countersAndJmx() throws Exception {  
+        ListMetrics.reset();  
+        ArrayList<Integer> l = new ArrayList<>();  
+        for (int i = 0; i < 1000; i++)  
+            l.add(i);  
+        l.add(0, -1);  
+        l.trimToSize();  
+        assertTrue(ListMetrics.grows() > 0);  
+        assertTrue(ListMetrics.growSlots() > 0);  
+        assertTrue(ListMetrics.shifts() >= 1);  
+        assertTrue(ListMetrics.shiftSlots() >= 1000);  
+        assertTrue(ListMetrics.shrinks() >= 1);  
+        assertEquals(ListMetrics.BUCKETS, ListMetrics.shiftDistanceHistogram().length);  
+        assertTrue(ListMetrics.shiftDistanceHistogram()[1] >= 1);  
+  
+        //MXBean把位置数换算成字节，每个位置4或8字节  
+        ListMetricsMXBean stats = ListMetricsJmx.stats();  
+        assertTrue(stats.isEnabled());  
+        long slots = ListMetrics.shiftSlots(), bytes = stats.getShiftBytesCopied();  
+        assertTrue(bytes >= slots * 4 && bytes % 4 == 0, bytes + " for " + slots);  
+  
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();  
+        ObjectName name = new ObjectName(ListMetricsJmx.OBJECT_NAME);  
+        ListMetricsJmx.register();  
+        try {  
+            assertTrue((Long) server.getAttribute(name, "Grows") > 0);  
+            server.invoke(name, "reset", null, null);  
+            assertTrue(ListMetrics.grows() < 1000);  
+        } finally {  
+            server.unregisterMBean(name);  
+        }  
+    }  
+  
+    @Test  
+    void jfrEvents() throws Exception {  
+        ListMetricsJfr.install();  
+        Path file = dir.resolve("list.jfr");  
+        try (Recording r = new Recording()) {  
+            r.enable("interview.metrics.ListGrow");  
+            r.start();  
+            ArrayList<Integer> l = new ArrayList<>();  
+            for (int i = 0; i < 100; i++)  
+                l.add(i);  
+            r.stop();  
+            r.dump(file);  
+        }  
+        //没有enable的事件类型（比如ListShrink）默认也是打开的，只看ListGrow  
+        int grows = 0;  
+        for (RecordedEvent e : RecordingFile.readAllEvents(file)) {  
+            if (e.getEventType().getName().equals("interview.metrics.ListGrow")) {  
+                grows++;  
+                assertTrue(e.getLong("bytesCopied") >= 4L * e.getInt("oldCapacity"));  
+            }  
+        }  
+        assertTrue(grows > 0);  
+    }  
+}  
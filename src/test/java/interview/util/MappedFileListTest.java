@@ -0,0 +1,110 @@
+package interview.util;  
+  
+import java.io.IOException;  
+import java.io.StreamCorruptedException;  
+import java.io.UncheckedIOException;  
+import java.nio.ByteBuffer;  
+import java.nio.channels.FileChannel;  
+import java.nio.file.Path;  
+import java.nio.file.StandardOpenOption;  
+import java.util.Arrays;  
+import java.util.MappedFileList;  
+import java.util.OffHeapArrayList;  
+  
+import org.junit.jupiter.api.Test;  
+import org.junit.jupiter.api.io.TempDir;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class MappedFileListTest {  
+  
+    @TempDir  
+    Path dir;  
+  
+    @Test  
+    void reopenReadsWhatWasWritten() throws IOException {  
+        Path d = dir.resolve("f.dat"), v = dir.resolve("v.dat"), vi = dir.resolve("vi.dat");  
+        MappedFileList<Long> f = MappedFileList.create(d, OffHeapArrayList.LONG_CODEC);  
+        MappedFileList<String> s = MappedFileList.create(v, vi, MappedFileList.STRING_CODEC);  
+        for (int i = 0; i < 200000; i++) {  
+            f.add((long) i * i);  
+            s.add("x" + i + (i % 3 == 0 ? "ééé" : ""));  
+        }  
+        f.set(5, -1L);  
+        f.close();  
+        s.close();  
+  
+        MappedFileList<Long> g = MappedFileList.open(d, OffHeapArrayList.LONG_CODEC, true);  
+        MappedFileList<String> r = MappedFileList.open(v, vi, MappedFileList.STRING_CODEC, true);  
+        assertEquals(200000, g.size());  
+        assertEquals(-1L, g.get(5));  
+        assertEquals(199999L * 199999L, g.get(199999));  
+        assertEquals("x3ééé", r.get(3));  
+        assertEquals("x199999", r.get(199999));  
+        assertEquals(Arrays.asList("x10", "x11"), r.subList(10, 12));  
+        assertThrows(UnsupportedOperationException.class, () -> r.add("z"));  
+        r.close();  
+        g.close();  
+  
+        //可写地打开，接着追加  
+        MappedFileList<String> w = MappedFileList.open(v, vi, MappedFileList.STRING_CODEC, false);  
+        w.add("last");  
+        w.close();  
+        w = MappedFileList.open(v, vi, MappedFileList.STRING_CODEC, true);  
+        assertEquals(200001, w.size());  
+        assertEquals("last", w.get(200000));  
+        w.close();  
+    }  
+  
+    //头部的size超过文件长度，open就要失败；width很大时size*width超过int，也不能绕过检查  
+    @Test  
+    void rejectsSizeBeyondFileLength() throws IOException {  
+        Path d = dir.resolve("f.dat");  
+        MappedFileList<Long> f = MappedFileList.create(d, OffHeapArrayList.LONG_CODEC);  
+        f.add(1L);  
+        f.close();  
+        putInt(d, 8, 1 << 20);  
+        assertThrows(StreamCorruptedException.class,  
+                     () -> MappedFileList.open(d, OffHeapArrayList.LONG_CODEC, true));  
+  
+        OffHeapArrayList.Codec<Long> wide = new OffHeapArrayList.Codec<Long>() {  
+            public int width() { return 1 << 20; }  
+            public void encode(Long e, ByteBuffer dst) { dst.putLong(e); }  
+            public Long decode(ByteBuffer src) { return src.getLong(); }  
+        };  
+        Path w = dir.resolve("w.dat");  
+        MappedFileList.create(w, wide).close();  
+        putInt(w, 8, 1 << 12);  
+        assertThrows(StreamCorruptedException.class, () -> MappedFileList.open(w, wide, true));  
+    }  
+  
+    //索引文件里的结束位置被改坏了：指向数据文件之外的记录在get时报错  
+    @Test  
+    void rejectsCorruptIndex() throws IOException {  
+        Path v = dir.resolve("v.dat"), vi = dir.resolve("vi.dat");  
+        MappedFileList<String> s = MappedFileList.create(v, vi, MappedFileList.STRING_CODEC);  
+        s.add("a");  
+        s.add("bb");  
+        s.add("ccc");  
+        s.close();  
+  
+        putInt(vi, 0, Integer.MAX_VALUE);  
+        MappedFileList<String> r = MappedFileList.open(v, vi, MappedFileList.STRING_CODEC, true);  
+        assertThrows(UncheckedIOException.class, () -> r.get(0));  
+        assertThrows(UncheckedIOException.class, () -> r.get(1));  
+        assertEquals("ccc", r.get(2));  
+        r.close();  
+  
+        putInt(vi, 8, -1);  
+        assertThrows(StreamCorruptedException.class,  
+                     () -> MappedFileList.open(v, vi, MappedFileList.STRING_CODEC, true));  
+    }  
+  
+    private static void putInt(Path file, long position, int value) throws IOException {  
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {  
+            ByteBuffer b = ByteBuffer.allocate(4).putInt(value);  
+            b.flip();  
+            ch.write(b, position);  
+        }  
+    }  
+}  
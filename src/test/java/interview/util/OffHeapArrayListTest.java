@@ -0,0 +1,80 @@
+package interview.util;  
+  
+import java.nio.ByteBuffer;  
+import java.util.ArrayList;  
+import java.util.Arrays;  
+import java.util.List;  
+import java.util.OffHeapArrayList;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class OffHeapArrayListTest {  
+  
+    //负数编码时抛异常，用来检查失败的插入不会改动list  
+    static final OffHeapArrayList.Codec<Long> NON_NEGATIVE = new OffHeapArrayList.Codec<Long>() {  
+        public int width() { return 8; }  
+        public void encode(Long e, ByteBuffer dst) {  
+            if (e < 0)  
+                throw new IllegalArgumentException("negative: " + e);  
+            dst.putLong(e);  
+        }  
+        public Long decode(ByteBuffer src) { return src.getLong(); }  
+    };  
+  
+    @Test  
+    void behavesLikeArrayList() {  
+        try (OffHeapArrayList<Long> l = new OffHeapArrayList<>(OffHeapArrayList.LONG_CODEC)) {  
+            List<Long> ref = new ArrayList<>();  
+            for (long i = 0; i < 1000; i++) {  
+                l.add(i * i);  
+                ref.add(i * i);  
+            }  
+            l.add(10, -1L);  
+            ref.add(10, -1L);  
+            l.remove(500);  
+            ref.remove(500);  
+            l.subList(100, 200).clear();  
+            ref.subList(100, 200).clear();  
+            l.set(0, 42L);  
+            ref.set(0, 42L);  
+            assertEquals(ref, l);  
+            l.trimToSize();  
+            assertEquals(ref, l);  
+        }  
+    }  
+  
+    @Test  
+    void failedEncodeLeavesListUnchanged() {  
+        try (OffHeapArrayList<Long> l = new OffHeapArrayList<>(NON_NEGATIVE, 4)) {  
+            l.addAll(Arrays.asList(1L, 2L, 3L, 4L));  
+            assertThrows(IllegalArgumentException.class, () -> l.add(1, -5L));  
+            assertEquals(Arrays.asList(1L, 2L, 3L, 4L), l);  
+            assertThrows(IllegalArgumentException.class, () -> l.set(2, -5L));  
+            assertThrows(IllegalArgumentException.class, () -> l.add(-5L));  
+            assertEquals(Arrays.asList(1L, 2L, 3L, 4L), l);  
+        }  
+    }  
+  
+    @Test  
+    void closeIsIdempotent() {  
+        OffHeapArrayList<Long> l = new OffHeapArrayList<>(OffHeapArrayList.LONG_CODEC, 16);  
+        l.add(1L);  
+        l.close();  
+        l.close();  
+        assertEquals(0, l.size());  
+        assertThrows(IllegalStateException.class, () -> l.add(2L));  
+        assertThrows(IllegalStateException.class, () -> l.get(0));  
+    }  
+  
+    //没有close的list交给Cleaner释放，这里只检查大量创建、丢弃不会出问题  
+    @Test  
+    void unclosedListsAreReclaimed() {  
+        for (int i = 0; i < 10000; i++) {  
+            OffHeapArrayList<Long> l = new OffHeapArrayList<>(OffHeapArrayList.LONG_CODEC, 1024);  
+            l.add((long) i);  
+        }  
+        System.gc();  
+    }  
+}  
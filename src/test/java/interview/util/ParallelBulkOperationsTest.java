@@ -0,0 +1,46 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.Random;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class ParallelBulkOperationsTest {  
+  
+    //小于、等于、大于并行的阈值，结果都要和串行的版本一样  
+    @Test  
+    void matchesSequentialVersions() {  
+        Random r = new Random(5);  
+        for (int n : new int[]{0, 5, 8191, 8192, 100003, 2000000}) {  
+            ArrayList<Integer> l = new ArrayList<>();  
+            for (int i = 0; i < n; i++)  
+                l.add(r.nextInt(1000));  
+            ArrayList<Integer> ref = new ArrayList<>(l);  
+            l.parallelReplaceAll(x -> x * 3 + 1);  
+            ref.replaceAll(x -> x * 3 + 1);  
+            assertEquals(ref, l, "replaceAll " + n);  
+            assertEquals(ref.removeIf(x -> x % 7 == 0), l.parallelRemoveIf(x -> x % 7 == 0));  
+            assertEquals(ref, l, "removeIf " + n);  
+            l.parallelSort(null);  
+            ref.sort(null);  
+            assertEquals(ref, l, "sort " + n);  
+        }  
+    }  
+  
+    //filter抛异常时list不变  
+    @Test  
+    void throwingFilterLeavesListUnchanged() {  
+        ArrayList<Integer> l = new ArrayList<>();  
+        for (int i = 0; i < 100000; i++)  
+            l.add(i);  
+        assertThrows(IllegalStateException.class, () -> l.parallelRemoveIf(x -> {  
+            if (x == 50000)  
+                throw new IllegalStateException();  
+            return true;  
+        }));  
+        assertEquals(100000, l.size());  
+        assertEquals(99999, l.get(99999));  
+    }  
+}  
@@ -0,0 +1,82 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.Collections;  
+import java.util.List;  
+import java.util.PersistentVector;  
+import java.util.Random;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class PersistentVectorTest {  
+  
+    /*  
+        1.append、with、pop和Builder批量修改混在一起，每一步都和ArrayList比较  
+        2.每隔500步留下一个版本，最后检查旧版本都没有被之后的修改影响  
+    */  
+    @Test  
+    void oldVersionsAreUnaffected() {  
+        Random r = new Random(17);  
+        List<PersistentVector<Integer>> versions = new ArrayList<>();  
+        List<List<Integer>> expected = new ArrayList<>();  
+        PersistentVector<Integer> v = PersistentVector.empty();  
+        ArrayList<Integer> ref = new ArrayList<>();  
+        for (int step = 0; step < 20000; step++) {  
+            int op = r.nextInt(10);  
+            if (op < 5 || ref.isEmpty()) {  
+                int x = r.nextInt();  
+                v = v.append(x);  
+                ref.add(x);  
+            } else if (op < 7) {  
+                int i = r.nextInt(ref.size());  
+                int x = r.nextInt();  
+                v = v.with(i, x);  
+                ref.set(i, x);  
+            } else if (op < 9) {  
+                v = v.pop();  
+                ref.remove(ref.size() - 1);  
+            } else {  
+                PersistentVector.Builder<Integer> b = v.toBuilder();  
+                for (int k = r.nextInt(1000); k > 0; k--) {  
+                    int o = r.nextInt(5);  
+                    if (o < 3 || b.size() == 0) {  
+                        int x = r.nextInt();  
+                        b.add(x);  
+                        ref.add(x);  
+                    } else if (o == 3) {  
+                        int i = r.nextInt(b.size());  
+                        int x = r.nextInt();  
+                        assertEquals(ref.set(i, x), b.set(i, x));  
+                    } else {  
+                        assertEquals(ref.remove(ref.size() - 1), b.pop());  
+                    }  
+                }  
+                v = b.build();  
+                //build之后Builder不能再用  
+                assertThrows(IllegalStateException.class, () -> b.add(1));  
+            }  
+            assertEquals(ref.size(), v.size());  
+            if (step % 500 == 0) {  
+                assertEquals(ref, v);  
+                versions.add(v);  
+                expected.add(new ArrayList<>(ref));  
+            }  
+        }  
+        for (int i = 0; i < versions.size(); i++)  
+            assertEquals(expected.get(i), versions.get(i), "version " + i);  
+    }  
+  
+    @Test  
+    void popDownToEmpty() {  
+        PersistentVector<Integer> big = PersistentVector.of(Collections.nCopies(40000, 3));  
+        int sum = 0;  
+        for (int x : big)  
+            sum += x;  
+        assertEquals(120000, sum);  
+        while (big.size() > 0)  
+            big = big.pop();  
+        assertTrue(big.isEmpty());  
+    }  
+}  
@@ -0,0 +1,227 @@
+package interview.util;  
+  
+import java.lang.management.ManagementFactory;  
+import java.lang.reflect.Field;  
+import java.util.ArrayList;  
+import java.util.Arrays;  
+import java.util.ConcurrentModificationException;  
+import java.util.DoubleArrayList;  
+import java.util.IntArrayList;  
+import java.util.List;  
+import java.util.LongArrayList;  
+import java.util.PrimitiveIterator;  
+import java.util.Random;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class PrimitiveArrayListTest {  
+  
+    /*  
+        1.同样的操作序列，IntArrayList、LongArrayList、DoubleArrayList的capacity每一步都要和ArrayList一样  
+        2.无参构造第一次add扩到10，new XxxArrayList(0)和trimToSize之后从0开始按1.5倍长  
+    */  
+    @Test  
+    void capacityMatchesArrayList() throws Exception {  
+        Random r = new Random(2);  
+        for (int it = 0; it < 20; it++) {  
+            boolean zero = (it % 2 == 0);  
+            ArrayList<Integer> ref = zero ? new ArrayList<>(0) : new ArrayList<>();  
+            IntArrayList ints = zero ? new IntArrayList(0) : new IntArrayList();  
+            LongArrayList longs = zero ? new LongArrayList(0) : new LongArrayList();  
+            DoubleArrayList doubles = zero ? new DoubleArrayList(0) : new DoubleArrayList();  
+            for (int step = 0; step < 500; step++) {  
+                int v = r.nextInt(100);  
+                switch (r.nextInt(10)) {  
+                    case 0:  
+                        ref.ensureCapacity(v);  
+                        ints.ensureCapacity(v);  
+                        longs.ensureCapacity(v);  
+                        doubles.ensureCapacity(v);  
+                        break;  
+                    case 1:  
+                        ref.trimToSize();  
+                        ints.trimToSize();  
+                        longs.trimToSize();  
+                        doubles.trimToSize();  
+                        break;  
+                    case 2:  
+                        if (!ref.isEmpty()) {  
+                            ref.remove(0);  
+                            ints.removeInt(0);  
+                            longs.removeLong(0);  
+                            doubles.removeDouble(0);  
+                        }  
+                        break;  
+                    case 3:  
+                        int i = r.nextInt(ref.size() + 1);  
+                        ref.add(i, v);  
+                        ints.add(i, v);  
+                        longs.add(i, (long) v);  
+                        doubles.add(i, (double) v);  
+                        break;  
+                    default:  
+                        ref.add(v);  
+                        ints.add(v);  
+                        longs.add((long) v);  
+                        doubles.add((double) v);  
+                }  
+                int capacity = capacity(ref);  
+                assertEquals(capacity, capacity(ints), "step " + step);  
+                assertEquals(capacity, capacity(longs), "step " + step);  
+                assertEquals(capacity, capacity(doubles), "step " + step);  
+            }  
+            assertEquals(ref, ints);  
+            for (int i = 0; i < ref.size(); i++) {  
+                assertEquals((long) ref.get(i), longs.getLong(i));  
+                assertEquals((double) ref.get(i), doubles.getDouble(i));  
+            }  
+        }  
+    }  
+  
+    //remove(int)是按下标删除，remove(Object)按值删除；LongArrayList上remove(5)的5是下标，remove(5L)才是值  
+    @Test  
+    void removeOverloads() {  
+        IntArrayList ints = new IntArrayList(new int[]{10, 5, 20, 5});  
+        assertEquals(5, ints.removeInt(1));  
+        assertEquals(Integer.valueOf(20), ints.remove(1));  
+        assertTrue(ints.remove(Integer.valueOf(5)));  
+        assertFalse(ints.remove(Integer.valueOf(5)));  
+        assertFalse(ints.remove(Long.valueOf(10)));  
+        assertEquals(Arrays.asList(10), ints);  
+  
+        LongArrayList longs = new LongArrayList(new long[]{0, 1, 2, 3, 4, 5, 6});  
+        assertEquals(Long.valueOf(5), longs.remove(5));  
+        assertTrue(longs.remove(Long.valueOf(0)));  
+        assertFalse(longs.remove(Integer.valueOf(1)));  
+        assertEquals(6L, longs.removeLong(4));  
+        assertArrayEquals(new long[]{1, 2, 3, 4}, longs.toLongArray());  
+  
+        DoubleArrayList doubles = new DoubleArrayList(new double[]{1.5, 2.5});  
+        assertEquals(2.5, doubles.removeDouble(1));  
+        assertTrue(doubles.remove(Double.valueOf(1.5)));  
+        assertTrue(doubles.isEmpty());  
+        assertThrows(IndexOutOfBoundsException.class, () -> doubles.removeDouble(0));  
+    }  
+  
+    //SubList的修改写回parent，SubList自己也有int版本的方法和迭代器  
+    @Test  
+    void subListWritesThrough() {  
+        IntArrayList l = new IntArrayList();  
+        List<Integer> ref = new ArrayList<>();  
+        for (int i = 0; i < 20; i++) {  
+            l.add(i);  
+            ref.add(i);  
+        }  
+        IntArrayList.SubList sub = l.subList(5, 15);  
+        List<Integer> refSub = ref.subList(5, 15);  
+        assertEquals(7, sub.getInt(2));  
+        assertEquals(7, sub.set(2, -7));  
+        refSub.set(2, -7);  
+        sub.add(0, 100);  
+        refSub.add(0, 100);  
+        assertEquals(Integer.valueOf(8), sub.remove(4));  
+        refSub.remove(4);  
+        IntArrayList.SubList subSub = sub.subList(1, 4);  
+        subSub.set(0, -5);  
+        refSub.subList(1, 4).set(0, -5);  
+        long sum = 0;  
+        for (PrimitiveIterator.OfInt it = sub.intIterator(); it.hasNext(); )  
+            sum += it.nextInt();  
+        assertEquals(refSub.stream().mapToLong(x -> x).sum(), sum);  
+        sub.subList(2, 5).clear();  
+        refSub.subList(2, 5).clear();  
+        assertEquals(refSub, sub);  
+        assertEquals(ref, l);  
+  
+        l.add(1);  
+        assertThrows(ConcurrentModificationException.class, () -> sub.getInt(0));  
+    }  
+  
+    @Test  
+    void trimToSizeAndClone() throws Exception {  
+        LongArrayList l = new LongArrayList(100);  
+        for (long i = 0; i < 30; i++)  
+            l.add(i << 40);  
+        l.trimToSize();  
+        assertEquals(30, capacity(l));  
+        LongArrayList c = (LongArrayList) l.clone();  
+        c.set(0, -1L);  
+        assertEquals(0L, l.getLong(0));  
+        assertEquals(l.subList(1, 30), c.subList(1, 30));  
+        l.clear();  
+        l.trimToSize();  
+        assertEquals(0, capacity(l));  
+        l.add(1L);  
+        assertEquals(1, capacity(l));  
+    }  
+  
+    //forEachXxx和xxxIterator直接读数组，遍历十万个大数不应该分配任何装箱对象  
+    @Test  
+    void primitiveIterationDoesNotBox() {  
+        int n = 100000;  
+        IntArrayList ints = new IntArrayList(n);  
+        LongArrayList longs = new LongArrayList(n);  
+        DoubleArrayList doubles = new DoubleArrayList(n);  
+        for (int i = 0; i < n; i++) {  
+            ints.add(i + 1000);  
+            longs.add(i + 1000L);  
+            doubles.add(i + 0.5);  
+        }  
+        long[] sum = new long[1];  
+        double[] dsum = new double[1];  
+        long before = allocatedBytes();  
+        ints.forEachInt(x -> sum[0] += x);  
+        longs.forEachLong(x -> sum[0] += x);  
+        doubles.forEachDouble(x -> dsum[0] += x);  
+        for (PrimitiveIterator.OfInt it = ints.intIterator(); it.hasNext(); )  
+            sum[0] += it.nextInt();  
+        for (PrimitiveIterator.OfLong it = longs.longIterator(); it.hasNext(); )  
+            sum[0] += it.nextLong();  
+        for (PrimitiveIterator.OfDouble it = doubles.doubleIterator(); it.hasNext(); )  
+            dsum[0] += it.nextDouble();  
+        long allocated = allocatedBytes() - before;  
+        //装箱的话每个元素至少16字节，这里一共60万次  
+        assertTrue(allocated < 100000, allocated + " bytes");  
+        long expected = 4 * ((long) n * (n - 1) / 2 + 1000L * n);  
+        assertEquals(expected, sum[0]);  
+        assertEquals(2 * ((double) n * (n - 1) / 2 + 0.5 * n), dsum[0]);  
+    }  
+  
+    /*  
+        1.和Double.equals一样按doubleToLongBits比较：NaN能找到自己，0.0和-0.0是两个不同的值  
+        2.double版本和装箱版本的结果一致  
+    */  
+    @Test  
+    void doubleEqualityUsesBits() {  
+        DoubleArrayList l = new DoubleArrayList(new double[]{1.0, Double.NaN, -0.0, 0.0, Double.NaN});  
+        assertEquals(1, l.indexOf(Double.NaN));  
+        assertEquals(4, l.lastIndexOf(Double.NaN));  
+        assertEquals(1, l.indexOf((Object) Double.NaN));  
+        assertTrue(l.contains(Double.NaN));  
+        assertEquals(2, l.indexOf(-0.0));  
+        assertEquals(3, l.indexOf(0.0));  
+        assertEquals(2, l.lastIndexOf(-0.0));  
+        assertEquals(3, l.indexOf((Object) 0.0));  
+        assertEquals(-1, l.indexOf((Object) 0.0f));  
+        assertEquals(-1, l.indexOf((Object) null));  
+        assertTrue(l.remove((Object) 0.0));  
+        assertEquals(-1, l.indexOf(0.0));  
+        assertTrue(l.contains(-0.0));  
+        assertFalse(l.contains(0.0));  
+        //0.0不在了，但是和它==的-0.0还在  
+        assertEquals(Arrays.asList(1.0, Double.NaN, -0.0, Double.NaN), l);  
+    }  
+  
+    private static int capacity(Object list) throws Exception {  
+        Field f = list.getClass().getDeclaredField("elementData");  
+        f.setAccessible(true);  
+        return java.lang.reflect.Array.getLength(f.get(list));  
+    }  
+  
+    private static long allocatedBytes() {  
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())  
+            .getThreadAllocatedBytes(Thread.currentThread().getId());  
+    }  
+}  
@@ -0,0 +1,91 @@
+package interview.util;  
+  
+import java.io.ByteArrayInputStream;  
+import java.io.ByteArrayOutputStream;  
+import java.io.ObjectInputStream;  
+import java.io.ObjectOutputStream;  
+import java.util.ArrayList;  
+import java.util.List;  
+import java.util.Random;  
+import java.util.SegmentedArrayList;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class SegmentedArrayListTest {  
+  
+    //chunk只有16个元素，插入、删除、trimToSize都会跨过chunk的边界  
+    @Test  
+    void randomOperationsMatchArrayList() {  
+        Random r = new Random(6);  
+        SegmentedArrayList<Integer> l = new SegmentedArrayList<>(4);  
+        List<Integer> ref = new ArrayList<>();  
+        for (int step = 0; step < 20000; step++) {  
+            int n = ref.size();  
+            switch (r.nextInt(8)) {  
+                case 0: case 1: case 2:  
+                    l.add(step);  
+                    ref.add(step);  
+                    break;  
+                case 3:  
+                    int i = r.nextInt(n + 1);  
+                    l.add(i, step);  
+                    ref.add(i, step);  
+                    break;  
+                case 4:  
+                    if (n > 0) {  
+                        int j = r.nextInt(n);  
+                        assertEquals(ref.remove(j), l.remove(j));  
+                    }  
+                    break;  
+                case 5:  
+                    if (n > 0) {  
+                        int j = r.nextInt(n);  
+                        assertEquals(ref.set(j, -step), l.set(j, -step));  
+                    }  
+                    break;  
+                case 6:  
+                    if (n > 40) {  
+                        int from = r.nextInt(n - 40);  
+                        l.subList(from, from + 37).clear();  
+                        ref.subList(from, from + 37).clear();  
+                    }  
+                    break;  
+                case 7:  
+                    if (r.nextBoolean())  
+                        l.trimToSize();  
+                    else  
+                        l.ensureCapacity(n + r.nextInt(100));  
+                    break;  
+            }  
+            assertEquals(ref.size(), l.size());  
+        }  
+        assertEquals(ref, l);  
+    }  
+  
+    @Test  
+    void cloneAndSerializationCopyAllChunks() throws Exception {  
+        SegmentedArrayList<Integer> l = new SegmentedArrayList<>(4);  
+        for (int i = 0; i < 1000; i++)  
+            l.add(i);  
+        @SuppressWarnings("unchecked")  
+        SegmentedArrayList<Integer> c = (SegmentedArrayList<Integer>) l.clone();  
+        l.set(500, -1);  
+        assertEquals(500, c.get(500));  
+  
+        ByteArrayOutputStream b = new ByteArrayOutputStream();  
+        try (ObjectOutputStream out = new ObjectOutputStream(b)) {  
+            out.writeObject(c);  
+        }  
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(b.toByteArray()))) {  
+            assertEquals(c, in.readObject());  
+        }  
+    }  
+  
+    @Test  
+    void rejectsIllegalChunkShift() {  
+        assertThrows(IllegalArgumentException.class, () -> new SegmentedArrayList<>(3));  
+        assertThrows(IllegalArgumentException.class, () -> new SegmentedArrayList<>(31));  
+    }  
+}  
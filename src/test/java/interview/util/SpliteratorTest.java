@@ -0,0 +1,62 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.ConcurrentModificationException;  
+import java.util.List;  
+import java.util.Spliterator;  
+import java.util.Vector;  
+import java.util.stream.IntStream;  
+import java.util.stream.StreamSupport;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class SpliteratorTest {  
+  
+    private static final long SUM = 4999950000L;  
+  
+    @Test  
+    void parallelStreamsSeeEveryElement() {  
+        ArrayList<Integer> l = new ArrayList<>();  
+        Vector<Integer> v = new Vector<>();  
+        //late-binding：spliterator在第一次遍历时才读size  
+        Spliterator<Integer> late = l.spliterator();  
+        for (int i = 0; i < 100000; i++) {  
+            l.add(i);  
+            v.add(i);  
+        }  
+        long[] s = {0};  
+        late.forEachRemaining(x -> s[0] += x);  
+        assertEquals(SUM, s[0]);  
+  
+        assertEquals(SUM, StreamSupport.stream(l.spliterator(), true).mapToLong(x -> x).sum());  
+        assertEquals(50000, StreamSupport.stream(v.spliterator(), true).filter(x -> x % 2 == 0).count());  
+  
+        List<Integer> sub = l.subList(10, 1010).subList(5, 105);  
+        assertEquals(IntStream.range(15, 115).sum(),  
+                     StreamSupport.stream(sub.spliterator(), true).mapToInt(x -> x).sum());  
+  
+        Spliterator<Integer> sp = l.spliterator();  
+        assertEquals(100000, sp.estimateSize());  
+        assertTrue(sp.hasCharacteristics(Spliterator.SUBSIZED));  
+    }  
+  
+    @Test  
+    void modifyingWhileTraversingFailsFast() {  
+        ArrayList<Integer> l = new ArrayList<>();  
+        Vector<Integer> v = new Vector<>();  
+        for (int i = 0; i < 100; i++) {  
+            l.add(i);  
+            v.add(i);  
+        }  
+        assertThrows(ConcurrentModificationException.class, () -> l.spliterator().forEachRemaining(x -> {  
+            if (x == 5)  
+                l.add(1);  
+        }));  
+        assertThrows(ConcurrentModificationException.class, () -> v.spliterator().forEachRemaining(x -> {  
+            if (x == 5)  
+                v.add(1);  
+        }));  
+    }  
+}  
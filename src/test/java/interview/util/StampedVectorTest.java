@@ -0,0 +1,193 @@
+package interview.util;  
+  
+import java.lang.reflect.Field;  
+import java.time.Duration;  
+import java.util.Arrays;  
+import java.util.Comparator;  
+import java.util.ConcurrentModificationException;  
+import java.util.Iterator;  
+import java.util.LinkedHashMap;  
+import java.util.List;  
+import java.util.Map;  
+import java.util.StampedVector;  
+import java.util.Vector;  
+import java.util.concurrent.atomic.AtomicBoolean;  
+import java.util.concurrent.atomic.AtomicInteger;  
+import java.util.concurrent.locks.StampedLock;  
+import java.util.function.Consumer;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class StampedVectorTest {  
+  
+    private static StampedVector<Integer> filled(int n) {  
+        StampedVector<Integer> v = new StampedVector<>();  
+        for (int i = 0; i < n; i++)  
+            v.add(i);  
+        return v;  
+    }  
+  
+    /*  
+        1.每一个修改方法都要拿写锁：修改之前开始的乐观读，修改之后validate一定失败  
+        2.removeElement调用removeElementAt、addAll调用insertElementAt这样的嵌套调用不能卡住，  
+          修改完写锁都要放掉  
+    */  
+    @Test  
+    void everyMutatorInvalidatesOptimisticReads() throws Exception {  
+        Map<String, Consumer<StampedVector<Integer>>> ops = new LinkedHashMap<>();  
+        ops.put("trimToSize", v -> v.trimToSize());  
+        ops.put("ensureCapacity", v -> v.ensureCapacity(1000));  
+        ops.put("setSize", v -> v.setSize(5));  
+        ops.put("setElementAt", v -> v.setElementAt(-1, 3));  
+        ops.put("removeElementAt", v -> v.removeElementAt(3));  
+        ops.put("insertElementAt", v -> v.insertElementAt(-1, 3));  
+        ops.put("addElement", v -> v.addElement(-1));  
+        ops.put("removeElement", v -> v.removeElement(3));  
+        ops.put("removeAllElements", v -> v.removeAllElements());  
+        ops.put("set", v -> v.set(3, -1));  
+        ops.put("add", v -> v.add(-1));  
+        ops.put("remove", v -> v.remove(3));  
+        ops.put("addAll", v -> v.addAll(Arrays.asList(-1, -2)));  
+        ops.put("addAllArray", v -> v.addAll(new Integer[]{-1, -2}, 0, 2));  
+        ops.put("addAllAt", v -> v.addAll(2, Arrays.asList(-1, -2)));  
+        ops.put("removeAll", v -> v.removeAll(Arrays.asList(1, 2)));  
+        ops.put("retainAll", v -> v.retainAll(Arrays.asList(1, 2)));  
+        ops.put("removeRange", v -> v.subList(2, 6).clear());  
+        ops.put("replaceAll", v -> v.replaceAll(x -> x + 1));  
+        ops.put("removeIf", v -> v.removeIf(x -> x % 2 == 0));  
+        ops.put("sort", v -> v.sort(Comparator.reverseOrder()));  
+        ops.put("clear", v -> v.clear());  
+  
+        for (Map.Entry<String, Consumer<StampedVector<Integer>>> op : ops.entrySet()) {  
+            StampedVector<Integer> v = filled(10);  
+            StampedLock lock = lock(v);  
+            long stamp = lock.tryOptimisticRead();  
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> op.getValue().accept(v), op.getKey());  
+            assertFalse(lock.validate(stamp), op.getKey());  
+            assertFalse(lock.isWriteLocked(), op.getKey());  
+        }  
+    }  
+  
+    //写锁被拿着的时候（乐观读一定失败），读方法退回到synchronized的Vector方法，结果和异常都不变  
+    @Test  
+    void readsFallBackWhileWriteLocked() throws Exception {  
+        StampedVector<Integer> v = filled(10);  
+        StampedLock lock = lock(v);  
+        long stamp = lock.writeLock();  
+        try {  
+            assertEquals(4, v.get(4));  
+            assertEquals(5, v.elementAt(5));  
+            assertEquals(0, v.firstElement());  
+            assertEquals(9, v.lastElement());  
+            assertEquals(7, v.indexOf(7));  
+            assertEquals(-1, v.indexOf(7, 8));  
+            assertTrue(v.contains(9));  
+            assertEquals(10, v.size());  
+            assertThrows(ArrayIndexOutOfBoundsException.class, () -> v.get(10));  
+            assertThrows(ArrayIndexOutOfBoundsException.class, () -> v.elementAt(-1));  
+            assertThrows(IndexOutOfBoundsException.class, () -> v.indexOf(1, -1));  
+        } finally {  
+            lock.unlockWrite(stamp);  
+        }  
+        //乐观读成功时也是同样的异常  
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> v.get(10));  
+        assertThrows(IndexOutOfBoundsException.class, () -> v.indexOf(1, -1));  
+        v.clear();  
+        assertThrows(java.util.NoSuchElementException.class, v::firstElement);  
+        assertThrows(java.util.NoSuchElementException.class, v::lastElement);  
+        assertTrue(v.isEmpty());  
+    }  
+  
+    @Test  
+    void iteratorsStillFailFast() {  
+        StampedVector<Integer> v = filled(5);  
+        Iterator<Integer> it = v.iterator();  
+        it.next();  
+        v.add(5);  
+        assertThrows(ConcurrentModificationException.class, it::next);  
+        List<Integer> sub = v.subList(1, 3);  
+        v.removeElementAt(0);  
+        assertThrows(ConcurrentModificationException.class, sub::size);  
+    }  
+  
+    //clone有自己的锁，修改clone不影响原来的vector上的乐观读  
+    @Test  
+    void cloneGetsItsOwnLock() throws Exception {  
+        StampedVector<Integer> v = filled(5);  
+        @SuppressWarnings("unchecked")  
+        StampedVector<Integer> c = (StampedVector<Integer>) v.clone();  
+        assertNotSame(lock(v), lock(c));  
+        long stamp = lock(v).tryOptimisticRead();  
+        c.add(5);  
+        c.set(0, -1);  
+        assertTrue(lock(v).validate(stamp));  
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), v);  
+        assertEquals(Arrays.asList(-1, 1, 2, 3, 4, 5), c);  
+    }  
+  
+    /*  
+        1.写线程在同一组元素上反复原地排序：自然顺序和按(x * 7919) % n打乱的顺序来回切换，  
+          中间还会换数组（ensureCapacity、trimToSize）  
+        2.TimSort合并到一半时，很多位置上的值两种顺序里都不会出现；读线程不加锁读，  
+          第i个位置只能是i或者scrambled[i]，否则就是乐观读漏掉了写  
+    */  
+    @Test  
+    void readersNeverSeeTornWrites() throws Exception {  
+        int n = 20000;  
+        Comparator<Integer> scramble = Comparator.comparingInt(x -> (int) ((x * 7919L) % n));  
+        StampedVector<Integer> v = filled(n);  
+        Integer[] scrambled = v.toArray(new Integer[0]);  
+        Arrays.sort(scrambled, scramble);  
+        int[] where = new int[n];  
+        for (int i = 0; i < n; i++)  
+            where[scrambled[i]] = i;  
+  
+        AtomicBoolean done = new AtomicBoolean();  
+        AtomicInteger errors = new AtomicInteger();  
+        Thread[] readers = new Thread[4];  
+        for (int r = 0; r < readers.length; r++) {  
+            final int seed = r;  
+            readers[r] = new Thread(() -> {  
+                int i = seed;  
+                while (!done.get()) {  
+                    i = (i + 7) % n;  
+                    int x = v.get(i);  
+                    if (x != i && x != scrambled[i])  
+                        errors.incrementAndGet();  
+                    int e = v.elementAt(n - 1 - i);  
+                    if (e != n - 1 - i && e != scrambled[n - 1 - i])  
+                        errors.incrementAndGet();  
+                    if ((i & 63) == 0) {  
+                        int k = v.indexOf(i);  
+                        if (k != i && k != where[i])  
+                            errors.incrementAndGet();  
+                    }  
+                    if (v.size() != n)  
+                        errors.incrementAndGet();  
+                }  
+            });  
+            readers[r].start();  
+        }  
+        for (int round = 0; round < 100; round++) {  
+            v.sort(scramble);  
+            v.sort(Comparator.naturalOrder());  
+            if (round % 10 == 0) {  
+                v.ensureCapacity(v.capacity() * 2);  
+                v.trimToSize();  
+            }  
+        }  
+        done.set(true);  
+        for (Thread t : readers)  
+            t.join();  
+        assertEquals(0, errors.get());  
+        assertEquals(filled(n), v);  
+    }  
+  
+    private static StampedLock lock(StampedVector<?> v) throws Exception {  
+        Field f = StampedVector.class.getDeclaredField("lock");  
+        f.setAccessible(true);  
+        return (StampedLock) f.get(v);  
+    }  
+}  
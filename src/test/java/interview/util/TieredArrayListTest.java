@@ -0,0 +1,201 @@
+package interview.util;  
+  
+import java.util.ArrayList;  
+import java.util.Arrays;  
+import java.util.ConcurrentModificationException;  
+import java.util.Iterator;  
+import java.util.LinkedList;  
+import java.util.List;  
+import java.util.ListIterator;  
+import java.util.NoSuchElementException;  
+import java.util.Random;  
+import java.util.TieredArrayList;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class TieredArrayListTest {  
+  
+    /*  
+        1.块大小从16开始，长到几千个元素，中间会按2B重建好几次  
+        2.插入删除的位置随机，跨过块的边界，环形缓冲区的head也会绕回去  
+    */  
+    @Test  
+    void randomOperationsMatchLinkedList() {  
+        Random r = new Random(7);  
+        TieredArrayList<Integer> l = new TieredArrayList<>();  
+        List<Integer> ref = new LinkedList<>();  
+        for (int step = 0; step < 20000; step++) {  
+            int n = ref.size();  
+            switch (r.nextInt(8)) {  
+                case 0: case 1:  
+                    l.add(step);  
+                    ref.add(step);  
+                    break;  
+                case 2: case 3:  
+                    int i = r.nextInt(n + 1);  
+                    l.add(i, step);  
+                    ref.add(i, step);  
+                    break;  
+                case 4:  
+                    if (n > 0) {  
+                        int j = r.nextInt(n);  
+                        assertEquals(ref.remove(j), l.remove(j));  
+                    }  
+                    break;  
+                case 5:  
+                    if (n > 0) {  
+                        int j = r.nextInt(n);  
+                        assertEquals(ref.set(j, -step), l.set(j, -step));  
+                    }  
+                    break;  
+                case 6:  
+                    if (n > 40 && r.nextInt(40) == 0) {  
+                        int from = r.nextInt(n - 40);  
+                        l.subList(from, from + 37).clear();  
+                        ref.subList(from, from + 37).clear();  
+                    }  
+                    break;  
+                case 7:  
+                    if (r.nextInt(20) == 0)  
+                        l.trimToSize();  
+                    break;  
+            }  
+            assertEquals(ref.size(), l.size());  
+        }  
+        assertTrue(l.size() > 1000, "size " + l.size());  
+        assertEquals(ref, l);  
+        for (int i = 0; i < ref.size(); i += 97)  
+            assertEquals(ref.get(i), l.get(i));  
+    }  
+  
+    //先从前面删、再从后面加，让每个块的head绕一圈以上  
+    @Test  
+    void headsWrapAround() {  
+        TieredArrayList<Integer> l = new TieredArrayList<>();  
+        List<Integer> ref = new ArrayList<>();  
+        for (int i = 0; i < 200; i++) {  
+            l.add(i);  
+            ref.add(i);  
+        }  
+        for (int i = 0; i < 1000; i++) {  
+            assertEquals(ref.remove(0), l.remove(0));  
+            l.add(0, -i);  
+            ref.add(0, -i);  
+            assertEquals(ref.remove(ref.size() / 2), l.remove(l.size() / 2));  
+            l.add(i);  
+            ref.add(i);  
+        }  
+        assertEquals(ref, l);  
+        assertEquals(ref.indexOf(500), l.indexOf(500));  
+        assertEquals(ref.lastIndexOf(-3), l.lastIndexOf(-3));  
+    }  
+  
+    //ListIterator的每个操作都和LinkedList的ListIterator一样，包括抛出的异常  
+    @Test  
+    void listIteratorMatchesLinkedList() {  
+        Random r = new Random(9);  
+        for (int it = 0; it < 200; it++) {  
+            TieredArrayList<Integer> l = new TieredArrayList<>();  
+            List<Integer> ref = new LinkedList<>();  
+            int n = r.nextInt(100);  
+            for (int i = 0; i < n; i++) {  
+                l.add(i);  
+                ref.add(i);  
+            }  
+            int start = r.nextInt(n + 1);  
+            ListIterator<Integer> a = l.listIterator(start), b = ref.listIterator(start);  
+            for (int step = 0; step < 200; step++) {  
+                int v = r.nextInt(1000);  
+                switch (r.nextInt(6)) {  
+                    case 0:  
+                        if (b.hasNext())  
+                            assertEquals(b.next(), a.next());  
+                        else  
+                            assertThrows(NoSuchElementException.class, a::next);  
+                        break;  
+                    case 1:  
+                        if (b.hasPrevious())  
+                            assertEquals(b.previous(), a.previous());  
+                        else  
+                            assertThrows(NoSuchElementException.class, a::previous);  
+                        break;  
+                    case 2:  
+                        try {  
+                            b.remove();  
+                        } catch (IllegalStateException e) {  
+                            assertThrows(IllegalStateException.class, a::remove);  
+                            break;  
+                        }  
+                        a.remove();  
+                        break;  
+                    case 3:  
+                        try {  
+                            b.set(v);  
+                        } catch (IllegalStateException e) {  
+                            assertThrows(IllegalStateException.class, () -> a.set(v));  
+                            break;  
+                        }  
+                        a.set(v);  
+                        break;  
+                    case 4:  
+                        a.add(v);  
+                        b.add(v);  
+                        break;  
+                    case 5:  
+                        assertEquals(b.nextIndex(), a.nextIndex());  
+                        assertEquals(b.previousIndex(), a.previousIndex());  
+                        break;  
+                }  
+                assertEquals(b.hasNext(), a.hasNext());  
+                assertEquals(b.hasPrevious(), a.hasPrevious());  
+            }  
+            assertEquals(ref, l);  
+        }  
+    }  
+  
+    @Test  
+    void iteratorsFailFast() {  
+        TieredArrayList<Integer> l = new TieredArrayList<>(Arrays.asList(1, 2, 3, 4));  
+        Iterator<Integer> it = l.iterator();  
+        it.next();  
+        l.add(5);  
+        assertThrows(ConcurrentModificationException.class, it::next);  
+        assertThrows(ConcurrentModificationException.class, it::remove);  
+  
+        ListIterator<Integer> li = l.listIterator(2);  
+        li.previous();  
+        l.remove(0);  
+        assertThrows(ConcurrentModificationException.class, li::previous);  
+        assertThrows(ConcurrentModificationException.class, () -> li.set(9));  
+        assertThrows(ConcurrentModificationException.class, () -> li.add(9));  
+  
+        List<Integer> sub = l.subList(1, 3);  
+        l.trimToSize();  
+        assertThrows(ConcurrentModificationException.class, sub::size);  
+    }  
+  
+    //trimToSize按当前size重建，内容和下标都不变  
+    @Test  
+    void trimToSizeKeepsContents() {  
+        TieredArrayList<Integer> l = new TieredArrayList<>();  
+        for (int i = 0; i < 5000; i++)  
+            l.add(i);  
+        l.subList(10, 4990).clear();  
+        l.trimToSize();  
+        assertEquals(20, l.size());  
+        for (int i = 0; i < 10; i++) {  
+            assertEquals(i, l.get(i));  
+            assertEquals(4990 + i, l.get(10 + i));  
+        }  
+        l.add(10, -1);  
+        assertEquals(-1, l.get(10));  
+        assertEquals(4990, l.get(11));  
+        l.clear();  
+        l.trimToSize();  
+        assertTrue(l.isEmpty());  
+        l.add(1);  
+        assertEquals(Arrays.asList(1), l);  
+    }  
+}  
@@ -0,0 +1,95 @@
+package interview.util;  
+  
+import java.util.Enumeration;  
+import java.util.NoSuchElementException;  
+import java.util.StampedVector;  
+import java.util.Vector;  
+  
+import org.junit.jupiter.api.Test;  
+  
+import static org.junit.jupiter.api.Assertions.*;  
+  
+class VectorEnumerationTest {  
+  
+    //批的大小比vector小、相等、大，都要按顺序枚举出所有元素  
+    @Test  
+    void batchedElementsInOrder() {  
+        Vector<Integer> v = new Vector<>();  
+        for (int i = 0; i < 1000; i++)  
+            v.add(i);  
+        for (int b : new int[]{1, 7, 64, 1000, 5000}) {  
+            Enumeration<Integer> e = v.elements(b);  
+            int k = 0;  
+            while (e.hasMoreElements())  
+                assertEquals(k++, e.nextElement(), "batch " + b);  
+            assertEquals(1000, k);  
+            assertThrows(NoSuchElementException.class, e::nextElement);  
+        }  
+  
+        //已经取出的一批不受之后setSize的影响，下一批按新的size  
+        Enumeration<Integer> e = v.elements(100);  
+        e.nextElement();  
+        v.setSize(50);  
+        int k = 1;  
+        while (e.hasMoreElements()) {  
+            e.nextElement();  
+            k++;  
+        }  
+        assertEquals(100, k);  
+    }  
+  
+    //快照之后的修改都看不到  
+    @Test  
+    void snapshotElementsIgnoreLaterWrites() {  
+        Vector<Integer> v = new Vector<>();  
+        for (int i = 0; i < 50; i++)  
+            v.add(i);  
+        Enumeration<Integer> s = v.snapshotElements();  
+        v.set(0, -1);  
+        v.clear();  
+        for (int i = 0; i < 10; i++)  
+            v.add(7);  
+        int k = 0;  
+        while (s.hasMoreElements())  
+            assertEquals(k++, s.nextElement());  
+        assertEquals(50, k);  
+        assertEquals(7, v.get(0));  
+  
+        StampedVector<Integer> sv = new StampedVector<>();  
+        for (int i = 0; i < 100; i++)  
+            sv.add(i);  
+        Enumeration<Integer> ss = sv.snapshotElements();  
+        sv.remove(0);  
+        k = 0;  
+        while (ss.hasMoreElements())  
+            assertEquals(k++, ss.nextElement());  
+        assertEquals(100, k);  
+    }  
+  
+    //别的线程一直在末尾加一个删一个，分批枚举不会出错，也不会越界  
+    @Test  
+    void concurrentWritersDoNotBreakEnumeration() throws Exception {  
+        Vector<Integer> v = new Vector<>();  
+        for (int i = 0; i < 100000; i++)  
+            v.add(i);  
+        Thread t = new Thread(() -> {  
+            for (int i = 0; i < 100000; i++) {  
+                v.add(i);  
+                v.remove(v.size() - 1);  
+            }  
+        });  
+        t.start();  
+        for (int r = 0; r < 50; r++) {  
+            Enumeration<Integer> q = v.elements(256);  
+            int k = 0;  
+            while (q.hasMoreElements()) {  
+                Integer x = q.nextElement();  
+                if (k < 100000)  
+                    assertEquals(k, x);  
+                k++;  
+            }  
+            assertTrue(k >= 100000);  
+        }  
+        t.join();  
+    }  
+}  